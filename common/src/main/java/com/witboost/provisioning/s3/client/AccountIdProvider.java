@@ -0,0 +1,114 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.model.common.Problem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vavr.control.Either;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.sts.StsClient;
+
+/**
+ * Caches the AWS account ID of the caller, resolved through STS {@code GetCallerIdentity} on first use.
+ *
+ * <p>The account is resolved again when the cached value is older than the configured TTL, or when the access key of
+ * the current credentials differs from the one used to resolve it, so that a credentials rotation to another account
+ * is picked up on the next call. Concurrent callers of an expired entry trigger a single STS call.</p>
+ */
+@Component
+public class AccountIdProvider {
+
+    private final Logger logger = LoggerFactory.getLogger(AccountIdProvider.class);
+
+    private final StsClient stsClient;
+    private final AwsCredentialsProvider credentialsProvider;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+
+    private volatile CachedAccount cached;
+
+    public AccountIdProvider(
+            StsClient stsClient,
+            AwsCredentialsProvider credentialsProvider,
+            MeterRegistry meterRegistry,
+            @Value("${s3.account.ttl-seconds}") long ttlSeconds) {
+        this.stsClient = stsClient;
+        this.credentialsProvider = credentialsProvider;
+        this.meterRegistry = meterRegistry;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        Gauge.builder("s3.account.cache.age.seconds", this, AccountIdProvider::cacheAgeSeconds)
+                .description("Seconds since the caller account ID was resolved through STS")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the AWS account ID of the caller, from the cache when possible.
+     *
+     * @return the account ID, or a {@link FailedOperation} if it cannot be resolved.
+     */
+    public Either<FailedOperation, String> getAccountId() {
+        String accessKeyId = currentAccessKeyId();
+        CachedAccount current = cached;
+        if (isValid(current, accessKeyId)) return Either.right(current.accountId());
+
+        synchronized (this) {
+            current = cached;
+            if (isValid(current, accessKeyId)) return Either.right(current.accountId());
+
+            String cause = current == null
+                    ? "initial"
+                    : Objects.equals(current.accessKeyId(), accessKeyId) ? "expired" : "credentials-rotated";
+            try {
+                String accountId = stsClient.getCallerIdentity().account();
+                cached = new CachedAccount(accountId, accessKeyId, Instant.now());
+                meterRegistry.counter("s3.account.resolutions", "cause", cause).increment();
+                logger.info("Caller account ID resolved through STS ({}).", cause);
+                return Either.right(accountId);
+            } catch (Exception e) {
+                String error = String.format(
+                        "Error: An unexpected error occurred while resolving the caller account ID. Details: %s",
+                        e.getMessage());
+                logger.error(error, e);
+                return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+            }
+        }
+    }
+
+    /** Discards the cached account ID, forcing the next call to go to STS. */
+    public void invalidate() {
+        cached = null;
+    }
+
+    private boolean isValid(CachedAccount entry, String accessKeyId) {
+        return entry != null
+                && Objects.equals(entry.accessKeyId(), accessKeyId)
+                && entry.resolvedAt().plus(ttl).isAfter(Instant.now());
+    }
+
+    private String currentAccessKeyId() {
+        try {
+            return credentialsProvider.resolveCredentials().accessKeyId();
+        } catch (Exception e) {
+            // Let the STS call report the credentials problem
+            logger.debug("Unable to resolve the current AWS credentials. Details: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private double cacheAgeSeconds() {
+        CachedAccount current = cached;
+        return current == null
+                ? Double.NaN
+                : Duration.between(current.resolvedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    private record CachedAccount(String accountId, String accessKeyId, Instant resolvedAt) {}
+}
@@ -0,0 +1,156 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.model.DataProduct;
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.model.common.Problem;
+import com.witboost.provisioning.s3.config.AccountRoutingProperties;
+import io.vavr.control.Either;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.arns.Arn;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider;
+
+/**
+ * Resolves the AWS account a request is provisioned into, and provides the credentials to act in it.
+ *
+ * <p>The target is the account named in the component specific if set, otherwise the one routed from the domain of
+ * the data product, otherwise the account of the adapter's own credentials. Credentials for a target account come from
+ * an {@link StsAssumeRoleCredentialsProvider} created once per target and shared by all its clients. The session is
+ * refreshed in the background before it expires, so that provisioning requests do not wait for STS.</p>
+ */
+@Component
+public class AccountRouter {
+
+    private final Logger logger = LoggerFactory.getLogger(AccountRouter.class);
+
+    private final Map<String, StsAssumeRoleCredentialsProvider> credentialsProviders = new ConcurrentHashMap<>();
+
+    private final AccountIdProvider accountIdProvider;
+    private final StsClient stsClient;
+    private final AwsCredentialsProvider defaultCredentialsProvider;
+    private final AccountRoutingProperties properties;
+    private final Map<String, AccountTarget> targets;
+
+    /**
+     * @throws IllegalStateException if a target has an invalid role ARN, or a routing entry names an unknown target.
+     */
+    public AccountRouter(
+            AccountIdProvider accountIdProvider,
+            StsClient stsClient,
+            AwsCredentialsProvider defaultCredentialsProvider,
+            AccountRoutingProperties properties) {
+        this.accountIdProvider = accountIdProvider;
+        this.stsClient = stsClient;
+        this.defaultCredentialsProvider = defaultCredentialsProvider;
+        this.properties = properties;
+        this.targets = properties.getTargets().entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(
+                        Map.Entry::getKey, entry -> toTarget(entry.getKey(), entry.getValue())));
+        properties.getRouting().forEach((domain, target) -> {
+            if (!AccountTarget.DEFAULT_NAME.equals(target) && !targets.containsKey(target))
+                throw new IllegalStateException(
+                        String.format("The domain '%s' is routed to the unknown target account '%s'.", domain, target));
+        });
+        if (!targets.isEmpty()) logger.info("Target accounts configured: {}.", targets.keySet());
+    }
+
+    /** Router that always resolves to the account of the adapter's own credentials. */
+    public static AccountRouter singleAccount(AccountIdProvider accountIdProvider) {
+        return new AccountRouter(accountIdProvider, null, null, new AccountRoutingProperties());
+    }
+
+    /**
+     * Resolves the target account of a request.
+     *
+     * @param requestedTarget the target selected by the component, or {@code null}.
+     * @param dataProduct     the data product of the request, whose domain routes requests without a selected target.
+     * @return the target account, or a {@link FailedOperation} if the selected target is not configured.
+     */
+    public Either<FailedOperation, AccountTarget> resolve(String requestedTarget, DataProduct<?> dataProduct) {
+        String domain = dataProduct == null ? null : dataProduct.getDomain();
+        String name = requestedTarget != null && !requestedTarget.isBlank()
+                ? requestedTarget
+                : domain == null
+                        ? AccountTarget.DEFAULT_NAME
+                        : properties.getRouting().getOrDefault(domain, AccountTarget.DEFAULT_NAME);
+        if (AccountTarget.DEFAULT_NAME.equals(name)) return Either.right(AccountTarget.DEFAULT);
+
+        AccountTarget target = targets.get(name);
+        if (target == null) {
+            String error = String.format(
+                    "Error: The target account '%s' is not configured. Available targets: %s.", name, targets.keySet());
+            logger.error(error);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error))));
+        }
+        return Either.right(target);
+    }
+
+    /**
+     * Returns the ID of a target account. The ID of the default account is resolved through STS and cached by
+     * {@link AccountIdProvider}; the one of the other targets is taken from their role ARN.
+     */
+    public Either<FailedOperation, String> getAccountId(AccountTarget target) {
+        return target.isDefault() ? accountIdProvider.getAccountId() : Either.right(target.accountId());
+    }
+
+    /**
+     * Returns the credentials provider to act in a target account, creating the assume-role session provider of the
+     * target on first use.
+     */
+    public AwsCredentialsProvider credentialsProvider(AccountTarget target) {
+        if (target.isDefault()) return defaultCredentialsProvider;
+        return credentialsProviders.computeIfAbsent(target.name(), name -> {
+            logger.info("Creating assume-role session for target account '{}' ({}).", name, target.roleArn());
+            return StsAssumeRoleCredentialsProvider.builder()
+                    .stsClient(stsClient)
+                    .refreshRequest(request -> request.roleArn(target.roleArn())
+                            .roleSessionName(properties.getRoleSessionName())
+                            .externalId(target.externalId())
+                            .durationSeconds(
+                                    (int) properties.getSessionDuration().toSeconds()))
+                    .asyncCredentialUpdateEnabled(true)
+                    .prefetchTime(properties.getPrefetchTime())
+                    .staleTime(properties.getStaleTime())
+                    .build();
+        });
+    }
+
+    /** The configured target accounts, excluding the default one. */
+    public Collection<AccountTarget> targets() {
+        return targets.values();
+    }
+
+    @PreDestroy
+    void close() {
+        credentialsProviders.values().forEach(StsAssumeRoleCredentialsProvider::close);
+        credentialsProviders.clear();
+    }
+
+    private static AccountTarget toTarget(String name, AccountRoutingProperties.Target target) {
+        if (AccountTarget.DEFAULT_NAME.equals(name))
+            throw new IllegalStateException(String.format(
+                    "'%s' is reserved for the account of the adapter's own credentials and cannot be used as a target name.",
+                    AccountTarget.DEFAULT_NAME));
+        try {
+            String accountId = Arn.fromString(target.getRoleArn())
+                    .accountId()
+                    .orElseThrow(() -> new IllegalArgumentException("The ARN has no account ID"));
+            return new AccountTarget(name, target.getRoleArn(), target.getExternalId(), accountId);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(
+                    String.format(
+                            "Invalid role ARN '%s' for target account '%s'. Details: %s",
+                            target.getRoleArn(), name, e.getMessage()),
+                    e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.witboost.provisioning.s3.client;
+
+/**
+ * The AWS account a request is provisioned into.
+ *
+ * @param name       the name of the target in {@code aws.accounts.targets}, or {@value #DEFAULT_NAME} for the account
+ *                   of the adapter's own credentials.
+ * @param roleArn    the role assumed to act in the target account, {@code null} for the default target.
+ * @param externalId the external ID required by the trust policy of the role, if any.
+ * @param accountId  the ID of the target account, {@code null} for the default target.
+ */
+public record AccountTarget(String name, String roleArn, String externalId, String accountId) {
+
+    public static final String DEFAULT_NAME = "default";
+
+    /** The account of the adapter's own credentials. */
+    public static final AccountTarget DEFAULT = new AccountTarget(DEFAULT_NAME, null, null, null);
+
+    public boolean isDefault() {
+        return roleArn == null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.s3.config.RateLimitProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+/**
+ * Token bucket whose rate follows an additive-increase, multiplicative-decrease policy.
+ *
+ * <p>Callers take permits before each request, waiting when the bucket is empty. The bucket holds at most one second
+ * of permits, so an idle limiter does not allow a burst above the rate. Each adjustment interval with healthy
+ * responses adds {@code increaseStep} to the rate, up to {@code maxRate}; a {@code SlowDown} response multiplies it
+ * by {@code decreaseFactor}, down to {@code minRate}. At most one decrease is applied per interval, so that the
+ * throttled responses of the requests already in flight count as a single signal, and the rate is not increased in
+ * the interval following a change.</p>
+ */
+final class AdaptiveRateLimiter {
+
+    /** Waits for the given number of nanoseconds. */
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final long adjustmentIntervalNanos;
+    private final int maxAttempts;
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+
+    private double rate;
+    private double permits;
+    private long lastRefill;
+    private long lastAdjustment;
+    private long lastDecrease;
+
+    AdaptiveRateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    AdaptiveRateLimiter(RateLimitProperties properties, LongSupplier clock, Sleeper sleeper) {
+        if (properties.getMinRate() <= 0 || properties.getMaxRate() < properties.getMinRate())
+            throw new IllegalStateException(
+                    "s3.rate-limit.min-rate must be positive and not greater than s3.rate-limit.max-rate");
+        if (properties.getDecreaseFactor() <= 0 || properties.getDecreaseFactor() >= 1)
+            throw new IllegalStateException("s3.rate-limit.decrease-factor must be between 0 and 1");
+        this.enabled = properties.isEnabled();
+        this.minRate = properties.getMinRate();
+        this.maxRate = properties.getMaxRate();
+        this.increaseStep = properties.getIncreaseStep();
+        this.decreaseFactor = properties.getDecreaseFactor();
+        this.adjustmentIntervalNanos = properties.getAdjustmentInterval().toNanos();
+        this.maxAttempts = enabled ? Math.max(1, properties.getMaxAttempts()) : 1;
+        this.clock = clock;
+        this.sleeper = sleeper;
+        this.rate = Math.min(maxRate, Math.max(minRate, properties.getInitialRate()));
+        this.permits = rate;
+        this.lastRefill = clock.getAsLong();
+        this.lastAdjustment = lastRefill - adjustmentIntervalNanos;
+        this.lastDecrease = lastAdjustment;
+    }
+
+    /**
+     * Takes the permits of a request, waiting until the rate allows it. A request larger than the bucket is let
+     * through once the bucket is full, and the following requests wait for the permits it borrowed.
+     */
+    void acquire(int requests) throws InterruptedException {
+        if (!enabled) return;
+        long wait;
+        synchronized (this) {
+            refill(clock.getAsLong());
+            permits -= requests;
+            wait = permits >= 0 ? 0 : (long) (-permits / rate * NANOS_PER_SECOND);
+        }
+        if (wait > 0) sleeper.sleep(wait);
+    }
+
+    /** Records a response that was not throttled, increasing the rate if the last change is old enough. */
+    synchronized void onSuccess() {
+        if (!enabled) return;
+        long now = clock.getAsLong();
+        if (now - lastAdjustment < adjustmentIntervalNanos || rate >= maxRate) return;
+        refill(now);
+        rate = Math.min(maxRate, rate + increaseStep);
+        lastAdjustment = now;
+    }
+
+    /** Records a {@code SlowDown} response, decreasing the rate if the last decrease is old enough. */
+    synchronized void onSlowDown() {
+        if (!enabled) return;
+        long now = clock.getAsLong();
+        if (now - lastDecrease < adjustmentIntervalNanos) return;
+        refill(now);
+        rate = Math.max(minRate, rate * decreaseFactor);
+        // The permits saved while the rate was higher would hit S3 again at once
+        permits = Math.min(permits, 0);
+        lastAdjustment = now;
+        lastDecrease = now;
+    }
+
+    /** Current rate, in requests per second. */
+    synchronized double rate() {
+        return rate;
+    }
+
+    /** Attempts of a throttled request, including the first one. */
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    private void refill(long now) {
+        permits = Math.min(rate, permits + (now - lastRefill) / NANOS_PER_SECOND * rate);
+        lastRefill = now;
+    }
+
+    /** Whether S3 rejected a request because the request rate of the prefix is too high. */
+    static boolean isSlowDown(AwsServiceException exception) {
+        return exception.isThrottlingException() || exception.statusCode() == 503;
+    }
+
+    /** Whether S3 could not delete an object of a {@code DeleteObjects} request because of the request rate. */
+    static boolean isSlowDown(S3Error error) {
+        return "SlowDown".equals(error.code());
+    }
+}
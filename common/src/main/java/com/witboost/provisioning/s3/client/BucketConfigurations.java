@@ -0,0 +1,397 @@
+package com.witboost.provisioning.s3.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.s3.model.BucketTag;
+import com.witboost.provisioning.s3.model.IntelligentTieringConfiguration;
+import com.witboost.provisioning.s3.model.LifeCycleConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Requests written and settings compared by {@link BucketManager}, kept apart from the calls that send and read them.
+ */
+final class BucketConfigurations {
+
+    /** Reserved bucket tag holding the fingerprint of the last fully applied configuration. */
+    static final String CONFIGURATION_FINGERPRINT_TAG = "witboost:configuration-fingerprint";
+
+    /** Maximum number of tags of a bucket accepted by S3. */
+    static final int MAX_BUCKET_TAGS = 50;
+
+    static final String LIFECYCLE_RULE_ID = "witboostLifeCycleConfiguration";
+
+    /** Prefix of the IDs of the rules expiring the objects of a folder unprovisioned through the lifecycle. */
+    static final String PREFIX_EXPIRATION_RULE_ID = "witboostExpire:";
+
+    static final String INTELLIGENT_TIERING_ID = "witboostConfig";
+
+    static final String BUCKET_REGION_HEADER = "x-amz-bucket-region";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BucketConfigurations() {}
+
+    static PutBucketTaggingRequest putBucketTaggingRequest(String bucketName, List<BucketTag> tags) {
+        List<Tag> awsTags = tags.stream()
+                .map(tag ->
+                        Tag.builder().key(tag.getKey()).value(tag.getValue()).build())
+                .toList();
+        return PutBucketTaggingRequest.builder()
+                .bucket(bucketName)
+                .tagging(Tagging.builder().tagSet(awsTags).build())
+                .build();
+    }
+
+    /**
+     * @return {@code true} if the fingerprint tag can be added to the requested tags without exceeding the maximum
+     *         number of tags of a bucket.
+     */
+    static boolean fingerprintFits(List<BucketTag> tags) {
+        return tags == null || tags.size() < MAX_BUCKET_TAGS;
+    }
+
+    static List<BucketTag> withConfigurationFingerprint(List<BucketTag> tags, String fingerprint) {
+        BucketTag fingerprintTag = new BucketTag();
+        fingerprintTag.setKey(CONFIGURATION_FINGERPRINT_TAG);
+        fingerprintTag.setValue(fingerprint);
+
+        List<BucketTag> taggedWithFingerprint = new ArrayList<>();
+        if (tags != null) taggedWithFingerprint.addAll(tags);
+        taggedWithFingerprint.add(fingerprintTag);
+        return taggedWithFingerprint;
+    }
+
+    static PutBucketPolicyRequest putBucketPolicyRequest(String bucketName, String bucketPolicy) {
+        return PutBucketPolicyRequest.builder()
+                .bucket(bucketName)
+                .policy(bucketPolicy)
+                .build();
+    }
+
+    static PutBucketEncryptionRequest putBucketEncryptionRequest(
+            String bucketName, ServerSideEncryption serverSideEncryption, String kmsKeyId) {
+        return PutBucketEncryptionRequest.builder()
+                .bucket(bucketName)
+                .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
+                        .rules(ServerSideEncryptionRule.builder()
+                                .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
+                                        .sseAlgorithm(serverSideEncryption)
+                                        .kmsMasterKeyID(kmsKeyId)
+                                        .build())
+                                .build())
+                        .build())
+                .build();
+    }
+
+    static PutBucketVersioningRequest putBucketVersioningRequest(String bucketName) {
+        return PutBucketVersioningRequest.builder()
+                .bucket(bucketName)
+                .versioningConfiguration(VersioningConfiguration.builder()
+                        .status(BucketVersioningStatus.ENABLED)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Writes the Witboost lifecycle rule, keeping the {@link #isPrefixExpirationRule prefix expiration rules} among
+     * the current ones since the lifecycle configuration of a bucket is replaced as a whole.
+     */
+    static PutBucketLifecycleConfigurationRequest putBucketLifecycleConfigurationRequest(
+            String bucketName, LifeCycleConfiguration lifeCycleConfiguration, List<LifecycleRule> currentRules) {
+        List<LifecycleRule> rules = new ArrayList<>();
+        rules.add(LifecycleRule.builder()
+                .id(LIFECYCLE_RULE_ID)
+                .status(ExpirationStatus.ENABLED)
+                .filter(LifecycleRuleFilter.builder().build())
+                .noncurrentVersionExpiration(NoncurrentVersionExpiration.builder()
+                        .noncurrentDays(
+                                lifeCycleConfiguration.getPermanentlyDelete().getDaysAfterBecomeNonCurrent())
+                        .newerNoncurrentVersions(
+                                lifeCycleConfiguration.getPermanentlyDelete().getNumberOfVersionsToRetain())
+                        .build())
+                .build());
+        currentRules.stream()
+                .filter(BucketConfigurations::isPrefixExpirationRule)
+                .forEach(rules::add);
+        return putBucketLifecycleConfigurationRequest(bucketName, rules);
+    }
+
+    static PutBucketLifecycleConfigurationRequest putBucketLifecycleConfigurationRequest(
+            String bucketName, List<LifecycleRule> rules) {
+        return PutBucketLifecycleConfigurationRequest.builder()
+                .bucket(bucketName)
+                .transitionDefaultMinimumObjectSize(TransitionDefaultMinimumObjectSize.ALL_STORAGE_CLASSES_128_K)
+                .lifecycleConfiguration(
+                        BucketLifecycleConfiguration.builder().rules(rules).build())
+                .build();
+    }
+
+    /**
+     * Rules expiring every object under {@code prefix}, so that S3 removes them asynchronously: current versions
+     * expire after {@code days}, noncurrent versions {@code days} after becoming noncurrent, then the delete markers
+     * left without versions are removed. S3 does not accept the expired delete markers in a rule with an expiration
+     * in days, hence the second rule.
+     */
+    static List<LifecycleRule> prefixExpirationRules(String prefix, int days) {
+        LifecycleRuleFilter filter =
+                LifecycleRuleFilter.builder().prefix(prefix).build();
+        return List.of(
+                LifecycleRule.builder()
+                        .id(prefixExpirationRuleId("objects", prefix))
+                        .status(ExpirationStatus.ENABLED)
+                        .filter(filter)
+                        .expiration(LifecycleExpiration.builder().days(days).build())
+                        .noncurrentVersionExpiration(NoncurrentVersionExpiration.builder()
+                                .noncurrentDays(days)
+                                .build())
+                        .abortIncompleteMultipartUpload(AbortIncompleteMultipartUpload.builder()
+                                .daysAfterInitiation(days)
+                                .build())
+                        .build(),
+                LifecycleRule.builder()
+                        .id(prefixExpirationRuleId("markers", prefix))
+                        .status(ExpirationStatus.ENABLED)
+                        .filter(filter)
+                        .expiration(LifecycleExpiration.builder()
+                                .expiredObjectDeleteMarker(true)
+                                .build())
+                        .build());
+    }
+
+    /** @return whether {@code rule} was written by {@link #prefixExpirationRules}. */
+    static boolean isPrefixExpirationRule(LifecycleRule rule) {
+        return rule.id() != null && rule.id().startsWith(PREFIX_EXPIRATION_RULE_ID);
+    }
+
+    /** @return whether {@code rule} was written by {@link #prefixExpirationRules} for {@code prefix}. */
+    static boolean isPrefixExpirationRule(LifecycleRule rule, String prefix) {
+        return isPrefixExpirationRule(rule)
+                && rule.filter() != null
+                && prefix.equals(rule.filter().prefix());
+    }
+
+    /** Rule IDs are at most 255 characters long, so long prefixes are replaced by their digest. */
+    private static String prefixExpirationRuleId(String kind, String prefix) {
+        String id = PREFIX_EXPIRATION_RULE_ID + kind + ":" + prefix;
+        if (id.length() <= 255) return id;
+        try {
+            return PREFIX_EXPIRATION_RULE_ID + kind + ":"
+                    + HexFormat.of()
+                            .formatHex(MessageDigest.getInstance("SHA-256")
+                                    .digest(prefix.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static PutBucketIntelligentTieringConfigurationRequest putBucketIntelligentTieringConfigurationRequest(
+            String bucketName, IntelligentTieringConfiguration intelligentTieringConfiguration) {
+        return PutBucketIntelligentTieringConfigurationRequest.builder()
+                .bucket(bucketName)
+                .id(INTELLIGENT_TIERING_ID)
+                .intelligentTieringConfiguration(
+                        software.amazon.awssdk.services.s3.model.IntelligentTieringConfiguration.builder()
+                                .id(INTELLIGENT_TIERING_ID)
+                                .status(IntelligentTieringStatus.ENABLED)
+                                .tierings(toTierings(intelligentTieringConfiguration))
+                                .build())
+                .build();
+    }
+
+    static PutObjectRequest putFolderRequest(String bucketName, String folderPath) {
+        return PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(folderKey(folderPath))
+                .build();
+    }
+
+    static String folderKey(String folderPath) {
+        return folderPath.endsWith("/") ? folderPath : folderPath + "/";
+    }
+
+    static List<Tiering> toTierings(IntelligentTieringConfiguration intelligentTieringConfiguration) {
+        ArrayList<Tiering> tierings = new ArrayList<>();
+        if (intelligentTieringConfiguration.getArchiveAccessTierEnabled()) {
+            Tiering tiering = Tiering.builder()
+                    .accessTier(IntelligentTieringAccessTier.ARCHIVE_ACCESS)
+                    .days(intelligentTieringConfiguration.getArchiveAccessTierDays())
+                    .build();
+            tierings.add(tiering);
+        }
+        if (intelligentTieringConfiguration.getDeepArchiveAccessTierEnabled()) {
+            Tiering tiering = Tiering.builder()
+                    .accessTier(IntelligentTieringAccessTier.DEEP_ARCHIVE_ACCESS)
+                    .days(intelligentTieringConfiguration.getDeepArchiveAccessTierDays())
+                    .build();
+            tierings.add(tiering);
+        }
+        return tierings;
+    }
+
+    /**
+     * @return {@code true} if {@code current} holds exactly the {@code desired} tags, ignoring the reserved
+     *         {@value #CONFIGURATION_FINGERPRINT_TAG} tag.
+     */
+    static boolean tagsMatch(List<BucketTag> desired, List<Tag> current) {
+        Map<String, String> desiredTags =
+                desired.stream().collect(Collectors.toMap(BucketTag::getKey, BucketTag::getValue));
+        Map<String, String> currentTags = current.stream()
+                .filter(tag -> !CONFIGURATION_FINGERPRINT_TAG.equals(tag.key()))
+                .collect(Collectors.toMap(Tag::key, Tag::value));
+        return desiredTags.equals(currentTags);
+    }
+
+    static boolean hasConfigurationFingerprint(List<Tag> current) {
+        return current.stream().anyMatch(tag -> CONFIGURATION_FINGERPRINT_TAG.equals(tag.key()));
+    }
+
+    static boolean fingerprintMatches(List<Tag> current, String fingerprint) {
+        return current.stream()
+                .anyMatch(tag -> CONFIGURATION_FINGERPRINT_TAG.equals(tag.key()) && fingerprint.equals(tag.value()));
+    }
+
+    /**
+     * @return {@code true} if the two policies are the same JSON document.
+     * @throws IOException if one of the policies is not valid JSON.
+     */
+    static boolean policyMatches(String current, String desired) throws IOException {
+        return current != null && OBJECT_MAPPER.readTree(current).equals(OBJECT_MAPPER.readTree(desired));
+    }
+
+    static boolean encryptionMatches(GetBucketEncryptionResponse current, ServerSideEncryption serverSideEncryption) {
+        if (serverSideEncryption.equals(ServerSideEncryption.AWS_KMS)) return isKmsEnabled(current);
+
+        if (current == null || current.serverSideEncryptionConfiguration() == null) return false;
+
+        // A bucket without any default encryption rule does not match, although allMatch holds on no rule
+        List<ServerSideEncryptionByDefault> rules = current.serverSideEncryptionConfiguration().rules().stream()
+                .map(ServerSideEncryptionRule::applyServerSideEncryptionByDefault)
+                .filter(Objects::nonNull)
+                .toList();
+        return !rules.isEmpty()
+                && rules.stream()
+                        .allMatch(rule ->
+                                serverSideEncryption.equals(rule.sseAlgorithm()) && rule.kmsMasterKeyID() == null);
+    }
+
+    static boolean isKmsEnabled(GetBucketEncryptionResponse response) {
+        if (response == null || response.serverSideEncryptionConfiguration() == null) {
+            return false;
+        }
+
+        ServerSideEncryptionConfiguration config = response.serverSideEncryptionConfiguration();
+
+        for (ServerSideEncryptionRule rule : config.rules()) {
+            ServerSideEncryptionByDefault encryptionByDefault = rule.applyServerSideEncryptionByDefault();
+            if (encryptionByDefault != null && "aws:kms".equals(encryptionByDefault.sseAlgorithmAsString())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return {@code true} if {@code rules} only contains the rule written by
+     *         {@link #putBucketLifecycleConfigurationRequest} and the prefix expiration rules it keeps.
+     */
+    static boolean lifecycleMatches(List<LifecycleRule> rules, LifeCycleConfiguration lifeCycleConfiguration) {
+        List<LifecycleRule> witboostRules =
+                rules.stream().filter(rule -> !isPrefixExpirationRule(rule)).toList();
+        if (witboostRules.size() != 1) return false;
+
+        LifecycleRule rule = witboostRules.get(0);
+        NoncurrentVersionExpiration expiration = rule.noncurrentVersionExpiration();
+        return LIFECYCLE_RULE_ID.equals(rule.id())
+                && ExpirationStatus.ENABLED.equals(rule.status())
+                && expiration != null
+                && Objects.equals(
+                        expiration.noncurrentDays(),
+                        lifeCycleConfiguration.getPermanentlyDelete().getDaysAfterBecomeNonCurrent())
+                && Objects.equals(
+                        expiration.newerNoncurrentVersions(),
+                        lifeCycleConfiguration.getPermanentlyDelete().getNumberOfVersionsToRetain());
+    }
+
+    static boolean intelligentTieringMatches(
+            software.amazon.awssdk.services.s3.model.IntelligentTieringConfiguration current,
+            IntelligentTieringConfiguration intelligentTieringConfiguration) {
+        return current != null
+                && IntelligentTieringStatus.ENABLED.equals(current.status())
+                && current.filter() == null
+                && Set.copyOf(current.tierings()).equals(Set.copyOf(toTierings(intelligentTieringConfiguration)));
+    }
+
+    /**
+     * Maps the error of a HeadBucket call to the existence of the bucket.
+     *
+     * @param e the error returned by HeadBucket.
+     * @return the {@link BucketProbe} described by the error.
+     * @throws S3Exception {@code e} itself, if it does not tell whether the bucket exists.
+     */
+    static BucketProbe probeOf(S3Exception e) {
+        if (e instanceof NoSuchBucketException) return new BucketProbe(BucketProbe.Status.MISSING, null);
+
+        // HeadBucket on a regional endpoint answers 301 when the bucket lives in another region
+        return switch (e.statusCode()) {
+            case 301 -> new BucketProbe(BucketProbe.Status.EXISTS, regionHeaderOf(e));
+            case 403 -> new BucketProbe(BucketProbe.Status.EXISTS_ELSEWHERE, regionHeaderOf(e));
+            case 404 -> new BucketProbe(BucketProbe.Status.MISSING, null);
+            default -> throw e;
+        };
+    }
+
+    /**
+     * Maps the error of a GetBucketLifecycleConfiguration call to the rules of a bucket without lifecycle
+     * configuration.
+     *
+     * @param e the error returned by GetBucketLifecycleConfiguration.
+     * @return no rule.
+     * @throws S3Exception {@code e} itself, if the bucket has a lifecycle configuration that could not be read.
+     */
+    static List<LifecycleRule> noLifecycleRules(S3Exception e) {
+        if (e.statusCode() == 404) return List.of();
+        throw e;
+    }
+
+    private static String regionHeaderOf(S3Exception e) {
+        if (e.awsErrorDetails() == null || e.awsErrorDetails().sdkHttpResponse() == null) return null;
+        return e.awsErrorDetails()
+                .sdkHttpResponse()
+                .firstMatchingHeader(BUCKET_REGION_HEADER)
+                .orElse(null);
+    }
+
+    /**
+     * Merges the failures of independent configuration steps.
+     *
+     * @param bucketName the name of the bucket.
+     * @param failures   the failures, at least one.
+     * @return the only failure, or a {@link FailedOperation} carrying the problems of every failure.
+     */
+    static FailedOperation mergeFailures(String bucketName, List<FailedOperation> failures) {
+        if (failures.size() == 1) return failures.get(0);
+
+        String error = String.format(
+                "[Bucket: %s] Error: %d bucket configuration steps failed: %s",
+                bucketName,
+                failures.size(),
+                failures.stream().map(FailedOperation::message).collect(Collectors.joining(" ")));
+        return new FailedOperation(
+                error,
+                failures.stream()
+                        .flatMap(failure -> failure.problems().stream())
+                        .toList());
+    }
+}
@@ -0,0 +1,239 @@
+package com.witboost.provisioning.s3.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketVersioningStatus;
+import software.amazon.awssdk.services.s3.model.GetBucketEncryptionRequest;
+import software.amazon.awssdk.services.s3.model.GetBucketVersioningRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryptionByDefault;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryptionRule;
+
+/**
+ * In-memory index of the buckets managed by the adapter, consulted by {@link BucketManager} before calling AWS.
+ *
+ * <p>Each entry maps a bucket name to its {@link BucketMetadata}. Entries older than the configured TTL are treated
+ * as missing, and a background task periodically reloads every entry from AWS, evicting the ones that can no longer
+ * be read. Writers are expected to call {@link #record} after a successful update and {@link #invalidate} after a
+ * failed one, so that the index never serves a state that was not confirmed by AWS.</p>
+ *
+ * <p>Entries do not hold the client they were recorded with, which the client registry may close once it is idle:
+ * they keep the account and region of the client, and the refresh asks the registry for a client of that account and
+ * region each time.</p>
+ */
+@Component
+public class BucketInventory {
+
+    private final Logger logger = LoggerFactory.getLogger(BucketInventory.class);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration refreshInterval;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Function<S3Client, Optional<ClientLocation>> locator = s3Client -> Optional.empty();
+    private volatile Function<ClientLocation, S3Client> clients;
+
+    private ScheduledExecutorService refresher;
+
+    public BucketInventory(
+            MeterRegistry meterRegistry,
+            @Value("${s3.inventory.enabled}") boolean enabled,
+            @Value("${s3.inventory.ttl-seconds}") long ttlSeconds,
+            @Value("${s3.inventory.refresh-interval-seconds}") long refreshIntervalSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.refreshInterval = Duration.ofSeconds(refreshIntervalSeconds);
+        this.hits = Counter.builder("s3.bucket.inventory.lookups")
+                .tag("result", "hit")
+                .description("Bucket inventory lookups answered from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("s3.bucket.inventory.lookups")
+                .tag("result", "miss")
+                .description("Bucket inventory lookups that required a call to AWS")
+                .register(meterRegistry);
+        Gauge.builder("s3.bucket.inventory.size", entries, Map::size)
+                .description("Number of buckets currently held in the bucket inventory")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void startRefresher() {
+        if (!enabled || refreshInterval.isZero()) return;
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bucket-inventory-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(
+                this::refresh, refreshInterval.toSeconds(), refreshInterval.toSeconds(), TimeUnit.SECONDS);
+        logger.info("Bucket inventory refresh scheduled every {} seconds.", refreshInterval.toSeconds());
+    }
+
+    @PreDestroy
+    void stopRefresher() {
+        if (refresher != null) refresher.shutdownNow();
+    }
+
+    /**
+     * Makes the inventory refresh its entries with the clients of a client registry.
+     *
+     * @param locator returns the account and region a client of the registry was built for, or an empty
+     *                {@link Optional} if the client does not belong to the registry.
+     * @param clients returns the client of the registry for an account and region.
+     */
+    public void useClientRegistry(
+            Function<S3Client, Optional<ClientLocation>> locator, Function<ClientLocation, S3Client> clients) {
+        this.locator = locator;
+        this.clients = clients;
+    }
+
+    /**
+     * Looks up a bucket in the inventory.
+     *
+     * @param bucketName the name of the bucket.
+     * @return the known metadata of the bucket, or an empty {@link Optional} if the bucket is not indexed or its
+     *         entry is expired.
+     */
+    public Optional<BucketMetadata> lookup(String bucketName) {
+        if (!enabled) return Optional.empty();
+
+        Entry entry = entries.get(bucketName);
+        if (entry != null && entry.loadedAt().plus(ttl).isBefore(Instant.now())) {
+            evict(bucketName, entry, "expired");
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry.metadata());
+    }
+
+    /**
+     * Records the state of a bucket as confirmed by AWS. Unknown fields of {@code metadata} keep the values already
+     * indexed for the bucket.
+     *
+     * @param s3Client   the {@link S3Client} that confirmed the state, whose account and region are used when refreshing
+     *                   the entry in the background, or {@code null} to keep the ones the bucket was recorded with.
+     *                   Entries recorded only with clients outside the client registry are not refreshed.
+     * @param bucketName the name of the bucket.
+     * @param metadata   the confirmed metadata of the bucket.
+     */
+    public void record(S3Client s3Client, String bucketName, BucketMetadata metadata) {
+        if (!enabled) return;
+        ClientLocation location =
+                s3Client == null ? null : locator.apply(s3Client).orElse(null);
+        entries.compute(
+                bucketName,
+                (name, previous) -> new Entry(
+                        location != null || previous == null ? location : previous.location(),
+                        metadata.mergeWith(previous == null ? null : previous.metadata()),
+                        Instant.now()));
+    }
+
+    /**
+     * Removes a bucket from the inventory, forcing the next lookup to go to AWS.
+     *
+     * @param bucketName the name of the bucket.
+     */
+    public void invalidate(String bucketName) {
+        Entry entry = entries.get(bucketName);
+        if (entry != null) evict(bucketName, entry, "invalidated");
+    }
+
+    /** Removes every bucket from the inventory. */
+    public void invalidateAll() {
+        entries.keySet().forEach(this::invalidate);
+    }
+
+    /**
+     * Reloads from AWS every indexed bucket whose account and region are known, with the current client of the
+     * registry for them. Buckets that cannot be read anymore are evicted.
+     */
+    void refresh() {
+        logger.debug("Refreshing {} buckets in the bucket inventory.", entries.size());
+        Function<ClientLocation, S3Client> clients = this.clients;
+        entries.forEach((bucketName, entry) -> {
+            if (clients == null || entry.location() == null) return;
+            try {
+                S3Client s3Client = clients.apply(entry.location());
+                String region = s3Client.headBucket(
+                                HeadBucketRequest.builder().bucket(bucketName).build())
+                        .bucketRegion();
+                ServerSideEncryption encryption = s3Client
+                        .getBucketEncryption(GetBucketEncryptionRequest.builder()
+                                .bucket(bucketName)
+                                .build())
+                        .serverSideEncryptionConfiguration()
+                        .rules()
+                        .stream()
+                        .map(ServerSideEncryptionRule::applyServerSideEncryptionByDefault)
+                        .filter(Objects::nonNull)
+                        .map(ServerSideEncryptionByDefault::sseAlgorithm)
+                        .findFirst()
+                        .orElse(null);
+                BucketVersioningStatus versioning = s3Client.getBucketVersioning(GetBucketVersioningRequest.builder()
+                                .bucket(bucketName)
+                                .build())
+                        .status();
+
+                // The lifecycle configuration is not reloaded, what is known of its expiration rules is kept
+                BucketMetadata metadata = new BucketMetadata(
+                        region, encryption, versioning, entry.metadata().prefixExpiration());
+                // Replace only if no writer recorded a newer state in the meantime
+                entries.replace(bucketName, entry, new Entry(entry.location(), metadata, Instant.now()));
+            } catch (Exception e) {
+                logger.warn("Unable to refresh bucket '{}' in the bucket inventory: {}", bucketName, e.getMessage());
+                evict(bucketName, entry, "refresh-failed");
+            }
+        });
+    }
+
+    private void evict(String bucketName, Entry entry, String cause) {
+        if (entries.remove(bucketName, entry)) {
+            logger.debug("Bucket '{}' evicted from the bucket inventory ({}).", bucketName, cause);
+            meterRegistry
+                    .counter("s3.bucket.inventory.evictions", "cause", cause)
+                    .increment();
+        }
+    }
+
+    /**
+     * Account and region of the client that confirmed the state of a bucket.
+     *
+     * @param account the target account of the client.
+     * @param region  the region of the client.
+     */
+    public record ClientLocation(AccountTarget account, Region region) {}
+
+    private record Entry(ClientLocation location, BucketMetadata metadata, Instant loadedAt) {}
+}
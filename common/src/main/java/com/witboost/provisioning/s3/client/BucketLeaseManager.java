@@ -0,0 +1,370 @@
+package com.witboost.provisioning.s3.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.model.common.Problem;
+import com.witboost.provisioning.s3.config.BucketLeaseProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Serializes the reconciliation of a bucket across the replicas of the adapter through lease objects in a shared
+ * control bucket.
+ *
+ * <p>A replica acquires the lease of a bucket by creating the object {@code <key-prefix><bucket name>} with a
+ * conditional {@code PutObject} ({@code If-None-Match: *}), which only one replica can win. The object records the
+ * owner of the lease and its expiration. The owner extends the lease with a heartbeat while it works on the bucket, and
+ * deletes it when done. A lease that is not renewed, e.g. because its owner crashed, is taken over once expired with a
+ * {@code PutObject} conditional on the ETag of the expired object ({@code If-Match}).</p>
+ *
+ * <p>Expiration is checked against the clock of the replica reading the lease, so the TTL must be much larger than the
+ * clock skew between replicas.</p>
+ */
+public class BucketLeaseManager {
+
+    private final Logger logger = LoggerFactory.getLogger(BucketLeaseManager.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final S3Client s3Client;
+    private final BucketLeaseProperties properties;
+    private final String owner;
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+
+    /**
+     * @param s3Client   client of the control bucket, {@code null} if the lease is disabled.
+     * @param properties the lease configuration.
+     */
+    public BucketLeaseManager(S3Client s3Client, BucketLeaseProperties properties, MeterRegistry meterRegistry) {
+        this.s3Client = s3Client;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.owner = System.getenv().getOrDefault("HOSTNAME", "s3-tech-adapter") + "/" + UUID.randomUUID();
+        this.waitTimer = Timer.builder("s3.bucket.lease.wait")
+                .description("Time spent acquiring the lease of a bucket")
+                .register(meterRegistry);
+        if (properties.isEnabled()) {
+            if (s3Client == null
+                    || properties.getControlBucket() == null
+                    || properties.getControlBucket().isBlank())
+                throw new IllegalStateException("The bucket lease is enabled but no control bucket is configured.");
+            if (properties.getHeartbeatInterval().compareTo(properties.getTtl()) >= 0)
+                throw new IllegalStateException(
+                        "The heartbeat interval of the bucket lease must be shorter than its TTL.");
+            this.scheduler = Executors.newScheduledThreadPool(1, runnable -> {
+                Thread thread = new Thread(runnable, "bucket-lease-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.info(
+                    "Bucket lease enabled on control bucket '{}' as owner '{}'.", properties.getControlBucket(), owner);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /** Manager that never takes a lease, for single-replica deployments. */
+    public static BucketLeaseManager disabled() {
+        return new BucketLeaseManager(null, new BucketLeaseProperties(), new SimpleMeterRegistry());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Runs an operation on a bucket while holding its lease. The lease is released when the operation completes.
+     *
+     * @param bucketName the bucket the operation acts on.
+     * @param action     the operation.
+     * @return the result of the operation, or a {@link FailedOperation} if the lease could not be acquired or was lost
+     *         while the operation was running.
+     */
+    public <T> Either<FailedOperation, T> withLease(String bucketName, Supplier<Either<FailedOperation, T>> action) {
+        if (!isEnabled()) return action.get();
+        Either<FailedOperation, Lease> lease = acquire(bucketName);
+        if (lease.isLeft()) return Either.left(lease.getLeft());
+        try {
+            return checkHeld(lease.get(), action.get());
+        } finally {
+            release(lease.get());
+        }
+    }
+
+    /** Stops the heartbeats and closes the client of the control bucket. Leases still held expire after their TTL. */
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+        if (s3Client != null) s3Client.close();
+    }
+
+    private Either<FailedOperation, Lease> acquire(String bucketName) {
+        long start = System.nanoTime();
+        while (true) {
+            Attempt attempt = tryAcquire(bucketName);
+            if (attempt.lease() != null || attempt.error() != null) return finish(bucketName, start, attempt);
+            if (timedOut(start)) return finish(bucketName, start, attempt);
+            if (attempt.holder() == null) continue;
+            try {
+                Thread.sleep(properties.getRetryInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return finish(bucketName, start, Attempt.failed(error(bucketName, "Interrupted while waiting", e)));
+            }
+        }
+    }
+
+    /**
+     * A lost lease may have been taken over by another replica while the operation was running, so its writes may have
+     * been interleaved with the ones of the other replica: a successful result cannot be trusted.
+     */
+    private <T> Either<FailedOperation, T> checkHeld(Lease lease, Either<FailedOperation, T> result) {
+        if (!lease.lost || result.isLeft()) return result;
+        String error = String.format(
+                "[Bucket: %s] Error: The lease of the bucket was lost while it was being reconciled, another replica of the adapter may have reconciled it at the same time. Please try again.",
+                lease.bucketName);
+        logger.error(error);
+        return Either.left(new FailedOperation(error, List.of(new Problem(error))));
+    }
+
+    private boolean timedOut(long start) {
+        return System.nanoTime() - start >= properties.getAcquireTimeout().toNanos();
+    }
+
+    private Either<FailedOperation, Lease> finish(String bucketName, long start, Attempt attempt) {
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (attempt.lease() != null) {
+            Lease lease = attempt.lease();
+            lease.heartbeat = scheduler.scheduleWithFixedDelay(
+                    () -> renew(lease),
+                    properties.getHeartbeatInterval().toMillis(),
+                    properties.getHeartbeatInterval().toMillis(),
+                    TimeUnit.MILLISECONDS);
+            return Either.right(lease);
+        }
+        if (attempt.error() != null) {
+            count("error");
+            return Either.left(attempt.error());
+        }
+        count("timeout");
+        String error = String.format(
+                "[Bucket: %s] Error: The bucket is being provisioned by another replica of the adapter ('%s') and its lease was not released within %s. Please try again later.",
+                bucketName, Objects.requireNonNullElse(attempt.holder(), "unknown"), properties.getAcquireTimeout());
+        logger.error(error);
+        return Either.left(new FailedOperation(error, List.of(new Problem(error))));
+    }
+
+    /**
+     * Makes a single attempt to acquire the lease of a bucket.
+     *
+     * @return the acquired lease; or the owner of the lease if it is held by someone else, with a {@code null} owner if
+     *     the lease changed in the meantime and the attempt can be repeated immediately; or the error that prevented
+     *     the attempt.
+     */
+    private Attempt tryAcquire(String bucketName) {
+        String key = properties.getKeyPrefix() + bucketName;
+        try {
+            Instant expiresAt = Instant.now().plus(properties.getTtl());
+            String etag = write(key, expiresAt, request -> request.ifNoneMatch("*"));
+            count("acquired");
+            logger.debug("[Bucket: {}] Lease acquired until {}.", bucketName, expiresAt);
+            return Attempt.acquired(new Lease(bucketName, key, etag, expiresAt));
+        } catch (S3Exception e) {
+            if (!isConditionFailure(e)) return Attempt.failed(error(bucketName, "Failed to create the lease", e));
+        } catch (SdkException e) {
+            return Attempt.failed(error(bucketName, "Failed to create the lease", e));
+        }
+
+        try {
+            ResponseBytes<GetObjectResponse> current = s3Client.getObjectAsBytes(
+                    request -> request.bucket(properties.getControlBucket()).key(key));
+            JsonNode record = readRecord(current.asByteArray());
+            String holder = record.path("owner").asText("unknown");
+            Instant expiredAt = parseExpiration(record);
+            if (expiredAt.isAfter(Instant.now())) return Attempt.heldBy(holder);
+
+            Instant expiresAt = Instant.now().plus(properties.getTtl());
+            String etag = write(
+                    key,
+                    expiresAt,
+                    request -> request.ifMatch(current.response().eTag()));
+            count("taken-over");
+            logger.warn(
+                    "[Bucket: {}] Took over the lease of '{}', which expired at {} without being released.",
+                    bucketName,
+                    holder,
+                    expiredAt);
+            return Attempt.acquired(new Lease(bucketName, key, etag, expiresAt));
+        } catch (NoSuchKeyException e) {
+            return Attempt.heldBy(null);
+        } catch (S3Exception e) {
+            if (isConditionFailure(e)) return Attempt.heldBy(null);
+            return Attempt.failed(error(bucketName, "Failed to read the lease", e));
+        } catch (SdkException e) {
+            return Attempt.failed(error(bucketName, "Failed to read the lease", e));
+        }
+    }
+
+    private void renew(Lease lease) {
+        try {
+            Instant expiresAt = Instant.now().plus(properties.getTtl());
+            lease.etag = write(lease.key, expiresAt, request -> request.ifMatch(lease.etag));
+            lease.expiresAt = expiresAt;
+        } catch (S3Exception e) {
+            if (isConditionFailure(e)) lost(lease, e);
+            else retryRenewal(lease, e);
+        } catch (SdkException e) {
+            retryRenewal(lease, e);
+        }
+    }
+
+    private void retryRenewal(Lease lease, Exception e) {
+        if (lease.expiresAt.isBefore(Instant.now())) {
+            lost(lease, e);
+        } else {
+            logger.warn(
+                    "[Bucket: {}] Failed to renew the lease, it will be retried. Details: {}",
+                    lease.bucketName,
+                    e.getMessage());
+        }
+    }
+
+    private void lost(Lease lease, Exception e) {
+        lease.lost = true;
+        if (lease.heartbeat != null) lease.heartbeat.cancel(false);
+        meterRegistry.counter("s3.bucket.lease.lost").increment();
+        logger.error(
+                "[Bucket: {}] The lease was lost, another replica may be reconciling the bucket. Details: {}",
+                lease.bucketName,
+                e.getMessage());
+    }
+
+    private void release(Lease lease) {
+        if (lease.heartbeat != null) lease.heartbeat.cancel(false);
+        if (lease.lost) return;
+        try {
+            s3Client.deleteObject(request ->
+                    request.bucket(properties.getControlBucket()).key(lease.key).ifMatch(lease.etag));
+            logger.debug("[Bucket: {}] Lease released.", lease.bucketName);
+        } catch (SdkException e) {
+            logger.warn(
+                    "[Bucket: {}] Failed to release the lease, it will expire at {}. Details: {}",
+                    lease.bucketName,
+                    lease.expiresAt,
+                    e.getMessage());
+        }
+    }
+
+    private String write(String key, Instant expiresAt, Consumer<PutObjectRequest.Builder> condition) {
+        byte[] record;
+        try {
+            record = objectMapper.writeValueAsBytes(Map.of("owner", owner, "expiresAt", expiresAt.toString()));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return s3Client.putObject(
+                        request -> {
+                            request.bucket(properties.getControlBucket())
+                                    .key(key)
+                                    .contentType("application/json");
+                            condition.accept(request);
+                        },
+                        RequestBody.fromBytes(record))
+                .eTag();
+    }
+
+    private JsonNode readRecord(byte[] content) {
+        try {
+            return objectMapper.readTree(content);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    /** An unreadable lease is considered expired, so that it cannot block the bucket forever. */
+    private static Instant parseExpiration(JsonNode record) {
+        try {
+            return Instant.parse(record.path("expiresAt").asText());
+        } catch (RuntimeException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    /**
+     * A conditional write fails with {@code 412 Precondition Failed} when the condition does not hold, and with
+     * {@code 409 Conflict} when a concurrent conditional write on the same key is in progress.
+     */
+    private static boolean isConditionFailure(S3Exception e) {
+        return e.statusCode() == 412 || e.statusCode() == 409;
+    }
+
+    private FailedOperation error(String bucketName, String message, Exception e) {
+        String error = String.format(
+                "[Bucket: %s] Error: %s on control bucket '%s'. Details: %s",
+                bucketName, message, properties.getControlBucket(), e.getMessage());
+        logger.error(error, e);
+        return new FailedOperation(error, List.of(new Problem(error, e)));
+    }
+
+    private void count(String outcome) {
+        meterRegistry
+                .counter("s3.bucket.lease.acquisitions", "outcome", outcome)
+                .increment();
+    }
+
+    private static final class Lease {
+        private final String bucketName;
+        private final String key;
+        private volatile String etag;
+        private volatile Instant expiresAt;
+        private volatile boolean lost;
+        private volatile ScheduledFuture<?> heartbeat;
+
+        private Lease(String bucketName, String key, String etag, Instant expiresAt) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record Attempt(Lease lease, String holder, FailedOperation error) {
+
+        static Attempt acquired(Lease lease) {
+            return new Attempt(lease, null, null);
+        }
+
+        static Attempt heldBy(String holder) {
+            return new Attempt(null, holder, null);
+        }
+
+        static Attempt failed(FailedOperation error) {
+            return new Attempt(null, null, error);
+        }
+    }
+}
@@ -2,27 +2,37 @@ package com.witboost.provisioning.s3.client;
 
 import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.model.common.Problem;
+import com.witboost.provisioning.s3.client.ProvisioningTrace.Phase;
+import com.witboost.provisioning.s3.client.StepMetrics.Step;
 import com.witboost.provisioning.s3.model.BucketTag;
 import com.witboost.provisioning.s3.model.IntelligentTieringConfiguration;
 import com.witboost.provisioning.s3.model.LifeCycleConfiguration;
 import com.witboost.provisioning.s3.model.S3Specific;
+import com.witboost.provisioning.s3.utils.S3Utils;
 import io.vavr.control.Either;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.constraints.NotBlank;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import lombok.NoArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.waiters.WaiterOverrideConfiguration;
 import software.amazon.awssdk.services.kms.KmsClient;
@@ -37,6 +47,12 @@ import software.amazon.awssdk.services.s3.waiters.S3Waiter;
 @Service
 public class BucketManager {
 
+    /** Reserved bucket tag holding the fingerprint of the last fully applied configuration. */
+    public static final String CONFIGURATION_FINGERPRINT_TAG = BucketConfigurations.CONFIGURATION_FINGERPRINT_TAG;
+
+    /** Delimiter splitting a prefix in the shards listed in parallel. */
+    private static final String SHARD_DELIMITER = "/";
+
     private final Logger logger = LoggerFactory.getLogger(BucketManager.class);
 
     @Value("${s3.bucket.wait-timeout-seconds}")
@@ -45,10 +61,103 @@ public class BucketManager {
     @Value("${s3.object.wait-timeout-seconds}")
     private int objectWaitTimeoutSeconds;
 
+    @Value("${s3.reconcile.enabled}")
+    private boolean reconcileEnabled;
+
+    @Value("${s3.reconcile.fingerprint-enabled}")
+    private boolean fingerprintEnabled;
+
+    @Value("${s3.bucket.configuration-parallelism}")
+    private int configurationParallelism;
+
+    @Value("${s3.delete.concurrency}")
+    private int deleteConcurrency;
+
+    @Value("${s3.delete.queue-capacity}")
+    private int deleteQueueCapacity;
+
+    @Autowired
+    private BucketInventory bucketInventory;
+
+    @Autowired
+    private PolicyTemplateRegistry policyTemplateRegistry;
+
+    @Autowired
+    private KmsManager kmsManager;
+
+    @Autowired
+    private RateLimiterRegistry rateLimiters;
+
+    @Autowired
+    private StepMetrics stepMetrics;
+
+    @Autowired
+    private DeletionCheckpointStore deletionCheckpointStore;
+
+    @Value("${s3.delete.checkpoint.interval-seconds}")
+    private long checkpointIntervalSeconds;
+
+    @Value("${s3.list.parallelism}")
+    private int listParallelism;
+
+    @Value("${s3.list.queue-capacity}")
+    private int listQueueCapacity;
+
+    @Value("${s3.delete.offload.mode}")
+    private DeletionMode deletionMode;
+
+    @Value("${s3.delete.offload.sample-pages}")
+    private int offloadSamplePages;
+
+    @Value("${s3.delete.offload.expiration-days}")
+    private int offloadExpirationDays;
+
+    private ExecutorService configurationExecutor;
+
+    private ExecutorService deletionExecutor;
+
+    private ExecutorService listingExecutor;
+
+    @PostConstruct
+    void startExecutors() {
+        // Each deletion runs its own workers, so the pool grows with the number of concurrent deletions
+        AtomicInteger deletionThreadCount = new AtomicInteger();
+        deletionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "object-deletion-" + deletionThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger listingThreadCount = new AtomicInteger();
+        listingExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "object-listing-" + listingThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (configurationParallelism <= 1) return;
+        AtomicInteger threadCount = new AtomicInteger();
+        configurationExecutor = Executors.newFixedThreadPool(configurationParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bucket-configuration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutors() {
+        if (configurationExecutor != null) configurationExecutor.shutdown();
+        if (deletionExecutor != null) deletionExecutor.shutdown();
+        if (listingExecutor != null) listingExecutor.shutdown();
+    }
+
     /**
      * Creates an S3 bucket if it does not already exist. If the bucket exists in a different region, an error is returned.
      * Additionally, this method can update the bucket's configuration by applying tags, encryption settings, and versioning.
      *
+     * <p>When {@code s3.reconcile.enabled} is set and the bucket already exists, the current value of each setting is
+     * read first and only the settings that differ from {@code s3Specific} are written.</p>
+     *
      * @param s3Client       the {@link S3Client} used to interact with Amazon S3.
      * @param kmsClient the {@link KmsClient} used for AWS KMS encryption.
      * @param bucketName     the name of the bucket to create.
@@ -57,10 +166,40 @@ public class BucketManager {
      *
      * @return an {@link Either} containing:
      *         - {@link FailedOperation} in case of error, detailing the failure reason.
-     *         - {@code null} on success, indicating that the bucket was successfully created or updated.
+     *         - a {@link BucketReconciliation} on success, reporting which settings were applied and which were skipped.
      *
      */
-    public Either<FailedOperation, Void> createOrUpdateBucket(
+    public Either<FailedOperation, BucketReconciliation> createOrUpdateBucket(
+            @NotNull S3Client s3Client,
+            @NotNull KmsClient kmsClient,
+            @NotNull String bucketName,
+            S3Specific s3Specific,
+            String accountId) {
+        Either<FailedOperation, BucketReconciliation> result =
+                applyBucketConfiguration(s3Client, kmsClient, bucketName, s3Specific, accountId);
+
+        // Write-through: the inventory only keeps a state that has been fully applied on AWS
+        if (result.isRight()) {
+            bucketInventory.record(
+                    s3Client,
+                    bucketName,
+                    new BucketMetadata(
+                            s3Specific.getRegion(),
+                            s3Specific.getServerSideEncryption(),
+                            Boolean.TRUE.equals(s3Specific.getMultipleVersion())
+                                    ? BucketVersioningStatus.ENABLED
+                                    : null,
+                            result.get()
+                                    .getLifecycleRules()
+                                    .map(BucketManager::hasPrefixExpirationRules)
+                                    .orElse(null)));
+        } else {
+            bucketInventory.invalidate(bucketName);
+        }
+        return result;
+    }
+
+    private Either<FailedOperation, BucketReconciliation> applyBucketConfiguration(
             @NotNull S3Client s3Client,
             @NotNull KmsClient kmsClient,
             @NotNull String bucketName,
@@ -69,23 +208,41 @@ public class BucketManager {
         try {
             String region = s3Specific.getRegion();
 
-            Either<FailedOperation, Boolean> bucketExists = doesBucketExist(s3Client, bucketName);
-            if (bucketExists.isLeft()) return Either.left(bucketExists.getLeft());
+            long phaseStart = ProvisioningTrace.start();
+            Either<FailedOperation, BucketProbe> bucketProbe = probeBucket(s3Client, bucketName);
+            if (bucketProbe.isLeft()) return Either.left(bucketProbe.getLeft());
+
+            Optional<String> accessError = bucketProbe.get().accessError(bucketName);
+            if (accessError.isPresent()) {
+                logger.error(accessError.get());
+                return Either.left(new FailedOperation(accessError.get(), List.of(new Problem(accessError.get()))));
+            }
 
-            if (!bucketExists.get()) {
+            boolean created = bucketProbe.get().status() == BucketProbe.Status.MISSING;
+            if (created) {
+                ProvisioningTrace.record(Phase.EXISTENCE_CHECK, phaseStart);
+                phaseStart = ProvisioningTrace.start();
                 logger.info("Starting creation of bucket '{}' in region '{}'.", bucketName, region);
 
                 CreateBucketRequest createRequest =
                         CreateBucketRequest.builder().bucket(bucketName).build();
 
-                s3Client.createBucket(createRequest);
-                Either<FailedOperation, Void> waitForBucketExistence = waitForBucketExistence(s3Client, bucketName);
+                Either<FailedOperation, Void> bucketCreation =
+                        stepMetrics.record(Step.CREATE_BUCKET, s3Client, bucketName, () -> {
+                            s3Client.createBucket(createRequest);
+                            return Either.right(null);
+                        });
+                if (bucketCreation.isLeft()) return Either.left(bucketCreation.getLeft());
+                Either<FailedOperation, Void> waitForBucketExistence = stepMetrics.record(
+                        Step.WAIT_BUCKET, s3Client, bucketName, () -> waitForBucketExistence(s3Client, bucketName));
                 if (waitForBucketExistence.isLeft()) return Either.left(waitForBucketExistence.getLeft());
 
                 logger.info("Bucket '{}' created in region '{}'.", bucketName, region);
+                ProvisioningTrace.record(Phase.CREATE_AND_WAIT, phaseStart);
 
             } else {
-                Either<FailedOperation, String> existingRegion = getBucketRegion(s3Client, bucketName);
+                Either<FailedOperation, String> existingRegion =
+                        resolveBucketRegion(s3Client, bucketName, bucketProbe.get());
                 if (existingRegion.isLeft()) return Either.left(existingRegion.getLeft());
 
                 if (!region.equals(existingRegion.get())) {
@@ -95,68 +252,177 @@ public class BucketManager {
                     logger.error(error);
                     return Either.left(new FailedOperation(error, List.of(new Problem(error))));
                 }
+                ProvisioningTrace.record(Phase.EXISTENCE_CHECK, phaseStart);
             }
 
             logger.info("Starting the update of the bucket configurations of '{}'.", bucketName);
+            long configurationStart = ProvisioningTrace.start();
+
+            BucketReconciliation reconciliation = new BucketReconciliation(created);
+            // A bucket that was just created has no settings yet, reading them back would only cost calls
+            boolean compareCurrentState = reconcileEnabled && !created;
 
+            // Rendered once on the calling thread and shared by the fingerprint and the policy step
+            String bucketPolicy = renderBucketPolicy(bucketName);
+            String fingerprint = fingerprintEnabled && fingerprintFits(bucketName, s3Specific)
+                    ? S3Utils.computeConfigurationFingerprint(s3Specific, bucketPolicy)
+                    : null;
             List<BucketTag> tags = s3Specific.getBucketTags();
-            var bucketTagging = applyBucketTags(s3Client, bucketName, tags);
-            if (bucketTagging.isLeft()) return Either.left(bucketTagging.getLeft());
-
-            var bucketPolicySecureTransport = applyBucketPolicyForSecureTransport(s3Client, bucketName);
-            if (bucketPolicySecureTransport.isLeft()) return Either.left(bucketPolicySecureTransport.getLeft());
-
-            if (s3Specific.getServerSideEncryption().equals(ServerSideEncryption.AWS_KMS)) {
-                var enableKMS = enableKMS(s3Client, kmsClient, bucketName, s3Specific, accountId);
-                if (enableKMS.isLeft()) return Either.left(enableKMS.getLeft());
-            } else { // default encryption
-                var enableAES256 = enableAES256(s3Client, bucketName);
-                if (enableAES256.isLeft()) return Either.left(enableAES256.getLeft());
+
+            // Independent settings are applied concurrently, settings that depend on each other share a step
+            List<Supplier<Either<FailedOperation, Void>>> steps = new ArrayList<>();
+
+            if (fingerprint == null) {
+                steps.add(() -> reconcileSetting(
+                        BucketSetting.TAGS,
+                        bucketName,
+                        reconciliation,
+                        compareCurrentState || tags == null || tags.isEmpty(),
+                        () -> tags == null || tags.isEmpty() || areBucketTagsUpToDate(s3Client, bucketName, tags),
+                        () -> stepMetrics.record(
+                                Step.TAGS, s3Client, bucketName, () -> applyBucketTags(s3Client, bucketName, tags))));
+            } else if (!created) {
+                // The tags are read once: they hold the stored fingerprint and are written with the new one at the end
+                List<Tag> currentTags = readBucketTagsOrNull(s3Client, bucketName);
+                if (currentTags != null
+                        && !Boolean.TRUE.equals(s3Specific.getForceReconcile())
+                        && BucketConfigurations.fingerprintMatches(currentTags, fingerprint)) {
+                    logger.info(
+                            "Configuration fingerprint of bucket '{}' matches the requested one. Skipping the update of the bucket configurations.",
+                            bucketName);
+                    reconciliation.markFingerprintMatched();
+                    ProvisioningTrace.callsSkipped(configuredSettings(s3Specific));
+                    ProvisioningTrace.record(Phase.CONFIGURATION, configurationStart);
+                    return Either.right(reconciliation);
+                }
+
+                // Removed before any setting is written, so that a partially applied configuration is never marked
+                // as up to date by the fingerprint of an earlier one
+                if (currentTags == null || BucketConfigurations.hasConfigurationFingerprint(currentTags)) {
+                    var fingerprintRemoval = stepMetrics.record(
+                            Step.TAGS,
+                            s3Client,
+                            bucketName,
+                            () -> removeConfigurationFingerprint(s3Client, bucketName, tags));
+                    if (fingerprintRemoval.isLeft()) return Either.left(fingerprintRemoval.getLeft());
+                }
+                if (compareCurrentState
+                        && currentTags != null
+                        && BucketConfigurations.tagsMatch(tags == null ? List.of() : tags, currentTags)) {
+                    reconciliation.markSkipped(BucketSetting.TAGS);
+                }
             }
 
+            steps.add(() -> reconcileSetting(
+                    BucketSetting.SECURE_TRANSPORT_POLICY,
+                    bucketName,
+                    reconciliation,
+                    compareCurrentState,
+                    () -> isBucketPolicyUpToDate(s3Client, bucketName, bucketPolicy),
+                    () -> stepMetrics.record(
+                            Step.POLICY,
+                            s3Client,
+                            bucketName,
+                            () -> applyBucketPolicyForSecureTransport(s3Client, bucketName, bucketPolicy))));
+
+            ServerSideEncryption serverSideEncryption = s3Specific.getServerSideEncryption();
+            steps.add(() -> reconcileSetting(
+                    BucketSetting.ENCRYPTION,
+                    bucketName,
+                    reconciliation,
+                    compareCurrentState,
+                    () -> isEncryptionUpToDate(s3Client, bucketName, serverSideEncryption),
+                    () -> stepMetrics.record(
+                            Step.ENCRYPTION,
+                            s3Client,
+                            bucketName,
+                            () -> serverSideEncryption.equals(ServerSideEncryption.AWS_KMS)
+                                    ? enableKMS(s3Client, kmsClient, bucketName, s3Specific, accountId)
+                                    : enableAES256(s3Client, bucketName)))); // default encryption
+
             if (s3Specific.getMultipleVersion()) {
-                var multipleVersioning =
-                        enableBucketVersioning(s3Client, bucketName, s3Specific.getLifeCycleConfiguration());
-                if (multipleVersioning.isLeft()) return Either.left(multipleVersioning.getLeft());
+                LifeCycleConfiguration lifeCycleConfiguration = s3Specific.getLifeCycleConfiguration();
+                // Noncurrent version expiration is only meaningful once versioning is enabled
+                steps.add(() -> reconcileSetting(
+                                BucketSetting.VERSIONING,
+                                bucketName,
+                                reconciliation,
+                                compareCurrentState,
+                                () -> isVersioningEnabled(s3Client, bucketName),
+                                () -> stepMetrics.record(
+                                        Step.VERSIONING,
+                                        s3Client,
+                                        bucketName,
+                                        () -> enableBucketVersioning(s3Client, bucketName, null)))
+                        .flatMap(ignored ->
+                                lifeCycleConfiguration == null || lifeCycleConfiguration.getPermanentlyDelete() == null
+                                        ? Either.right(null)
+                                        : reconcileSetting(
+                                                BucketSetting.LIFECYCLE,
+                                                bucketName,
+                                                reconciliation,
+                                                compareCurrentState,
+                                                () -> isLifeCycleConfigurationUpToDate(
+                                                        s3Client, bucketName, lifeCycleConfiguration, reconciliation),
+                                                () -> stepMetrics.record(
+                                                        Step.LIFECYCLE,
+                                                        s3Client,
+                                                        bucketName,
+                                                        () -> applyLifeCycleConfiguration(
+                                                                s3Client,
+                                                                bucketName,
+                                                                lifeCycleConfiguration,
+                                                                reconciliation)))));
             }
 
             IntelligentTieringConfiguration intelligentTieringConfiguration =
                     s3Specific.getIntelligentTieringConfiguration();
             if ((intelligentTieringConfiguration.getArchiveAccessTierEnabled()
                     || intelligentTieringConfiguration.getDeepArchiveAccessTierEnabled())) {
-                ArrayList<Tiering> tierings = new ArrayList<>();
-                if (intelligentTieringConfiguration.getArchiveAccessTierEnabled()) {
-                    Tiering tiering = Tiering.builder()
-                            .accessTier(IntelligentTieringAccessTier.ARCHIVE_ACCESS)
-                            .days(intelligentTieringConfiguration.getArchiveAccessTierDays())
-                            .build();
-                    tierings.add(tiering);
-                }
-                if (intelligentTieringConfiguration.getDeepArchiveAccessTierEnabled()) {
-                    Tiering tiering = Tiering.builder()
-                            .accessTier(IntelligentTieringAccessTier.DEEP_ARCHIVE_ACCESS)
-                            .days(intelligentTieringConfiguration.getDeepArchiveAccessTierDays())
-                            .build();
-                    tierings.add(tiering);
+                steps.add(() -> reconcileSetting(
+                        BucketSetting.INTELLIGENT_TIERING,
+                        bucketName,
+                        reconciliation,
+                        compareCurrentState,
+                        () -> isIntelligentTieringUpToDate(s3Client, bucketName, intelligentTieringConfiguration),
+                        () -> stepMetrics.record(
+                                Step.TIERING,
+                                s3Client,
+                                bucketName,
+                                () -> applyIntelligentTieringConfiguration(
+                                        s3Client, bucketName, intelligentTieringConfiguration))));
+            }
+
+            var configuration = runConfigurationSteps(bucketName, steps);
+            if (configuration.isLeft()) return Either.left(configuration.getLeft());
+
+            // Stored last, so that a partially applied configuration is never marked as up to date. The same write
+            // applies the requested tags
+            if (fingerprint != null) {
+                var configurationFingerprint = reconcileSetting(
+                        BucketSetting.CONFIGURATION_FINGERPRINT,
+                        bucketName,
+                        reconciliation,
+                        false,
+                        () -> false,
+                        () -> stepMetrics.record(
+                                Step.TAGS,
+                                s3Client,
+                                bucketName,
+                                () -> applyConfigurationFingerprint(s3Client, bucketName, tags, fingerprint)));
+                if (configurationFingerprint.isLeft()) return Either.left(configurationFingerprint.getLeft());
+                if (!reconciliation.getSkipped().contains(BucketSetting.TAGS)) {
+                    reconciliation.markApplied(BucketSetting.TAGS);
                 }
-                PutBucketIntelligentTieringConfigurationRequest request =
-                        PutBucketIntelligentTieringConfigurationRequest.builder()
-                                .bucket(bucketName)
-                                .id("witboostConfig")
-                                .intelligentTieringConfiguration(
-                                        software.amazon.awssdk.services.s3.model.IntelligentTieringConfiguration
-                                                .builder()
-                                                .id("witboostConfig")
-                                                .status(IntelligentTieringStatus.ENABLED)
-                                                .tierings(tierings)
-                                                .build())
-                                .build();
-
-                s3Client.putBucketIntelligentTieringConfiguration(request);
             }
 
-            logger.info("Bucket '{}' is successfully created or updated in region '{}'.", bucketName, region);
-            return Either.right(null);
+            logger.info(
+                    "Bucket '{}' is successfully created or updated in region '{}' ({}).",
+                    bucketName,
+                    region,
+                    reconciliation);
+            ProvisioningTrace.record(Phase.CONFIGURATION, configurationStart);
+            return Either.right(reconciliation);
 
         } catch (Exception e) {
             String error = String.format(
@@ -167,6 +433,341 @@ public class BucketManager {
         }
     }
 
+    /**
+     * Number of settings written by a full update of the bucket configuration, i.e. of writes avoided when the
+     * configuration fingerprint matches.
+     */
+    private static int configuredSettings(S3Specific s3Specific) {
+        // Tags, secure transport policy and encryption are always configured
+        int settings = 3;
+        if (s3Specific.getMultipleVersion()) {
+            settings++;
+            LifeCycleConfiguration lifeCycleConfiguration = s3Specific.getLifeCycleConfiguration();
+            if (lifeCycleConfiguration != null && lifeCycleConfiguration.getPermanentlyDelete() != null) settings++;
+        }
+        IntelligentTieringConfiguration intelligentTieringConfiguration =
+                s3Specific.getIntelligentTieringConfiguration();
+        if (intelligentTieringConfiguration.getArchiveAccessTierEnabled()
+                || intelligentTieringConfiguration.getDeepArchiveAccessTierEnabled()) settings++;
+        return settings;
+    }
+
+    /**
+     * Runs the given configuration steps concurrently and waits for all of them, so that a failing step does not
+     * prevent the others from being applied.
+     *
+     * @param bucketName the name of the bucket.
+     * @param steps      the independent configuration steps.
+     * @return an {@link Either} containing:
+     *         - {@code null} if every step succeeded.
+     *         - {@link FailedOperation} with the problems of every failed step otherwise.
+     */
+    private Either<FailedOperation, Void> runConfigurationSteps(
+            String bucketName, List<Supplier<Either<FailedOperation, Void>>> steps) {
+        List<Either<FailedOperation, Void>> results;
+        if (configurationExecutor == null) {
+            results = steps.stream().map(Supplier::get).toList();
+        } else {
+            List<CompletableFuture<Either<FailedOperation, Void>>> futures = steps.stream()
+                    .map(step ->
+                            CompletableFuture.supplyAsync(ProvisioningTrace.propagate(step), configurationExecutor))
+                    .toList();
+            results = futures.stream().map(CompletableFuture::join).toList();
+        }
+
+        List<FailedOperation> failures =
+                results.stream().filter(Either::isLeft).map(Either::getLeft).toList();
+        if (failures.isEmpty()) return Either.right(null);
+
+        FailedOperation failure = BucketConfigurations.mergeFailures(bucketName, failures);
+        if (failures.size() > 1) logger.error(failure.message());
+        return Either.left(failure);
+    }
+
+    /**
+     * Applies a single bucket setting, unless {@code compareCurrentState} is set and the current value on AWS already
+     * matches the desired one. A failure while reading the current value is not an error: the setting is applied.
+     *
+     * @param setting             the setting to reconcile.
+     * @param bucketName          the name of the bucket.
+     * @param reconciliation      the report where the outcome is recorded.
+     * @param compareCurrentState whether to check the current state before applying the setting.
+     * @param isUpToDate          reads the current state and compares it with the desired one.
+     * @param apply               writes the desired state.
+     * @return an {@link Either} containing {@link FailedOperation} if the setting could not be applied or {@code null}.
+     */
+    private Either<FailedOperation, Void> reconcileSetting(
+            BucketSetting setting,
+            String bucketName,
+            BucketReconciliation reconciliation,
+            boolean compareCurrentState,
+            CurrentStateCheck isUpToDate,
+            Supplier<Either<FailedOperation, Void>> apply) {
+        if (compareCurrentState && isUpToDateOrFalse(setting, bucketName, isUpToDate)) {
+            logger.info("Setting {} of bucket '{}' is already up to date. Skipping it.", setting, bucketName);
+            reconciliation.markSkipped(setting);
+            ProvisioningTrace.callsSkipped(1);
+            return Either.right(null);
+        }
+
+        Either<FailedOperation, Void> result = apply.get();
+        if (result.isRight()) reconciliation.markApplied(setting);
+        return result;
+    }
+
+    private boolean isUpToDateOrFalse(BucketSetting setting, String bucketName, CurrentStateCheck isUpToDate) {
+        try {
+            return isUpToDate.isUpToDate();
+        } catch (Exception e) {
+            logger.debug(
+                    "Unable to read the current {} of bucket '{}', it will be applied. Details: {}",
+                    setting,
+                    bucketName,
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CurrentStateCheck {
+        boolean isUpToDate() throws Exception;
+    }
+
+    /**
+     * Checks whether the tags of the bucket are exactly the given ones.
+     *
+     * @param s3Client   the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param tags       the desired tags.
+     * @return {@code true} if the current tag set matches {@code tags}.
+     */
+    protected boolean areBucketTagsUpToDate(
+            @NotNull S3Client s3Client, @NotNull String bucketName, @NotNull List<BucketTag> tags) {
+        return BucketConfigurations.tagsMatch(
+                tags,
+                s3Client.getBucketTagging(GetBucketTaggingRequest.builder()
+                                .bucket(bucketName)
+                                .build())
+                        .tagSet());
+    }
+
+    /**
+     * The fingerprint is stored as one more bucket tag, so it is left out when the requested tags already reach the
+     * maximum number of tags of a bucket. The configuration of such a bucket is always reconciled.
+     */
+    boolean fingerprintFits(String bucketName, S3Specific s3Specific) {
+        if (BucketConfigurations.fingerprintFits(s3Specific.getBucketTags())) return true;
+        logger.info(
+                "Bucket '{}' is requested with {} tags, the maximum allowed by S3. The configuration fingerprint is not stored.",
+                bucketName,
+                s3Specific.getBucketTags().size());
+        return false;
+    }
+
+    /**
+     * Reads the current tags of the bucket, including the {@value #CONFIGURATION_FINGERPRINT_TAG} tag.
+     *
+     * @param s3Client   the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @return the current tag set, empty if the bucket has no tags, or {@code null} if it could not be read.
+     */
+    protected List<Tag> readBucketTagsOrNull(@NotNull S3Client s3Client, @NotNull String bucketName) {
+        try {
+            return s3Client.getBucketTagging(
+                            GetBucketTaggingRequest.builder().bucket(bucketName).build())
+                    .tagSet();
+        } catch (Exception e) {
+            // A bucket without tags answers with NoSuchTagSet
+            if (e instanceof S3Exception s3Exception && s3Exception.statusCode() == 404) return List.of();
+            logger.debug("Unable to read the tags of bucket '{}'. Details: {}", bucketName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes the configuration fingerprint stored on the bucket by replacing its tags with the requested ones, or by
+     * deleting them when no tag is requested.
+     *
+     * @param s3Client   the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param tags       the tags requested for the bucket, may be {@code null}.
+     * @return an {@link Either} containing:
+     *         - {@code null} if the fingerprint is successfully removed.
+     *         - {@link FailedOperation} if an error occurs while removing the fingerprint.
+     */
+    protected Either<FailedOperation, Void> removeConfigurationFingerprint(
+            @NotNull S3Client s3Client, @NotNull String bucketName, List<BucketTag> tags) {
+        if (tags != null && !tags.isEmpty()) return applyBucketTags(s3Client, bucketName, tags);
+        try {
+            logger.info("Removing the configuration fingerprint of bucket: '{}'.", bucketName);
+            s3Client.deleteBucketTagging(
+                    DeleteBucketTaggingRequest.builder().bucket(bucketName).build());
+            return Either.right(null);
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while removing the tags of the bucket. Details: %s",
+                    bucketName, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
+
+    /**
+     * Stores the configuration fingerprint on the bucket, as the {@value #CONFIGURATION_FINGERPRINT_TAG} tag next to
+     * the tags requested for the bucket.
+     *
+     * @param s3Client    the {@link S3Client} used to perform the operation.
+     * @param bucketName  the name of the bucket.
+     * @param tags        the tags requested for the bucket, may be {@code null}.
+     * @param fingerprint the fingerprint of the applied configuration.
+     * @return an {@link Either} containing:
+     *         - {@code null} if the fingerprint is successfully stored.
+     *         - {@link FailedOperation} if an error occurs while storing the fingerprint.
+     */
+    protected Either<FailedOperation, Void> applyConfigurationFingerprint(
+            @NotNull S3Client s3Client, @NotNull String bucketName, List<BucketTag> tags, @NotNull String fingerprint) {
+        return applyBucketTags(
+                s3Client, bucketName, BucketConfigurations.withConfigurationFingerprint(tags, fingerprint));
+    }
+
+    /**
+     * Checks whether the bucket policy is semantically equal to the secure transport policy.
+     *
+     * @param s3Client     the {@link S3Client} used to perform the operation.
+     * @param bucketName   the name of the bucket.
+     * @param bucketPolicy the rendered secure transport policy.
+     * @return {@code true} if the current policy matches {@code bucketPolicy}.
+     * @throws IOException if one of the policies is not valid JSON.
+     */
+    protected boolean isBucketPolicyUpToDate(
+            @NotNull S3Client s3Client, @NotNull String bucketName, @NotNull String bucketPolicy) throws IOException {
+        String current = s3Client.getBucketPolicy(
+                        GetBucketPolicyRequest.builder().bucket(bucketName).build())
+                .policy();
+        return BucketConfigurations.policyMatches(current, bucketPolicy);
+    }
+
+    /**
+     * Checks whether the default encryption of the bucket uses the given algorithm.
+     *
+     * @param s3Client             the {@link S3Client} used to perform the operation.
+     * @param bucketName           the name of the bucket.
+     * @param serverSideEncryption the desired encryption algorithm.
+     * @return {@code true} if the bucket is already encrypted with {@code serverSideEncryption}.
+     */
+    protected boolean isEncryptionUpToDate(
+            @NotNull S3Client s3Client,
+            @NotNull String bucketName,
+            @NotNull ServerSideEncryption serverSideEncryption) {
+        Optional<BucketMetadata> indexed = bucketInventory.lookup(bucketName);
+        if (indexed.isPresent() && serverSideEncryption.equals(indexed.get().encryption())) {
+            ProvisioningTrace.callsSkipped(1);
+            return true;
+        }
+
+        GetBucketEncryptionResponse currentEncryption = s3Client.getBucketEncryption(
+                GetBucketEncryptionRequest.builder().bucket(bucketName).build());
+        return BucketConfigurations.encryptionMatches(currentEncryption, serverSideEncryption);
+    }
+
+    /**
+     * Checks whether versioning is enabled on the bucket.
+     *
+     * @param s3Client   the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @return {@code true} if versioning is enabled.
+     */
+    protected boolean isVersioningEnabled(@NotNull S3Client s3Client, @NotNull String bucketName) {
+        Optional<BucketMetadata> indexed = bucketInventory.lookup(bucketName);
+        if (indexed.isPresent()
+                && BucketVersioningStatus.ENABLED.equals(indexed.get().versioning())) {
+            ProvisioningTrace.callsSkipped(1);
+            return true;
+        }
+
+        return BucketVersioningStatus.ENABLED.equals(s3Client.getBucketVersioning(
+                        GetBucketVersioningRequest.builder().bucket(bucketName).build())
+                .status());
+    }
+
+    /**
+     * Checks whether the lifecycle configuration of the bucket is exactly the one written by
+     * {@link #applyLifeCycleConfiguration}.
+     *
+     * @param s3Client               the {@link S3Client} used to perform the operation.
+     * @param bucketName             the name of the bucket.
+     * @param lifeCycleConfiguration the desired lifecycle configuration.
+     * @param reconciliation         the reconciliation the rules read are recorded on.
+     * @return {@code true} if the current lifecycle configuration matches.
+     */
+    protected boolean isLifeCycleConfigurationUpToDate(
+            @NotNull S3Client s3Client,
+            @NotNull String bucketName,
+            @NotNull LifeCycleConfiguration lifeCycleConfiguration,
+            @NotNull BucketReconciliation reconciliation) {
+        List<LifecycleRule> rules = s3Client.getBucketLifecycleConfiguration(
+                        GetBucketLifecycleConfigurationRequest.builder()
+                                .bucket(bucketName)
+                                .build())
+                .rules();
+        reconciliation.recordLifecycleRules(rules);
+        return BucketConfigurations.lifecycleMatches(rules, lifeCycleConfiguration);
+    }
+
+    /**
+     * Checks whether the Witboost intelligent tiering configuration of the bucket matches the desired one.
+     *
+     * @param s3Client                        the {@link S3Client} used to perform the operation.
+     * @param bucketName                      the name of the bucket.
+     * @param intelligentTieringConfiguration the desired intelligent tiering configuration.
+     * @return {@code true} if the current intelligent tiering configuration matches.
+     */
+    protected boolean isIntelligentTieringUpToDate(
+            @NotNull S3Client s3Client,
+            @NotNull String bucketName,
+            @NotNull IntelligentTieringConfiguration intelligentTieringConfiguration) {
+        var current = s3Client.getBucketIntelligentTieringConfiguration(
+                        GetBucketIntelligentTieringConfigurationRequest.builder()
+                                .bucket(bucketName)
+                                .id(BucketConfigurations.INTELLIGENT_TIERING_ID)
+                                .build())
+                .intelligentTieringConfiguration();
+        return BucketConfigurations.intelligentTieringMatches(current, intelligentTieringConfiguration);
+    }
+
+    /**
+     * Applies the Witboost intelligent tiering configuration to the specified bucket.
+     *
+     * @param s3Client                        the {@link S3Client} used to perform the operation.
+     * @param bucketName                      the name of the bucket.
+     * @param intelligentTieringConfiguration the intelligent tiering configuration to apply.
+     * @return an {@link Either} containing:
+     *         - {@code null} if the configuration is successfully applied.
+     *         - {@link FailedOperation} if an error occurs while applying the configuration.
+     */
+    protected Either<FailedOperation, Void> applyIntelligentTieringConfiguration(
+            @NotNull S3Client s3Client,
+            @NotNull String bucketName,
+            @NotNull IntelligentTieringConfiguration intelligentTieringConfiguration) {
+        try {
+            logger.info("Applying intelligent tiering configuration for bucket: '{}'.", bucketName);
+
+            PutBucketIntelligentTieringConfigurationRequest request =
+                    BucketConfigurations.putBucketIntelligentTieringConfigurationRequest(
+                            bucketName, intelligentTieringConfiguration);
+
+            s3Client.putBucketIntelligentTieringConfiguration(request);
+            return Either.right(null);
+
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while applying intelligent tiering configuration. Details: %s",
+                    bucketName, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
+
     /**
      * Enables AES256 encryption for the specified S3 bucket.
      *
@@ -181,16 +782,8 @@ public class BucketManager {
         try {
             logger.info("Enabling AES256 encryption for bucket: '{}'.", bucketName);
 
-            s3Client.putBucketEncryption(PutBucketEncryptionRequest.builder()
-                    .bucket(bucketName)
-                    .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
-                            .rules(ServerSideEncryptionRule.builder()
-                                    .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
-                                            .sseAlgorithm(ServerSideEncryption.AES256)
-                                            .build())
-                                    .build())
-                            .build())
-                    .build());
+            s3Client.putBucketEncryption(
+                    BucketConfigurations.putBucketEncryptionRequest(bucketName, ServerSideEncryption.AES256, null));
             logger.info("AES256 encryption enabled for bucket: '{}'.", bucketName);
             return Either.right(null);
 
@@ -229,6 +822,15 @@ public class BucketManager {
                     "Request to enable KMS encryption. Checking current encryption settings for bucket: '{}'.",
                     bucketName);
 
+            boolean kmsIndexed = bucketInventory
+                    .lookup(bucketName)
+                    .map(metadata -> ServerSideEncryption.AWS_KMS.equals(metadata.encryption()))
+                    .orElse(false);
+            if (kmsIndexed) {
+                logger.info("KMS encryption is already enabled for bucket: '{}'.", bucketName);
+                return Either.right(null);
+            }
+
             GetBucketEncryptionResponse currentEncryption = s3Client.getBucketEncryption(
                     GetBucketEncryptionRequest.builder().bucket(bucketName).build());
 
@@ -239,27 +841,17 @@ public class BucketManager {
 
             logger.info("KMS encryption not enabled. Enabling KMS encryption for bucket: '{}'.", bucketName);
 
-            Either<FailedOperation, String> createKey = new KmsManager()
-                    .createKey(
-                            kmsClient,
-                            accountId,
-                            String.format("Witboost-generated KMS key for bucket '%s'", bucketName),
-                            s3Specific.getBucketTags());
+            Either<FailedOperation, String> createKey = kmsManager.createKey(
+                    kmsClient,
+                    accountId,
+                    String.format("Witboost-generated KMS key for bucket '%s'", bucketName),
+                    s3Specific.getBucketTags());
             if (createKey.isLeft()) return Either.left(createKey.getLeft());
 
             String keyId = createKey.get();
 
-            s3Client.putBucketEncryption(PutBucketEncryptionRequest.builder()
-                    .bucket(bucketName)
-                    .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
-                            .rules(ServerSideEncryptionRule.builder()
-                                    .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
-                                            .sseAlgorithm(ServerSideEncryption.AWS_KMS)
-                                            .kmsMasterKeyID(keyId)
-                                            .build())
-                                    .build())
-                            .build())
-                    .build());
+            s3Client.putBucketEncryption(
+                    BucketConfigurations.putBucketEncryptionRequest(bucketName, ServerSideEncryption.AWS_KMS, keyId));
             logger.info("KMS encryption enabled with key ID '{}' for bucket: '{}'.", keyId, bucketName);
             return Either.right(null);
 
@@ -273,24 +865,11 @@ public class BucketManager {
     }
 
     protected boolean isKmsEnabled(GetBucketEncryptionResponse response) {
-        if (response == null || response.serverSideEncryptionConfiguration() == null) {
-            return false;
-        }
-
-        ServerSideEncryptionConfiguration config = response.serverSideEncryptionConfiguration();
-
-        for (ServerSideEncryptionRule rule : config.rules()) {
-            ServerSideEncryptionByDefault encryptionByDefault = rule.applyServerSideEncryptionByDefault();
-            if (encryptionByDefault != null && "aws:kms".equals(encryptionByDefault.sseAlgorithmAsString())) {
-                return true;
-            }
-        }
-
-        return false;
+        return BucketConfigurations.isKmsEnabled(response);
     }
 
     /**
-     * Enables versioning for the specified bucket and applies lifecycle configuration.
+     * Enables versioning for the specified bucket and applies lifecycle configuration, if any.
      *
      * @param s3Client             the {@link S3Client} used to perform the operation.
      * @param bucketName           the name of the bucket.
@@ -306,14 +885,7 @@ public class BucketManager {
         try {
             logger.info("Enabling versioning for bucket: '{}'.", bucketName);
 
-            VersioningConfiguration versioningConfiguration = VersioningConfiguration.builder()
-                    .status(BucketVersioningStatus.ENABLED)
-                    .build();
-            PutBucketVersioningRequest putBucketVersioningRequest = PutBucketVersioningRequest.builder()
-                    .bucket(bucketName)
-                    .versioningConfiguration(versioningConfiguration)
-                    .build();
-            s3Client.putBucketVersioning(putBucketVersioningRequest);
+            s3Client.putBucketVersioning(BucketConfigurations.putBucketVersioningRequest(bucketName));
 
             logger.info("Versioning enabled for bucket: '{}'.", bucketName);
 
@@ -325,37 +897,39 @@ public class BucketManager {
             return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
         }
 
-        if (lifeCycleConfiguration.getPermanentlyDelete() != null)
+        if (lifeCycleConfiguration != null && lifeCycleConfiguration.getPermanentlyDelete() != null)
             return applyLifeCycleConfiguration(s3Client, bucketName, lifeCycleConfiguration);
         return Either.right(null);
     }
 
     protected Either<FailedOperation, Void> applyLifeCycleConfiguration(
             @NotNull S3Client s3Client, @NotNull String bucketName, LifeCycleConfiguration lifeCycleConfiguration) {
+        return applyLifeCycleConfiguration(
+                s3Client, bucketName, lifeCycleConfiguration, new BucketReconciliation(false));
+    }
+
+    /**
+     * @param reconciliation the reconciliation applying the configuration. The current rules it already knows are not
+     *                       read again to keep the ones expiring the folders being unprovisioned, and the rules written
+     *                       are recorded on it.
+     */
+    private Either<FailedOperation, Void> applyLifeCycleConfiguration(
+            S3Client s3Client,
+            String bucketName,
+            LifeCycleConfiguration lifeCycleConfiguration,
+            BucketReconciliation reconciliation) {
         try {
             logger.info("Applying lifecycle configuration for bucket: '{}'.", bucketName);
 
-            BucketLifecycleConfiguration bucketLifecycleConfiguration = BucketLifecycleConfiguration.builder()
-                    .rules(LifecycleRule.builder()
-                            .id("witboostLifeCycleConfiguration")
-                            .status(ExpirationStatus.ENABLED)
-                            .filter(LifecycleRuleFilter.builder().build())
-                            .noncurrentVersionExpiration(NoncurrentVersionExpiration.builder()
-                                    .noncurrentDays(lifeCycleConfiguration
-                                            .getPermanentlyDelete()
-                                            .getDaysAfterBecomeNonCurrent())
-                                    .newerNoncurrentVersions(lifeCycleConfiguration
-                                            .getPermanentlyDelete()
-                                            .getNumberOfVersionsToRetain())
-                                    .build())
-                            .build())
-                    .build();
-
-            s3Client.putBucketLifecycleConfiguration(PutBucketLifecycleConfigurationRequest.builder()
-                    .bucket(bucketName)
-                    .transitionDefaultMinimumObjectSize(TransitionDefaultMinimumObjectSize.ALL_STORAGE_CLASSES_128_K)
-                    .lifecycleConfiguration(bucketLifecycleConfiguration)
-                    .build());
+            PutBucketLifecycleConfigurationRequest request =
+                    BucketConfigurations.putBucketLifecycleConfigurationRequest(
+                            bucketName,
+                            lifeCycleConfiguration,
+                            reconciliation
+                                    .getLifecycleRules()
+                                    .orElseGet(() -> getLifecycleRules(s3Client, bucketName)));
+            s3Client.putBucketLifecycleConfiguration(request);
+            reconciliation.recordLifecycleRules(request.lifecycleConfiguration().rules());
 
             return Either.right(null);
 
@@ -383,29 +957,35 @@ public class BucketManager {
             @NotNull S3Client s3Client, @NotNull String bucketName) {
 
         try {
-            logger.info("Applying secure transport policy for bucket: '{}'.", bucketName);
-
-            String bucketPolicy;
-
-            if (System.getProperty("bucket.policy.path") != null) {
-                String policyPath = System.getProperty("bucket.policy.path");
-                logger.info("Using custom bucket policy path: {}", policyPath);
-                bucketPolicy = new String(Files.readAllBytes(Paths.get(policyPath)));
+            return applyBucketPolicyForSecureTransport(s3Client, bucketName, renderBucketPolicy(bucketName));
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while applying secure transport policy. Details: %s",
+                    bucketName, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
 
-            } else {
-                InputStream inputStream = getClass().getClassLoader().getResourceAsStream("bucket-policy.json");
-                logger.info("Using default bucket policy path");
-                bucketPolicy = new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
-            }
+    /**
+     * Applies an already rendered secure transport policy to the specified bucket.
+     *
+     * @param s3Client     the {@link S3Client} used to perform the operation.
+     * @param bucketName   the name of the bucket.
+     * @param bucketPolicy the rendered policy, see {@link #renderBucketPolicy(String)}.
+     *
+     * @return an {@link Either} containing:
+     *         - {@code null} if the policy is successfully applied.
+     *         - {@link FailedOperation} if an error occurs while applying the policy.
+     */
+    protected Either<FailedOperation, Void> applyBucketPolicyForSecureTransport(
+            @NotNull S3Client s3Client, @NotNull String bucketName, @NotNull String bucketPolicy) {
 
-            logger.debug("Original bucket policy: {}", bucketPolicy);
-            String updatedPolicy = bucketPolicy.replace("{bucketName}", bucketName);
-            logger.debug("Updated bucket policy: {}", updatedPolicy);
+        try {
+            logger.info("Applying secure transport policy for bucket: '{}'.", bucketName);
 
-            PutBucketPolicyRequest putBucketPolicyRequest = PutBucketPolicyRequest.builder()
-                    .bucket(bucketName)
-                    .policy(updatedPolicy)
-                    .build();
+            PutBucketPolicyRequest putBucketPolicyRequest =
+                    BucketConfigurations.putBucketPolicyRequest(bucketName, bucketPolicy);
 
             s3Client.putBucketPolicy(putBucketPolicyRequest);
 
@@ -421,6 +1001,17 @@ public class BucketManager {
         }
     }
 
+    /**
+     * Renders the secure transport policy for the given bucket from the template held by the
+     * {@link PolicyTemplateRegistry}.
+     *
+     * @param bucketName the name of the bucket.
+     * @return the bucket policy document.
+     */
+    protected String renderBucketPolicy(@NotNull String bucketName) {
+        return policyTemplateRegistry.renderBucketPolicy(bucketName);
+    }
+
     /**
      * Applies tags to the specified S3 bucket.
      * If no tags are provided, the method returns successfully without applying any changes.
@@ -435,7 +1026,6 @@ public class BucketManager {
      */
     protected Either<FailedOperation, Void> applyBucketTags(
             @NotNull S3Client s3Client, @NotNull String bucketName, List<BucketTag> tags) {
-        List<software.amazon.awssdk.services.s3.model.Tag> awsTags = new ArrayList<>();
         try {
             if (tags == null || tags.isEmpty()) {
                 logger.info("No tags provided for bucket: '{}'. Skipping tag application.", bucketName);
@@ -443,15 +1033,7 @@ public class BucketManager {
             }
             logger.info("Applying tags to bucket: '{}'.", bucketName);
 
-            tags.forEach(tag -> awsTags.add(software.amazon.awssdk.services.s3.model.Tag.builder()
-                    .key(tag.getKey())
-                    .value(tag.getValue())
-                    .build()));
-
-            s3Client.putBucketTagging(PutBucketTaggingRequest.builder()
-                    .bucket(bucketName)
-                    .tagging(Tagging.builder().tagSet(awsTags).build())
-                    .build());
+            s3Client.putBucketTagging(BucketConfigurations.putBucketTaggingRequest(bucketName, tags));
 
             logger.info("Tags successfully applied to bucket: '{}'.", bucketName);
             return Either.right(null);
@@ -524,17 +1106,59 @@ public class BucketManager {
      * @param s3Client   the {@link S3Client} used to perform the operation.
      * @param bucketName the name of the bucket to check.
      * @return an {@link Either} containing {@code true} if the bucket exists, {@code false} if not,
-     *         or a {@link FailedOperation} in case of an error.
+     *         or a {@link FailedOperation} in case of an error or if the bucket exists but cannot be accessed.
      */
     public Either<FailedOperation, Boolean> doesBucketExist(S3Client s3Client, @NotBlank String bucketName) {
+        return probeBucket(s3Client, bucketName).flatMap(bucketProbe -> {
+            if (bucketProbe.status() != BucketProbe.Status.FORBIDDEN) return Either.right(bucketProbe.exists());
+            String error = bucketProbe.accessError(bucketName).orElseThrow();
+            logger.error(error);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error))));
+        });
+    }
+
+    /**
+     * Probes a bucket with a single HeadBucket call, whose cost does not depend on the number of buckets in the account.
+     * The region of the bucket is taken from the {@code x-amz-bucket-region} header, which S3 returns both on
+     * successful responses and on redirect or access denied errors.
+     *
+     * @param s3Client   the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket to probe.
+     * @return an {@link Either} containing the {@link BucketProbe} result, or a {@link FailedOperation} in case of an
+     *         error.
+     */
+    public Either<FailedOperation, BucketProbe> probeBucket(S3Client s3Client, @NotBlank String bucketName) {
+        return stepMetrics.record(Step.PROBE_BUCKET, s3Client, bucketName, () -> doProbeBucket(s3Client, bucketName));
+    }
+
+    private Either<FailedOperation, BucketProbe> doProbeBucket(S3Client s3Client, String bucketName) {
         try {
             logger.info("Checking if bucket '{}' exists.", bucketName);
-            boolean bucketExists = s3Client.listBuckets().buckets().stream()
-                    .anyMatch(bucket -> bucket.name().equalsIgnoreCase(bucketName));
 
-            logger.info("Does bucket '{}' exist? {}", bucketName, bucketExists);
+            Optional<BucketMetadata> indexed = bucketInventory.lookup(bucketName);
+            if (indexed.isPresent() && indexed.get().region() != null) {
+                logger.info("Bucket '{}' found in the bucket inventory.", bucketName);
+                ProvisioningTrace.callsSkipped(1);
+                return Either.right(
+                        new BucketProbe(BucketProbe.Status.EXISTS, indexed.get().region()));
+            }
+
+            BucketProbe bucketProbe;
+            try {
+                HeadBucketResponse response = s3Client.headBucket(
+                        HeadBucketRequest.builder().bucket(bucketName).build());
+                bucketProbe = new BucketProbe(BucketProbe.Status.EXISTS, response.bucketRegion());
+            } catch (S3Exception e) {
+                bucketProbe = BucketConfigurations.probeOf(e);
+                if (bucketProbe.status() == BucketProbe.Status.EXISTS_ELSEWHERE)
+                    bucketProbe = checkOwnership(s3Client, bucketName, bucketProbe);
+            }
 
-            return Either.right(bucketExists);
+            if (bucketProbe.exists() && bucketProbe.region() != null)
+                bucketInventory.record(s3Client, bucketName, new BucketMetadata(bucketProbe.region(), null, null));
+
+            logger.info("Does bucket '{}' exist? {}", bucketName, bucketProbe.status());
+            return Either.right(bucketProbe);
         } catch (Exception e) {
             String error = String.format(
                     "[Bucket: %s] Error: An unexpected error occurred while checking the bucket existence. Details: %s",
@@ -544,6 +1168,42 @@ public class BucketManager {
         }
     }
 
+    /**
+     * HeadBucket answers 403 both when the bucket belongs to someone else and when the current credentials lack
+     * {@code s3:ListBucket} on a bucket of their own account. Only in the latter case can the bucket be located.
+     */
+    private BucketProbe checkOwnership(S3Client s3Client, String bucketName, BucketProbe bucketProbe) {
+        try {
+            GetBucketLocationResponse locationResponse = s3Client.getBucketLocation(
+                    GetBucketLocationRequest.builder().bucket(bucketName).build());
+            BucketLocationConstraint locationConstraint = locationResponse.locationConstraint();
+            return new BucketProbe(
+                    BucketProbe.Status.FORBIDDEN,
+                    locationConstraint == null ? "us-east-1" : locationConstraint.toString());
+        } catch (SdkException e) {
+            logger.debug("Bucket '{}' cannot be located with the current credentials: {}", bucketName, e.getMessage());
+            return bucketProbe;
+        }
+    }
+
+    /**
+     * Returns the region of a probed bucket, falling back to {@link #getBucketRegion(S3Client, String)} only if the
+     * probe response did not carry the {@code x-amz-bucket-region} header.
+     *
+     * @param s3Client    the {@link S3Client} used to perform the fallback operation.
+     * @param bucketName  the name of the bucket.
+     * @param bucketProbe the result of {@link #probeBucket(S3Client, String)}.
+     * @return an {@link Either} containing the region name or a {@link FailedOperation} in case of error.
+     */
+    public Either<FailedOperation, String> resolveBucketRegion(
+            @NotNull S3Client s3Client, @NotNull String bucketName, @NotNull BucketProbe bucketProbe) {
+        if (bucketProbe.region() != null) {
+            ProvisioningTrace.callsSkipped(1);
+            return Either.right(bucketProbe.region());
+        }
+        return getBucketRegion(s3Client, bucketName);
+    }
+
     /**
      * Retrieves the AWS region where the specified bucket is located.
      * This operation returns the region or an error if the region cannot be retrieved.
@@ -588,18 +1248,22 @@ public class BucketManager {
 
             logger.info("Starting creation of the folder '{}' in bucket '{}'.", folderPath, bucketName);
 
-            String formattedFolderPath = folderPath.endsWith("/") ? folderPath : folderPath + "/";
-
-            PutObjectRequest request = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(formattedFolderPath)
-                    .build();
+            String formattedFolderPath = BucketConfigurations.folderKey(folderPath);
 
-            s3.putObject(request, RequestBody.empty());
+            Either<FailedOperation, Void> folderCreation =
+                    stepMetrics.record(Step.CREATE_FOLDER, s3, bucketName, () -> {
+                        s3.putObject(
+                                BucketConfigurations.putFolderRequest(bucketName, folderPath), RequestBody.empty());
+                        return Either.right(null);
+                    });
+            if (folderCreation.isLeft()) return Either.left(folderCreation.getLeft());
 
             // Wait until the folder is confirmed to exist
-            Either<FailedOperation, Void> waitForObjectExistence =
-                    waitForObjectExistence(s3, bucketName, formattedFolderPath);
+            Either<FailedOperation, Void> waitForObjectExistence = stepMetrics.record(
+                    Step.WAIT_OBJECT,
+                    s3,
+                    bucketName,
+                    () -> waitForObjectExistence(s3, bucketName, formattedFolderPath));
             if (waitForObjectExistence.isLeft()) return Either.left(waitForObjectExistence.getLeft());
 
             logger.info("Folder '{}' in bucket '{}' is successfully created.", formattedFolderPath, bucketName);
@@ -614,6 +1278,311 @@ public class BucketManager {
         }
     }
 
+    /** How the objects of an unprovisioned folder are deleted. */
+    public enum DeletionMode {
+        /** {@link #LIFECYCLE} when the first pages of the listing of the folder are all full, {@link #API} otherwise. */
+        AUTO,
+        /** The objects are listed and deleted with {@code DeleteObjects} requests. */
+        API,
+        /** The objects are expired asynchronously by a lifecycle rule scoped to the folder. */
+        LIFECYCLE
+    }
+
+    /**
+     * Decides whether the objects under a prefix are better expired by a lifecycle rule than deleted through the API,
+     * according to {@code s3.delete.offload.mode}. In {@link DeletionMode#AUTO} mode, the listing that the deletion
+     * would run is read until it ends or exceeds {@code s3.delete.offload.sample-pages} pages: in the latter case, the
+     * prefix holds more objects than the API deletion is worth. Otherwise the pages read hold all the objects under
+     * the prefix, and are returned for the deletion to use instead of listing the prefix again.
+     *
+     * @param s3         the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param prefix     the prefix of the objects to delete.
+     * @param versions   whether all the versions of the objects are deleted, rather than the current ones.
+     * @return an {@link Either} containing {@link FailedOperation} in case of error or the {@link PrefixDeletionPlan}
+     *         of the prefix on success.
+     */
+    public Either<FailedOperation, PrefixDeletionPlan> planPrefixDeletion(
+            S3Client s3, String bucketName, String prefix, boolean versions) {
+        if (deletionMode != DeletionMode.AUTO)
+            return Either.right(
+                    deletionMode == DeletionMode.LIFECYCLE ? PrefixDeletionPlan.lifecycle() : PrefixDeletionPlan.api());
+
+        String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        AdaptiveRateLimiter limiter = rateLimiters.retain(bucketName, formattedPrefix);
+        try {
+            long sampled = 0;
+            boolean truncated = false;
+            List<ListObjectsV2Response> objectPages = new ArrayList<>();
+            List<ListObjectVersionsResponse> versionPages = new ArrayList<>();
+            ListObjectsV2Request objectsRequest = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .prefix(formattedPrefix)
+                    .build();
+            ListObjectVersionsRequest versionsRequest = ListObjectVersionsRequest.builder()
+                    .bucket(bucketName)
+                    .prefix(formattedPrefix)
+                    .build();
+            // Stops at the first page beyond the sample, as soon as the prefix is known to be too large
+            for (int page = 0; page < offloadSamplePages; page++) {
+                if (versions) {
+                    ListObjectVersionsRequest pageRequest = versionsRequest;
+                    ListObjectVersionsResponse response =
+                            throttled(limiter, 1, () -> s3.listObjectVersions(pageRequest));
+                    versionPages.add(response);
+                    sampled += response.versions().size()
+                            + response.deleteMarkers().size();
+                    truncated = Boolean.TRUE.equals(response.isTruncated());
+                    versionsRequest = versionsRequest.toBuilder()
+                            .keyMarker(response.nextKeyMarker())
+                            .versionIdMarker(response.nextVersionIdMarker())
+                            .build();
+                } else {
+                    ListObjectsV2Request pageRequest = objectsRequest;
+                    ListObjectsV2Response response = throttled(limiter, 1, () -> s3.listObjectsV2(pageRequest));
+                    objectPages.add(response);
+                    sampled += response.contents().size();
+                    truncated = Boolean.TRUE.equals(response.isTruncated());
+                    objectsRequest = objectsRequest.toBuilder()
+                            .continuationToken(response.nextContinuationToken())
+                            .build();
+                }
+                if (!truncated) break;
+            }
+
+            logger.info(
+                    "[Bucket: {}] Prefix '{}' holds {}{} {}.",
+                    bucketName,
+                    formattedPrefix,
+                    truncated ? "more than " : "",
+                    sampled,
+                    versions ? "object versions" : "objects");
+            if (truncated) return Either.right(PrefixDeletionPlan.lifecycle());
+            return Either.right(
+                    versions
+                            ? new PrefixDeletionPlan(false, null, versionPages)
+                            : new PrefixDeletionPlan(false, objectPages, null));
+
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while estimating the objects with prefix '%s'. Details: %s",
+                    bucketName, formattedPrefix, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        } finally {
+            rateLimiters.release(bucketName, formattedPrefix);
+        }
+    }
+
+    /**
+     * Offloads the deletion of all the objects under a prefix, with all their versions, to S3: lifecycle rules
+     * scoped to the prefix are added to the configuration of the bucket, next to the
+     * {@value BucketConfigurations#LIFECYCLE_RULE_ID} rule, and the objects are expired asynchronously after
+     * {@code s3.delete.offload.expiration-days}. The progress is reported by {@link #getObjectExpirationStatus}.
+     *
+     * <p>The lifecycle configuration is replaced as a whole, so the caller must serialize this call with the other
+     * writers of the configuration of the bucket.</p>
+     *
+     * @param s3         the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param prefix     the prefix of the objects to expire.
+     * @return an {@link Either} containing {@link FailedOperation} in case of error or {@code null} on success.
+     */
+    public Either<FailedOperation, Void> expireObjectsWithPrefix(S3Client s3, String bucketName, String prefix) {
+        return stepMetrics.record(
+                Step.EXPIRE_OBJECTS, s3, bucketName, () -> doExpireObjectsWithPrefix(s3, bucketName, prefix));
+    }
+
+    private Either<FailedOperation, Void> doExpireObjectsWithPrefix(S3Client s3, String bucketName, String prefix) {
+        String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        try {
+            logger.info(
+                    "Installing lifecycle rules expiring the objects with prefix '{}' in bucket '{}'.",
+                    formattedPrefix,
+                    bucketName);
+
+            List<LifecycleRule> rules = new ArrayList<>();
+            getLifecycleRules(s3, bucketName).stream()
+                    .filter(rule -> !BucketConfigurations.isPrefixExpirationRule(rule, formattedPrefix))
+                    .forEach(rules::add);
+            rules.addAll(BucketConfigurations.prefixExpirationRules(formattedPrefix, offloadExpirationDays));
+            s3.putBucketLifecycleConfiguration(
+                    BucketConfigurations.putBucketLifecycleConfigurationRequest(bucketName, rules));
+            recordPrefixExpiration(s3, bucketName, true);
+
+            return Either.right(null);
+
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while installing the lifecycle rules expiring prefix '%s'. Details: %s",
+                    bucketName, formattedPrefix, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
+
+    /**
+     * Reports the progress of an expiration started by {@link #expireObjectsWithPrefix}, by sampling the prefix with
+     * a single-key listing. Once no object is left, the lifecycle rules of the prefix are removed, so that the objects
+     * written there afterwards are kept.
+     *
+     * <p>Like {@link #expireObjectsWithPrefix}, this call must be serialized with the other writers of the lifecycle
+     * configuration of the bucket.</p>
+     *
+     * @param s3         the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param prefix     the prefix of the objects to expire.
+     * @param versions   whether the versions of the objects are sampled, rather than the current ones.
+     * @return an {@link Either} containing {@link FailedOperation} in case of error or the
+     *         {@link ObjectExpirationStatus} of the prefix on success.
+     */
+    public Either<FailedOperation, ObjectExpirationStatus> getObjectExpirationStatus(
+            S3Client s3, String bucketName, String prefix, boolean versions) {
+        String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        try {
+            List<LifecycleRule> rules = getLifecycleRules(s3, bucketName);
+            recordPrefixExpiration(s3, bucketName, hasPrefixExpirationRules(rules));
+            if (rules.stream().noneMatch(rule -> BucketConfigurations.isPrefixExpirationRule(rule, formattedPrefix)))
+                return Either.right(ObjectExpirationStatus.NONE);
+
+            if (!isPrefixEmpty(s3, bucketName, formattedPrefix, versions)) {
+                logger.info(
+                        "[Bucket: {}] The objects with prefix '{}' are still being expired.",
+                        bucketName,
+                        formattedPrefix);
+                return Either.right(ObjectExpirationStatus.IN_PROGRESS);
+            }
+
+            removePrefixExpirationRules(s3, bucketName, rules, formattedPrefix);
+            logger.info(
+                    "[Bucket: {}] All the objects with prefix '{}' expired, its lifecycle rules were removed.",
+                    bucketName,
+                    formattedPrefix);
+            return Either.right(ObjectExpirationStatus.COMPLETED);
+
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while checking the expiration of prefix '%s'. Details: %s",
+                    bucketName, formattedPrefix, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
+
+    /**
+     * Removes the lifecycle rules installed by {@link #expireObjectsWithPrefix} for a prefix whose objects are all
+     * expired. A folder that is provisioned again after being unprovisioned would otherwise be expired by the rules of
+     * its unprovisioning. A folder whose objects are still being expired cannot be provisioned again: removing the
+     * rules would bring back the objects of its unprovisioning.
+     *
+     * <p>The rules are looked up among the ones the reconciliation of the bucket read or wrote. When it did not access
+     * the lifecycle configuration, e.g. because the configuration fingerprint matched, the configuration is read only
+     * if the {@link BucketInventory} knows that the bucket holds expiration rules.</p>
+     *
+     * <p>Like {@link #expireObjectsWithPrefix}, this call must be serialized with the other writers of the lifecycle
+     * configuration of the bucket.</p>
+     *
+     * @param s3             the {@link S3Client} used to perform the operation.
+     * @param bucketName     the name of the bucket.
+     * @param prefix         the prefix of the folder.
+     * @param versions       whether the versions of the objects are sampled, rather than the current ones.
+     * @param reconciliation the reconciliation of the bucket that was just run.
+     * @return an {@link Either} containing {@link FailedOperation} in case of error or if the objects of the prefix are
+     *         still being expired, or whether rules were removed on success.
+     */
+    public Either<FailedOperation, Boolean> clearObjectExpiration(
+            S3Client s3, String bucketName, String prefix, boolean versions, BucketReconciliation reconciliation) {
+        String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        try {
+            List<LifecycleRule> rules;
+            if (reconciliation.getLifecycleRules().isPresent())
+                rules = reconciliation.getLifecycleRules().get();
+            else if (bucketInventory
+                    .lookup(bucketName)
+                    .map(BucketMetadata::prefixExpiration)
+                    .orElse(false)) rules = getLifecycleRules(s3, bucketName);
+            else return Either.right(false);
+            if (rules.stream().noneMatch(rule -> BucketConfigurations.isPrefixExpirationRule(rule, formattedPrefix)))
+                return Either.right(false);
+
+            if (!isPrefixEmpty(s3, bucketName, formattedPrefix, versions)) {
+                String error = String.format(
+                        "[Bucket: %s] Error: The folder '%s' is still being expired after its unprovisioning and cannot be provisioned again until all of its objects are expired. Unprovision it again to check the progress of the expiration.",
+                        bucketName, formattedPrefix);
+                logger.error(error);
+                return Either.left(new FailedOperation(error, List.of(new Problem(error))));
+            }
+
+            removePrefixExpirationRules(s3, bucketName, rules, formattedPrefix);
+            logger.info(
+                    "[Bucket: {}] All the objects with prefix '{}' expired, its lifecycle rules were removed as the folder is provisioned again.",
+                    bucketName,
+                    formattedPrefix);
+            return Either.right(true);
+
+        } catch (Exception e) {
+            String error = String.format(
+                    "[Bucket: %s] Error: An unexpected error occurred while removing the lifecycle rules expiring prefix '%s'. Details: %s",
+                    bucketName, formattedPrefix, e.getMessage());
+            logger.error(error, e);
+            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        }
+    }
+
+    /** Samples a prefix with a single-key listing, of the versions of the objects or of the current ones. */
+    private boolean isPrefixEmpty(S3Client s3, String bucketName, String formattedPrefix, boolean versions) {
+        if (versions) {
+            ListObjectVersionsResponse response = s3.listObjectVersions(ListObjectVersionsRequest.builder()
+                    .bucket(bucketName)
+                    .prefix(formattedPrefix)
+                    .maxKeys(1)
+                    .build());
+            return response.versions().isEmpty() && response.deleteMarkers().isEmpty();
+        }
+        return s3.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(formattedPrefix)
+                        .maxKeys(1)
+                        .build())
+                .contents()
+                .isEmpty();
+    }
+
+    private void removePrefixExpirationRules(
+            S3Client s3, String bucketName, List<LifecycleRule> rules, String formattedPrefix) {
+        List<LifecycleRule> remainingRules = rules.stream()
+                .filter(rule -> !BucketConfigurations.isPrefixExpirationRule(rule, formattedPrefix))
+                .toList();
+        if (remainingRules.isEmpty())
+            s3.deleteBucketLifecycle(
+                    DeleteBucketLifecycleRequest.builder().bucket(bucketName).build());
+        else
+            s3.putBucketLifecycleConfiguration(
+                    BucketConfigurations.putBucketLifecycleConfigurationRequest(bucketName, remainingRules));
+        recordPrefixExpiration(s3, bucketName, hasPrefixExpirationRules(remainingRules));
+    }
+
+    private static boolean hasPrefixExpirationRules(List<LifecycleRule> rules) {
+        return rules.stream().anyMatch(BucketConfigurations::isPrefixExpirationRule);
+    }
+
+    /** Records in the inventory whether the bucket holds rules installed by {@link #expireObjectsWithPrefix}. */
+    private void recordPrefixExpiration(S3Client s3, String bucketName, boolean prefixExpiration) {
+        bucketInventory.record(s3, bucketName, new BucketMetadata(null, null, null, prefixExpiration));
+    }
+
+    /** Reads the lifecycle rules of a bucket, none if it has no lifecycle configuration. */
+    private List<LifecycleRule> getLifecycleRules(S3Client s3, String bucketName) {
+        try {
+            return s3.getBucketLifecycleConfiguration(GetBucketLifecycleConfigurationRequest.builder()
+                            .bucket(bucketName)
+                            .build())
+                    .rules();
+        } catch (S3Exception e) {
+            return BucketConfigurations.noLifecycleRules(e);
+        }
+    }
+
     /**
      * Waits until the specified object exists in the given bucket.
      * The operation will block until the object is confirmed to exist or a timeout occurs.
@@ -671,8 +1640,15 @@ public class BucketManager {
     }
 
     /**
-     * Deletes all objects in the specified S3 bucket that match the given prefix.
-     * If no objects are found with the specified prefix, no operation is performed.
+     * Deletes all objects in the specified S3 bucket that match the given prefix, including the folder object itself.
+     *
+     * <p>Listing and deletion are pipelined: each page of the listing is handed over to a {@link DeletionPipeline}
+     * that runs up to {@code s3.delete.concurrency} {@code DeleteObjects} requests at once, while the next page is
+     * listed. At most {@code s3.delete.queue-capacity} batches wait for deletion, so the memory used does not depend
+     * on the number of objects under the prefix.</p>
+     *
+     * <p>In a versioned bucket, this only adds a delete marker on top of each object: use
+     * {@link #purgeObjectVersionsWithPrefix} to free their storage.</p>
      *
      * @param s3         the {@link S3Client} used to perform the operation.
      * @param bucketName the name of the bucket.
@@ -680,30 +1656,161 @@ public class BucketManager {
      * @return an {@link Either} containing {@link FailedOperation} in case of error or {@code null} on success.
      */
     public Either<FailedOperation, Void> deleteObjectsWithPrefix(S3Client s3, String bucketName, String prefix) {
+        return deleteObjectsWithPrefix(s3, bucketName, prefix, PrefixDeletionPlan.api());
+    }
+
+    /**
+     * Like {@link #deleteObjectsWithPrefix(S3Client, String, String)}, deleting the objects already listed by
+     * {@link #planPrefixDeletion} if the plan holds them, without listing the prefix again.
+     *
+     * @param plan the plan of the deletion of the prefix.
+     */
+    public Either<FailedOperation, Void> deleteObjectsWithPrefix(
+            S3Client s3, String bucketName, String prefix, PrefixDeletionPlan plan) {
         logger.info("Starting deletion of objects with prefix '{}' in bucket '{}'.", prefix, bucketName);
 
-        try {
-            // Ensure the prefix has a trailing slash
-            String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        return stepMetrics.record(Step.DELETE_OBJECTS, s3, bucketName, () -> runDeletion(
+                        s3,
+                        bucketName,
+                        prefix,
+                        DeletionCheckpoint.Listing.OBJECTS,
+                        (formattedPrefix, pipeline, limiter, checkpointer) -> {
+                            boolean folderListed = plan.objectPages() != null
+                                    ? addListedObjects(formattedPrefix, pipeline, plan.objectPages(), checkpointer)
+                                    : listObjectsWithPrefix(
+                                            s3, bucketName, formattedPrefix, pipeline, limiter, checkpointer);
+
+                            // Delete the folder itself too, even if it has no objects
+                            if (!folderListed)
+                                pipeline.add(ObjectIdentifier.builder()
+                                        .key(formattedPrefix)
+                                        .build());
+                        })
+                .map(result -> {
+                    logger.info(
+                            "Successfully deleted all {} objects with prefix '{}' in bucket '{}'.",
+                            result.deleted(),
+                            prefix,
+                            bucketName);
+                    return null;
+                }));
+    }
+
+    /**
+     * Permanently deletes all the versions and delete markers of the objects that match the given prefix, including
+     * the folder object itself, so that their storage is freed in a versioned bucket. In a bucket that was never
+     * versioned, each object has a single {@code null} version and the result is the same as
+     * {@link #deleteObjectsWithPrefix}.
+     *
+     * <p>Versions are listed with {@code ListObjectVersions} and deleted through the same pipeline as
+     * {@link #deleteObjectsWithPrefix}.</p>
+     *
+     * @param s3         the {@link S3Client} used to perform the operation.
+     * @param bucketName the name of the bucket.
+     * @param prefix     the prefix to match for object deletion.
+     * @return an {@link Either} containing {@link FailedOperation} in case of error or the {@link DeletionReport} of
+     *         the versions deleted on success.
+     */
+    public Either<FailedOperation, DeletionReport> purgeObjectVersionsWithPrefix(
+            S3Client s3, String bucketName, String prefix) {
+        return purgeObjectVersionsWithPrefix(s3, bucketName, prefix, PrefixDeletionPlan.api());
+    }
 
-            // Retrieve all objects matching the specified prefix
-            List<ObjectIdentifier> objectIdentifiers = fetchObjectsWithPrefix(s3, bucketName, formattedPrefix);
+    /**
+     * Like {@link #purgeObjectVersionsWithPrefix(S3Client, String, String)}, deleting the versions already listed by
+     * {@link #planPrefixDeletion} if the plan holds them, without listing the prefix again.
+     *
+     * @param plan the plan of the deletion of the prefix.
+     */
+    public Either<FailedOperation, DeletionReport> purgeObjectVersionsWithPrefix(
+            S3Client s3, String bucketName, String prefix, PrefixDeletionPlan plan) {
+        logger.info("Starting purge of object versions with prefix '{}' in bucket '{}'.", prefix, bucketName);
+
+        return stepMetrics.record(Step.PURGE_VERSIONS, s3, bucketName, () -> runDeletion(
+                        s3,
+                        bucketName,
+                        prefix,
+                        DeletionCheckpoint.Listing.VERSIONS,
+                        (formattedPrefix, pipeline, limiter, checkpointer) -> {
+                            if (plan.versionPages() != null) {
+                                // The counters of an interrupted deletion still count, the pages list what is left
+                                checkpointer.resume();
+                                for (ListObjectVersionsResponse page : plan.versionPages()) addVersions(pipeline, page);
+                            } else
+                                listObjectVersionsWithPrefix(
+                                        s3, bucketName, formattedPrefix, pipeline, limiter, checkpointer);
+                        })
+                .map(result -> {
+                    DeletionReport report = new DeletionReport(
+                            result.deleted() - result.deletedMarkers(), result.deletedMarkers(), result.deletedBytes());
+                    logger.info(
+                            "Successfully purged {} versions ({} bytes) and {} delete markers with prefix '{}' in bucket '{}'.",
+                            report.versions(),
+                            report.bytes(),
+                            report.deleteMarkers(),
+                            prefix,
+                            bucketName);
+                    return report;
+                }));
+    }
 
-            // Add the folder itself to the list, even if it has no objects
-            objectIdentifiers.add(
-                    ObjectIdentifier.builder().key(formattedPrefix).build());
+    /** Lists the objects to delete under a prefix, adding them to a deletion pipeline. */
+    @FunctionalInterface
+    private interface DeletionLister {
+        void list(
+                String formattedPrefix,
+                DeletionPipeline pipeline,
+                AdaptiveRateLimiter limiter,
+                DeletionCheckpointer checkpointer)
+                throws Exception;
+    }
 
-            if (objectIdentifiers.isEmpty()) {
-                logger.info("No objects found with prefix '{}' in bucket '{}'.", prefix, bucketName);
-                return Either.right(null);
+    /**
+     * Runs a pipelined deletion of the objects listed by {@code lister}. Listing and deletion requests are paced by
+     * the rate limiter of the prefix, shared with the other bulk operations on the same prefix.
+     *
+     * <p>The lister resumes from the checkpoint left by an interrupted deletion of the same prefix, if any, and
+     * checkpoints its progress every {@code s3.delete.checkpoint.interval-seconds}. The checkpoint is removed once all
+     * the objects are deleted. The counters of the result include the objects deleted before the checkpoint.</p>
+     *
+     * @return the outcome of the deletion, or a {@link FailedOperation} if an error occurred or some objects could
+     *         not be deleted.
+     */
+    private Either<FailedOperation, DeletionPipeline.Result> runDeletion(
+            S3Client s3, String bucketName, String prefix, DeletionCheckpoint.Listing listing, DeletionLister lister) {
+        // Ensure the prefix has a trailing slash
+        String formattedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        AdaptiveRateLimiter limiter = rateLimiters.retain(bucketName, formattedPrefix);
+        try {
+            DeletionPipeline pipeline = new DeletionPipeline(
+                    deletionExecutor,
+                    deleteConcurrency,
+                    deleteQueueCapacity,
+                    batch -> deleteBatch(s3, bucketName, batch, limiter));
+            DeletionCheckpointer checkpointer = new DeletionCheckpointer(
+                    deletionCheckpointStore,
+                    bucketName,
+                    formattedPrefix,
+                    listing,
+                    Duration.ofSeconds(checkpointIntervalSeconds));
+            DeletionPipeline.Result result;
+            try {
+                lister.list(formattedPrefix, pipeline, limiter, checkpointer);
+                result = checkpointer.total(pipeline.finish());
+            } catch (Exception e) {
+                pipeline.abort();
+                throw e;
             }
 
-            // Delete all objects in batches to respect S3 API limits
-            Either<FailedOperation, Void> deletedObjects = deleteObjectsInBatches(s3, bucketName, objectIdentifiers);
-            if (deletedObjects.isLeft()) return Either.left(deletedObjects.getLeft());
-
-            logger.info("Successfully deleted all objects with prefix '{}' in bucket '{}'.", prefix, bucketName);
-            return Either.right(null);
+            if (result.failed() > 0) {
+                String error = String.format(
+                        "[Bucket '%s'] Error(s) during object deletion. %d objects deleted, %d objects could not be deleted.",
+                        bucketName, result.deleted(), result.failed());
+                logger.error(error);
+                return Either.left(new FailedOperation(error, result.problems()));
+            }
+            checkpointer.completed();
+            return Either.right(result);
 
         } catch (AwsServiceException awsEx) {
             String error = String.format(
@@ -717,45 +1824,367 @@ public class BucketManager {
                     bucketName, prefix, e.getMessage());
             logger.error(error, e);
             return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
+        } finally {
+            rateLimiters.release(bucketName, formattedPrefix);
         }
     }
 
     /**
-     * Retrieves all objects in the specified bucket that match the given prefix.
+     * Lists the objects in the specified bucket that match the given prefix, adding them to a deletion pipeline page
+     * by page.
      *
      * @param s3         The S3 client instance.
      * @param bucketName The name of the bucket.
      * @param prefix     The prefix to match.
-     * @return A list of {@link ObjectIdentifier} for each matching object.
+     * @param pipeline     The pipeline deleting the listed objects.
+     * @param limiter      The rate limiter of the prefix.
+     * @param checkpointer The checkpoints of the deletion of the prefix.
+     * @return whether the object named after the prefix itself was listed, by this listing or by the interrupted
+     *         one it resumed.
      */
-    private List<ObjectIdentifier> fetchObjectsWithPrefix(S3Client s3, String bucketName, String prefix) {
-        List<ObjectIdentifier> objectIdentifiers = new ArrayList<>();
-        ListObjectsV2Request listRequest =
-                ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+    private boolean listObjectsWithPrefix(
+            S3Client s3,
+            String bucketName,
+            String prefix,
+            DeletionPipeline pipeline,
+            AdaptiveRateLimiter limiter,
+            DeletionCheckpointer checkpointer)
+            throws Exception {
+        if (!checkpointer.isEnabled() && listParallelism > 1)
+            return listObjectsWithPrefixInShards(s3, bucketName, prefix, pipeline, limiter);
+
+        // The folder object sorts before all the objects in it, so a resumed listing has already deleted it
+        Optional<DeletionCheckpoint> checkpoint = checkpointer.resume();
+        boolean prefixListed = checkpoint.isPresent();
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .continuationToken(
+                        checkpoint.map(DeletionCheckpoint::continuationToken).orElse(null))
+                .build();
+        ListObjectsV2Request firstRequest = listRequest;
 
         ListObjectsV2Response listResponse;
         do {
             // List objects matching the prefix
-            listResponse = s3.listObjectsV2(listRequest);
+            ListObjectsV2Request pageRequest = listRequest;
+            try {
+                listResponse = throttled(limiter, 1, () -> s3.listObjectsV2(pageRequest));
+            } catch (S3Exception e) {
+                // S3 does not document how long a continuation token stays valid
+                if (e.statusCode() != 400 || pageRequest != firstRequest || firstRequest.continuationToken() == null)
+                    throw e;
+                logger.warn(
+                        "[Bucket: {}] The continuation token of the deletion checkpoint of prefix '{}' was rejected, the listing starts over. Details: {}",
+                        bucketName,
+                        prefix,
+                        e.getMessage());
+                prefixListed = false;
+                listRequest = listRequest.toBuilder().continuationToken(null).build();
+                ListObjectsV2Request firstPageRequest = listRequest;
+                listResponse = throttled(limiter, 1, () -> s3.listObjectsV2(firstPageRequest));
+            }
 
-            // Convert each object into an ObjectIdentifier and add it to the list
+            // Hand over each object to the pipeline, which blocks while enough batches wait for deletion
             if (listResponse.contents() != null) {
-                listResponse
-                        .contents()
-                        .forEach(object -> objectIdentifiers.add(
-                                ObjectIdentifier.builder().key(object.key()).build()));
+                for (S3Object object : listResponse.contents()) {
+                    prefixListed |= prefix.equals(object.key());
+                    pipeline.add(ObjectIdentifier.builder().key(object.key()).build());
+                }
             }
             // Update the request with the continuation token if the result is truncated
             listRequest = listRequest.toBuilder()
                     .continuationToken(listResponse.nextContinuationToken())
                     .build();
+            if (Boolean.TRUE.equals(listResponse.isTruncated()))
+                checkpointer.pageListed(pipeline, listResponse.nextContinuationToken(), null, null);
         } while (Boolean.TRUE.equals(listResponse.isTruncated())); // Continue if more objects are available
 
-        return objectIdentifiers;
+        return prefixListed;
+    }
+
+    /**
+     * Adds the objects of pages already listed to a deletion pipeline.
+     *
+     * @return whether the object named after the prefix itself was listed, by these pages or by the interrupted
+     *         deletion whose counters are resumed.
+     */
+    private static boolean addListedObjects(
+            String prefix,
+            DeletionPipeline pipeline,
+            List<ListObjectsV2Response> pages,
+            DeletionCheckpointer checkpointer)
+            throws Exception {
+        // The counters of an interrupted deletion still count, the pages list what is left
+        boolean prefixListed = checkpointer.resume().isPresent();
+        for (ListObjectsV2Response page : pages) {
+            for (S3Object object : page.contents()) {
+                prefixListed |= prefix.equals(object.key());
+                pipeline.add(ObjectIdentifier.builder().key(object.key()).build());
+            }
+        }
+        return prefixListed;
+    }
+
+    /**
+     * Lists the versions and delete markers of the objects in the specified bucket that match the given prefix,
+     * adding them to a deletion pipeline page by page.
+     *
+     * @param s3         The S3 client instance.
+     * @param bucketName The name of the bucket.
+     * @param prefix     The prefix to match.
+     * @param pipeline     The pipeline deleting the listed versions.
+     * @param limiter      The rate limiter of the prefix.
+     * @param checkpointer The checkpoints of the deletion of the prefix.
+     */
+    private void listObjectVersionsWithPrefix(
+            S3Client s3,
+            String bucketName,
+            String prefix,
+            DeletionPipeline pipeline,
+            AdaptiveRateLimiter limiter,
+            DeletionCheckpointer checkpointer)
+            throws Exception {
+        if (!checkpointer.isEnabled() && listParallelism > 1) {
+            listObjectVersionsWithPrefixInShards(s3, bucketName, prefix, pipeline, limiter);
+            return;
+        }
+
+        Optional<DeletionCheckpoint> checkpoint = checkpointer.resume();
+        ListObjectVersionsRequest listRequest = ListObjectVersionsRequest.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .keyMarker(checkpoint.map(DeletionCheckpoint::keyMarker).orElse(null))
+                .versionIdMarker(
+                        checkpoint.map(DeletionCheckpoint::versionIdMarker).orElse(null))
+                .build();
+
+        ListObjectVersionsResponse listResponse;
+        do {
+            ListObjectVersionsRequest pageRequest = listRequest;
+            listResponse = throttled(limiter, 1, () -> s3.listObjectVersions(pageRequest));
+
+            addVersions(pipeline, listResponse);
+            // Versions are paginated by key and version ID
+            listRequest = listRequest.toBuilder()
+                    .keyMarker(listResponse.nextKeyMarker())
+                    .versionIdMarker(listResponse.nextVersionIdMarker())
+                    .build();
+            if (Boolean.TRUE.equals(listResponse.isTruncated()))
+                checkpointer.pageListed(
+                        pipeline, null, listResponse.nextKeyMarker(), listResponse.nextVersionIdMarker());
+        } while (Boolean.TRUE.equals(listResponse.isTruncated()));
+    }
+
+    /**
+     * Lists the objects under a prefix in shards: the objects directly under the prefix and its child prefixes are
+     * listed first with the {@value #SHARD_DELIMITER} delimiter, then each child prefix is listed in full by a
+     * {@link ShardedLister}, up to {@code s3.list.parallelism} at once. The listing has no single position to resume
+     * from, so it is only used when deletions are not checkpointed.
+     *
+     * @return whether the object named after the prefix itself was listed.
+     */
+    private boolean listObjectsWithPrefixInShards(
+            S3Client s3, String bucketName, String prefix, DeletionPipeline pipeline, AdaptiveRateLimiter limiter)
+            throws Exception {
+        boolean prefixListed = false;
+        List<String> shards = new ArrayList<>();
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(SHARD_DELIMITER)
+                .build();
+
+        ListObjectsV2Response listResponse;
+        do {
+            ListObjectsV2Request pageRequest = listRequest;
+            listResponse = throttled(limiter, 1, () -> s3.listObjectsV2(pageRequest));
+            for (S3Object object : listResponse.contents()) {
+                prefixListed |= prefix.equals(object.key());
+                pipeline.add(ObjectIdentifier.builder().key(object.key()).build());
+            }
+            listResponse.commonPrefixes().forEach(commonPrefix -> shards.add(commonPrefix.prefix()));
+            listRequest = listRequest.toBuilder()
+                    .continuationToken(listResponse.nextContinuationToken())
+                    .build();
+        } while (Boolean.TRUE.equals(listResponse.isTruncated()));
+
+        logger.debug("[Bucket: {}] Listing {} shards of prefix '{}'.", bucketName, shards.size(), prefix);
+        new ShardedLister(listingExecutor, listParallelism, listQueueCapacity)
+                .<ListObjectsV2Response>forEachPage(
+                        shards,
+                        (shard, pages) -> {
+                            ListObjectsV2Request shardRequest = ListObjectsV2Request.builder()
+                                    .bucket(bucketName)
+                                    .prefix(shard)
+                                    .build();
+                            ListObjectsV2Response shardResponse;
+                            do {
+                                ListObjectsV2Request shardPageRequest = shardRequest;
+                                shardResponse = throttled(limiter, 1, () -> s3.listObjectsV2(shardPageRequest));
+                                pages.accept(shardResponse);
+                                shardRequest = shardRequest.toBuilder()
+                                        .continuationToken(shardResponse.nextContinuationToken())
+                                        .build();
+                            } while (Boolean.TRUE.equals(shardResponse.isTruncated()));
+                        },
+                        page -> {
+                            for (S3Object object : page.contents())
+                                pipeline.add(ObjectIdentifier.builder()
+                                        .key(object.key())
+                                        .build());
+                        });
+        return prefixListed;
+    }
+
+    /**
+     * Lists the versions and delete markers under a prefix in shards, like {@link #listObjectsWithPrefixInShards}.
+     */
+    private void listObjectVersionsWithPrefixInShards(
+            S3Client s3, String bucketName, String prefix, DeletionPipeline pipeline, AdaptiveRateLimiter limiter)
+            throws Exception {
+        List<String> shards = new ArrayList<>();
+        ListObjectVersionsRequest listRequest = ListObjectVersionsRequest.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(SHARD_DELIMITER)
+                .build();
+
+        ListObjectVersionsResponse listResponse;
+        do {
+            ListObjectVersionsRequest pageRequest = listRequest;
+            listResponse = throttled(limiter, 1, () -> s3.listObjectVersions(pageRequest));
+            addVersions(pipeline, listResponse);
+            listResponse.commonPrefixes().forEach(commonPrefix -> shards.add(commonPrefix.prefix()));
+            listRequest = listRequest.toBuilder()
+                    .keyMarker(listResponse.nextKeyMarker())
+                    .versionIdMarker(listResponse.nextVersionIdMarker())
+                    .build();
+        } while (Boolean.TRUE.equals(listResponse.isTruncated()));
+
+        logger.debug(
+                "[Bucket: {}] Listing the versions of {} shards of prefix '{}'.", bucketName, shards.size(), prefix);
+        new ShardedLister(listingExecutor, listParallelism, listQueueCapacity)
+                .<ListObjectVersionsResponse>forEachPage(
+                        shards,
+                        (shard, pages) -> {
+                            ListObjectVersionsRequest shardRequest = ListObjectVersionsRequest.builder()
+                                    .bucket(bucketName)
+                                    .prefix(shard)
+                                    .build();
+                            ListObjectVersionsResponse shardResponse;
+                            do {
+                                ListObjectVersionsRequest shardPageRequest = shardRequest;
+                                shardResponse = throttled(limiter, 1, () -> s3.listObjectVersions(shardPageRequest));
+                                pages.accept(shardResponse);
+                                shardRequest = shardRequest.toBuilder()
+                                        .keyMarker(shardResponse.nextKeyMarker())
+                                        .versionIdMarker(shardResponse.nextVersionIdMarker())
+                                        .build();
+                            } while (Boolean.TRUE.equals(shardResponse.isTruncated()));
+                        },
+                        page -> addVersions(pipeline, page));
+    }
+
+    /** Adds the versions and delete markers of a page of {@code ListObjectVersions} to a deletion pipeline. */
+    private static void addVersions(DeletionPipeline pipeline, ListObjectVersionsResponse page) throws Exception {
+        if (page.versions() != null) {
+            for (ObjectVersion version : page.versions()) {
+                pipeline.add(
+                        ObjectIdentifier.builder()
+                                .key(version.key())
+                                .versionId(version.versionId())
+                                .build(),
+                        version.size() == null ? 0 : version.size(),
+                        false);
+            }
+        }
+        if (page.deleteMarkers() != null) {
+            for (DeleteMarkerEntry deleteMarker : page.deleteMarkers()) {
+                pipeline.add(
+                        ObjectIdentifier.builder()
+                                .key(deleteMarker.key())
+                                .versionId(deleteMarker.versionId())
+                                .build(),
+                        0,
+                        true);
+            }
+        }
+    }
+
+    /**
+     * Sends a request paced by a rate limiter. When S3 throttles the request with {@code SlowDown}, the rate is
+     * decreased and the request is sent again, up to the attempts allowed by the limiter.
+     *
+     * @param requests the number of requests counted by S3 for the call.
+     */
+    private <T> T throttled(AdaptiveRateLimiter limiter, int requests, Supplier<T> call) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            limiter.acquire(requests);
+            try {
+                T response = call.get();
+                limiter.onSuccess();
+                return response;
+            } catch (AwsServiceException e) {
+                if (!AdaptiveRateLimiter.isSlowDown(e) || attempt >= limiter.maxAttempts()) throw e;
+                limiter.onSlowDown();
+                logger.warn("Request throttled by S3, retrying at {} requests per second.", (long) limiter.rate());
+            }
+        }
     }
 
     /**
-     * Deletes objects in batches to comply with the S3 API limit of 1000 objects per request.
+     * Deletes a batch of at most 1000 objects in quiet mode, so that the response only lists the objects that could
+     * not be deleted. The objects that S3 did not delete because of the request rate are sent again at the decreased
+     * rate, up to the attempts allowed by the limiter.
+     *
+     * @return the errors of the objects that could not be deleted.
+     */
+    private List<S3Error> deleteBatch(
+            S3Client s3, String bucketName, List<ObjectIdentifier> batch, AdaptiveRateLimiter limiter) {
+        List<S3Error> errors = new ArrayList<>();
+        List<ObjectIdentifier> pending = batch;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                DeleteObjectsRequest deleteRequest = DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(pending).quiet(true).build())
+                        .build();
+                List<S3Error> responseErrors = throttled(limiter, pending.size(), () -> s3.deleteObjects(deleteRequest))
+                        .errors();
+
+                List<S3Error> slowDowns = new ArrayList<>();
+                for (S3Error error : responseErrors) {
+                    if (AdaptiveRateLimiter.isSlowDown(error)) slowDowns.add(error);
+                    else errors.add(error);
+                }
+                if (slowDowns.isEmpty()) return errors;
+                if (attempt >= limiter.maxAttempts()) {
+                    errors.addAll(slowDowns);
+                    return errors;
+                }
+                limiter.onSlowDown();
+                logger.warn(
+                        "[Bucket: {}] {} objects throttled by S3, retrying at {} requests per second.",
+                        bucketName,
+                        slowDowns.size(),
+                        (long) limiter.rate());
+                pending = slowDowns.stream()
+                        .map(error -> ObjectIdentifier.builder()
+                                .key(error.key())
+                                .versionId(error.versionId())
+                                .build())
+                        .toList();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the request rate limit", e);
+        }
+    }
+
+    /**
+     * Deletes objects in batches to comply with the S3 API limit of 1000 objects per request. Requests are paced by
+     * the rate limiter of the whole bucket, since the objects may have any key.
      *
      * @param s3                the {@link S3Client} used to perform the operation.
      * @param bucketName        the name of the bucket.
@@ -766,27 +2195,25 @@ public class BucketManager {
             S3Client s3, String bucketName, List<ObjectIdentifier> objectIdentifiers) {
         int batchSize = 1000; // S3 API limit for batch deletion
         ArrayList<Problem> problems = new ArrayList<>();
+        AdaptiveRateLimiter limiter = rateLimiters.retain(bucketName, "");
+        try {
+            for (int i = 0; i < objectIdentifiers.size(); i += batchSize) {
+                // Create a batch of up to 1000 objects
+                List<ObjectIdentifier> batch =
+                        objectIdentifiers.subList(i, Math.min(i + batchSize, objectIdentifiers.size()));
 
-        for (int i = 0; i < objectIdentifiers.size(); i += batchSize) {
-            // Create a batch of up to 1000 objects
-            List<ObjectIdentifier> batch =
-                    objectIdentifiers.subList(i, Math.min(i + batchSize, objectIdentifiers.size()));
-
-            // Build the delete request for the current batch
-            DeleteObjectsRequest deleteRequest = DeleteObjectsRequest.builder()
-                    .bucket(bucketName)
-                    .delete(Delete.builder().objects(batch).build())
-                    .build();
-
-            // Execute the delete request
-            DeleteObjectsResponse response = s3.deleteObjects(deleteRequest);
+                // Execute the delete request
+                List<S3Error> errors = deleteBatch(s3, bucketName, batch, limiter);
 
-            response.errors().forEach(s3Error -> {
-                String error =
-                        String.format("Error deleting object with key '%s': %s", s3Error.key(), s3Error.message());
-                logger.error(error);
-                problems.add(new Problem(error));
-            });
+                errors.forEach(s3Error -> {
+                    String error =
+                            String.format("Error deleting object with key '%s': %s", s3Error.key(), s3Error.message());
+                    logger.error(error);
+                    problems.add(new Problem(error));
+                });
+            }
+        } finally {
+            rateLimiters.release(bucketName, "");
         }
 
         if (problems.isEmpty()) return Either.right(null);
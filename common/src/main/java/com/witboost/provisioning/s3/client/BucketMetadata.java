@@ -0,0 +1,37 @@
+package com.witboost.provisioning.s3.client;
+
+import software.amazon.awssdk.services.s3.model.BucketVersioningStatus;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
+
+/**
+ * Snapshot of the bucket settings kept by the {@link BucketInventory}.
+ * A {@code null} field means that the value is not known yet and must be read from AWS.
+ *
+ * @param region           the region where the bucket is located.
+ * @param encryption       the default server-side encryption of the bucket.
+ * @param versioning       the versioning status of the bucket.
+ * @param prefixExpiration whether the lifecycle configuration of the bucket holds rules installed by
+ *                         {@link BucketManager#expireObjectsWithPrefix}.
+ */
+public record BucketMetadata(
+        String region, ServerSideEncryption encryption, BucketVersioningStatus versioning, Boolean prefixExpiration) {
+
+    public BucketMetadata(String region, ServerSideEncryption encryption, BucketVersioningStatus versioning) {
+        this(region, encryption, versioning, null);
+    }
+
+    /**
+     * Returns a copy of this snapshot where every unknown field is taken from {@code other}.
+     *
+     * @param other the older snapshot to take missing values from, may be {@code null}.
+     * @return the merged snapshot.
+     */
+    public BucketMetadata mergeWith(BucketMetadata other) {
+        if (other == null) return this;
+        return new BucketMetadata(
+                region != null ? region : other.region(),
+                encryption != null ? encryption : other.encryption(),
+                versioning != null ? versioning : other.versioning(),
+                prefixExpiration != null ? prefixExpiration : other.prefixExpiration());
+    }
+}
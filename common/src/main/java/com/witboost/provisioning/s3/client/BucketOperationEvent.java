@@ -0,0 +1,32 @@
+package com.witboost.provisioning.s3.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of an operation of {@link BucketManager} or {@link KmsManager}, emitted by
+ * {@link StepMetrics}. Its duration is the duration of the operation.
+ */
+@Name("com.witboost.s3.BucketOperation")
+@Label("Bucket Operation")
+@Description("Operation on an S3 bucket or a KMS key")
+@Category({"Witboost", "S3 Tech Adapter"})
+@StackTrace(false)
+class BucketOperationEvent extends Event {
+
+    @Label("Bucket")
+    String bucket;
+
+    @Label("Region")
+    String region;
+
+    @Label("Step")
+    String step;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,49 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.Optional;
+
+/**
+ * Outcome of a single HeadBucket probe against Amazon S3.
+ *
+ * @param status the existence status of the bucket as seen by the current credentials.
+ * @param region the region reported by S3 through the {@code x-amz-bucket-region} header, or {@code null} if S3
+ *               did not return it.
+ */
+public record BucketProbe(Status status, String region) {
+
+    public enum Status {
+        /** The bucket exists and is reachable with the current credentials. */
+        EXISTS,
+        /**
+         * The bucket can be located with the current credentials, but they are not allowed to read it, e.g. because
+         * they lack the {@code s3:ListBucket} permission on it.
+         */
+        FORBIDDEN,
+        /** The bucket name is taken, but the bucket is not accessible with the current credentials. */
+        EXISTS_ELSEWHERE,
+        /** No bucket with the given name exists. */
+        MISSING
+    }
+
+    public boolean exists() {
+        return status == Status.EXISTS;
+    }
+
+    /**
+     * Describes why the bucket cannot be provisioned with the current credentials.
+     *
+     * @param bucketName the name of the probed bucket.
+     * @return the error, or an empty {@link Optional} if the bucket exists and is accessible or is missing.
+     */
+    public Optional<String> accessError(String bucketName) {
+        return switch (status) {
+            case FORBIDDEN -> Optional.of(String.format(
+                    "[Bucket: %s] Error: The bucket exists but the current credentials are not allowed to access it. Please check that the role of the adapter has the s3:ListBucket permission on the bucket.",
+                    bucketName));
+            case EXISTS_ELSEWHERE -> Optional.of(String.format(
+                    "[Bucket: %s] Error: The bucket name is already taken by a bucket that is not accessible with the current credentials. If the bucket belongs to the target account, please check that the role of the adapter has the s3:ListBucket and s3:GetBucketLocation permissions on it.",
+                    bucketName));
+            default -> Optional.empty();
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import software.amazon.awssdk.services.s3.model.LifecycleRule;
+
+/**
+ * Report of a {@link BucketManager#createOrUpdateBucket} execution: whether the bucket was created, which settings
+ * were written to AWS and which ones were skipped because they already matched the desired state. When the
+ * configuration fingerprint stored on the bucket matches the requested one, no setting is applied nor skipped.
+ *
+ * <p>It also keeps the lifecycle rules of the bucket whenever the execution read or wrote them, so that the callers
+ * can inspect them without reading the lifecycle configuration again.</p>
+ */
+public class BucketReconciliation {
+
+    private final boolean created;
+    private volatile boolean fingerprintMatched;
+    private final List<BucketSetting> applied = new CopyOnWriteArrayList<>();
+    private final List<BucketSetting> skipped = new CopyOnWriteArrayList<>();
+    private volatile List<LifecycleRule> lifecycleRules;
+
+    public BucketReconciliation(boolean created) {
+        this.created = created;
+        // A bucket that was just created has no lifecycle configuration
+        if (created) lifecycleRules = List.of();
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public boolean isFingerprintMatched() {
+        return fingerprintMatched;
+    }
+
+    public List<BucketSetting> getApplied() {
+        // Settings may be reconciled concurrently, the report follows the declaration order instead
+        return applied.stream().sorted().toList();
+    }
+
+    public List<BucketSetting> getSkipped() {
+        return skipped.stream().sorted().toList();
+    }
+
+    /**
+     * @return the lifecycle rules of the bucket as last read or written by the execution, or an empty {@link Optional}
+     *         if it did not access the lifecycle configuration.
+     */
+    public Optional<List<LifecycleRule>> getLifecycleRules() {
+        return Optional.ofNullable(lifecycleRules);
+    }
+
+    void markFingerprintMatched() {
+        fingerprintMatched = true;
+    }
+
+    void markApplied(BucketSetting setting) {
+        applied.add(setting);
+    }
+
+    void markSkipped(BucketSetting setting) {
+        skipped.add(setting);
+    }
+
+    void recordLifecycleRules(List<LifecycleRule> rules) {
+        lifecycleRules = List.copyOf(rules);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "created=%s, fingerprintMatched=%s, applied=%s, skipped=%s",
+                created, fingerprintMatched, getApplied(), getSkipped());
+    }
+}
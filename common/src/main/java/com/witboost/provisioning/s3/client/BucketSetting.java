@@ -0,0 +1,14 @@
+package com.witboost.provisioning.s3.client;
+
+/**
+ * Bucket settings managed by {@link BucketManager#createOrUpdateBucket}.
+ */
+public enum BucketSetting {
+    TAGS,
+    SECURE_TRANSPORT_POLICY,
+    ENCRYPTION,
+    VERSIONING,
+    LIFECYCLE,
+    INTELLIGENT_TIERING,
+    CONFIGURATION_FINGERPRINT
+}
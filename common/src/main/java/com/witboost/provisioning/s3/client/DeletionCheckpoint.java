@@ -0,0 +1,37 @@
+package com.witboost.provisioning.s3.client;
+
+/**
+ * Position reached by the deletion of the objects under a prefix, from which a later deletion of the same prefix
+ * resumes. All the objects listed before the position have been deleted.
+ *
+ * @param bucketName        the bucket of the deleted objects.
+ * @param prefix            the prefix of the deleted objects, with a trailing slash.
+ * @param listing           what is being deleted, objects or object versions.
+ * @param continuationToken {@code ListObjectsV2} token of the next page, for an {@link Listing#OBJECTS} listing.
+ * @param keyMarker         {@code ListObjectVersions} key marker of the next page, for a {@link Listing#VERSIONS}
+ *                          listing.
+ * @param versionIdMarker   {@code ListObjectVersions} version ID marker of the next page, for a
+ *                          {@link Listing#VERSIONS} listing.
+ * @param deleted           number of objects, or object versions, deleted so far. Includes the delete markers.
+ * @param deletedMarkers    number of delete markers deleted so far.
+ * @param deletedBytes      total size of the versions deleted so far.
+ * @param updatedAt         when the checkpoint was taken, as an ISO-8601 instant.
+ */
+public record DeletionCheckpoint(
+        String bucketName,
+        String prefix,
+        Listing listing,
+        String continuationToken,
+        String keyMarker,
+        String versionIdMarker,
+        long deleted,
+        long deletedMarkers,
+        long deletedBytes,
+        String updatedAt) {
+
+    /** Listing that a deletion pages through. */
+    public enum Listing {
+        OBJECTS,
+        VERSIONS
+    }
+}
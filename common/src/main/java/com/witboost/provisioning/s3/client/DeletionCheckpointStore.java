@@ -0,0 +1,66 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.Optional;
+
+/**
+ * Durable store of the {@link DeletionCheckpoint}s of the deletions in progress, so that a deletion interrupted by a
+ * restart or a timeout resumes where it stopped. There is at most one checkpoint for each bucket, prefix and listing.
+ */
+public interface DeletionCheckpointStore {
+
+    /**
+     * Reads the checkpoint of a deletion.
+     *
+     * @return the checkpoint, or empty if the deletion never stopped before completing.
+     */
+    Optional<DeletionCheckpoint> load(String bucketName, String prefix, DeletionCheckpoint.Listing listing)
+            throws Exception;
+
+    /** Replaces the checkpoint of a deletion. */
+    void save(DeletionCheckpoint checkpoint) throws Exception;
+
+    /** Removes the checkpoint of a completed deletion. Removing a missing checkpoint succeeds. */
+    void delete(String bucketName, String prefix, DeletionCheckpoint.Listing listing) throws Exception;
+
+    /** Whether checkpoints are stored at all. */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /** Releases the resources held by the store. It is called when the application shuts down. */
+    default void close() {}
+
+    /** Store that keeps no checkpoint: every deletion starts from the beginning of the listing. */
+    static DeletionCheckpointStore none() {
+        return NoDeletionCheckpointStore.INSTANCE;
+    }
+
+    /** Path of a checkpoint relative to the root of a store, e.g. {@code my-bucket/v1/objects.json}. */
+    static String path(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+        return bucketName + "/" + prefix + listing.name().toLowerCase() + ".json";
+    }
+
+    /** Implementation of {@link #none()}. */
+    final class NoDeletionCheckpointStore implements DeletionCheckpointStore {
+
+        private static final NoDeletionCheckpointStore INSTANCE = new NoDeletionCheckpointStore();
+
+        private NoDeletionCheckpointStore() {}
+
+        @Override
+        public Optional<DeletionCheckpoint> load(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void save(DeletionCheckpoint checkpoint) {}
+
+        @Override
+        public void delete(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {}
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.witboost.provisioning.s3.client;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checkpoints the progress of the deletion of a prefix and resumes it from the last checkpoint.
+ *
+ * <p>The lister reports each page it fully handed over to the pipeline, with the position of the next page. At most
+ * once per interval, the pipeline is flushed so that every object listed so far is processed, and the position is
+ * saved together with the counters. No checkpoint is saved once some objects could not be deleted, so that a later
+ * deletion lists them again. The checkpoint is removed when the deletion completes without errors.</p>
+ *
+ * <p>Errors of the store are logged and ignored: at worst, a later deletion lists again objects that were already
+ * deleted.</p>
+ */
+final class DeletionCheckpointer {
+
+    private final Logger logger = LoggerFactory.getLogger(DeletionCheckpointer.class);
+
+    private final DeletionCheckpointStore store;
+    private final String bucketName;
+    private final String prefix;
+    private final DeletionCheckpoint.Listing listing;
+    private final long intervalNanos;
+    private final LongSupplier clock;
+
+    private DeletionCheckpoint base;
+    private long lastCheckpoint;
+    private boolean saved;
+
+    DeletionCheckpointer(
+            DeletionCheckpointStore store,
+            String bucketName,
+            String prefix,
+            DeletionCheckpoint.Listing listing,
+            Duration interval) {
+        this(store, bucketName, prefix, listing, interval, System::nanoTime);
+    }
+
+    DeletionCheckpointer(
+            DeletionCheckpointStore store,
+            String bucketName,
+            String prefix,
+            DeletionCheckpoint.Listing listing,
+            Duration interval,
+            LongSupplier clock) {
+        this.store = store;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.listing = listing;
+        this.intervalNanos = interval.toNanos();
+        this.clock = clock;
+        this.base = new DeletionCheckpoint(bucketName, prefix, listing, null, null, null, 0, 0, 0, null);
+        this.lastCheckpoint = clock.getAsLong();
+    }
+
+    /** Whether the progress of the deletion is saved, which requires a listing with a single position. */
+    boolean isEnabled() {
+        return store.isEnabled();
+    }
+
+    /**
+     * Loads the checkpoint left by a previous deletion of the prefix.
+     *
+     * @return the checkpoint to resume from, or empty to start from the beginning of the listing.
+     */
+    Optional<DeletionCheckpoint> resume() {
+        if (!store.isEnabled()) return Optional.empty();
+        try {
+            Optional<DeletionCheckpoint> checkpoint = store.load(bucketName, prefix, listing);
+            checkpoint.ifPresent(found -> {
+                base = found;
+                saved = true;
+                logger.info(
+                        "[Bucket: {}] Resuming deletion of prefix '{}' from the checkpoint of {}: {} objects already deleted.",
+                        bucketName,
+                        prefix,
+                        found.updatedAt(),
+                        found.deleted());
+            });
+            return checkpoint;
+        } catch (Exception e) {
+            logger.warn(
+                    "[Bucket: {}] Unable to read the deletion checkpoint of prefix '{}', the listing starts over. Details: {}",
+                    bucketName,
+                    prefix,
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records that all the objects listed before a position were added to the pipeline, saving a checkpoint if the
+     * last one is older than the interval.
+     *
+     * @throws Exception the error that stopped the pipeline, if any.
+     */
+    void pageListed(DeletionPipeline pipeline, String continuationToken, String keyMarker, String versionIdMarker)
+            throws Exception {
+        if (!store.isEnabled() || clock.getAsLong() - lastCheckpoint < intervalNanos) return;
+        pipeline.flush();
+        lastCheckpoint = clock.getAsLong();
+
+        DeletionPipeline.Result progress = pipeline.progress();
+        if (progress.failed() > 0) return;
+        DeletionCheckpoint checkpoint = new DeletionCheckpoint(
+                bucketName,
+                prefix,
+                listing,
+                continuationToken,
+                keyMarker,
+                versionIdMarker,
+                base.deleted() + progress.deleted(),
+                base.deletedMarkers() + progress.deletedMarkers(),
+                base.deletedBytes() + progress.deletedBytes(),
+                Instant.now().toString());
+        try {
+            store.save(checkpoint);
+            saved = true;
+        } catch (Exception e) {
+            logger.warn(
+                    "[Bucket: {}] Unable to save the deletion checkpoint of prefix '{}'. Details: {}",
+                    bucketName,
+                    prefix,
+                    e.getMessage());
+        }
+    }
+
+    /** Adds the counters of the deletions before the checkpoint resumed from to the outcome of this deletion. */
+    DeletionPipeline.Result total(DeletionPipeline.Result result) {
+        return new DeletionPipeline.Result(
+                base.deleted() + result.deleted(),
+                base.deletedMarkers() + result.deletedMarkers(),
+                base.deletedBytes() + result.deletedBytes(),
+                result.failed(),
+                result.problems());
+    }
+
+    /** Removes the checkpoint of a deletion that completed without errors. */
+    void completed() {
+        if (!saved) return;
+        try {
+            store.delete(bucketName, prefix, listing);
+        } catch (Exception e) {
+            logger.warn(
+                    "[Bucket: {}] Unable to remove the deletion checkpoint of prefix '{}'. Details: {}",
+                    bucketName,
+                    prefix,
+                    e.getMessage());
+        }
+    }
+}
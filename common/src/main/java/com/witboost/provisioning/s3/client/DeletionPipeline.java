@@ -0,0 +1,248 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.model.common.Problem;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+/**
+ * Deletes a stream of objects with concurrent {@code DeleteObjects} requests.
+ *
+ * <p>The caller lists the objects and adds them to the pipeline, which groups them in batches of at most 1000 keys,
+ * the limit of a single request. Batches are handed over to the workers through a bounded queue: when it is full, the
+ * caller blocks until a worker takes a batch, so listing never runs ahead of deletion by more than the queue capacity
+ * and the memory used does not depend on the number of objects.</p>
+ *
+ * <p>Objects that S3 reports as not deleted are collected as problems, up to a limit. An exception thrown by a request
+ * stops the pipeline: the batches still queued are discarded and the exception is rethrown to the caller.</p>
+ *
+ * <p>The caller can {@link #flush} the pipeline to wait until all the objects added so far are processed, e.g. before
+ * recording how far the listing got.</p>
+ */
+final class DeletionPipeline {
+
+    /** Maximum number of keys of a {@code DeleteObjects} request. */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /** Maximum number of problems reported, so that a failing deletion of many objects does not exhaust memory. */
+    static final int MAX_REPORTED_PROBLEMS = 100;
+
+    private static final List<Entry> END = new ArrayList<>();
+
+    private final BlockingQueue<List<Entry>> queue;
+    private final Function<List<ObjectIdentifier>, List<S3Error>> deleter;
+    private final List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong deletedMarkers = new AtomicLong();
+    private final AtomicLong deletedBytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger reportedProblems = new AtomicInteger();
+    private final Queue<Problem> problems = new ConcurrentLinkedQueue<>();
+
+    private final Object progressLock = new Object();
+    private long completedBatches;
+    private long handedOverBatches;
+
+    private List<Entry> pending = new ArrayList<>();
+    private boolean stopped;
+
+    /**
+     * Starts the workers of a pipeline.
+     *
+     * @param executor      the executor running the workers. It must be able to run {@code concurrency} workers at
+     *                      once, or the caller may wait for a worker that never starts.
+     * @param concurrency   number of {@code DeleteObjects} requests in flight.
+     * @param queueCapacity number of batches that can wait for a free worker.
+     * @param deleter       deletes a batch of objects, returning the errors of the objects that could not be deleted.
+     */
+    DeletionPipeline(
+            Executor executor,
+            int concurrency,
+            int queueCapacity,
+            Function<List<ObjectIdentifier>, List<S3Error>> deleter) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.deleter = deleter;
+        for (int i = 0; i < Math.max(1, concurrency); i++)
+            workers.add(CompletableFuture.runAsync(this::work, executor));
+    }
+
+    /**
+     * Adds an object of unknown size to delete, handing over the current batch to the workers once full.
+     *
+     * @throws Exception the error that stopped the pipeline, if any.
+     */
+    void add(ObjectIdentifier object) throws Exception {
+        add(new Entry(object, 0, false));
+    }
+
+    /**
+     * Adds an object version to delete, handing over the current batch to the workers once full.
+     *
+     * @param object       the key and version ID of the version.
+     * @param size         the size of the version, counted as reclaimed once deleted.
+     * @param deleteMarker whether the version is a delete marker.
+     * @throws Exception the error that stopped the pipeline, if any.
+     */
+    void add(ObjectIdentifier object, long size, boolean deleteMarker) throws Exception {
+        add(new Entry(object, size, deleteMarker));
+    }
+
+    /**
+     * Hands over the current batch, even if not full, and waits until all the batches handed over are processed. The
+     * pipeline can still be used afterwards.
+     *
+     * @throws Exception the error that stopped the pipeline, if any.
+     */
+    void flush() throws Exception {
+        handOver();
+        synchronized (progressLock) {
+            while (completedBatches < handedOverBatches) {
+                rethrowFailure();
+                progressLock.wait(100);
+            }
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Hands over the last batch and waits for all the batches to be deleted.
+     *
+     * @return the outcome of the deletion.
+     * @throws Exception the error that stopped the pipeline, if any.
+     */
+    Result finish() throws Exception {
+        try {
+            handOver();
+        } finally {
+            stop();
+        }
+        rethrowFailure();
+        return progress();
+    }
+
+    /** Outcome of the batches processed so far. */
+    Result progress() {
+        return new Result(deleted.get(), deletedMarkers.get(), deletedBytes.get(), failed.get(), List.copyOf(problems));
+    }
+
+    /** Stops the pipeline without deleting the batches still queued, e.g. because listing failed. */
+    void abort() {
+        failure.compareAndSet(null, new IllegalStateException("The deletion was aborted"));
+        stop();
+    }
+
+    private void add(Entry entry) throws Exception {
+        pending.add(entry);
+        if (pending.size() >= MAX_BATCH_SIZE) handOver();
+    }
+
+    private void handOver() throws Exception {
+        if (pending.isEmpty()) return;
+        List<Entry> batch = pending;
+        pending = new ArrayList<>();
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) rethrowFailure();
+        synchronized (progressLock) {
+            handedOverBatches++;
+        }
+        rethrowFailure();
+    }
+
+    private void stop() {
+        if (stopped) return;
+        stopped = true;
+        try {
+            for (int i = 0; i < workers.size(); i++) queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.forEach(worker -> worker.cancel(true));
+            failure.compareAndSet(null, e);
+            return;
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void rethrowFailure() throws Exception {
+        Exception exception = failure.get();
+        if (exception != null) throw exception;
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                List<Entry> batch = queue.take();
+                if (batch == END) return;
+                try {
+                    // After a failure, the remaining batches are only drained so that the caller is not blocked
+                    if (failure.get() == null) delete(batch);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    synchronized (progressLock) {
+                        completedBatches++;
+                        progressLock.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void delete(List<Entry> batch) {
+        List<S3Error> errors = deleter.apply(batch.stream().map(Entry::object).toList());
+
+        Set<ObjectIdentifier> notDeleted = new HashSet<>();
+        for (S3Error error : errors) {
+            notDeleted.add(ObjectIdentifier.builder()
+                    .key(error.key())
+                    .versionId(error.versionId())
+                    .build());
+            String message = error.versionId() == null
+                    ? String.format("Error deleting object with key '%s': %s", error.key(), error.message())
+                    : String.format(
+                            "Error deleting version '%s' of object with key '%s': %s",
+                            error.versionId(), error.key(), error.message());
+            if (reportedProblems.incrementAndGet() <= MAX_REPORTED_PROBLEMS) problems.add(new Problem(message));
+        }
+
+        for (Entry entry : batch) {
+            if (notDeleted.contains(entry.object())) {
+                failed.incrementAndGet();
+            } else {
+                deleted.incrementAndGet();
+                deletedBytes.addAndGet(entry.size());
+                if (entry.deleteMarker()) deletedMarkers.incrementAndGet();
+            }
+        }
+    }
+
+    private record Entry(ObjectIdentifier object, long size, boolean deleteMarker) {}
+
+    /**
+     * Outcome of a deletion.
+     *
+     * @param deleted        number of objects, or object versions, deleted. Includes the delete markers.
+     * @param deletedMarkers number of delete markers deleted.
+     * @param deletedBytes   total size of the versions deleted.
+     * @param failed         number of objects that could not be deleted.
+     * @param problems       the errors of the objects that could not be deleted, at most
+     *                       {@value DeletionPipeline#MAX_REPORTED_PROBLEMS}.
+     */
+    record Result(long deleted, long deletedMarkers, long deletedBytes, long failed, List<Problem> problems) {}
+}
@@ -0,0 +1,10 @@
+package com.witboost.provisioning.s3.client;
+
+/**
+ * Report of a {@link BucketManager#purgeObjectVersionsWithPrefix} execution.
+ *
+ * @param versions      number of object versions permanently deleted, excluding delete markers.
+ * @param deleteMarkers number of delete markers removed.
+ * @param bytes         storage freed by the deleted versions, in bytes.
+ */
+public record DeletionReport(long versions, long deleteMarkers, long bytes) {}
@@ -0,0 +1,64 @@
+package com.witboost.provisioning.s3.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Stores deletion checkpoints as JSON files in a local directory. The directory must survive the restarts of the
+ * adapter, e.g. a persistent volume, and is only suitable for a single replica.
+ *
+ * <p>Each checkpoint is written to a temporary file that is then moved over the previous one, so that a crash while
+ * writing leaves the previous checkpoint intact.</p>
+ */
+public class FileDeletionCheckpointStore implements DeletionCheckpointStore {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path directory;
+
+    public FileDeletionCheckpointStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<DeletionCheckpoint> load(String bucketName, String prefix, DeletionCheckpoint.Listing listing)
+            throws IOException {
+        try {
+            return Optional.of(objectMapper.readValue(
+                    Files.readAllBytes(file(bucketName, prefix, listing)), DeletionCheckpoint.class));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(DeletionCheckpoint checkpoint) throws IOException {
+        Files.createDirectories(directory);
+        Path file = file(checkpoint.bucketName(), checkpoint.prefix(), checkpoint.listing());
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, objectMapper.writeValueAsBytes(checkpoint));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public void delete(String bucketName, String prefix, DeletionCheckpoint.Listing listing) throws IOException {
+        Files.deleteIfExists(file(bucketName, prefix, listing));
+    }
+
+    /** Bucket names and prefixes are encoded into a single file name, so that a prefix cannot escape the directory. */
+    private Path file(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+        return directory.resolve(
+                URLEncoder.encode(DeletionCheckpointStore.path(bucketName, prefix, listing), StandardCharsets.UTF_8));
+    }
+}
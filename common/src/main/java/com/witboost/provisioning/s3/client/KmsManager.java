@@ -2,18 +2,14 @@ package com.witboost.provisioning.s3.client;
 
 import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.model.common.Problem;
+import com.witboost.provisioning.s3.client.StepMetrics.Step;
 import com.witboost.provisioning.s3.model.BucketTag;
 import io.vavr.control.Either;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.*;
@@ -23,11 +19,17 @@ public class KmsManager {
 
     private static final Logger logger = LoggerFactory.getLogger(KmsManager.class);
 
+    @Autowired
+    private PolicyTemplateRegistry policyTemplateRegistry;
+
+    @Autowired
+    private StepMetrics stepMetrics;
+
     /**
      * Creates a new symmetric encryption key in AWS KMS.
      *
      * <p>This method generates a new symmetric key for encryption and decryption purposes.
-     * The key policy is loaded from a predefined JSON file or a custom path if specified.
+     * The key policy is rendered from the template held by the {@link PolicyTemplateRegistry}.
      * If tags are provided, they are attached to the key.</p>
      *
      * @param kmsClient  the AWS KMS client used for key creation
@@ -38,43 +40,16 @@ public class KmsManager {
      */
     public Either<FailedOperation, String> createKey(
             KmsClient kmsClient, String accountId, String keyDesc, List<BucketTag> tags) {
+        return stepMetrics.record(
+                Step.KMS_CREATE_KEY, kmsClient, null, () -> doCreateKey(kmsClient, accountId, keyDesc, tags));
+    }
 
+    private Either<FailedOperation, String> doCreateKey(
+            KmsClient kmsClient, String accountId, String keyDesc, List<BucketTag> tags) {
         try {
             logger.info("Starting creation of a new KMS key");
 
-            String kmsPolicy;
-            if (System.getProperty("kms.policy.path") != null) {
-                String policyPath = System.getProperty("kms.policy.path");
-                logger.info("Using custom KMS policy path: {}", policyPath);
-                kmsPolicy = new String(Files.readAllBytes(Paths.get(policyPath)));
-
-            } else {
-                InputStream inputStream = getClass().getClassLoader().getResourceAsStream("kms-policy.json");
-                logger.info("Using default KMS policy path");
-                kmsPolicy = new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
-            }
-
-            logger.debug("Original KMS policy: {}", kmsPolicy);
-            String updatedPolicy = kmsPolicy.replace("{accountID}", accountId);
-            logger.debug("Updated KMS policy: {}", updatedPolicy);
-
-            CreateKeyRequest.Builder keyRequestBuilder = CreateKeyRequest.builder()
-                    .description(keyDesc)
-                    .keySpec(KeySpec.SYMMETRIC_DEFAULT)
-                    .keyUsage(KeyUsageType.ENCRYPT_DECRYPT)
-                    .policy(updatedPolicy);
-
-            if (!(tags == null || tags.isEmpty())) {
-                List<Tag> awsTags = new ArrayList<>();
-                tags.forEach(t -> awsTags.add(
-                        Tag.builder().tagKey(t.getKey()).tagValue(t.getValue()).build()));
-
-                keyRequestBuilder.tags(awsTags);
-
-                logger.debug("Tags added to the KMS key: {}", tags);
-            }
-
-            CreateKeyRequest keyRequest = keyRequestBuilder.build();
+            CreateKeyRequest keyRequest = buildCreateKeyRequest(accountId, keyDesc, tags);
             logger.debug("Creating KMS key with description: {}", keyDesc);
 
             CreateKeyResponse response = kmsClient.createKey(keyRequest);
@@ -82,14 +57,33 @@ public class KmsManager {
             logger.info("Successfully created KMS key with ID: {}", keyId);
             return Either.right(keyId);
 
-        } catch (IOException e) {
-            String error = "Error reading KMS policy file: " + e.getMessage();
-            logger.error(error, e);
-            return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
         } catch (Exception e) {
             String error = "Unexpected error during KMS key creation: " + e.getMessage();
             logger.error(error, e);
             return Either.left(new FailedOperation(error, List.of(new Problem(error, e))));
         }
     }
+
+    private CreateKeyRequest buildCreateKeyRequest(String accountId, String keyDesc, List<BucketTag> tags) {
+        String updatedPolicy = policyTemplateRegistry.renderKmsPolicy(accountId);
+        logger.debug("Updated KMS policy: {}", updatedPolicy);
+
+        CreateKeyRequest.Builder keyRequestBuilder = CreateKeyRequest.builder()
+                .description(keyDesc)
+                .keySpec(KeySpec.SYMMETRIC_DEFAULT)
+                .keyUsage(KeyUsageType.ENCRYPT_DECRYPT)
+                .policy(updatedPolicy);
+
+        if (!(tags == null || tags.isEmpty())) {
+            List<Tag> awsTags = new ArrayList<>();
+            tags.forEach(t -> awsTags.add(
+                    Tag.builder().tagKey(t.getKey()).tagValue(t.getValue()).build()));
+
+            keyRequestBuilder.tags(awsTags);
+
+            logger.debug("Tags added to the KMS key: {}", tags);
+        }
+
+        return keyRequestBuilder.build();
+    }
 }
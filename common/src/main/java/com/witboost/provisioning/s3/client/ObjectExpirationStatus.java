@@ -0,0 +1,14 @@
+package com.witboost.provisioning.s3.client;
+
+/**
+ * Progress of the expiration of the objects under a prefix by the lifecycle rules installed by
+ * {@link BucketManager#expireObjectsWithPrefix}.
+ */
+public enum ObjectExpirationStatus {
+    /** No lifecycle rule expires the prefix. */
+    NONE,
+    /** Some objects are left under the prefix. */
+    IN_PROGRESS,
+    /** No object is left under the prefix, and its lifecycle rules were removed. */
+    COMPLETED
+}
@@ -0,0 +1,93 @@
+package com.witboost.provisioning.s3.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Policy document with {@code {placeholder}} markers, split once into literal and placeholder segments so that
+ * rendering only concatenates them.
+ */
+final class PolicyTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z][A-Za-z0-9]*)}");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String source;
+    private final List<String> literals;
+    private final List<String> placeholders;
+
+    private PolicyTemplate(String source, List<String> literals, List<String> placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Compiles a policy template and checks that it only uses the expected placeholders, all of them, and that it
+     * renders to valid JSON.
+     *
+     * @param name                 the name of the template, used in error messages.
+     * @param source               the template text.
+     * @param expectedPlaceholders the placeholders the template must contain.
+     * @return the compiled template.
+     * @throws IllegalArgumentException if the template is not valid.
+     */
+    static PolicyTemplate compile(String name, String source, Set<String> expectedPlaceholders) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        int position = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(position, matcher.start()));
+            placeholders.add(matcher.group(1));
+            position = matcher.end();
+        }
+        literals.add(source.substring(position));
+
+        Set<String> found = new LinkedHashSet<>(placeholders);
+        Set<String> unknown = new LinkedHashSet<>(found);
+        unknown.removeAll(expectedPlaceholders);
+        if (!unknown.isEmpty())
+            throw new IllegalArgumentException(String.format(
+                    "The %s template contains unknown placeholders %s. Allowed placeholders: %s",
+                    name, unknown, expectedPlaceholders));
+        Set<String> missing = new LinkedHashSet<>(expectedPlaceholders);
+        missing.removeAll(found);
+        if (!missing.isEmpty())
+            throw new IllegalArgumentException(
+                    String.format("The %s template is missing the placeholders %s", name, missing));
+
+        PolicyTemplate template = new PolicyTemplate(source, List.copyOf(literals), List.copyOf(placeholders));
+        try {
+            OBJECT_MAPPER.readTree(template.render(placeholder -> "placeholder"));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(
+                    String.format("The %s template is not a valid JSON document. Details: %s", name, e.getMessage()),
+                    e);
+        }
+        return template;
+    }
+
+    String render(Map<String, String> values) {
+        return render(values::get);
+    }
+
+    String source() {
+        return source;
+    }
+
+    private String render(Function<String, String> values) {
+        StringBuilder rendered = new StringBuilder(source.length() + 64);
+        for (int i = 0; i < placeholders.size(); i++) {
+            rendered.append(literals.get(i)).append(values.apply(placeholders.get(i)));
+        }
+        return rendered.append(literals.get(literals.size() - 1)).toString();
+    }
+}
@@ -0,0 +1,222 @@
+package com.witboost.provisioning.s3.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the bucket and KMS policy templates, loaded and validated once instead of on every provisioning request.
+ *
+ * <p>A template is read from the file set in its system property ({@code bucket.policy.path},
+ * {@code kms.policy.path}) if present, or from the classpath otherwise. Every template must be valid JSON and contain
+ * exactly its expected placeholders: an invalid template makes the application fail at startup.</p>
+ *
+ * <p>When reload is enabled, the directories of the override files are watched and the templates are reloaded when
+ * they change, e.g. when Kubernetes updates a mounted ConfigMap. A changed template that fails validation is ignored
+ * and the previous one is kept.</p>
+ */
+@Component
+public class PolicyTemplateRegistry {
+
+    /** Supported policy templates, with their classpath default, override property and placeholders. */
+    public enum PolicyType {
+        BUCKET("bucket policy", "bucket-policy.json", "bucket.policy.path", "bucketName"),
+        KMS("KMS policy", "kms-policy.json", "kms.policy.path", "accountID");
+
+        private final String description;
+        private final String resource;
+        private final String pathProperty;
+        private final String placeholder;
+
+        PolicyType(String description, String resource, String pathProperty, String placeholder) {
+            this.description = description;
+            this.resource = resource;
+            this.pathProperty = pathProperty;
+            this.placeholder = placeholder;
+        }
+
+        Path overridePath() {
+            String path = System.getProperty(pathProperty);
+            return path == null ? null : Paths.get(path);
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(PolicyTemplateRegistry.class);
+
+    private final Map<PolicyType, PolicyTemplate> templates = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean reloadEnabled;
+
+    private WatchService watchService;
+
+    public PolicyTemplateRegistry(
+            MeterRegistry meterRegistry, @Value("${s3.policy.reload-enabled}") boolean reloadEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.reloadEnabled = reloadEnabled;
+    }
+
+    /**
+     * Loads and validates every template.
+     *
+     * @throws IllegalStateException if a template cannot be read or is not valid.
+     */
+    @PostConstruct
+    public void load() {
+        for (PolicyType type : PolicyType.values()) {
+            try {
+                templates.put(type, read(type));
+            } catch (Exception e) {
+                throw new IllegalStateException(
+                        String.format("Unable to load the %s template. Details: %s", type.description, e.getMessage()),
+                        e);
+            }
+        }
+        if (reloadEnabled) startWatcher();
+    }
+
+    @PreDestroy
+    void stopWatcher() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the policy template watcher: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Renders the secure transport policy of a bucket.
+     *
+     * @param bucketName the name of the bucket.
+     * @return the bucket policy document.
+     */
+    public String renderBucketPolicy(String bucketName) {
+        return template(PolicyType.BUCKET).render(Map.of(PolicyType.BUCKET.placeholder, bucketName));
+    }
+
+    /**
+     * Renders the key policy of a KMS key.
+     *
+     * @param accountId the AWS account ID owning the key.
+     * @return the KMS key policy document.
+     */
+    public String renderKmsPolicy(String accountId) {
+        return template(PolicyType.KMS).render(Map.of(PolicyType.KMS.placeholder, accountId));
+    }
+
+    /**
+     * Reloads the templates whose source changed. A template that cannot be read or is not valid keeps its previous
+     * version.
+     */
+    void reload() {
+        for (PolicyType type : PolicyType.values()) {
+            if (type.overridePath() == null) continue;
+            try {
+                PolicyTemplate template = read(type);
+                PolicyTemplate previous = templates.put(type, template);
+                if (previous == null || !previous.source().equals(template.source())) {
+                    logger.info("The {} template was reloaded from {}.", type.description, type.overridePath());
+                    countReload(type, "success");
+                }
+            } catch (Exception e) {
+                logger.error(
+                        "Unable to reload the {} template, the previous version is kept. Details: {}",
+                        type.description,
+                        e.getMessage());
+                countReload(type, "failure");
+            }
+        }
+    }
+
+    private PolicyTemplate template(PolicyType type) {
+        return Objects.requireNonNull(
+                templates.get(type), () -> String.format("The %s template is not loaded", type.description));
+    }
+
+    private PolicyTemplate read(PolicyType type) throws IOException {
+        String source;
+        Path overridePath = type.overridePath();
+        if (overridePath != null) {
+            logger.info("Using custom {} path: {}", type.description, overridePath);
+            source = new String(Files.readAllBytes(overridePath), StandardCharsets.UTF_8);
+        } else {
+            logger.info("Using default {} path", type.description);
+            try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(type.resource)) {
+                source = new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return PolicyTemplate.compile(type.description, source, Set.of(type.placeholder));
+    }
+
+    private void startWatcher() {
+        Set<Path> directories = new HashSet<>();
+        for (PolicyType type : PolicyType.values()) {
+            Path overridePath = type.overridePath();
+            if (overridePath != null && overridePath.toAbsolutePath().getParent() != null)
+                directories.add(overridePath.toAbsolutePath().getParent());
+        }
+        if (directories.isEmpty()) return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to watch the policy templates, changes will not be reloaded: {}", e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(this::watch, "policy-template-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching {} for policy template changes.", directories);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Mounted ConfigMaps are updated by swapping symlinks, so any event in the directory triggers a reload
+                key.pollEvents();
+                reload();
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Policy template watcher stopped.");
+        }
+    }
+
+    private void countReload(PolicyType type, String result) {
+        meterRegistry
+                .counter("s3.policy.template.reloads", "template", type.name().toLowerCase(), "result", result)
+                .increment();
+    }
+}
@@ -0,0 +1,28 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.List;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+/**
+ * How the objects under a prefix are deleted, as decided by {@link BucketManager#planPrefixDeletion}.
+ *
+ * @param expire       whether the objects are expired by lifecycle rules rather than deleted through the API.
+ * @param objectPages  the pages of {@code ListObjectsV2} that hold all the objects under the prefix, read while
+ *                     sampling it, or {@code null} if the prefix was not listed in full.
+ * @param versionPages the pages of {@code ListObjectVersions} that hold all the versions and delete markers under the
+ *                     prefix, read while sampling it, or {@code null} if the prefix was not listed in full.
+ */
+public record PrefixDeletionPlan(
+        boolean expire, List<ListObjectsV2Response> objectPages, List<ListObjectVersionsResponse> versionPages) {
+
+    /** The objects are expired by lifecycle rules. */
+    public static PrefixDeletionPlan lifecycle() {
+        return new PrefixDeletionPlan(true, null, null);
+    }
+
+    /** The objects are listed and deleted through the API. */
+    public static PrefixDeletionPlan api() {
+        return new PrefixDeletionPlan(false, null, null);
+    }
+}
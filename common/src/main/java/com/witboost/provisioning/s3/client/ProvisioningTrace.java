@@ -0,0 +1,104 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Time spent in each phase of a provisioning request and number of AWS calls it issued or avoided.
+ *
+ * <p>A trace is bound to the thread serving the request between {@link #open()} and {@link #close()}. The code that
+ * runs in between reports to it through the static methods, which do nothing when no trace is bound, so the bucket
+ * and folder operations keep working the same when called outside of a traced request. Tasks handed over to other
+ * threads must be wrapped with {@link #propagate} to report to the same trace.</p>
+ *
+ * <p>Collecting a trace costs a few {@link System#nanoTime()} calls and counter increments: a request allocates the
+ * trace and nothing else.</p>
+ */
+public final class ProvisioningTrace implements AutoCloseable {
+
+    /** Phases of a provisioning request, in execution order. */
+    public enum Phase {
+        VALIDATION,
+        EXISTENCE_CHECK,
+        CREATE_AND_WAIT,
+        CONFIGURATION,
+        FOLDER_CREATION
+    }
+
+    private static final ThreadLocal<ProvisioningTrace> CURRENT = new ThreadLocal<>();
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicInteger awsCalls = new AtomicInteger();
+    private final AtomicInteger skippedAwsCalls = new AtomicInteger();
+    private final ProvisioningTrace previous;
+
+    private ProvisioningTrace(ProvisioningTrace previous) {
+        this.previous = previous;
+    }
+
+    /** Starts a trace and binds it to the current thread until it is closed. */
+    public static ProvisioningTrace open() {
+        ProvisioningTrace trace = new ProvisioningTrace(CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /** Unbinds the trace from the current thread. Its values can still be read. */
+    @Override
+    public void close() {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+
+    /** Start of a phase, to be passed to {@link #record}. */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /** Adds the time elapsed since {@code startNanos} to a phase of the trace bound to the current thread. */
+    public static void record(Phase phase, long startNanos) {
+        ProvisioningTrace trace = CURRENT.get();
+        if (trace != null) trace.phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - startNanos);
+    }
+
+    /** Counts an AWS call issued by the current thread. */
+    public static void callIssued() {
+        ProvisioningTrace trace = CURRENT.get();
+        if (trace != null) trace.awsCalls.incrementAndGet();
+    }
+
+    /** Counts AWS calls the current thread did not issue because their outcome was already known. */
+    public static void callsSkipped(int calls) {
+        ProvisioningTrace trace = CURRENT.get();
+        if (trace != null) trace.skippedAwsCalls.addAndGet(calls);
+    }
+
+    /** Wraps a task so that it reports to the trace bound to the calling thread, whichever thread runs it. */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        ProvisioningTrace trace = CURRENT.get();
+        if (trace == null) return task;
+        return () -> {
+            ProvisioningTrace replaced = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                return task.get();
+            } finally {
+                if (replaced == null) CURRENT.remove();
+                else CURRENT.set(replaced);
+            }
+        };
+    }
+
+    public long phaseMillis(Phase phase) {
+        return phaseNanos.get(phase.ordinal()) / 1_000_000;
+    }
+
+    public int awsCalls() {
+        return awsCalls.get();
+    }
+
+    public int skippedAwsCalls() {
+        return skippedAwsCalls.get();
+    }
+}
@@ -0,0 +1,71 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.s3.config.RateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares an {@link AdaptiveRateLimiter} between the bulk operations running on the same prefix of a bucket, since
+ * Amazon S3 applies its request rate limits per prefix.
+ *
+ * <p>A limiter lives as long as an operation retains it, and its rate is exported by the gauge
+ * {@code s3.rate-limit.rate}, tagged with the bucket and the prefix.</p>
+ */
+@Component
+public class RateLimiterRegistry {
+
+    private final Map<Key, Entry> limiters = new HashMap<>();
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimiterRegistry(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        // Fail at startup rather than on the first deletion
+        new AdaptiveRateLimiter(properties);
+    }
+
+    /**
+     * Returns the limiter of a prefix, creating it if no operation is running on the prefix. Each call must be
+     * followed by a call to {@link #release}.
+     */
+    synchronized AdaptiveRateLimiter retain(String bucketName, String prefix) {
+        Entry entry = limiters.computeIfAbsent(new Key(bucketName, prefix), key -> {
+            AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(properties);
+            Gauge gauge = Gauge.builder("s3.rate-limit.rate", limiter, AdaptiveRateLimiter::rate)
+                    .tag("bucket", bucketName)
+                    .tag("prefix", prefix)
+                    .description("Requests per second currently allowed to bulk operations on a prefix")
+                    .register(meterRegistry);
+            return new Entry(limiter, gauge);
+        });
+        entry.users++;
+        return entry.limiter;
+    }
+
+    /** Releases the limiter of a prefix, discarding it once no operation is running on the prefix. */
+    synchronized void release(String bucketName, String prefix) {
+        Key key = new Key(bucketName, prefix);
+        Entry entry = limiters.get(key);
+        if (entry == null || --entry.users > 0) return;
+        limiters.remove(key);
+        meterRegistry.remove(entry.gauge);
+    }
+
+    private record Key(String bucketName, String prefix) {}
+
+    private static final class Entry {
+        private final AdaptiveRateLimiter limiter;
+        private final Gauge gauge;
+        private int users;
+
+        private Entry(AdaptiveRateLimiter limiter, Gauge gauge) {
+            this.limiter = limiter;
+            this.gauge = gauge;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.witboost.provisioning.s3.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Optional;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Stores deletion checkpoints as JSON objects in a bucket shared by all the replicas of the adapter, so that a
+ * deletion resumes on whichever replica receives the next request. Concurrent deletions of the same prefix are
+ * serialized by the caller, so a plain {@code PutObject} is enough.
+ */
+public class S3DeletionCheckpointStore implements DeletionCheckpointStore {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String keyPrefix;
+
+    /**
+     * @param s3Client  client of the checkpoint bucket.
+     * @param bucket    the bucket holding the checkpoints. It must exist.
+     * @param keyPrefix prefix of the keys of the checkpoints.
+     */
+    public S3DeletionCheckpointStore(S3Client s3Client, String bucket, String keyPrefix) {
+        if (bucket == null || bucket.isBlank())
+            throw new IllegalStateException("Deletion checkpoints are stored on S3 but no bucket is configured.");
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+    }
+
+    @Override
+    public Optional<DeletionCheckpoint> load(String bucketName, String prefix, DeletionCheckpoint.Listing listing)
+            throws IOException {
+        try {
+            byte[] content = s3Client.getObjectAsBytes(
+                            request -> request.bucket(bucket).key(key(bucketName, prefix, listing)))
+                    .asByteArray();
+            return Optional.of(objectMapper.readValue(content, DeletionCheckpoint.class));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(DeletionCheckpoint checkpoint) throws IOException {
+        s3Client.putObject(
+                request -> request.bucket(bucket)
+                        .key(key(checkpoint.bucketName(), checkpoint.prefix(), checkpoint.listing()))
+                        .contentType("application/json"),
+                RequestBody.fromBytes(objectMapper.writeValueAsBytes(checkpoint)));
+    }
+
+    @Override
+    public void delete(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+        s3Client.deleteObject(request -> request.bucket(bucket).key(key(bucketName, prefix, listing)));
+    }
+
+    /** Closes the client of the checkpoint bucket. */
+    @Override
+    public void close() {
+        s3Client.close();
+    }
+
+    private String key(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+        return keyPrefix + DeletionCheckpointStore.path(bucketName, prefix, listing);
+    }
+}
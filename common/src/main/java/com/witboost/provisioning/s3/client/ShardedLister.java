@@ -0,0 +1,122 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lists several shards of a prefix in parallel and merges their pages into a single stream consumed on the calling
+ * thread.
+ *
+ * <p>A single {@code ListObjectsV2} chain returns at most 1000 keys per round trip, one round trip after the other.
+ * When the prefix is split in shards, e.g. the common prefixes returned by a listing with a delimiter, each shard is
+ * an independent chain and up to {@code parallelism} of them run at once. Pages are handed over to the caller through
+ * a bounded queue: when it is full, the workers block until the caller takes a page, so listing never runs ahead of
+ * the consumer by more than the queue capacity.</p>
+ *
+ * <p>Pages of different shards are interleaved in no particular order. An exception thrown by a shard listing or by
+ * the consumer stops the workers and is rethrown to the caller.</p>
+ */
+final class ShardedLister {
+
+    private final Executor executor;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    /**
+     * @param executor      the executor running the workers. It must be able to run {@code parallelism} workers at
+     *                      once, or the caller may wait for a worker that never starts.
+     * @param parallelism   number of shards listed at once.
+     * @param queueCapacity number of pages that can wait for the consumer.
+     */
+    ShardedLister(Executor executor, int parallelism, int queueCapacity) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /** Lists a shard page by page, e.g. a {@code ListObjectsV2} response per page. */
+    @FunctionalInterface
+    interface ShardListing<P> {
+        void list(String shard, PageConsumer<P> pages) throws Exception;
+    }
+
+    /** Consumes the pages of a listing. */
+    @FunctionalInterface
+    interface PageConsumer<P> {
+        void accept(P page) throws Exception;
+    }
+
+    /**
+     * Lists all the shards, handing over their pages to {@code consumer} on the calling thread. Returns once all the
+     * pages are consumed.
+     *
+     * @param shards   the shards to list.
+     * @param listing  lists one shard.
+     * @param consumer consumes the pages of all the shards.
+     * @throws Exception the first error of a shard listing or of the consumer.
+     */
+    <P> void forEachPage(List<String> shards, ShardListing<P> listing, PageConsumer<P> consumer) throws Exception {
+        if (shards.isEmpty()) return;
+
+        Queue<String> remaining = new ConcurrentLinkedQueue<>(shards);
+        BlockingQueue<Message<P>> pages = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean stopped = new AtomicBoolean();
+        int workerCount = Math.min(parallelism, shards.size());
+        for (int i = 0; i < workerCount; i++)
+            CompletableFuture.runAsync(() -> work(remaining, listing, pages, stopped), executor);
+
+        try {
+            int finishedWorkers = 0;
+            while (finishedWorkers < workerCount) {
+                Message<P> message = pages.take();
+                if (message.failure() != null) throw message.failure();
+                if (message.page() == null) finishedWorkers++;
+                else consumer.accept(message.page());
+            }
+        } finally {
+            // Workers waiting for room in the queue give up, the pages they were handing over are discarded
+            stopped.set(true);
+        }
+    }
+
+    private <P> void work(
+            Queue<String> remaining, ShardListing<P> listing, BlockingQueue<Message<P>> pages, AtomicBoolean stopped) {
+        try {
+            try {
+                String shard;
+                while (!stopped.get() && (shard = remaining.poll()) != null)
+                    listing.list(shard, page -> {
+                        if (!handOver(pages, new Message<>(page, null), stopped)) throw new CancellationException();
+                    });
+            } catch (CancellationException e) {
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                handOver(pages, new Message<>(null, e), stopped);
+                return;
+            }
+            handOver(pages, new Message<>(null, null), stopped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return {@code false} if the caller stopped consuming before the message could be queued. */
+    private static <P> boolean handOver(BlockingQueue<Message<P>> pages, Message<P> message, AtomicBoolean stopped)
+            throws InterruptedException {
+        while (!pages.offer(message, 100, TimeUnit.MILLISECONDS)) if (stopped.get()) return false;
+        return true;
+    }
+
+    /** A page of a shard, the end of the shards of a worker if both fields are {@code null}, or the error of a worker. */
+    private record Message<P>(P page, Exception failure) {}
+}
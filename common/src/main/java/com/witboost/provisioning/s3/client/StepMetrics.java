@@ -0,0 +1,127 @@
+package com.witboost.provisioning.s3.client;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vavr.control.Either;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.AwsClient;
+import software.amazon.awssdk.awscore.AwsServiceClientConfiguration;
+
+/**
+ * Times the steps of the provisioning of a bucket and counts their outcomes, tagged by step, region of the client and
+ * outcome, so that the slow or failing step of each region can be found.
+ *
+ * <p>Each execution is recorded in the timer {@value #DURATION} and in the counter {@value #EXECUTIONS}. The
+ * percentiles published for the timer are configured through the {@code management.metrics.distribution} properties.
+ * It is also emitted as a {@link BucketOperationEvent} to the Flight Recorder, when a recording is running.</p>
+ */
+@Component
+public class StepMetrics {
+
+    static final String DURATION = "s3.provisioning.step.duration";
+    static final String EXECUTIONS = "s3.provisioning.step.executions";
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    private static final String UNKNOWN_REGION = "unknown";
+
+    /** A step of the provisioning, with the value of its {@code step} tag. */
+    public enum Step {
+        CREATE_BUCKET("create-bucket"),
+        WAIT_BUCKET("wait-bucket"),
+        TAGS("tags"),
+        POLICY("policy"),
+        ENCRYPTION("encryption"),
+        VERSIONING("versioning"),
+        LIFECYCLE("lifecycle"),
+        TIERING("tiering"),
+        CREATE_FOLDER("create-folder"),
+        WAIT_OBJECT("wait-object"),
+        PROBE_BUCKET("probe-bucket"),
+        DELETE_OBJECTS("delete-objects"),
+        PURGE_VERSIONS("purge-versions"),
+        EXPIRE_OBJECTS("expire-objects"),
+        KMS_CREATE_KEY("kms-create-key");
+
+        private final String tag;
+
+        Step(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public StepMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs a step, recording its duration and outcome. A step fails if it returns a {@link FailedOperation} or throws.
+     *
+     * @param step       the step.
+     * @param client     the client the step calls, whose region tags the metrics.
+     * @param bucketName the bucket the step acts on, {@code null} if none.
+     * @param action     the step.
+     * @return the result of the step.
+     */
+    public <T> Either<FailedOperation, T> record(
+            Step step, AwsClient client, String bucketName, Supplier<Either<FailedOperation, T>> action) {
+        BucketOperationEvent event = new BucketOperationEvent();
+        event.begin();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = FAILURE;
+        try {
+            Either<FailedOperation, T> result = action.get();
+            if (result.isRight()) outcome = SUCCESS;
+            return result;
+        } finally {
+            stop(sample, event, step, regionOf(client), bucketName, outcome);
+        }
+    }
+
+    private void stop(
+            Timer.Sample sample,
+            BucketOperationEvent event,
+            Step step,
+            String region,
+            String bucketName,
+            String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bucket = bucketName;
+            event.region = region;
+            event.step = step.tag();
+            event.outcome = outcome;
+            event.commit();
+        }
+        sample.stop(Timer.builder(DURATION)
+                .description("Duration of a step of the provisioning of a bucket")
+                .tags("step", step.tag(), "region", region, "outcome", outcome)
+                .register(meterRegistry));
+        Counter.builder(EXECUTIONS)
+                .description("Executions of a step of the provisioning of a bucket")
+                .tags("step", step.tag(), "region", region, "outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /** The region a client is configured for, {@value #UNKNOWN_REGION} if it does not expose its configuration. */
+    static String regionOf(AwsClient client) {
+        AwsServiceClientConfiguration configuration;
+        try {
+            configuration = client == null ? null : client.serviceClientConfiguration();
+        } catch (UnsupportedOperationException e) {
+            return UNKNOWN_REGION;
+        }
+        if (configuration == null || configuration.region() == null) return UNKNOWN_REGION;
+        return configuration.region().id();
+    }
+}
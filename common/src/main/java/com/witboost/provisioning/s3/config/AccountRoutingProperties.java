@@ -0,0 +1,45 @@
+package com.witboost.provisioning.s3.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Target accounts the adapter can provision into by assuming a role, and the routing of requests to them, bound from
+ * {@code aws.accounts.*}.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class AccountRoutingProperties {
+
+    /** Role to assume to provision into a target account. */
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class Target {
+
+        private String roleArn;
+
+        private String externalId;
+    }
+
+    /** Target accounts by name. */
+    private Map<String, Target> targets = new HashMap<>();
+
+    /** Target account name by data product domain, used when the component does not select one. */
+    private Map<String, String> routing = new HashMap<>();
+
+    private String roleSessionName = "s3-tech-adapter";
+
+    private Duration sessionDuration = Duration.ofHours(1);
+
+    /** How long before expiration the session credentials are refreshed in the background. */
+    private Duration prefetchTime = Duration.ofMinutes(5);
+
+    /** How long before expiration a request blocks until the session credentials are refreshed. */
+    private Duration staleTime = Duration.ofMinutes(1);
+}
@@ -0,0 +1,22 @@
+package com.witboost.provisioning.s3.config;
+
+import com.witboost.provisioning.s3.client.ProvisioningTrace;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Counts the AWS calls issued while a {@link ProvisioningTrace} is bound to the calling thread. Retries of a call are
+ * not counted again.
+ */
+final class AwsCallCounter implements ExecutionInterceptor {
+
+    static final AwsCallCounter INSTANCE = new AwsCallCounter();
+
+    private AwsCallCounter() {}
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        ProvisioningTrace.callIssued();
+    }
+}
@@ -0,0 +1,163 @@
+package com.witboost.provisioning.s3.config;
+
+import com.witboost.provisioning.s3.client.BucketLeaseManager;
+import com.witboost.provisioning.s3.client.DeletionCheckpointStore;
+import com.witboost.provisioning.s3.client.FileDeletionCheckpointStore;
+import com.witboost.provisioning.s3.client.S3DeletionCheckpointStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.sts.StsClient;
+
+@Configuration
+public class AwsClientConfiguration {
+
+    @Bean
+    public AwsCredentialsProvider awsCredentialsProvider() {
+        return DefaultCredentialsProvider.create();
+    }
+
+    /** Publishes the metrics of the API calls of all the AWS clients built by the adapter. */
+    @Bean
+    SdkMetricsPublisher sdkMetricsPublisher(MeterRegistry meterRegistry) {
+        return new SdkMetricsPublisher(meterRegistry);
+    }
+
+    @Bean
+    public StsClient stsClient(AwsCredentialsProvider awsCredentialsProvider, SdkMetricsPublisher sdkMetricsPublisher) {
+        return StsClient.builder()
+                .credentialsProvider(awsCredentialsProvider)
+                .overrideConfiguration(builder -> builder.addMetricPublisher(sdkMetricsPublisher)
+                        .addExecutionInterceptor(AwsCallCounter.INSTANCE))
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "s3.client")
+    public AwsClientProperties s3ClientProperties() {
+        return new AwsClientProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "kms.client")
+    public AwsClientProperties kmsClientProperties() {
+        return new AwsClientProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "aws.accounts")
+    public AccountRoutingProperties accountRoutingProperties() {
+        return new AccountRoutingProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "s3.lease")
+    public BucketLeaseProperties bucketLeaseProperties() {
+        return new BucketLeaseProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "s3.delete.checkpoint")
+    public DeletionCheckpointProperties deletionCheckpointProperties() {
+        return new DeletionCheckpointProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "s3.rate-limit")
+    public RateLimitProperties rateLimitProperties() {
+        return new RateLimitProperties();
+    }
+
+    /**
+     * The control bucket of the lease is accessed with the adapter's own credentials and the S3 client settings, through
+     * a dedicated client that can point to an S3-compatible endpoint.
+     */
+    @Bean(destroyMethod = "close")
+    public BucketLeaseManager bucketLeaseManager(
+            BucketLeaseProperties bucketLeaseProperties,
+            AwsCredentialsProvider awsCredentialsProvider,
+            @Qualifier("s3ClientProperties") AwsClientProperties s3ClientProperties,
+            SdkMetricsPublisher sdkMetricsPublisher,
+            MeterRegistry meterRegistry) {
+        if (!bucketLeaseProperties.isEnabled())
+            return new BucketLeaseManager(null, bucketLeaseProperties, meterRegistry);
+        S3Client s3Client = dedicatedS3Client(
+                awsCredentialsProvider,
+                s3ClientProperties,
+                sdkMetricsPublisher,
+                bucketLeaseProperties.getRegion(),
+                bucketLeaseProperties.getEndpoint(),
+                bucketLeaseProperties.isPathStyleAccess());
+        return new BucketLeaseManager(s3Client, bucketLeaseProperties, meterRegistry);
+    }
+
+    /**
+     * Like the lease, the {@code S3} store of the deletion checkpoints uses the adapter's own credentials and the S3
+     * client settings, through a dedicated client that can point to an S3-compatible endpoint. The store closes the
+     * client when the application shuts down.
+     */
+    @Bean(destroyMethod = "close")
+    public DeletionCheckpointStore deletionCheckpointStore(
+            DeletionCheckpointProperties deletionCheckpointProperties,
+            AwsCredentialsProvider awsCredentialsProvider,
+            @Qualifier("s3ClientProperties") AwsClientProperties s3ClientProperties,
+            SdkMetricsPublisher sdkMetricsPublisher) {
+        return switch (deletionCheckpointProperties.getStore()) {
+            case NONE -> DeletionCheckpointStore.none();
+            case FILE -> {
+                if (deletionCheckpointProperties.getDirectory() == null
+                        || deletionCheckpointProperties.getDirectory().isBlank())
+                    throw new IllegalStateException(
+                            "Deletion checkpoints are stored on files but no directory is configured.");
+                yield new FileDeletionCheckpointStore(Path.of(deletionCheckpointProperties.getDirectory()));
+            }
+            case S3 -> {
+                S3Client s3Client = dedicatedS3Client(
+                        awsCredentialsProvider,
+                        s3ClientProperties,
+                        sdkMetricsPublisher,
+                        deletionCheckpointProperties.getRegion(),
+                        deletionCheckpointProperties.getEndpoint(),
+                        deletionCheckpointProperties.isPathStyleAccess());
+                yield new S3DeletionCheckpointStore(
+                        s3Client,
+                        deletionCheckpointProperties.getBucket(),
+                        deletionCheckpointProperties.getKeyPrefix());
+            }
+        };
+    }
+
+    /**
+     * Builds an S3 client with the adapter's own credentials and the S3 client settings, for a bucket outside the
+     * accounts the adapter provisions.
+     *
+     * @param region          region of the bucket, or blank for the default region.
+     * @param endpoint        endpoint of an S3-compatible store, or blank for Amazon S3.
+     * @param pathStyleAccess whether buckets are addressed by path instead of virtual host.
+     */
+    private static S3Client dedicatedS3Client(
+            AwsCredentialsProvider awsCredentialsProvider,
+            AwsClientProperties s3ClientProperties,
+            SdkMetricsPublisher sdkMetricsPublisher,
+            String region,
+            String endpoint,
+            boolean pathStyleAccess) {
+        S3ClientBuilder builder = S3Client.builder()
+                .credentialsProvider(awsCredentialsProvider)
+                .httpClient(AwsClientFactory.httpClient(s3ClientProperties))
+                .overrideConfiguration(AwsClientFactory.overrideConfiguration(s3ClientProperties, sdkMetricsPublisher))
+                .forcePathStyle(pathStyleAccess);
+        if (region != null && !region.isBlank()) builder.region(Region.of(region));
+        if (endpoint != null && !endpoint.isBlank()) builder.endpointOverride(URI.create(endpoint));
+        return builder.build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.witboost.provisioning.s3.config;
+
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Builds the HTTP clients and the override configuration of the AWS service clients from {@link AwsClientProperties}.
+ */
+final class AwsClientFactory {
+
+    private AwsClientFactory() {}
+
+    /**
+     * Builds the HTTP client of a blocking service client. The URLConnection client has no connection pool of its own,
+     * so only the timeouts apply to it.
+     */
+    static SdkHttpClient httpClient(AwsClientProperties properties) {
+        return switch (properties.getHttpClient()) {
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(properties.getConnectionTimeout())
+                    .socketTimeout(properties.getSocketTimeout())
+                    .build();
+            case CRT -> AwsCrtHttpClient.builder()
+                    .maxConcurrency(properties.getMaxConnections())
+                    .connectionTimeout(properties.getConnectionTimeout())
+                    .connectionAcquisitionTimeout(properties.getConnectionAcquisitionTimeout())
+                    .connectionMaxIdleTime(properties.getConnectionMaxIdleTime())
+                    .build();
+            case APACHE -> ApacheHttpClient.builder()
+                    .maxConnections(properties.getMaxConnections())
+                    .connectionTimeout(properties.getConnectionTimeout())
+                    .socketTimeout(properties.getSocketTimeout())
+                    .connectionAcquisitionTimeout(properties.getConnectionAcquisitionTimeout())
+                    .connectionTimeToLive(properties.getConnectionTimeToLive())
+                    .connectionMaxIdleTime(properties.getConnectionMaxIdleTime())
+                    .useIdleConnectionReaper(properties.isUseIdleConnectionReaper())
+                    .tcpKeepAlive(properties.isTcpKeepAlive())
+                    .build();
+        };
+    }
+
+    static ClientOverrideConfiguration overrideConfiguration(AwsClientProperties properties) {
+        ClientOverrideConfiguration.Builder builder =
+                ClientOverrideConfiguration.builder().addExecutionInterceptor(AwsCallCounter.INSTANCE);
+        if (properties.getApiCallAttemptTimeout() != null)
+            builder.apiCallAttemptTimeout(properties.getApiCallAttemptTimeout());
+        if (properties.getApiCallTimeout() != null) builder.apiCallTimeout(properties.getApiCallTimeout());
+        return builder.build();
+    }
+
+    static ClientOverrideConfiguration overrideConfiguration(
+            AwsClientProperties properties, MetricPublisher... metricPublishers) {
+        ClientOverrideConfiguration.Builder builder = overrideConfiguration(properties).toBuilder();
+        for (MetricPublisher metricPublisher : metricPublishers) builder.addMetricPublisher(metricPublisher);
+        return builder.build();
+    }
+}
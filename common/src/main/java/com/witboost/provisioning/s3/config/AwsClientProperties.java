@@ -0,0 +1,51 @@
+package com.witboost.provisioning.s3.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * HTTP client settings of the clients of an AWS service, bound from {@code s3.client.*} and {@code kms.client.*}.
+ * Every region gets its own client, so the connection pool limits apply per region.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class AwsClientProperties {
+
+    /** HTTP client implementation used by the blocking clients. */
+    public enum HttpClientType {
+        APACHE,
+        URL_CONNECTION,
+        CRT
+    }
+
+    private HttpClientType httpClient = HttpClientType.APACHE;
+
+    /** Maximum number of open connections. */
+    private int maxConnections = 50;
+
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    private Duration socketTimeout = Duration.ofSeconds(30);
+
+    /** Maximum time to wait for a connection from the pool before failing the request. */
+    private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+
+    /** Maximum lifetime of a pooled connection, zero to keep connections until they are idle. */
+    private Duration connectionTimeToLive = Duration.ZERO;
+
+    private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+
+    /** Closes idle connections in the background instead of on the next request. */
+    private boolean useIdleConnectionReaper = true;
+
+    private boolean tcpKeepAlive = false;
+
+    /** Maximum time of a single HTTP attempt, unset to rely on the socket timeout. */
+    private Duration apiCallAttemptTimeout;
+
+    /** Maximum time of an API call including retries, unset for no limit. */
+    private Duration apiCallTimeout;
+}
@@ -0,0 +1,43 @@
+package com.witboost.provisioning.s3.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Lease that serializes the reconciliation of a bucket across the replicas of the adapter, bound from
+ * {@code s3.lease.*}.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class BucketLeaseProperties {
+
+    private boolean enabled = false;
+
+    /** Bucket holding the lease objects, shared by all the replicas. It must exist. */
+    private String controlBucket;
+
+    /** Region of the control bucket. */
+    private String region;
+
+    /** Endpoint of the control bucket, to use an S3-compatible store instead of Amazon S3. */
+    private String endpoint;
+
+    private boolean pathStyleAccess = false;
+
+    private String keyPrefix = "leases/";
+
+    /** How long a lease is valid without being renewed. */
+    private Duration ttl = Duration.ofSeconds(60);
+
+    /** How often the owner of a lease renews it. Must be well below the TTL. */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /** How long a request waits for the lease held by another replica before failing. */
+    private Duration acquireTimeout = Duration.ofMinutes(2);
+
+    /** How long to wait before trying again to acquire a lease held by another replica. */
+    private Duration retryInterval = Duration.ofMillis(500);
+}
@@ -0,0 +1,226 @@
+package com.witboost.provisioning.s3.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+/**
+ * Bounded cache of AWS service clients of one service, each of which owns its own connection pool and threads.
+ *
+ * <p>Clients that have not been requested for longer than the idle timeout are evicted by {@link #evictIdle}, and the
+ * least recently used client is evicted when the registry is full. Evicted clients are not closed right away, as a
+ * request may still be using them: they are closed by the first {@link #evictIdle} run after the grace period.
+ * {@link #close} closes every client, cached or evicted.</p>
+ *
+ * <p>For each region the registry exports the number of cached clients and, for each client, the open and leased
+ * connections of its pool as last reported by the SDK.</p>
+ *
+ * @param <K> the key of the clients, from which the region and the account are derived.
+ * @param <C> the type of the clients.
+ */
+final class ClientRegistry<K, C extends SdkAutoCloseable> {
+
+    private final Logger logger = LoggerFactory.getLogger(ClientRegistry.class);
+
+    private final Map<K, Entry<C>> entries = new ConcurrentHashMap<>();
+    private final Queue<Retired<C>> retired = new ConcurrentLinkedQueue<>();
+    private final Map<String, AtomicInteger> clientsPerRegion = new ConcurrentHashMap<>();
+
+    private final String service;
+    private final int maxSize;
+    private final Duration idleTimeout;
+    private final Duration closeGracePeriod;
+    private final Function<K, String> regionOf;
+    private final Function<K, String> accountOf;
+    private final BiFunction<K, MetricPublisher, C> factory;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean closed;
+
+    ClientRegistry(
+            String service,
+            int maxSize,
+            Duration idleTimeout,
+            Duration closeGracePeriod,
+            Function<K, String> regionOf,
+            Function<K, String> accountOf,
+            BiFunction<K, MetricPublisher, C> factory,
+            MeterRegistry meterRegistry) {
+        this.service = service;
+        this.maxSize = Math.max(1, maxSize);
+        this.idleTimeout = idleTimeout;
+        this.closeGracePeriod = closeGracePeriod;
+        this.regionOf = regionOf;
+        this.accountOf = accountOf;
+        this.factory = factory;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("aws.client.registry.size", entries, Map::size)
+                .tag("service", service)
+                .description("Number of AWS clients currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the client of a key, building it if it is not cached.
+     *
+     * @param key the key of the client.
+     * @return the cached or newly built client.
+     * @throws IllegalStateException if the registry has been closed.
+     */
+    C get(K key) {
+        if (closed) throw new IllegalStateException(String.format("The %s client registry is closed.", service));
+        Entry<C> entry = entries.computeIfAbsent(key, this::create);
+        entry.touch();
+        if (entries.size() > maxSize) evictLeastRecentlyUsed(key);
+        return entry.client();
+    }
+
+    /**
+     * Returns the key of a client cached by the registry.
+     *
+     * @param client the client.
+     * @return the key the client was built for, or an empty {@link Optional} if the client is not cached, e.g. because
+     *         it was evicted.
+     */
+    Optional<K> keyOf(C client) {
+        return entries.entrySet().stream()
+                .filter(e -> e.getValue().client() == client)
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    /** Evicts the clients idle for longer than the idle timeout and closes the evicted clients past their grace. */
+    void evictIdle() {
+        Instant now = Instant.now();
+        entries.forEach((key, entry) -> {
+            if (!entry.lastAccess().plus(idleTimeout).isAfter(now)) evict(key, entry, "idle");
+        });
+        closeRetired(Instant.now().minus(closeGracePeriod));
+    }
+
+    /** Closes every client, cached or evicted. The registry cannot be used afterwards. */
+    void close() {
+        closed = true;
+        entries.forEach((key, entry) -> evict(key, entry, "shutdown"));
+        closeRetired(Instant.MAX);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Entry<C> create(K key) {
+        String region = regionOf.apply(key);
+        String account = accountOf.apply(key);
+        ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+        C client = factory.apply(key, poolMetrics);
+
+        List<Meter> meters = new ArrayList<>();
+        meters.add(Gauge.builder("aws.client.connections.open", poolMetrics, ConnectionPoolMetrics::openConnections)
+                .tags("service", service, "region", region, "account", account)
+                .description("Connections open in the pool of the AWS client, as of its last request")
+                .register(meterRegistry));
+        meters.add(Gauge.builder("aws.client.connections.leased", poolMetrics, ConnectionPoolMetrics::leasedConnections)
+                .tags("service", service, "region", region, "account", account)
+                .description("Connections leased from the pool of the AWS client, as of its last request")
+                .register(meterRegistry));
+        clientsPerRegion
+                .computeIfAbsent(region, r -> {
+                    AtomicInteger count = new AtomicInteger();
+                    Gauge.builder("aws.client.registry.clients", count, AtomicInteger::get)
+                            .tags("service", service, "region", r)
+                            .description("Number of AWS clients cached for the region")
+                            .register(meterRegistry);
+                    return count;
+                })
+                .incrementAndGet();
+
+        logger.info("Created {} client for region {} and account '{}'.", service, region, account);
+        return new Entry<>(client, region, meters);
+    }
+
+    private void evictLeastRecentlyUsed(K current) {
+        while (entries.size() > maxSize) {
+            var eldest = entries.entrySet().stream()
+                    .filter(e -> !e.getKey().equals(current))
+                    .min(Comparator.comparing(e -> e.getValue().lastAccess()));
+            if (eldest.isEmpty()) return;
+            evict(eldest.get().getKey(), eldest.get().getValue(), "size");
+        }
+    }
+
+    private void evict(K key, Entry<C> entry, String cause) {
+        if (!entries.remove(key, entry)) return;
+        entry.meters().forEach(meterRegistry::remove);
+        clientsPerRegion.get(entry.region()).decrementAndGet();
+        retired.add(new Retired<>(entry.client(), Instant.now()));
+        meterRegistry
+                .counter("aws.client.registry.evictions", "service", service, "cause", cause)
+                .increment();
+        logger.info("Evicted {} client for region {} ({}).", service, entry.region(), cause);
+    }
+
+    private void closeRetired(Instant retiredBefore) {
+        retired.removeIf(r -> {
+            if (r.retiredAt().isAfter(retiredBefore)) return false;
+            try {
+                r.client().close();
+            } catch (Exception e) {
+                logger.warn("Unable to close an evicted {} client. Details: {}", service, e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    private static final class Entry<C> {
+        private final C client;
+        private final String region;
+        private final List<Meter> meters;
+        private volatile Instant lastAccess = Instant.now();
+
+        private Entry(C client, String region, List<Meter> meters) {
+            this.client = client;
+            this.region = region;
+            this.meters = meters;
+        }
+
+        C client() {
+            return client;
+        }
+
+        String region() {
+            return region;
+        }
+
+        List<Meter> meters() {
+            return meters;
+        }
+
+        Instant lastAccess() {
+            return lastAccess;
+        }
+
+        void touch() {
+            lastAccess = Instant.now();
+        }
+    }
+
+    private record Retired<C>(C client, Instant retiredAt) {}
+}
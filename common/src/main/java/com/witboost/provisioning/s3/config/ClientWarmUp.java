@@ -0,0 +1,201 @@
+package com.witboost.provisioning.s3.config;
+
+import com.witboost.provisioning.s3.client.AccountIdProvider;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.ListAliasesRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
+
+/**
+ * Prepares the AWS clients of the configured regions before the application accepts traffic, so that the first
+ * provisioning requests do not pay for client creation, credentials resolution and TLS handshakes.
+ *
+ * <p>The warm-up resolves the credentials and the caller account, opens the assume-role session of every target
+ * account, then builds the S3 and KMS clients of every
+ * expected region and opens a few pooled connections on each of them with cheap list calls. It runs as an
+ * {@link ApplicationRunner}, so the readiness state of the application only becomes {@code ACCEPTING_TRAFFIC} once it
+ * is over. Failures are logged and never prevent the application from starting.</p>
+ */
+@Component
+public class ClientWarmUp implements ApplicationRunner {
+
+    private final Logger logger = LoggerFactory.getLogger(ClientWarmUp.class);
+
+    private final ConfigurationBean configurationBean;
+    private final AwsCredentialsProvider credentialsProvider;
+    private final AccountIdProvider accountIdProvider;
+    private final AccountRouter accountRouter;
+    private final MeterRegistry meterRegistry;
+
+    private final List<String> regions;
+    private final int connectionsPerClient;
+    private final Duration timeout;
+
+    public ClientWarmUp(
+            ConfigurationBean configurationBean,
+            AwsCredentialsProvider credentialsProvider,
+            AccountIdProvider accountIdProvider,
+            AccountRouter accountRouter,
+            MeterRegistry meterRegistry,
+            @Value("${s3.warm-up.regions}") List<String> regions,
+            @Value("${s3.warm-up.connections-per-client}") int connectionsPerClient,
+            @Value("${s3.warm-up.timeout-seconds}") long timeoutSeconds) {
+        this.configurationBean = configurationBean;
+        this.credentialsProvider = credentialsProvider;
+        this.accountIdProvider = accountIdProvider;
+        this.accountRouter = accountRouter;
+        this.meterRegistry = meterRegistry;
+        this.regions = regions.stream()
+                .map(String::trim)
+                .filter(region -> !region.isEmpty())
+                .distinct()
+                .toList();
+        this.connectionsPerClient = Math.max(1, connectionsPerClient);
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * Runs the warm-up of the configured regions.
+     *
+     * @return {@code true} if every step completed within the timeout, {@code false} otherwise.
+     */
+    boolean warmUp() {
+        if (regions.isEmpty()) {
+            logger.info("No regions configured in s3.warm-up.regions, skipping the AWS client warm-up.");
+            return true;
+        }
+        logger.info("Warming up the AWS clients of regions {}.", regions);
+        long start = System.nanoTime();
+
+        boolean succeeded = resolveIdentity();
+
+        List<Callable<Boolean>> calls = new ArrayList<>();
+        for (String regionName : regions) {
+            Region region = Region.of(regionName);
+            S3Client s3Client = configurationBean.getS3Client(region);
+            KmsClient kmsClient = configurationBean.getKmsClient(region);
+            // Concurrent calls on the same client force the pool to open one connection each
+            for (int i = 0; i < connectionsPerClient; i++) {
+                calls.add(() -> ping(
+                        "S3",
+                        region,
+                        () -> s3Client.listBuckets(
+                                ListBucketsRequest.builder().maxBuckets(1).build())));
+                calls.add(() -> ping(
+                        "KMS",
+                        region,
+                        () -> kmsClient.listAliases(
+                                ListAliasesRequest.builder().limit(1).build())));
+            }
+        }
+        succeeded &= runConcurrently(calls);
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("s3.warm-up.duration")
+                .tag("result", succeeded ? "success" : "failed")
+                .description("Time spent warming up the AWS clients at startup")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (succeeded) logger.info("AWS client warm-up completed in {} ms.", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        else
+            logger.warn(
+                    "AWS client warm-up completed with errors in {} ms. Affected clients will connect on first use.",
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return succeeded;
+    }
+
+    private boolean resolveIdentity() {
+        try {
+            credentialsProvider.resolveCredentials();
+        } catch (Exception e) {
+            logger.warn("Unable to resolve the AWS credentials during the warm-up. Details: {}", e.getMessage());
+            return false;
+        }
+        boolean succeeded = accountIdProvider.getAccountId().isRight();
+        for (AccountTarget target : accountRouter.targets()) {
+            try {
+                accountRouter.credentialsProvider(target).resolveCredentials();
+            } catch (Exception e) {
+                logger.warn(
+                        "Unable to assume the role of target account '{}' during the warm-up. Details: {}",
+                        target.name(),
+                        e.getMessage());
+                succeeded = false;
+            }
+        }
+        return succeeded;
+    }
+
+    private boolean runConcurrently(List<Callable<Boolean>> calls) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(calls.size(), 16), runnable -> {
+            Thread thread = new Thread(runnable, "client-warm-up-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            boolean succeeded = true;
+            for (Future<Boolean> future : executor.invokeAll(calls, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                if (future.isCancelled()) {
+                    logger.warn("AWS client warm-up call did not complete within {} seconds.", timeout.toSeconds());
+                    succeeded = false;
+                } else succeeded &= future.get();
+            }
+            return succeeded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean ping(String service, Region region, Runnable call) {
+        try {
+            call.run();
+            return true;
+        } catch (AwsServiceException e) {
+            // The service answered, so the client and its connection are ready even if the call is not authorized
+            logger.debug(
+                    "{} warm-up call in region {} answered with {}. Details: {}",
+                    service,
+                    region,
+                    e.statusCode(),
+                    e.getMessage());
+            return true;
+        } catch (Exception e) {
+            logger.warn("{} warm-up call in region {} failed. Details: {}", service, region, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -2,38 +2,166 @@ package com.witboost.provisioning.s3.config;
 
 import com.witboost.provisioning.framework.service.ProvisionConfiguration;
 import com.witboost.provisioning.framework.service.validation.ValidationConfiguration;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import com.witboost.provisioning.s3.client.BucketInventory;
+import com.witboost.provisioning.s3.client.BucketLeaseManager;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.service.BucketSingleFlight;
 import com.witboost.provisioning.s3.service.provision.StorageAreaProvisionService;
 import com.witboost.provisioning.s3.service.validation.StorageAreaValidationService;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.sts.StsClient;
 
 @Configuration
 public class ConfigurationBean {
 
-    private final Map<Region, S3Client> s3ClientCache = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(ConfigurationBean.class);
 
-    private final Map<Region, KmsClient> kmsClientCache = new ConcurrentHashMap<>();
+    private ClientRegistry<ClientKey, S3Client> s3ClientRegistry;
+
+    private ClientRegistry<ClientKey, KmsClient> kmsClientRegistry;
+
+    private ScheduledExecutorService clientEvictor;
 
     @Autowired
     BucketManager bucketManager;
 
-    @Bean
-    public StsClient stsClient() {
-        return StsClient.create();
+    @Autowired
+    BucketInventory bucketInventory;
+
+    @Autowired
+    @Qualifier("s3ClientProperties")
+    AwsClientProperties s3ClientProperties;
+
+    @Autowired
+    @Qualifier("kmsClientProperties")
+    AwsClientProperties kmsClientProperties;
+
+    @Autowired
+    AccountRouter accountRouter;
+
+    @Autowired
+    BucketSingleFlight bucketSingleFlight;
+
+    @Autowired
+    BucketLeaseManager bucketLeaseManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    SdkMetricsPublisher sdkMetricsPublisher;
+
+    @Value("${s3.provisioning-trace.enabled}")
+    boolean provisioningTraceEnabled;
+
+    @Value("${aws.client-registry.max-size}")
+    int clientRegistryMaxSize;
+
+    @Value("${aws.client-registry.idle-timeout-seconds}")
+    long clientIdleTimeoutSeconds;
+
+    @Value("${aws.client-registry.eviction-interval-seconds}")
+    long clientEvictionIntervalSeconds;
+
+    @PostConstruct
+    void startClientRegistries() {
+        Duration idleTimeout = Duration.ofSeconds(clientIdleTimeoutSeconds);
+        // Evicted clients stay open for one eviction interval, so that in-flight requests can complete
+        Duration gracePeriod = Duration.ofSeconds(clientEvictionIntervalSeconds);
+        s3ClientRegistry = new ClientRegistry<>(
+                "s3",
+                clientRegistryMaxSize,
+                idleTimeout,
+                gracePeriod,
+                key -> key.region().id(),
+                key -> key.account().name(),
+                (key, poolMetrics) -> S3Client.builder()
+                        .region(key.region())
+                        .credentialsProvider(accountRouter.credentialsProvider(key.account()))
+                        .httpClient(AwsClientFactory.httpClient(s3ClientProperties))
+                        .overrideConfiguration(AwsClientFactory.overrideConfiguration(
+                                s3ClientProperties, poolMetrics, sdkMetricsPublisher))
+                        .build(),
+                meterRegistry);
+        kmsClientRegistry = new ClientRegistry<>(
+                "kms",
+                clientRegistryMaxSize,
+                idleTimeout,
+                gracePeriod,
+                key -> key.region().id(),
+                key -> key.account().name(),
+                (key, poolMetrics) -> KmsClient.builder()
+                        .region(key.region())
+                        .credentialsProvider(accountRouter.credentialsProvider(key.account()))
+                        .httpClient(AwsClientFactory.httpClient(kmsClientProperties))
+                        .overrideConfiguration(AwsClientFactory.overrideConfiguration(
+                                kmsClientProperties, poolMetrics, sdkMetricsPublisher))
+                        .build(),
+                meterRegistry);
+        // The inventory refreshes buckets through the registry, so that it never uses a client evicted and closed
+        bucketInventory.useClientRegistry(
+                client -> s3ClientRegistry
+                        .keyOf(client)
+                        .map(key -> new BucketInventory.ClientLocation(key.account(), key.region())),
+                location -> getS3Client(location.account(), location.region()));
+
+        if (clientEvictionIntervalSeconds <= 0) return;
+        clientEvictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aws-client-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        clientEvictor.scheduleWithFixedDelay(
+                this::evictIdleClients, clientEvictionIntervalSeconds, clientEvictionIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void closeClientRegistries() {
+        if (clientEvictor != null) clientEvictor.shutdownNow();
+        clientRegistries().forEach(ClientRegistry::close);
+        logger.info("AWS clients closed.");
     }
 
+    void evictIdleClients() {
+        clientRegistries().forEach(ClientRegistry::evictIdle);
+    }
+
+    private List<ClientRegistry<ClientKey, ?>> clientRegistries() {
+        return List.of(s3ClientRegistry, kmsClientRegistry);
+    }
+
+    /** Clients are cached per target account and region. */
+    record ClientKey(AccountTarget account, Region region) {}
+
     @Bean
-    public StorageAreaProvisionService storageAreaProvisionService(StsClient stsClient) {
-        return new StorageAreaProvisionService(this::getS3Client, this::getKmsClient, stsClient, bucketManager);
+    public StorageAreaProvisionService storageAreaProvisionService() {
+        return new StorageAreaProvisionService(
+                this::getS3Client,
+                this::getKmsClient,
+                accountRouter,
+                bucketManager,
+                bucketSingleFlight,
+                bucketLeaseManager,
+                provisioningTraceEnabled);
     }
 
     @Bean
@@ -45,18 +173,24 @@ public class ConfigurationBean {
     }
 
     protected S3Client getS3Client(Region region) {
-        return s3ClientCache.computeIfAbsent(
-                region, r -> S3Client.builder().region(r).build());
+        return getS3Client(AccountTarget.DEFAULT, region);
+    }
+
+    protected S3Client getS3Client(AccountTarget account, Region region) {
+        return s3ClientRegistry.get(new ClientKey(account, region));
     }
 
     protected KmsClient getKmsClient(Region region) {
-        return kmsClientCache.computeIfAbsent(
-                region, r -> KmsClient.builder().region(r).build());
+        return getKmsClient(AccountTarget.DEFAULT, region);
+    }
+
+    protected KmsClient getKmsClient(AccountTarget account, Region region) {
+        return kmsClientRegistry.get(new ClientKey(account, region));
     }
 
     @Bean
     StorageAreaValidationService storageAreaValidationService(BucketManager bucketManager) {
-        return new StorageAreaValidationService(this::getS3Client, bucketManager);
+        return new StorageAreaValidationService(this::getS3Client, accountRouter, bucketManager, bucketSingleFlight);
     }
 
     @Bean
@@ -0,0 +1,42 @@
+package com.witboost.provisioning.s3.config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Keeps the connection pool state reported by the HTTP client of an AWS service client.
+ *
+ * <p>The SDK does not expose its connection pools, but reports their leased and available connections with the
+ * metrics of every request. The values are those observed by the last request, so they do not change while the client
+ * is idle.</p>
+ */
+final class ConnectionPoolMetrics implements MetricPublisher {
+
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        List<Integer> leasedValues = metricCollection.metricValues(HttpMetric.LEASED_CONCURRENCY);
+        if (!leasedValues.isEmpty()) leased.set(leasedValues.get(leasedValues.size() - 1));
+        List<Integer> availableValues = metricCollection.metricValues(HttpMetric.AVAILABLE_CONCURRENCY);
+        if (!availableValues.isEmpty()) available.set(availableValues.get(availableValues.size() - 1));
+        metricCollection.children().forEach(this::publish);
+    }
+
+    @Override
+    public void close() {}
+
+    /** Connections currently used by a request. */
+    int leasedConnections() {
+        return leased.get();
+    }
+
+    /** Connections open in the pool, leased or idle. */
+    int openConnections() {
+        return leased.get() + available.get();
+    }
+}
@@ -0,0 +1,37 @@
+package com.witboost.provisioning.s3.config;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Durable store of the checkpoints of the folder deletions, bound from {@code s3.delete.checkpoint.*}. */
+@NoArgsConstructor
+@Getter
+@Setter
+public class DeletionCheckpointProperties {
+
+    /** Where checkpoints are stored. */
+    public enum Store {
+        NONE,
+        FILE,
+        S3
+    }
+
+    private Store store = Store.NONE;
+
+    /** Directory of the {@code FILE} store. It must survive the restarts of the adapter. */
+    private String directory;
+
+    /** Bucket of the {@code S3} store, shared by all the replicas. It must exist. */
+    private String bucket;
+
+    /** Region of the bucket of the {@code S3} store. */
+    private String region;
+
+    /** Endpoint of the bucket of the {@code S3} store, to use an S3-compatible store instead of Amazon S3. */
+    private String endpoint;
+
+    private boolean pathStyleAccess = false;
+
+    private String keyPrefix = "deletion-checkpoints/";
+}
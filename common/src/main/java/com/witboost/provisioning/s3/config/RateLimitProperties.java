@@ -0,0 +1,38 @@
+package com.witboost.provisioning.s3.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Adaptive rate limit of the bulk list and delete requests sent to a prefix of a bucket, bound from
+ * {@code s3.rate-limit.*}. Rates are in requests per second, where each key of a {@code DeleteObjects} request counts
+ * as one request.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Rate of a prefix that has no request in flight. Amazon S3 supports at least 3500 deletions per second. */
+    private double initialRate = 3500;
+
+    private double minRate = 100;
+
+    private double maxRate = 7000;
+
+    /** Rate added after each adjustment interval with healthy responses only. */
+    private double increaseStep = 100;
+
+    /** Factor applied to the rate when S3 responds with {@code SlowDown}. */
+    private double decreaseFactor = 0.5;
+
+    /** Minimum time between two changes of the rate, so that the responses to requests in flight are not counted twice. */
+    private Duration adjustmentInterval = Duration.ofSeconds(1);
+
+    /** Attempts of a request throttled by S3, including the first one. */
+    private int maxAttempts = 5;
+}
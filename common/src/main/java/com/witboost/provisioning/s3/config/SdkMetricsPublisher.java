@@ -0,0 +1,112 @@
+package com.witboost.provisioning.s3.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Optional;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Publishes the metrics the AWS SDK collects for every API call as Micrometer meters, tagged by service and operation.
+ *
+ * <p>The SDK reports a collection per API call, with a child per attempt, itself with a child for the HTTP client.
+ * From them are recorded:</p>
+ * <ul>
+ *     <li>{@code aws.sdk.api.call.duration}: duration of the API call, retries included, by outcome.</li>
+ *     <li>{@code aws.sdk.api.call.retries}: retries of the API calls.</li>
+ *     <li>{@code aws.sdk.api.call.attempt.errors}: failed attempts, by error type ({@code Throttling},
+ *     {@code ServerError}, {@code ConfiguredTimeout}, {@code IO} or {@code Other}).</li>
+ *     <li>{@code aws.sdk.api.call.time.to.first.byte}: time from the request to the first byte of the response.</li>
+ *     <li>{@code aws.sdk.http.connections.acquire.duration}, {@code aws.sdk.http.connections.leased} and
+ *     {@code aws.sdk.http.connections.pending}: time to get a connection from the pool, and connections in use and
+ *     requests waiting for one when an attempt started.</li>
+ * </ul>
+ *
+ * <p>A single instance is shared by all the clients, so closing a client does not close it.</p>
+ */
+final class SdkMetricsPublisher implements MetricPublisher {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    SdkMetricsPublisher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(MetricCollection apiCall) {
+        String service = first(apiCall, CoreMetric.SERVICE_ID).orElse(UNKNOWN);
+        String operation = first(apiCall, CoreMetric.OPERATION_NAME).orElse(UNKNOWN);
+
+        first(apiCall, CoreMetric.API_CALL_DURATION).ifPresent(duration -> Timer.builder("aws.sdk.api.call.duration")
+                .description("Duration of the AWS API calls, retries included")
+                .tags(
+                        "service",
+                        service,
+                        "operation",
+                        operation,
+                        "outcome",
+                        first(apiCall, CoreMetric.API_CALL_SUCCESSFUL).orElse(false) ? "success" : "failure")
+                .register(meterRegistry)
+                .record(duration));
+        first(apiCall, CoreMetric.RETRY_COUNT).filter(retries -> retries > 0).ifPresent(retries -> Counter.builder(
+                        "aws.sdk.api.call.retries")
+                .description("Retries of the AWS API calls")
+                .tags("service", service, "operation", operation)
+                .register(meterRegistry)
+                .increment(retries));
+
+        for (MetricCollection attempt : apiCall.children()) {
+            first(attempt, CoreMetric.ERROR_TYPE)
+                    .ifPresent(errorType -> Counter.builder("aws.sdk.api.call.attempt.errors")
+                            .description("Failed attempts of the AWS API calls")
+                            .tags("service", service, "operation", operation, "error.type", errorType)
+                            .register(meterRegistry)
+                            .increment());
+            first(attempt, CoreMetric.TIME_TO_FIRST_BYTE)
+                    .ifPresent(duration -> Timer.builder("aws.sdk.api.call.time.to.first.byte")
+                            .description("Time from the request to the first byte of the response")
+                            .tags("service", service, "operation", operation)
+                            .register(meterRegistry)
+                            .record(duration));
+            for (MetricCollection httpClient : attempt.children()) publishHttpClient(httpClient, service);
+        }
+    }
+
+    private void publishHttpClient(MetricCollection httpClient, String service) {
+        String client = first(httpClient, HttpMetric.HTTP_CLIENT_NAME).orElse(UNKNOWN);
+        first(httpClient, HttpMetric.CONCURRENCY_ACQUIRE_DURATION)
+                .ifPresent(duration -> Timer.builder("aws.sdk.http.connections.acquire.duration")
+                        .description("Time to get a connection from the pool of the HTTP client")
+                        .tags("service", service, "http.client", client)
+                        .register(meterRegistry)
+                        .record(duration));
+        first(httpClient, HttpMetric.LEASED_CONCURRENCY)
+                .ifPresent(leased -> DistributionSummary.builder("aws.sdk.http.connections.leased")
+                        .description("Connections in use when a request is sent")
+                        .tags("service", service, "http.client", client)
+                        .register(meterRegistry)
+                        .record(leased));
+        first(httpClient, HttpMetric.PENDING_CONCURRENCY_ACQUIRES)
+                .ifPresent(pending -> DistributionSummary.builder("aws.sdk.http.connections.pending")
+                        .description("Requests waiting for a connection when a request is sent")
+                        .tags("service", service, "http.client", client)
+                        .register(meterRegistry)
+                        .record(pending));
+    }
+
+    @Override
+    public void close() {}
+
+    private static <T> Optional<T> first(MetricCollection collection, SdkMetric<T> metric) {
+        List<T> values = collection.metricValues(metric);
+        return values.isEmpty() ? Optional.empty() : Optional.ofNullable(values.get(0));
+    }
+}
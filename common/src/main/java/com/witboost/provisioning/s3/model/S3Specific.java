@@ -28,4 +28,13 @@ public class S3Specific extends Specific {
     private IntelligentTieringConfiguration intelligentTieringConfiguration;
 
     private List<@Valid BucketTag> bucketTags;
+
+    /**
+     * Name of the target account to provision into, as configured in {@code aws.accounts.targets}. When unset, the
+     * account routed from the data product domain is used, or the account of the adapter's own credentials.
+     */
+    private String account;
+
+    /** Reconciles every bucket setting even if the configuration fingerprint stored on the bucket matches. */
+    private Boolean forceReconcile;
 }
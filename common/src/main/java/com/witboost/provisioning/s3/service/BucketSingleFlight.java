@@ -0,0 +1,128 @@
+package com.witboost.provisioning.s3.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coordinates concurrent operations on the same bucket within this instance.
+ *
+ * <p>Operations are identified by the bucket name and a request key describing their content. An operation started
+ * while an identical one is in flight does not run: it waits for the running one and returns its result. Operations
+ * on the same bucket with a different content run one at a time, on a lock shared by all the buckets of the same
+ * stripe.</p>
+ */
+@Component
+public class BucketSingleFlight {
+
+    private final Logger logger = LoggerFactory.getLogger(BucketSingleFlight.class);
+
+    private final Map<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final ReentrantLock[] locks;
+
+    private final Counter executed;
+    private final Counter coalesced;
+    private final Timer lockWait;
+
+    public BucketSingleFlight(
+            MeterRegistry meterRegistry,
+            @Value("${s3.single-flight.enabled}") boolean enabled,
+            @Value("${s3.single-flight.lock-stripes}") int lockStripes) {
+        this.enabled = enabled;
+        this.locks = new ReentrantLock[Math.max(1, lockStripes)];
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+        this.executed = Counter.builder("s3.bucket.single-flight.requests")
+                .tag("outcome", "executed")
+                .description("Bucket operations executed")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("s3.bucket.single-flight.requests")
+                .tag("outcome", "coalesced")
+                .description("Bucket operations that joined an identical operation in flight")
+                .register(meterRegistry);
+        this.lockWait = Timer.builder("s3.bucket.single-flight.lock.wait")
+                .description("Time spent waiting for a different operation on the same bucket to finish")
+                .register(meterRegistry);
+    }
+
+    /** Instance with the default settings and private metrics, for services built outside of the Spring context. */
+    public static BucketSingleFlight withDefaults() {
+        return new BucketSingleFlight(new SimpleMeterRegistry(), true, 64);
+    }
+
+    /**
+     * Runs an operation on a bucket, sharing the result of an identical operation in flight and serializing it with
+     * the different operations on the same bucket.
+     *
+     * @param bucketName the bucket the operation acts on.
+     * @param requestKey the content of the operation: operations with the same key are considered identical.
+     * @param action     the operation.
+     * @return the result of the operation, or of the identical operation it joined.
+     */
+    public <T> T execute(String bucketName, String requestKey, Supplier<T> action) {
+        if (!enabled) return action.get();
+        return run(new Key(bucketName, requestKey), () -> {
+            ReentrantLock lock = locks[Math.floorMod(bucketName.hashCode(), locks.length)];
+            long start = System.nanoTime();
+            lock.lock();
+            try {
+                lockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return action.get();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Runs an operation on a bucket, sharing the result of an identical operation in flight. Unlike
+     * {@link #execute}, different operations on the same bucket are not serialized, which suits read-only operations.
+     */
+    public <T> T coalesce(String bucketName, String requestKey, Supplier<T> action) {
+        if (!enabled) return action.get();
+        return run(new Key(bucketName, requestKey), action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T run(Key key, Supplier<T> action) {
+        CompletableFuture<T> own = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            logger.info("[Bucket: {}] Joining an identical operation in flight.", key.bucketName());
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+
+        executed.increment();
+        try {
+            T result = action.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private record Key(String bucketName, String requestKey) {}
+}
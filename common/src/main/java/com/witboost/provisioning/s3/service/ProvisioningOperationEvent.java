@@ -0,0 +1,57 @@
+package com.witboost.provisioning.s3.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a request served by the provisioning or the validation service, from the request to its
+ * result. The bucket and region are empty if the request was rejected before they could be resolved.
+ */
+@Name("com.witboost.s3.ProvisioningOperation")
+@Label("Provisioning Operation")
+@Description("Provision, unprovision or validation request of a Storage Area")
+@Category({"Witboost", "S3 Tech Adapter"})
+@StackTrace(false)
+public class ProvisioningOperationEvent extends Event {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Bucket")
+    public String bucket;
+
+    @Label("Region")
+    public String region;
+
+    @Label("Outcome")
+    public String outcome;
+
+    /** Starts the event of an operation. */
+    public static ProvisioningOperationEvent start(String operation) {
+        ProvisioningOperationEvent event = new ProvisioningOperationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    /** Sets the bucket the operation acts on and its region. */
+    public void target(String bucket, String region) {
+        this.bucket = bucket;
+        this.region = region;
+    }
+
+    /** Ends the event and commits it, if the recording in progress accepts it. */
+    public void finish(boolean success) {
+        end();
+        if (!shouldCommit()) return;
+        outcome = success ? SUCCESS : FAILURE;
+        commit();
+    }
+}
@@ -7,14 +7,26 @@ import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.model.common.Problem;
 import com.witboost.provisioning.model.request.ProvisionOperationRequest;
 import com.witboost.provisioning.model.status.ProvisionInfo;
+import com.witboost.provisioning.s3.client.AccountIdProvider;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import com.witboost.provisioning.s3.client.BucketLeaseManager;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.client.BucketReconciliation;
+import com.witboost.provisioning.s3.client.DeletionReport;
+import com.witboost.provisioning.s3.client.ObjectExpirationStatus;
+import com.witboost.provisioning.s3.client.ProvisioningTrace;
 import com.witboost.provisioning.s3.model.S3Specific;
+import com.witboost.provisioning.s3.service.BucketSingleFlight;
+import com.witboost.provisioning.s3.service.ProvisioningOperationEvent;
 import com.witboost.provisioning.s3.utils.S3Utils;
 import io.vavr.control.Either;
 import jakarta.validation.Valid;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,33 +34,164 @@ import org.springframework.stereotype.Service;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.sts.StsClient;
 
 @Service
 public class StorageAreaProvisionService implements ProvisionService {
 
     private final Logger logger = LoggerFactory.getLogger(StorageAreaProvisionService.class);
 
-    private final Function<Region, S3Client> s3ClientProvider;
-    private final Function<Region, KmsClient> kmsClientProvider;
+    private final BiFunction<AccountTarget, Region, S3Client> s3ClientProvider;
+    private final BiFunction<AccountTarget, Region, KmsClient> kmsClientProvider;
 
     private final BucketManager bucketManager;
-    private final StsClient stsClient;
+    private final AccountRouter accountRouter;
+
+    private final BucketSingleFlight singleFlight;
+    private final BucketLeaseManager bucketLeaseManager;
+
+    private final boolean provisioningTraceEnabled;
 
     public StorageAreaProvisionService(
             Function<Region, S3Client> s3ClientProvider,
             Function<Region, KmsClient> kmsClientProvider,
-            StsClient stsClient,
+            AccountIdProvider accountIdProvider,
             BucketManager bucketManager) {
+        this(
+                (account, region) -> s3ClientProvider.apply(region),
+                (account, region) -> kmsClientProvider.apply(region),
+                AccountRouter.singleAccount(accountIdProvider),
+                bucketManager,
+                BucketSingleFlight.withDefaults(),
+                BucketLeaseManager.disabled());
+    }
+
+    /**
+     * Creates a service that provisions into the target account resolved by {@code accountRouter} for each request,
+     * with clients provided per target account and region. Concurrent requests for the same bucket are coordinated
+     * by {@code singleFlight} within the instance, and by {@code bucketLeaseManager} across replicas.
+     */
+    public StorageAreaProvisionService(
+            BiFunction<AccountTarget, Region, S3Client> s3ClientProvider,
+            BiFunction<AccountTarget, Region, KmsClient> kmsClientProvider,
+            AccountRouter accountRouter,
+            BucketManager bucketManager,
+            BucketSingleFlight singleFlight,
+            BucketLeaseManager bucketLeaseManager) {
+        this(
+                s3ClientProvider,
+                kmsClientProvider,
+                accountRouter,
+                bucketManager,
+                singleFlight,
+                bucketLeaseManager,
+                false);
+    }
+
+    /**
+     * Like {@link #StorageAreaProvisionService(BiFunction, BiFunction, AccountRouter, BucketManager,
+     * BucketSingleFlight, BucketLeaseManager)}. If {@code provisioningTraceEnabled} is set, {@link #provision} also returns in the private info the time spent in each {@link ProvisioningTrace.Phase}
+     * and the AWS calls issued and skipped.
+     */
+    public StorageAreaProvisionService(
+            BiFunction<AccountTarget, Region, S3Client> s3ClientProvider,
+            BiFunction<AccountTarget, Region, KmsClient> kmsClientProvider,
+            AccountRouter accountRouter,
+            BucketManager bucketManager,
+            BucketSingleFlight singleFlight,
+            BucketLeaseManager bucketLeaseManager,
+            boolean provisioningTraceEnabled) {
         this.s3ClientProvider = s3ClientProvider;
         this.kmsClientProvider = kmsClientProvider;
         this.bucketManager = bucketManager;
-        this.stsClient = stsClient;
+        this.accountRouter = accountRouter;
+        this.singleFlight = singleFlight;
+        this.bucketLeaseManager = bucketLeaseManager;
+        this.provisioningTraceEnabled = provisioningTraceEnabled;
     }
 
     @Override
     public Either<FailedOperation, ProvisionInfo> provision(
             ProvisionOperationRequest<?, ? extends Specific> operationRequest) {
+        ProvisioningOperationEvent event = ProvisioningOperationEvent.start("provision");
+        Either<FailedOperation, ProvisionInfo> result = null;
+        try (ProvisioningTrace trace = ProvisioningTrace.open()) {
+            result = provision(operationRequest, trace, event);
+            return result;
+        } finally {
+            event.finish(result != null && result.isRight());
+        }
+    }
+
+    private Either<FailedOperation, ProvisionInfo> provision(
+            ProvisionOperationRequest<?, ? extends Specific> operationRequest,
+            ProvisioningTrace trace,
+            ProvisioningOperationEvent event) {
+
+        long phaseStart = ProvisioningTrace.start();
+        var target = getProvisionTarget(operationRequest);
+        if (target.isLeft()) return Either.left(target.getLeft());
+        ProvisioningTrace.record(ProvisioningTrace.Phase.VALIDATION, phaseStart);
+
+        ProvisionTarget provisionTarget = target.get();
+        Region region = Region.of(provisionTarget.s3Specific().getRegion());
+        event.target(provisionTarget.bucketName(), region.id());
+
+        // Get the clients of the target account from the provider (cached or new)
+        S3Client s3Client = s3ClientProvider.apply(provisionTarget.account(), region);
+        KmsClient kmsClient = kmsClientProvider.apply(provisionTarget.account(), region);
+
+        // Identical concurrent requests share one reconciliation, different ones for the same bucket are serialized,
+        // also with the other replicas when the bucket lease is enabled. The expiration rules left on the folder by
+        // its unprovisioning are removed within the same reconciliation, as they are part of the lifecycle
+        // configuration of the bucket, and the provisioning fails while they have not expired all of its objects
+        Either<FailedOperation, BucketReconciliation> bucketCreationResult = singleFlight.execute(
+                provisionTarget.bucketName(),
+                requestKey(provisionTarget),
+                () -> bucketLeaseManager.withLease(provisionTarget.bucketName(), () -> accountRouter
+                        .getAccountId(provisionTarget.account())
+                        .flatMap(accountId -> bucketManager.createOrUpdateBucket(
+                                s3Client,
+                                kmsClient,
+                                provisionTarget.bucketName(),
+                                provisionTarget.s3Specific(),
+                                accountId))
+                        .flatMap(reconciliation -> bucketManager
+                                .clearObjectExpiration(
+                                        s3Client,
+                                        provisionTarget.bucketName(),
+                                        provisionTarget.folderPath(),
+                                        Boolean.TRUE.equals(
+                                                provisionTarget.s3Specific().getMultipleVersion()),
+                                        reconciliation)
+                                .map(ignored -> reconciliation))));
+
+        if (bucketCreationResult.isLeft()) return Either.left(bucketCreationResult.getLeft());
+
+        phaseStart = ProvisioningTrace.start();
+        Either<FailedOperation, Void> folderCreationResult =
+                bucketManager.createFolder(s3Client, provisionTarget.bucketName(), provisionTarget.folderPath());
+
+        if (folderCreationResult.isLeft()) return Either.left(folderCreationResult.getLeft());
+        ProvisioningTrace.record(ProvisioningTrace.Phase.FOLDER_CREATION, phaseStart);
+
+        return Either.right(buildProvisionInfo(provisionTarget, provisioningTraceEnabled ? trace : null));
+    }
+
+    /**
+     * Identifies the bucket configuration and the folder requested by a provisioning request. The bucket policy is
+     * left out of the fingerprint, as it only depends on the bucket name.
+     */
+    private static String requestKey(ProvisionTarget provisionTarget) {
+        return String.join(
+                "|",
+                provisionTarget.account().name(),
+                provisionTarget.folderPath(),
+                String.valueOf(Boolean.TRUE.equals(provisionTarget.s3Specific().getForceReconcile())),
+                S3Utils.computeConfigurationFingerprint(provisionTarget.s3Specific(), ""));
+    }
+
+    private Either<FailedOperation, ProvisionTarget> getProvisionTarget(
+            ProvisionOperationRequest<?, ? extends Specific> operationRequest) {
 
         var component = getComponent(operationRequest);
         if (component.isLeft()) return Either.left(component.getLeft());
@@ -59,73 +202,153 @@ public class StorageAreaProvisionService implements ProvisionService {
                     component.get().getName());
             logger.error(error);
             return Either.left(new FailedOperation(error, List.of(new Problem(error))));
-        } else {
-
-            Either<FailedOperation, S3Specific> s3SpecificEither = getS3Specific(component.get());
-            if (s3SpecificEither.isLeft()) return Either.left(s3SpecificEither.getLeft());
-
-            S3Specific s3Specific = s3SpecificEither.get();
-            Region region = Region.of(s3Specific.getRegion());
-
-            // Get the S3Client from the provider (cached or new)
-            S3Client s3Client = s3ClientProvider.apply(region);
-            KmsClient kmsClient = kmsClientProvider.apply(region);
+        }
 
-            String bucketName = S3Utils.computeBucketName(operationRequest.getDataProduct(), storageArea);
+        Either<FailedOperation, S3Specific> s3SpecificEither = getS3Specific(component.get());
+        if (s3SpecificEither.isLeft()) return Either.left(s3SpecificEither.getLeft());
 
-            Either<FailedOperation, Void> bucketCreationResult = bucketManager.createOrUpdateBucket(
-                    s3Client,
-                    kmsClient,
-                    bucketName,
-                    s3Specific,
-                    stsClient.getCallerIdentity().account());
+        var account = accountRouter.resolve(s3SpecificEither.get().getAccount(), operationRequest.getDataProduct());
+        if (account.isLeft()) return Either.left(account.getLeft());
 
-            if (bucketCreationResult.isLeft()) return Either.left(bucketCreationResult.getLeft());
+        String bucketName = S3Utils.computeBucketName(operationRequest.getDataProduct(), storageArea);
 
-            String[] componentIdParts = component.get().getId().split(":");
-            String dpVersion = componentIdParts[componentIdParts.length - 2];
-            String folderPath = "v" + dpVersion;
-            String location = String.format("s3://%s/%s", bucketName, folderPath);
+        String[] componentIdParts = component.get().getId().split(":");
+        String dpVersion = componentIdParts[componentIdParts.length - 2];
+        String folderPath = "v" + dpVersion;
 
-            Either<FailedOperation, Void> folderCreationResult =
-                    bucketManager.createFolder(s3Client, bucketName, folderPath);
+        return Either.right(new ProvisionTarget(
+                component.get().getName(), s3SpecificEither.get(), account.get(), bucketName, folderPath));
+    }
 
-            if (folderCreationResult.isLeft()) return Either.left(folderCreationResult.getLeft());
+    private ProvisionInfo buildProvisionInfo(ProvisionTarget provisionTarget, ProvisioningTrace trace) {
+        String location = String.format("s3://%s/%s", provisionTarget.bucketName(), provisionTarget.folderPath());
 
-            var info = Map.of(
-                    "bucket",
-                    Map.of(
-                            "type", "string",
-                            "label", "Bucket name",
-                            "value", bucketName),
-                    "folder",
+        var info = Map.of(
+                "bucket",
+                Map.of(
+                        "type", "string",
+                        "label", "Bucket name",
+                        "value", provisionTarget.bucketName()),
+                "folder",
+                Map.of(
+                        "type", "string",
+                        "label", "Folder name",
+                        "value", provisionTarget.folderPath()),
+                "location",
+                Map.of(
+                        "type", "string",
+                        "label", "Location",
+                        "value", location));
+
+        // The breakdown of the request is only shown to the platform
+        Map<String, Object> privateInfo = new LinkedHashMap<>(info);
+        if (trace != null) {
+            for (ProvisioningTrace.Phase phase : ProvisioningTrace.Phase.values())
+                privateInfo.put(
+                        phaseKey(phase),
+                        Map.of(
+                                "type", "string",
+                                "label", phaseLabel(phase),
+                                "value", String.valueOf(trace.phaseMillis(phase))));
+            privateInfo.put(
+                    "awsCalls",
                     Map.of(
                             "type", "string",
-                            "label", "Folder name",
-                            "value", folderPath),
-                    "location",
+                            "label", "AWS calls issued",
+                            "value", String.valueOf(trace.awsCalls())));
+            privateInfo.put(
+                    "skippedAwsCalls",
                     Map.of(
                             "type", "string",
-                            "label", "Location",
-                            "value", location));
+                            "label", "AWS calls skipped",
+                            "value", String.valueOf(trace.skippedAwsCalls())));
+        }
 
-            ProvisionInfo provisionInfo = ProvisionInfo.builder()
-                    .privateInfo(Optional.of(info))
-                    .publicInfo(Optional.of(info))
-                    .build();
+        ProvisionInfo provisionInfo = ProvisionInfo.builder()
+                .privateInfo(Optional.of(privateInfo))
+                .publicInfo(Optional.of(info))
+                .build();
 
-            logger.info(String.format(
-                    "Provisioning of %s completed successfully", component.get().getName()));
-            return Either.right(provisionInfo);
-        }
+        logger.info(String.format("Provisioning of %s completed successfully", provisionTarget.componentName()));
+        return provisionInfo;
+    }
+
+    private static String phaseKey(ProvisioningTrace.Phase phase) {
+        return switch (phase) {
+            case VALIDATION -> "validationMillis";
+            case EXISTENCE_CHECK -> "existenceCheckMillis";
+            case CREATE_AND_WAIT -> "createAndWaitMillis";
+            case CONFIGURATION -> "configurationMillis";
+            case FOLDER_CREATION -> "folderCreationMillis";
+        };
+    }
+
+    private static String phaseLabel(ProvisioningTrace.Phase phase) {
+        return switch (phase) {
+            case VALIDATION -> "Validation time (ms)";
+            case EXISTENCE_CHECK -> "Bucket existence check time (ms)";
+            case CREATE_AND_WAIT -> "Bucket creation time (ms)";
+            case CONFIGURATION -> "Bucket configuration time (ms)";
+            case FOLDER_CREATION -> "Folder creation time (ms)";
+        };
     }
 
     @Override
     public Either<FailedOperation, ProvisionInfo> unprovision(
             ProvisionOperationRequest<?, ? extends Specific> operationRequest) {
+        ProvisioningOperationEvent event = ProvisioningOperationEvent.start("unprovision");
+        Either<FailedOperation, ProvisionInfo> result = null;
+        try {
+            result = unprovision(operationRequest, event);
+            return result;
+        } finally {
+            event.finish(result != null && result.isRight());
+        }
+    }
 
-        var component = getComponent(operationRequest);
-        if (component.isLeft()) return Either.left(component.getLeft());
+    private Either<FailedOperation, ProvisionInfo> unprovision(
+            ProvisionOperationRequest<?, ? extends Specific> operationRequest, ProvisioningOperationEvent event) {
+
+        var target = getProvisionTarget(operationRequest);
+        if (target.isLeft()) return Either.left(target.getLeft());
+
+        ProvisionTarget provisionTarget = target.get();
+        event.target(provisionTarget.bucketName(), provisionTarget.s3Specific().getRegion());
+
+        // The folder holds the data of the component, which is only deleted when the platform asks for it
+        if (!operationRequest.isRemoveData()) {
+            logger.info(String.format(
+                    "Unprovisioning of %s completed successfully, its data was kept as removeData is not set",
+                    provisionTarget.componentName()));
+            var info = Map.of(
+                    "result",
+                    Map.of(
+                            "type",
+                            "string",
+                            "label",
+                            "Operation result",
+                            "value",
+                            String.format(
+                                    "Unprovisioning of %s completed successfully, the data of its folder was kept",
+                                    provisionTarget.componentName())));
+            return Either.right(ProvisionInfo.builder()
+                    .privateInfo(Optional.of(info))
+                    .publicInfo(Optional.of(info))
+                    .build());
+        }
+
+        S3Client s3Client = s3ClientProvider.apply(
+                provisionTarget.account(),
+                Region.of(provisionTarget.s3Specific().getRegion()));
+
+        // Removing the folder is serialized with the provisioning of the same bucket, like a different configuration
+        Either<FailedOperation, FolderDeletion> folderDeletionResult = singleFlight.execute(
+                provisionTarget.bucketName(),
+                String.join("|", "unprovision", provisionTarget.account().name(), provisionTarget.folderPath()),
+                () -> bucketLeaseManager.withLease(
+                        provisionTarget.bucketName(), () -> deleteFolder(s3Client, provisionTarget)));
+        if (folderDeletionResult.isLeft()) return Either.left(folderDeletionResult.getLeft());
+        FolderDeletion folderDeletion = folderDeletionResult.get();
 
         var info = Map.of(
                 "result",
@@ -135,21 +358,109 @@ public class StorageAreaProvisionService implements ProvisionService {
                         "label",
                         "Operation result",
                         "value",
-                        String.format(
-                                "Unprovisioning of %s completed successfully",
-                                component.get().getName())));
+                        folderDeletion.expiration() == ObjectExpirationStatus.IN_PROGRESS
+                                ? String.format(
+                                        "Unprovisioning of %s accepted, the objects of its folder are being expired by S3",
+                                        provisionTarget.componentName())
+                                : String.format(
+                                        "Unprovisioning of %s completed successfully",
+                                        provisionTarget.componentName())));
+
+        // The storage reclaimed by purging a versioned folder is only shown to the platform
+        Map<String, Object> privateInfo = new LinkedHashMap<>(info);
+        folderDeletion.report().ifPresent(report -> {
+            privateInfo.put(
+                    "deletedVersions",
+                    Map.of(
+                            "type", "string",
+                            "label", "Object versions deleted",
+                            "value", String.valueOf(report.versions())));
+            privateInfo.put(
+                    "deletedDeleteMarkers",
+                    Map.of(
+                            "type", "string",
+                            "label", "Delete markers removed",
+                            "value", String.valueOf(report.deleteMarkers())));
+            privateInfo.put(
+                    "reclaimedBytes",
+                    Map.of(
+                            "type", "string",
+                            "label", "Storage reclaimed (bytes)",
+                            "value", String.valueOf(report.bytes())));
+        });
+        if (folderDeletion.expiration() != ObjectExpirationStatus.NONE)
+            privateInfo.put(
+                    "objectExpiration",
+                    Map.of(
+                            "type", "string",
+                            "label", "Lifecycle expiration of the folder",
+                            "value", folderDeletion.expiration().name()));
 
         ProvisionInfo provisionInfo = ProvisionInfo.builder()
-                .privateInfo(Optional.of(info))
+                .privateInfo(Optional.of(privateInfo))
                 .publicInfo(Optional.of(info))
                 .build();
 
         logger.info(String.format(
-                "Unprovisioning of %s completed successfully", component.get().getName()));
+                "Unprovisioning of %s completed successfully%s",
+                provisionTarget.componentName(),
+                folderDeletion.expiration() == ObjectExpirationStatus.IN_PROGRESS
+                        ? ", its objects are being expired"
+                        : ""));
 
         return Either.right(provisionInfo);
     }
 
+    /**
+     * Deletes the folder of the data product version and all the objects under it. The bucket itself is kept, since
+     * it is shared by all the versions of the data product. In a versioned bucket all the versions of the objects are
+     * purged, since deleting the objects would only hide them behind delete markers.
+     *
+     * <p>Folders too large to be deleted through the API in a reasonable time are expired by lifecycle rules instead,
+     * and the unprovisioning returns as soon as they are installed. Unprovisioning the folder again reports whether
+     * S3 has expired all of its objects.</p>
+     *
+     * @return the outcome of the deletion, with the report of the purge if the bucket is versioned and the folder
+     *         was deleted through the API.
+     */
+    private Either<FailedOperation, FolderDeletion> deleteFolder(S3Client s3Client, ProvisionTarget provisionTarget) {
+        String bucketName = provisionTarget.bucketName();
+        String folderPath = provisionTarget.folderPath();
+        boolean versions = Boolean.TRUE.equals(provisionTarget.s3Specific().getMultipleVersion());
+        return bucketManager.doesBucketExist(s3Client, bucketName).flatMap(exists -> {
+            if (!exists) {
+                logger.info("Bucket '{}' does not exist, there is no folder '{}' to delete.", bucketName, folderPath);
+                return Either.right(new FolderDeletion(Optional.empty(), ObjectExpirationStatus.NONE));
+            }
+            return bucketManager
+                    .getObjectExpirationStatus(s3Client, bucketName, folderPath, versions)
+                    .flatMap(expiration -> {
+                        // The folder is already being expired by a previous unprovisioning
+                        if (expiration != ObjectExpirationStatus.NONE)
+                            return Either.right(new FolderDeletion(Optional.empty(), expiration));
+                        return bucketManager
+                                .planPrefixDeletion(s3Client, bucketName, folderPath, versions)
+                                .flatMap(plan -> {
+                                    if (plan.expire())
+                                        return bucketManager
+                                                .expireObjectsWithPrefix(s3Client, bucketName, folderPath)
+                                                .map(ignored -> new FolderDeletion(
+                                                        Optional.empty(), ObjectExpirationStatus.IN_PROGRESS));
+                                    // The pages listed to plan the deletion are deleted without listing them again
+                                    if (versions)
+                                        return bucketManager
+                                                .purgeObjectVersionsWithPrefix(s3Client, bucketName, folderPath, plan)
+                                                .map(report -> new FolderDeletion(
+                                                        Optional.of(report), ObjectExpirationStatus.NONE));
+                                    return bucketManager
+                                            .deleteObjectsWithPrefix(s3Client, bucketName, folderPath, plan)
+                                            .map(ignored ->
+                                                    new FolderDeletion(Optional.empty(), ObjectExpirationStatus.NONE));
+                                });
+                    });
+        });
+    }
+
     private Either<FailedOperation, S3Specific> getS3Specific(
             com.witboost.provisioning.model.Component<? extends Specific> component) {
 
@@ -175,4 +486,11 @@ public class StorageAreaProvisionService implements ProvisionService {
 
         return Either.right(component.get());
     }
+
+    /** Outcome of the deletion of a folder: the report of a versioned purge, or the progress of its expiration. */
+    private record FolderDeletion(Optional<DeletionReport> report, ObjectExpirationStatus expiration) {}
+
+    /** The account, bucket and folder a provisioning request resolves to. */
+    private record ProvisionTarget(
+            String componentName, S3Specific s3Specific, AccountTarget account, String bucketName, String folderPath) {}
 }
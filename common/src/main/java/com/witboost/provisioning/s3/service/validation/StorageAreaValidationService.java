@@ -6,12 +6,19 @@ import com.witboost.provisioning.model.Specific;
 import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.model.common.Problem;
 import com.witboost.provisioning.model.request.OperationRequest;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.client.BucketProbe;
 import com.witboost.provisioning.s3.model.S3Specific;
+import com.witboost.provisioning.s3.service.BucketSingleFlight;
+import com.witboost.provisioning.s3.service.ProvisioningOperationEvent;
 import com.witboost.provisioning.s3.utils.S3Utils;
 import io.vavr.control.Either;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,17 +33,45 @@ public class StorageAreaValidationService implements ComponentValidationService
 
     private final Logger logger = LoggerFactory.getLogger(StorageAreaValidationService.class);
 
-    private final Function<Region, S3Client> s3ClientProvider;
+    private final BiFunction<AccountTarget, Region, S3Client> s3ClientProvider;
+    private final AccountRouter accountRouter;
     private final BucketManager bucketManager;
+    private final BucketSingleFlight singleFlight;
 
     public StorageAreaValidationService(Function<Region, S3Client> s3ClientProvider, BucketManager bucketManager) {
+        this(
+                (account, region) -> s3ClientProvider.apply(region),
+                AccountRouter.singleAccount(null),
+                bucketManager,
+                BucketSingleFlight.withDefaults());
+    }
+
+    public StorageAreaValidationService(
+            BiFunction<AccountTarget, Region, S3Client> s3ClientProvider,
+            AccountRouter accountRouter,
+            BucketManager bucketManager,
+            BucketSingleFlight singleFlight) {
         this.s3ClientProvider = s3ClientProvider;
+        this.accountRouter = accountRouter;
         this.bucketManager = bucketManager;
+        this.singleFlight = singleFlight;
     }
 
     @Override
     public Either<FailedOperation, Void> validate(
             @Valid OperationRequest<?, ? extends Specific> operationRequest, OperationType operationType) {
+        ProvisioningOperationEvent event = ProvisioningOperationEvent.start("validate");
+        Either<FailedOperation, Void> result = null;
+        try {
+            result = validate(operationRequest, event);
+            return result;
+        } finally {
+            event.finish(result != null && result.isRight());
+        }
+    }
+
+    private Either<FailedOperation, Void> validate(
+            OperationRequest<?, ? extends Specific> operationRequest, ProvisioningOperationEvent event) {
 
         var cmp = operationRequest.getComponent();
         if (cmp.isEmpty()) {
@@ -55,17 +90,37 @@ public class StorageAreaValidationService implements ComponentValidationService
             return Either.left(new FailedOperation(error, List.of(new Problem(error))));
         }
 
-        Region region = Region.of(((S3Specific) componentSpecific).getRegion());
-        S3Client s3Client = s3ClientProvider.apply(region);
+        S3Specific s3Specific = (S3Specific) componentSpecific;
+        var account = accountRouter.resolve(s3Specific.getAccount(), operationRequest.getDataProduct());
+        if (account.isLeft()) return Either.left(account.getLeft());
+
+        Region region = Region.of(s3Specific.getRegion());
+        S3Client s3Client = s3ClientProvider.apply(account.get(), region);
 
         String bucketName = S3Utils.computeBucketName(operationRequest.getDataProduct(), component);
+        event.target(bucketName, region.id());
+
+        // Identical concurrent validations of the same bucket share one probe
+        return singleFlight.coalesce(
+                bucketName,
+                String.join("|", "validate", account.get().name(), region.id()),
+                () -> validateBucket(s3Client, bucketName, region));
+    }
 
-        Either<FailedOperation, Boolean> bucketExists = bucketManager.doesBucketExist(s3Client, bucketName);
-        if (bucketExists.isLeft()) return Either.left(bucketExists.getLeft());
+    private Either<FailedOperation, Void> validateBucket(S3Client s3Client, String bucketName, Region region) {
+        Either<FailedOperation, BucketProbe> bucketProbe = bucketManager.probeBucket(s3Client, bucketName);
+        if (bucketProbe.isLeft()) return Either.left(bucketProbe.getLeft());
+
+        Optional<String> accessError = bucketProbe.get().accessError(bucketName);
+        if (accessError.isPresent()) {
+            logger.error(accessError.get());
+            return Either.left(new FailedOperation(accessError.get(), List.of(new Problem(accessError.get()))));
+        }
 
         // Bucket already exists
-        if (bucketExists.get()) {
-            Either<FailedOperation, String> existingRegion = bucketManager.getBucketRegion(s3Client, bucketName);
+        if (bucketProbe.get().exists()) {
+            Either<FailedOperation, String> existingRegion =
+                    bucketManager.resolveBucketRegion(s3Client, bucketName, bucketProbe.get());
             if (existingRegion.isLeft()) return Either.left(existingRegion.getLeft());
 
             if (!region.id().equals(existingRegion.get())) {
@@ -1,12 +1,24 @@
 package com.witboost.provisioning.s3.utils;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.witboost.provisioning.model.Component;
 import com.witboost.provisioning.model.DataProduct;
+import com.witboost.provisioning.s3.model.IntelligentTieringConfiguration;
+import com.witboost.provisioning.s3.model.LifeCycleConfiguration;
+import com.witboost.provisioning.s3.model.S3Specific;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
 
 public class S3Utils {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     /**
      * Computes a bucket name based on the domain, name, and environment of a DataProduct.
      * The bucket name is truncated to 58 characters if it's too long, and a hash (SHA-256) is appended.
@@ -31,6 +43,55 @@ public class S3Utils {
         return bucketNameWithoutHash + hash.substring(0, 5);
     }
 
+    /**
+     * Computes a stable fingerprint of the bucket configuration requested by an {@link S3Specific}.
+     * The specific is first normalized, so that values with the same effect on the bucket (e.g. a missing encryption
+     * and AES256, or the same tags in a different order) produce the same fingerprint. The bucket policy is part of
+     * the fingerprint, so a change in the policy template invalidates it as well.
+     *
+     * @param s3Specific   the requested bucket configuration.
+     * @param bucketPolicy the bucket policy that is applied to the bucket.
+     * @return the SHA-256 hex digest of the normalized configuration.
+     */
+    public static String computeConfigurationFingerprint(S3Specific s3Specific, String bucketPolicy) {
+        boolean versioning = Boolean.TRUE.equals(s3Specific.getMultipleVersion());
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        normalized.put("region", s3Specific.getRegion());
+        normalized.put(
+                "encryption",
+                ServerSideEncryption.AWS_KMS.equals(s3Specific.getServerSideEncryption())
+                        ? ServerSideEncryption.AWS_KMS.toString()
+                        : ServerSideEncryption.AES256.toString());
+        normalized.put("versioning", versioning);
+
+        LifeCycleConfiguration lifeCycleConfiguration = s3Specific.getLifeCycleConfiguration();
+        if (versioning && lifeCycleConfiguration != null && lifeCycleConfiguration.getPermanentlyDelete() != null) {
+            normalized.put(
+                    "lifecycle",
+                    List.of(
+                            lifeCycleConfiguration.getPermanentlyDelete().getDaysAfterBecomeNonCurrent(),
+                            lifeCycleConfiguration.getPermanentlyDelete().getNumberOfVersionsToRetain()));
+        }
+
+        IntelligentTieringConfiguration tiering = s3Specific.getIntelligentTieringConfiguration();
+        if (tiering != null && Boolean.TRUE.equals(tiering.getArchiveAccessTierEnabled()))
+            normalized.put("archiveAccessTierDays", tiering.getArchiveAccessTierDays());
+        if (tiering != null && Boolean.TRUE.equals(tiering.getDeepArchiveAccessTierEnabled()))
+            normalized.put("deepArchiveAccessTierDays", tiering.getDeepArchiveAccessTierDays());
+
+        Map<String, String> tags = new TreeMap<>();
+        if (s3Specific.getBucketTags() != null)
+            s3Specific.getBucketTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+        normalized.put("tags", tags);
+        normalized.put("policy", bucketPolicy);
+
+        try {
+            return sha256(OBJECT_MAPPER.writeValueAsString(normalized));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unable to serialize the bucket configuration", e);
+        }
+    }
+
     private static String normalize(String s) {
         return s.replaceAll("[^\\w]", "");
     }
@@ -0,0 +1,114 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
+
+class AccountIdProviderTest {
+
+    @Mock
+    private StsClient stsClient;
+
+    @Mock
+    private AwsCredentialsProvider credentialsProvider;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AccountIdProvider accountIdProvider;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        accountIdProvider = new AccountIdProvider(stsClient, credentialsProvider, meterRegistry, 3600);
+
+        when(credentialsProvider.resolveCredentials()).thenReturn(AwsBasicCredentials.create("accessKey", "secret"));
+        when(stsClient.getCallerIdentity())
+                .thenReturn(GetCallerIdentityResponse.builder()
+                        .account("123456789012")
+                        .build());
+    }
+
+    @Test
+    void testGetAccountId_cached() {
+        assertEquals("123456789012", accountIdProvider.getAccountId().get());
+        assertEquals("123456789012", accountIdProvider.getAccountId().get());
+
+        verify(stsClient, times(1)).getCallerIdentity();
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.account.resolutions", "cause", "initial")
+                        .count());
+        assertFalse(Double.isNaN(
+                meterRegistry.get("s3.account.cache.age.seconds").gauge().value()));
+    }
+
+    @Test
+    void testGetAccountId_expired() {
+        accountIdProvider = new AccountIdProvider(stsClient, credentialsProvider, meterRegistry, 0);
+
+        accountIdProvider.getAccountId();
+        accountIdProvider.getAccountId();
+
+        verify(stsClient, times(2)).getCallerIdentity();
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.account.resolutions", "cause", "expired")
+                        .count());
+    }
+
+    @Test
+    void testGetAccountId_credentialsRotated() {
+        accountIdProvider.getAccountId();
+        when(credentialsProvider.resolveCredentials())
+                .thenReturn(AwsBasicCredentials.create("otherAccessKey", "secret"));
+        when(stsClient.getCallerIdentity())
+                .thenReturn(GetCallerIdentityResponse.builder()
+                        .account("210987654321")
+                        .build());
+
+        assertEquals("210987654321", accountIdProvider.getAccountId().get());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.account.resolutions", "cause", "credentials-rotated")
+                        .count());
+    }
+
+    @Test
+    void testGetAccountId_failure() {
+        when(stsClient.getCallerIdentity()).thenThrow(new RuntimeException("STS error"));
+
+        Either<FailedOperation, String> result = accountIdProvider.getAccountId();
+
+        assertTrue(result.isLeft());
+        assertEquals(
+                "Error: An unexpected error occurred while resolving the caller account ID. Details: STS error",
+                result.getLeft().message());
+        assertTrue(Double.isNaN(
+                meterRegistry.get("s3.account.cache.age.seconds").gauge().value()));
+    }
+
+    @Test
+    void testInvalidate() {
+        accountIdProvider.getAccountId();
+
+        accountIdProvider.invalidate();
+        accountIdProvider.getAccountId();
+
+        verify(stsClient, times(2)).getCallerIdentity();
+    }
+}
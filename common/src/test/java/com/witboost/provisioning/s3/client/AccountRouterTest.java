@@ -0,0 +1,163 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.witboost.provisioning.model.DataProduct;
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.s3.config.AccountRoutingProperties;
+import io.vavr.control.Either;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.services.sts.model.AssumeRoleResponse;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+class AccountRouterTest {
+
+    @Mock
+    private AccountIdProvider accountIdProvider;
+
+    @Mock
+    private StsClient stsClient;
+
+    @Mock
+    private AwsCredentialsProvider defaultCredentialsProvider;
+
+    private AccountRoutingProperties properties;
+
+    private AccountRouter accountRouter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new AccountRoutingProperties();
+        properties.setTargets(Map.of(
+                "analytics", target("arn:aws:iam::210987654321:role/provisioner", "external-id"),
+                "sales", target("arn:aws:iam::111122223333:role/provisioner", null)));
+        properties.setRouting(Map.of("marketing", "sales"));
+        accountRouter = new AccountRouter(accountIdProvider, stsClient, defaultCredentialsProvider, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountRouter.close();
+    }
+
+    @Test
+    void testResolve_default() {
+        assertEquals(
+                AccountTarget.DEFAULT,
+                accountRouter.resolve(null, dataProduct("finance")).get());
+        assertEquals(AccountTarget.DEFAULT, accountRouter.resolve(null, null).get());
+    }
+
+    @Test
+    void testResolve_fromSpecific() {
+        AccountTarget target =
+                accountRouter.resolve("analytics", dataProduct("marketing")).get();
+
+        assertEquals("analytics", target.name());
+        assertEquals("210987654321", target.accountId());
+        assertEquals("external-id", target.externalId());
+    }
+
+    @Test
+    void testResolve_fromRouting() {
+        assertEquals(
+                "sales",
+                accountRouter.resolve(" ", dataProduct("marketing")).get().name());
+    }
+
+    @Test
+    void testResolve_unknownTarget() {
+        Either<FailedOperation, AccountTarget> result = accountRouter.resolve("unknown", dataProduct("finance"));
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("The target account 'unknown' is not configured"));
+    }
+
+    @Test
+    void testConstructor_invalidConfiguration() {
+        properties.setTargets(Map.of("analytics", target("not-an-arn", null)));
+        assertThrows(
+                IllegalStateException.class,
+                () -> new AccountRouter(accountIdProvider, stsClient, defaultCredentialsProvider, properties));
+
+        properties.setTargets(Map.of("default", target("arn:aws:iam::210987654321:role/provisioner", null)));
+        assertThrows(
+                IllegalStateException.class,
+                () -> new AccountRouter(accountIdProvider, stsClient, defaultCredentialsProvider, properties));
+
+        properties.setTargets(Map.of());
+        assertThrows(
+                IllegalStateException.class,
+                () -> new AccountRouter(accountIdProvider, stsClient, defaultCredentialsProvider, properties));
+    }
+
+    @Test
+    void testGetAccountId() {
+        when(accountIdProvider.getAccountId()).thenReturn(Either.right("123456789012"));
+
+        assertEquals(
+                "123456789012",
+                accountRouter.getAccountId(AccountTarget.DEFAULT).get());
+        assertEquals(
+                "111122223333",
+                accountRouter
+                        .getAccountId(accountRouter.resolve("sales", null).get())
+                        .get());
+        verify(accountIdProvider, times(1)).getAccountId();
+    }
+
+    @Test
+    void testCredentialsProvider() {
+        when(stsClient.assumeRole(any(AssumeRoleRequest.class)))
+                .thenReturn(AssumeRoleResponse.builder()
+                        .credentials(Credentials.builder()
+                                .accessKeyId("accessKey")
+                                .secretAccessKey("secret")
+                                .sessionToken("token")
+                                .expiration(Instant.now().plus(1, ChronoUnit.HOURS))
+                                .build())
+                        .build());
+        AccountTarget analytics = accountRouter.resolve("analytics", null).get();
+
+        AwsCredentialsProvider provider = accountRouter.credentialsProvider(analytics);
+        AwsCredentials credentials = provider.resolveCredentials();
+
+        assertSame(provider, accountRouter.credentialsProvider(analytics));
+        assertSame(defaultCredentialsProvider, accountRouter.credentialsProvider(AccountTarget.DEFAULT));
+        assertEquals("accessKey", credentials.accessKeyId());
+        ArgumentCaptor<AssumeRoleRequest> request = ArgumentCaptor.forClass(AssumeRoleRequest.class);
+        verify(stsClient, atLeastOnce()).assumeRole(request.capture());
+        assertEquals(
+                "arn:aws:iam::210987654321:role/provisioner", request.getValue().roleArn());
+        assertEquals("external-id", request.getValue().externalId());
+        assertEquals("s3-tech-adapter", request.getValue().roleSessionName());
+    }
+
+    private static AccountRoutingProperties.Target target(String roleArn, String externalId) {
+        AccountRoutingProperties.Target target = new AccountRoutingProperties.Target();
+        target.setRoleArn(roleArn);
+        target.setExternalId(externalId);
+        return target;
+    }
+
+    private static DataProduct<?> dataProduct(String domain) {
+        DataProduct<?> dataProduct = new DataProduct<>();
+        dataProduct.setDomain(domain);
+        return dataProduct;
+    }
+}
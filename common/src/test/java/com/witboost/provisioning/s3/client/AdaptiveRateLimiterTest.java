@@ -0,0 +1,164 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.witboost.provisioning.s3.config.RateLimitProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class AdaptiveRateLimiterTest {
+
+    private long now;
+    private final List<Long> sleeps = new ArrayList<>();
+
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setInitialRate(1000);
+        properties.setMinRate(100);
+        properties.setMaxRate(1200);
+        properties.setIncreaseStep(100);
+        properties.setDecreaseFactor(0.5);
+        properties.setAdjustmentInterval(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testAcquire_waitsWhenBucketIsEmpty() throws InterruptedException {
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.acquire(1000);
+        assertEquals(List.of(), sleeps);
+
+        limiter.acquire(500);
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(500)), sleeps);
+    }
+
+    @Test
+    void testAcquire_refillsUpToOneSecond() throws InterruptedException {
+        AdaptiveRateLimiter limiter = limiter();
+        limiter.acquire(1000);
+
+        // An idle limiter does not accumulate more than one second of permits
+        advance(Duration.ofSeconds(10));
+        limiter.acquire(1000);
+        limiter.acquire(100);
+
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(100)), sleeps);
+    }
+
+    @Test
+    void testOnSuccess_increasesOncePerInterval() {
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.onSuccess();
+        limiter.onSuccess();
+        assertEquals(1100, limiter.rate());
+
+        advance(Duration.ofSeconds(1));
+        limiter.onSuccess();
+        advance(Duration.ofSeconds(1));
+        limiter.onSuccess();
+        assertEquals(1200, limiter.rate(), "The rate must not exceed the maximum");
+    }
+
+    @Test
+    void testOnSlowDown_decreasesOncePerInterval() {
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.onSlowDown();
+        limiter.onSlowDown();
+        assertEquals(500, limiter.rate(), "Throttled responses of requests in flight count once");
+
+        advance(Duration.ofSeconds(1));
+        limiter.onSlowDown();
+        advance(Duration.ofSeconds(1));
+        limiter.onSlowDown();
+        advance(Duration.ofSeconds(1));
+        limiter.onSlowDown();
+        assertEquals(100, limiter.rate(), "The rate must not go below the minimum");
+    }
+
+    @Test
+    void testOnSlowDown_afterIncreaseAndBeforeNextIncrease() {
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.onSuccess();
+        limiter.onSlowDown();
+        assertEquals(550, limiter.rate());
+
+        // No increase in the interval following the decrease
+        advance(Duration.ofMillis(500));
+        limiter.onSuccess();
+        assertEquals(550, limiter.rate());
+        advance(Duration.ofMillis(500));
+        limiter.onSuccess();
+        assertEquals(650, limiter.rate());
+    }
+
+    @Test
+    void testOnSlowDown_discardsSavedPermits() throws InterruptedException {
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.onSlowDown();
+        limiter.acquire(250);
+
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(500)), sleeps);
+    }
+
+    @Test
+    void testDisabled() throws InterruptedException {
+        properties.setEnabled(false);
+        AdaptiveRateLimiter limiter = limiter();
+
+        limiter.acquire(100_000);
+        limiter.onSlowDown();
+
+        assertEquals(List.of(), sleeps);
+        assertEquals(1000, limiter.rate());
+        assertEquals(1, limiter.maxAttempts());
+    }
+
+    @Test
+    void testIsSlowDown() {
+        assertTrue(AdaptiveRateLimiter.isSlowDown(S3Exception.builder()
+                .statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                .build()));
+        assertFalse(AdaptiveRateLimiter.isSlowDown(S3Exception.builder()
+                .statusCode(403)
+                .awsErrorDetails(
+                        AwsErrorDetails.builder().errorCode("AccessDenied").build())
+                .build()));
+        assertTrue(AdaptiveRateLimiter.isSlowDown(
+                S3Error.builder().key("file").code("SlowDown").build()));
+        assertFalse(AdaptiveRateLimiter.isSlowDown(
+                S3Error.builder().key("file").code("AccessDenied").build()));
+    }
+
+    @Test
+    void testConstructor_invalidConfiguration() {
+        properties.setMinRate(0);
+        assertThrows(IllegalStateException.class, this::limiter);
+
+        properties.setMinRate(100);
+        properties.setDecreaseFactor(1);
+        assertThrows(IllegalStateException.class, this::limiter);
+    }
+
+    private AdaptiveRateLimiter limiter() {
+        return new AdaptiveRateLimiter(properties, () -> now, sleeps::add);
+    }
+
+    private void advance(Duration duration) {
+        now += duration.toNanos();
+    }
+}
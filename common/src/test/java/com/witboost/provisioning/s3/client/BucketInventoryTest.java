@@ -0,0 +1,185 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+class BucketInventoryTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BucketInventory bucketInventory;
+
+    private final String bucketName = "my-bucket";
+
+    private final BucketInventory.ClientLocation location =
+            new BucketInventory.ClientLocation(AccountTarget.DEFAULT, Region.EU_WEST_1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        bucketInventory = new BucketInventory(meterRegistry, true, 300, 0);
+        bucketInventory.useClientRegistry(client -> Optional.of(location), location -> s3Client);
+    }
+
+    @Test
+    void testLookup_missThenHit() {
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+        Optional<BucketMetadata> metadata = bucketInventory.lookup(bucketName);
+
+        assertTrue(metadata.isPresent());
+        assertEquals("eu-west-1", metadata.get().region());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.bucket.inventory.lookups", "result", "hit")
+                        .count());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.bucket.inventory.lookups", "result", "miss")
+                        .count());
+    }
+
+    @Test
+    void testRecord_keepsKnownFields() {
+        bucketInventory.record(
+                s3Client, bucketName, new BucketMetadata("eu-west-1", ServerSideEncryption.AWS_KMS, null));
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata(null, null, BucketVersioningStatus.ENABLED));
+
+        BucketMetadata metadata = bucketInventory.lookup(bucketName).orElseThrow();
+
+        assertEquals("eu-west-1", metadata.region());
+        assertEquals(ServerSideEncryption.AWS_KMS, metadata.encryption());
+        assertEquals(BucketVersioningStatus.ENABLED, metadata.versioning());
+    }
+
+    @Test
+    void testLookup_expiredEntry() {
+        bucketInventory = new BucketInventory(meterRegistry, true, 0, 0);
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.bucket.inventory.evictions", "cause", "expired")
+                        .count());
+    }
+
+    @Test
+    void testInvalidate() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+
+        bucketInventory.invalidate(bucketName);
+
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+    }
+
+    @Test
+    void testDisabled() {
+        bucketInventory = new BucketInventory(meterRegistry, false, 300, 0);
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+    }
+
+    @Test
+    void testRefresh_success() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("eu-west-1").build());
+        when(s3Client.getBucketEncryption(any(GetBucketEncryptionRequest.class)))
+                .thenReturn(GetBucketEncryptionResponse.builder()
+                        .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
+                                .rules(ServerSideEncryptionRule.builder()
+                                        .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
+                                                .sseAlgorithm(ServerSideEncryption.AES256)
+                                                .build())
+                                        .build())
+                                .build())
+                        .build());
+        when(s3Client.getBucketVersioning(any(GetBucketVersioningRequest.class)))
+                .thenReturn(GetBucketVersioningResponse.builder()
+                        .status(BucketVersioningStatus.SUSPENDED)
+                        .build());
+
+        bucketInventory.refresh();
+
+        BucketMetadata metadata = bucketInventory.lookup(bucketName).orElseThrow();
+        assertEquals(ServerSideEncryption.AES256, metadata.encryption());
+        assertEquals(BucketVersioningStatus.SUSPENDED, metadata.versioning());
+    }
+
+    @Test
+    void testRecord_withoutClientKeepsRefreshing() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+        bucketInventory.record(null, bucketName, new BucketMetadata(null, ServerSideEncryption.AWS_KMS, null));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
+
+        bucketInventory.refresh();
+
+        verify(s3Client).headBucket(any(HeadBucketRequest.class));
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+    }
+
+    @Test
+    void testRefresh_resolvesClientFromRegistry() {
+        S3Client recordedClient = mock(S3Client.class);
+        bucketInventory.useClientRegistry(
+                client -> client == recordedClient ? Optional.of(location) : Optional.empty(), location -> s3Client);
+        bucketInventory.record(recordedClient, bucketName, new BucketMetadata("eu-west-1", null, null));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
+
+        bucketInventory.refresh();
+
+        verify(s3Client).headBucket(any(HeadBucketRequest.class));
+        verifyNoInteractions(recordedClient);
+    }
+
+    @Test
+    void testRefresh_skipsClientsOutsideRegistry() {
+        bucketInventory.useClientRegistry(client -> Optional.empty(), location -> s3Client);
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+
+        bucketInventory.refresh();
+
+        verifyNoInteractions(s3Client);
+        assertTrue(bucketInventory.lookup(bucketName).isPresent());
+    }
+
+    @Test
+    void testRefresh_bucketGone() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("eu-west-1", null, null));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
+
+        bucketInventory.refresh();
+
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.bucket.inventory.evictions", "cause", "refresh-failed")
+                        .count());
+    }
+}
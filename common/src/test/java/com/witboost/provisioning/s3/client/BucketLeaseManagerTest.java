@@ -0,0 +1,243 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.s3.config.BucketLeaseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BucketLeaseManagerTest {
+
+    private static final String LEASE_KEY = "leases/my-bucket";
+
+    private final List<BucketLeaseManager> managers = new ArrayList<>();
+
+    private ConditionalS3StandIn controlBucket;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        controlBucket = new ConditionalS3StandIn();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.forEach(BucketLeaseManager::close);
+    }
+
+    @Test
+    void testWithLease_acquiresAndReleases() {
+        BucketLeaseManager replica = replica(Duration.ofSeconds(10));
+
+        Either<FailedOperation, String> result = replica.withLease("my-bucket", () -> {
+            assertNotNull(controlBucket.get(LEASE_KEY));
+            return Either.right("done");
+        });
+
+        assertEquals("done", result.get());
+        assertNull(controlBucket.get(LEASE_KEY));
+        assertEquals(1, acquisitions("acquired"));
+    }
+
+    @Test
+    void testWithLease_waitsForOtherReplica() throws Exception {
+        BucketLeaseManager first = replica(Duration.ofSeconds(10));
+        BucketLeaseManager second = replica(Duration.ofSeconds(10));
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new ArrayList<>();
+
+        CompletableFuture<Either<FailedOperation, String>> holder =
+                CompletableFuture.supplyAsync(() -> first.withLease("my-bucket", () -> {
+                    acquired.countDown();
+                    await(release);
+                    synchronized (order) {
+                        order.add("first");
+                    }
+                    return Either.right("first");
+                }));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Either<FailedOperation, String>> waiter =
+                CompletableFuture.supplyAsync(() -> second.withLease("my-bucket", () -> {
+                    synchronized (order) {
+                        order.add("second");
+                    }
+                    return Either.right("second");
+                }));
+        Thread.sleep(200);
+        assertFalse(waiter.isDone());
+        release.countDown();
+
+        assertTrue(holder.get(5, TimeUnit.SECONDS).isRight());
+        assertTrue(waiter.get(5, TimeUnit.SECONDS).isRight());
+        assertEquals(List.of("first", "second"), order);
+    }
+
+    @Test
+    void testWithLease_timeout() throws Exception {
+        BucketLeaseManager first = replica(Duration.ofSeconds(10));
+        BucketLeaseManager second = replica(Duration.ofMillis(300));
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Either<FailedOperation, String>> holder =
+                CompletableFuture.supplyAsync(() -> first.withLease("my-bucket", () -> {
+                    acquired.countDown();
+                    await(release);
+                    return Either.right("first");
+                }));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+        Either<FailedOperation, String> result = second.withLease("my-bucket", () -> fail("Must not run"));
+        release.countDown();
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("[Bucket: my-bucket] Error: The bucket is being provisioned"));
+        assertEquals(1, acquisitions("timeout"));
+        assertTrue(holder.get(5, TimeUnit.SECONDS).isRight());
+    }
+
+    @Test
+    void testWithLease_heartbeatKeepsLease() throws Exception {
+        // The TTL is shorter than the operation, which keeps the lease only through the heartbeat
+        BucketLeaseManager first = replica(Duration.ofSeconds(10));
+        BucketLeaseManager second = replica(Duration.ofMillis(600));
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Either<FailedOperation, String>> holder =
+                CompletableFuture.supplyAsync(() -> first.withLease("my-bucket", () -> {
+                    acquired.countDown();
+                    await(release);
+                    return Either.right("first");
+                }));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        Thread.sleep(500);
+
+        Either<FailedOperation, String> result = second.withLease("my-bucket", () -> fail("Must not run"));
+        release.countDown();
+
+        assertTrue(result.isLeft());
+        assertEquals(0, acquisitions("taken-over"));
+        assertTrue(holder.get(5, TimeUnit.SECONDS).isRight());
+    }
+
+    @Test
+    void testWithLease_takesOverExpiredLease() {
+        controlBucket.put(
+                LEASE_KEY,
+                String.format(
+                        "{\"owner\":\"crashed-replica\",\"expiresAt\":\"%s\"}",
+                        Instant.now().minusSeconds(60)));
+        BucketLeaseManager replica = replica(Duration.ofSeconds(10));
+
+        Either<FailedOperation, String> result = replica.withLease("my-bucket", () -> Either.right("done"));
+
+        assertEquals("done", result.get());
+        assertEquals(1, acquisitions("taken-over"));
+        assertNull(controlBucket.get(LEASE_KEY));
+    }
+
+    @Test
+    void testWithLease_lostLeaseIsNotReleased() throws Exception {
+        BucketLeaseManager replica = replica(Duration.ofSeconds(10));
+
+        Either<FailedOperation, String> result = replica.withLease("my-bucket", () -> {
+            // Another replica overwrote the lease: the next heartbeat detects it
+            controlBucket.put(LEASE_KEY, "{\"owner\":\"other-replica\",\"expiresAt\":\"2999-01-01T00:00:00Z\"}");
+            awaitLost();
+            return Either.right("done");
+        });
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("The lease of the bucket was lost"));
+        assertEquals(1, meterRegistry.counter("s3.bucket.lease.lost").count());
+        assertTrue(new String(controlBucket.get(LEASE_KEY).content()).contains("other-replica"));
+    }
+
+    @Test
+    void testDisabled() {
+        BucketLeaseManager disabled = BucketLeaseManager.disabled();
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(
+                "done",
+                disabled.withLease("my-bucket", () -> Either.right("done")).get());
+        assertNull(controlBucket.get(LEASE_KEY));
+    }
+
+    @Test
+    void testConstructor_invalidConfiguration() {
+        BucketLeaseProperties properties = properties(Duration.ofSeconds(10));
+        properties.setControlBucket(" ");
+        assertThrows(
+                IllegalStateException.class, () -> new BucketLeaseManager(controlBucket, properties, meterRegistry));
+
+        BucketLeaseProperties heartbeatTooSlow = properties(Duration.ofSeconds(10));
+        heartbeatTooSlow.setHeartbeatInterval(heartbeatTooSlow.getTtl());
+        assertThrows(
+                IllegalStateException.class,
+                () -> new BucketLeaseManager(controlBucket, heartbeatTooSlow, meterRegistry));
+    }
+
+    private BucketLeaseManager replica(Duration acquireTimeout) {
+        BucketLeaseManager manager = new BucketLeaseManager(controlBucket, properties(acquireTimeout), meterRegistry);
+        managers.add(manager);
+        return manager;
+    }
+
+    private static BucketLeaseProperties properties(Duration acquireTimeout) {
+        BucketLeaseProperties properties = new BucketLeaseProperties();
+        properties.setEnabled(true);
+        properties.setControlBucket("control-bucket");
+        properties.setTtl(Duration.ofMillis(300));
+        properties.setHeartbeatInterval(Duration.ofMillis(50));
+        properties.setRetryInterval(Duration.ofMillis(20));
+        properties.setAcquireTimeout(acquireTimeout);
+        return properties;
+    }
+
+    private double acquisitions(String outcome) {
+        return meterRegistry
+                .counter("s3.bucket.lease.acquisitions", "outcome", outcome)
+                .count();
+    }
+
+    private void awaitAcquisitions(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (acquisitions("acquired") < expected && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    }
+
+    private void awaitLost() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("s3.bucket.lease.lost").count() < 1 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -10,17 +10,22 @@ import com.witboost.provisioning.s3.model.IntelligentTieringConfiguration;
 import com.witboost.provisioning.s3.model.LifeCycleConfiguration;
 import com.witboost.provisioning.s3.model.LifeCycleConfigurationPermanentlyDelete;
 import com.witboost.provisioning.s3.model.S3Specific;
+import com.witboost.provisioning.s3.utils.S3Utils;
 import io.vavr.control.Either;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
@@ -33,6 +38,7 @@ import software.amazon.awssdk.core.internal.waiters.ResponseOrException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.waiters.WaiterOverrideConfiguration;
 import software.amazon.awssdk.core.waiters.WaiterResponse;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.CreateKeyRequest;
 import software.amazon.awssdk.services.kms.model.CreateKeyResponse;
@@ -56,9 +62,15 @@ public class BucketManagerTest {
     @MockitoBean
     private StsClient stsClient;
 
+    @MockitoBean
+    private DeletionCheckpointStore deletionCheckpointStore;
+
     @Autowired
     private BucketManager bucketManager;
 
+    @Autowired
+    private BucketInventory bucketInventory;
+
     private S3Specific s3Specific;
 
     private MockedStatic<Files> mockedFiles;
@@ -69,6 +81,7 @@ public class BucketManagerTest {
     public void setUp() {
 
         MockitoAnnotations.openMocks(this);
+        bucketInventory.invalidateAll();
 
         mockedFiles = mockStatic(Files.class);
         mockedFiles
@@ -174,7 +187,8 @@ public class BucketManagerTest {
     public void testCreateOrUpdateBucket_success() {
         s3Specific.setBucketTags(null);
         s3Specific.setServerSideEncryption(ServerSideEncryption.AWS_KMS);
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -195,7 +209,7 @@ public class BucketManagerTest {
         Optional<HeadBucketResponse> response = Optional.of(mock(HeadBucketResponse.class));
         when(responseOrException.response()).thenReturn(response);
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isRight());
@@ -212,7 +226,8 @@ public class BucketManagerTest {
         intelligentTieringConfiguration.setDeepArchiveAccessTierDays(180);
         s3Specific.setIntelligentTieringConfiguration(intelligentTieringConfiguration);
         s3Specific.setServerSideEncryption(ServerSideEncryption.AWS_KMS);
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -233,16 +248,329 @@ public class BucketManagerTest {
         Optional<HeadBucketResponse> response = Optional.of(mock(HeadBucketResponse.class));
         when(responseOrException.response()).thenReturn(response);
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isRight());
         verify(s3Client, times(1)).createBucket(any(CreateBucketRequest.class));
     }
 
+    private void mockExistingBucketUpToDate() throws IOException {
+        String bucketPolicy = bucketManager.renderBucketPolicy(bucketName);
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("us-east-1").build());
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(Tag.builder().key("tagKey").value("tagValue").build())
+                        .build());
+        when(s3Client.getBucketPolicy(any(GetBucketPolicyRequest.class)))
+                .thenReturn(
+                        GetBucketPolicyResponse.builder().policy(bucketPolicy).build());
+        when(s3Client.getBucketEncryption(any(GetBucketEncryptionRequest.class)))
+                .thenReturn(GetBucketEncryptionResponse.builder()
+                        .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
+                                .rules(ServerSideEncryptionRule.builder()
+                                        .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder()
+                                                .sseAlgorithm(ServerSideEncryption.AES256)
+                                                .build())
+                                        .build())
+                                .build())
+                        .build());
+        when(s3Client.getBucketVersioning(any(GetBucketVersioningRequest.class)))
+                .thenReturn(GetBucketVersioningResponse.builder()
+                        .status(BucketVersioningStatus.ENABLED)
+                        .build());
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(LifecycleRule.builder()
+                                .id("witboostLifeCycleConfiguration")
+                                .status(ExpirationStatus.ENABLED)
+                                .noncurrentVersionExpiration(NoncurrentVersionExpiration.builder()
+                                        .noncurrentDays(15)
+                                        .newerNoncurrentVersions(8)
+                                        .build())
+                                .build())
+                        .build());
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_existingBucketUpToDate() throws IOException {
+        mockExistingBucketUpToDate();
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertFalse(result.get().isCreated());
+        assertFalse(result.get().isFingerprintMatched());
+        assertEquals(
+                List.of(BucketSetting.CONFIGURATION_FINGERPRINT), result.get().getApplied());
+        assertEquals(
+                List.of(
+                        BucketSetting.TAGS,
+                        BucketSetting.SECURE_TRANSPORT_POLICY,
+                        BucketSetting.ENCRYPTION,
+                        BucketSetting.VERSIONING,
+                        BucketSetting.LIFECYCLE),
+                result.get().getSkipped());
+        assertEquals(
+                "witboostLifeCycleConfiguration",
+                result.get().getLifecycleRules().get().get(0).id());
+        assertFalse(bucketInventory.lookup(bucketName).get().prefixExpiration());
+        verify(s3Client, times(1)).putBucketTagging(any(PutBucketTaggingRequest.class));
+        verify(s3Client, never()).putBucketPolicy(any(PutBucketPolicyRequest.class));
+        verify(s3Client, never()).putBucketEncryption(any(PutBucketEncryptionRequest.class));
+        verify(s3Client, never()).putBucketVersioning(any(PutBucketVersioningRequest.class));
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_existingBucketWithoutDefaultEncryptionRule() throws IOException {
+        mockExistingBucketUpToDate();
+        when(s3Client.getBucketEncryption(any(GetBucketEncryptionRequest.class)))
+                .thenReturn(GetBucketEncryptionResponse.builder()
+                        .serverSideEncryptionConfiguration(
+                                ServerSideEncryptionConfiguration.builder().build())
+                        .build());
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertTrue(result.get().getApplied().contains(BucketSetting.ENCRYPTION));
+        assertFalse(result.get().getSkipped().contains(BucketSetting.ENCRYPTION));
+        verify(s3Client).putBucketEncryption(any(PutBucketEncryptionRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_existingBucketOnlyChangedSettingsApplied() throws IOException {
+        mockExistingBucketUpToDate();
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(Tag.builder().key("tagKey").value("oldValue").build())
+                        .build());
+        when(s3Client.getBucketVersioning(any(GetBucketVersioningRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertEquals(
+                List.of(BucketSetting.TAGS, BucketSetting.VERSIONING, BucketSetting.CONFIGURATION_FINGERPRINT),
+                result.get().getApplied());
+        // The tags are written once, together with the fingerprint
+        ArgumentCaptor<PutBucketTaggingRequest> captor = ArgumentCaptor.forClass(PutBucketTaggingRequest.class);
+        verify(s3Client).putBucketTagging(captor.capture());
+        assertTrue(captor.getValue()
+                .tagging()
+                .tagSet()
+                .contains(Tag.builder().key("tagKey").value("tagValue").build()));
+        verify(s3Client).putBucketVersioning(any(PutBucketVersioningRequest.class));
+        verify(s3Client, never()).putBucketPolicy(any(PutBucketPolicyRequest.class));
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_fingerprintMatched() throws IOException {
+        mockExistingBucketUpToDate();
+        String fingerprint =
+                S3Utils.computeConfigurationFingerprint(s3Specific, bucketManager.renderBucketPolicy(bucketName));
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(
+                                Tag.builder().key("tagKey").value("tagValue").build(),
+                                Tag.builder()
+                                        .key(BucketManager.CONFIGURATION_FINGERPRINT_TAG)
+                                        .value(fingerprint)
+                                        .build())
+                        .build());
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertTrue(result.get().isFingerprintMatched());
+        assertTrue(result.get().getApplied().isEmpty());
+        assertTrue(result.get().getLifecycleRules().isEmpty());
+        verify(s3Client, times(1)).getBucketTagging(any(GetBucketTaggingRequest.class));
+        verify(s3Client, never()).getBucketPolicy(any(GetBucketPolicyRequest.class));
+        verify(s3Client, never()).getBucketEncryption(any(GetBucketEncryptionRequest.class));
+        verify(s3Client, never()).putBucketTagging(any(PutBucketTaggingRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_fingerprintMatchedReportsSkippedCalls() throws IOException {
+        mockExistingBucketUpToDate();
+        String fingerprint =
+                S3Utils.computeConfigurationFingerprint(s3Specific, bucketManager.renderBucketPolicy(bucketName));
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(Tag.builder()
+                                .key(BucketManager.CONFIGURATION_FINGERPRINT_TAG)
+                                .value(fingerprint)
+                                .build())
+                        .build());
+
+        try (ProvisioningTrace trace = ProvisioningTrace.open()) {
+            Either<FailedOperation, BucketReconciliation> result =
+                    bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+            assertTrue(result.get().isFingerprintMatched());
+            // At least the tags, policy and encryption writes
+            assertTrue(trace.skippedAwsCalls() >= 3, "Skipped calls: " + trace.skippedAwsCalls());
+        }
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_forceReconcileIgnoresFingerprint() throws IOException {
+        mockExistingBucketUpToDate();
+        String fingerprint =
+                S3Utils.computeConfigurationFingerprint(s3Specific, bucketManager.renderBucketPolicy(bucketName));
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(
+                                Tag.builder().key("tagKey").value("tagValue").build(),
+                                Tag.builder()
+                                        .key(BucketManager.CONFIGURATION_FINGERPRINT_TAG)
+                                        .value(fingerprint)
+                                        .build())
+                        .build());
+        s3Specific.setForceReconcile(true);
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertFalse(result.get().isFingerprintMatched());
+        assertTrue(result.get().getSkipped().contains(BucketSetting.TAGS));
+        verify(s3Client).getBucketPolicy(any(GetBucketPolicyRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_staleFingerprintRemovedBeforeSettings() throws IOException {
+        mockExistingBucketUpToDate();
+        when(s3Client.getBucketTagging(any(GetBucketTaggingRequest.class)))
+                .thenReturn(GetBucketTaggingResponse.builder()
+                        .tagSet(
+                                Tag.builder().key("tagKey").value("tagValue").build(),
+                                Tag.builder()
+                                        .key(BucketManager.CONFIGURATION_FINGERPRINT_TAG)
+                                        .value("stale")
+                                        .build())
+                        .build());
+        when(s3Client.getBucketEncryption(any(GetBucketEncryptionRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.putBucketEncryption(any(PutBucketEncryptionRequest.class)))
+                .thenThrow(new RuntimeException("encryption exception"));
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        // Only the removal of the stale fingerprint, no fingerprint is stored for the failed configuration
+        ArgumentCaptor<PutBucketTaggingRequest> captor = ArgumentCaptor.forClass(PutBucketTaggingRequest.class);
+        verify(s3Client).putBucketTagging(captor.capture());
+        assertTrue(captor.getValue().tagging().tagSet().stream()
+                .noneMatch(tag -> BucketManager.CONFIGURATION_FINGERPRINT_TAG.equals(tag.key())));
+        verify(s3Client, times(1)).getBucketTagging(any(GetBucketTaggingRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_fingerprintLeftOutAtTagLimit() throws IOException {
+        mockExistingBucketUpToDate();
+        List<BucketTag> tags = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            BucketTag tag = new BucketTag();
+            tag.setKey("tagKey" + i);
+            tag.setValue("tagValue" + i);
+            tags.add(tag);
+        }
+        s3Specific.setBucketTags(tags);
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertEquals(List.of(BucketSetting.TAGS), result.get().getApplied());
+        ArgumentCaptor<PutBucketTaggingRequest> captor = ArgumentCaptor.forClass(PutBucketTaggingRequest.class);
+        verify(s3Client).putBucketTagging(captor.capture());
+        assertEquals(50, captor.getValue().tagging().tagSet().size());
+        assertTrue(captor.getValue().tagging().tagSet().stream()
+                .noneMatch(tag -> BucketManager.CONFIGURATION_FINGERPRINT_TAG.equals(tag.key())));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_newBucketSkipsReads() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
+        S3Waiter s3Waiter = mock(S3Waiter.class);
+        when(s3Client.waiter()).thenReturn(s3Waiter);
+        var waiterResponse = mock(WaiterResponse.class);
+        when(s3Waiter.waitUntilBucketExists(any(HeadBucketRequest.class), any(WaiterOverrideConfiguration.class)))
+                .thenReturn(waiterResponse);
+        ResponseOrException<HeadBucketResponse> responseOrException = mock(ResponseOrException.class);
+        when(waiterResponse.matched()).thenReturn(responseOrException);
+        when(responseOrException.response()).thenReturn(Optional.of(mock(HeadBucketResponse.class)));
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        assertTrue(result.get().isCreated());
+        assertTrue(result.get().getSkipped().isEmpty());
+        verify(s3Client, never()).getBucketTagging(any(GetBucketTaggingRequest.class));
+        verify(s3Client, never()).getBucketPolicy(any(GetBucketPolicyRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_failedStepsAggregated() {
+        mockExistingBucketWithUnreadableSettings();
+        when(s3Client.putBucketPolicy(any(PutBucketPolicyRequest.class)))
+                .thenThrow(new RuntimeException("policy exception"));
+        when(s3Client.putBucketEncryption(any(PutBucketEncryptionRequest.class)))
+                .thenThrow(new RuntimeException("encryption exception"));
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        assertEquals(2, result.getLeft().problems().size());
+        assertTrue(result.getLeft().message().contains("policy exception"));
+        assertTrue(result.getLeft().message().contains("encryption exception"));
+        // Independent steps are still applied when another one fails
+        verify(s3Client).putBucketVersioning(any(PutBucketVersioningRequest.class));
+        verify(s3Client).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+    }
+
+    @Test
+    public void testCreateOrUpdateBucket_lifecycleNotAppliedWhenVersioningFails() {
+        mockExistingBucketWithUnreadableSettings();
+        when(s3Client.putBucketVersioning(any(PutBucketVersioningRequest.class)))
+                .thenThrow(new RuntimeException("versioning exception"));
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        assertEquals(1, result.getLeft().problems().size());
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+    }
+
+    private void mockExistingBucketWithUnreadableSettings() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("us-east-1").build());
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenThrow(noSuchLifecycleConfiguration());
+        // Reads are not stubbed, so every setting is considered out of date and applied
+    }
+
     @Test
     public void testCreateOrUpdateBucketNoMultipleVersioning_errorPuttingBucketTags() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -265,7 +593,7 @@ public class BucketManagerTest {
         when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class))).thenReturn(getBucketLocationResponse);
 
         s3Specific.setMultipleVersion(false);
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -280,7 +608,8 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucketNoMultipleVersioning_success() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -300,7 +629,7 @@ public class BucketManagerTest {
         when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class))).thenReturn(getBucketLocationResponse);
 
         s3Specific.setMultipleVersion(false);
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isRight());
@@ -309,14 +638,15 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateBucket_failure_errorWaitingForOrUpdateBucket() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
         when(s3Client.waiter()).thenReturn(s3Waiter);
         when(s3Waiter.waitUntilBucketExists(any(HeadBucketRequest.class), any(WaiterOverrideConfiguration.class)))
                 .thenThrow(new RuntimeException("runtime exception"));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -331,32 +661,35 @@ public class BucketManagerTest {
     void testCreateBucket_success_existingOrUpdateBucketInRegion() {
         s3Specific.setRegion("eu-central-1");
 
-        when(s3Client.listBuckets())
-                .thenReturn(ListBucketsResponse.builder()
-                        .buckets(Bucket.builder().name(bucketName).build())
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(HeadBucketResponse.builder()
+                        .bucketRegion("eu-central-1")
                         .build());
-        GetBucketLocationResponse getBucketLocationResponse = mock(GetBucketLocationResponse.class);
-        when(getBucketLocationResponse.locationConstraint()).thenReturn(BucketLocationConstraint.EU_CENTRAL_1);
-        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class))).thenReturn(getBucketLocationResponse);
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenThrow(noSuchLifecycleConfiguration());
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isRight());
         verify(s3Client, times(1)).putBucketPolicy(any(PutBucketPolicyRequest.class));
+        verify(s3Client, never()).getBucketLocation(any(GetBucketLocationRequest.class));
     }
 
     @Test
     public void testCreateBucket_failure_existingOrUpdateBucketInAnotherRegion() {
-        ListBucketsResponse listBucketsResponse = mock(ListBucketsResponse.class);
-        when(s3Client.listBuckets()).thenReturn(listBucketsResponse);
-        List<Bucket> bucketList = List.of(Bucket.builder().name(bucketName).build());
-        when(listBucketsResponse.buckets()).thenReturn(bucketList);
-        GetBucketLocationResponse getBucketLocationResponse = mock(GetBucketLocationResponse.class);
-        when(getBucketLocationResponse.locationConstraint()).thenReturn(BucketLocationConstraint.EU_CENTRAL_1);
-        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class))).thenReturn(getBucketLocationResponse);
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder()
+                        .statusCode(301)
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .sdkHttpResponse(SdkHttpResponse.builder()
+                                        .statusCode(301)
+                                        .putHeader("x-amz-bucket-region", "eu-central-1")
+                                        .build())
+                                .build())
+                        .build());
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -369,9 +702,9 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateBucket_failure_errorInOrUpdateBucketExists() {
-        when(s3Client.listBuckets()).thenThrow(new RuntimeException("runtime exception"));
+        when(s3Client.headBucket(any(HeadBucketRequest.class))).thenThrow(new RuntimeException("runtime exception"));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -385,16 +718,14 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucket_failure_errorGettingRegion() {
-        ListBucketsResponse listBucketsResponse = mock(ListBucketsResponse.class);
-        when(s3Client.listBuckets()).thenReturn(listBucketsResponse);
-        List<Bucket> bucketList = List.of(Bucket.builder().name(bucketName).build());
-        when(listBucketsResponse.buckets()).thenReturn(bucketList);
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(HeadBucketResponse.builder().build());
 
         when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
                 .thenThrow(new RuntimeException("runtime exception"));
 
         s3Specific.setRegion("us-west-2");
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -408,7 +739,8 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucket_exception() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
         when(s3Client.createBucket(any(CreateBucketRequest.class)))
                 .thenThrow(new RuntimeException("runtime exception"));
 
@@ -419,7 +751,7 @@ public class BucketManagerTest {
         var responseOrException = mock(ResponseOrException.class);
         when(waiterResponse.matched()).thenReturn(responseOrException);
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -463,6 +795,454 @@ public class BucketManagerTest {
         verify(s3Client, times(1)).deleteObjects(any(DeleteObjectsRequest.class));
     }
 
+    @Test
+    public void testDeleteObjectsWithPrefix_pipelinesPages() {
+        String prefix = "v1";
+        List<S3Object> firstPage = new ArrayList<>();
+        firstPage.add(S3Object.builder().key("v1/").build());
+        for (int i = 0; i < 999; i++)
+            firstPage.add(S3Object.builder().key("v1/file" + i).build());
+        List<S3Object> secondPage = new ArrayList<>();
+        for (int i = 999; i < 1499; i++)
+            secondPage.add(S3Object.builder().key("v1/file" + i).build());
+
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(firstPage)
+                        .isTruncated(true)
+                        .nextContinuationToken("token")
+                        .build())
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(secondPage)
+                        .isTruncated(false)
+                        .build());
+        List<String> deletedKeys = Collections.synchronizedList(new ArrayList<>());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            request.delete().objects().forEach(object -> deletedKeys.add(object.key()));
+            return DeleteObjectsResponse.builder().build();
+        });
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, prefix);
+
+        assertTrue(result.isRight());
+        verify(s3Client, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
+        assertEquals(1500, deletedKeys.size());
+        assertEquals(1, deletedKeys.stream().filter("v1/"::equals).count());
+        ArgumentCaptor<ListObjectsV2Request> listRequests = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(s3Client, times(2)).listObjectsV2(listRequests.capture());
+        assertEquals("token", listRequests.getAllValues().get(1).continuationToken());
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_listsShardsInParallel() {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            if ("/".equals(request.delimiter()))
+                return ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/").build())
+                        .commonPrefixes(IntStream.range(0, 10)
+                                .mapToObj(i -> CommonPrefix.builder()
+                                        .prefix("v1/day=" + i + "/")
+                                        .build())
+                                .toList())
+                        .build();
+            // Two pages for each shard
+            boolean firstPage = request.continuationToken() == null;
+            return ListObjectsV2Response.builder()
+                    .contents(S3Object.builder()
+                            .key(request.prefix() + (firstPage ? "part-0" : "nested/part-1"))
+                            .build())
+                    .isTruncated(firstPage)
+                    .nextContinuationToken(firstPage ? "token" : null)
+                    .build();
+        });
+        List<String> deletedKeys = Collections.synchronizedList(new ArrayList<>());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            request.delete().objects().forEach(object -> deletedKeys.add(object.key()));
+            return DeleteObjectsResponse.builder().build();
+        });
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isRight());
+        assertEquals(21, deletedKeys.size());
+        assertEquals(21, Set.copyOf(deletedKeys).size());
+        assertTrue(deletedKeys.contains("v1/day=7/nested/part-1"));
+        verify(s3Client, times(21)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_listsShardsInParallel() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class))).thenAnswer(invocation -> {
+            ListObjectVersionsRequest request = invocation.getArgument(0);
+            if ("/".equals(request.delimiter()))
+                return ListObjectVersionsResponse.builder()
+                        .commonPrefixes(
+                                CommonPrefix.builder().prefix("v1/a/").build(),
+                                CommonPrefix.builder().prefix("v1/b/").build())
+                        .build();
+            return ListObjectVersionsResponse.builder()
+                    .versions(ObjectVersion.builder()
+                            .key(request.prefix() + "file")
+                            .versionId("1")
+                            .size(10L)
+                            .build())
+                    .deleteMarkers(DeleteMarkerEntry.builder()
+                            .key(request.prefix() + "removed")
+                            .versionId("2")
+                            .build())
+                    .build();
+        });
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, "v1");
+
+        assertEquals(new DeletionReport(2, 2, 20), result.get());
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_deletionErrors() {
+        String prefix = "v1/";
+
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file1.txt").build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder()
+                        .errors(S3Error.builder()
+                                .key("v1/file1.txt")
+                                .message("Access Denied")
+                                .build())
+                        .build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, prefix);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("1 objects deleted, 1 objects could not be deleted"));
+        assertEquals(1, result.getLeft().problems().size());
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_retriesThrottledRequests() {
+        S3Exception slowDown = (S3Exception) S3Exception.builder()
+                .statusCode(503)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode("SlowDown")
+                        .errorMessage("Please reduce your request rate.")
+                        .build())
+                .build();
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenThrow(slowDown)
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(
+                                S3Object.builder().key("v1/file1.txt").build(),
+                                S3Object.builder().key("v1/file2.txt").build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenThrow(slowDown)
+                .thenReturn(DeleteObjectsResponse.builder()
+                        .errors(S3Error.builder()
+                                .key("v1/file2.txt")
+                                .code("SlowDown")
+                                .message("Please reduce your request rate.")
+                                .build())
+                        .build())
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isRight());
+        verify(s3Client, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client, times(3)).deleteObjects(deleteCaptor.capture());
+        // Only the objects throttled by S3 are sent again
+        assertEquals(
+                List.of("v1/file2.txt"),
+                deleteCaptor.getAllValues().get(2).delete().objects().stream()
+                        .map(ObjectIdentifier::key)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_throttledUntilMaxAttempts() {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenThrow(S3Exception.builder()
+                        .statusCode(503)
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .errorCode("SlowDown")
+                                .errorMessage("Please reduce your request rate.")
+                                .build())
+                        .build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("Please reduce your request rate."));
+        verify(s3Client, times(5)).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(s3Client, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_resumesFromCheckpoint() throws Exception {
+        when(deletionCheckpointStore.isEnabled()).thenReturn(true);
+        when(deletionCheckpointStore.load(bucketName, "v1/", DeletionCheckpoint.Listing.OBJECTS))
+                .thenReturn(Optional.of(new DeletionCheckpoint(
+                        bucketName,
+                        "v1/",
+                        DeletionCheckpoint.Listing.OBJECTS,
+                        "token-5",
+                        null,
+                        null,
+                        5000,
+                        0,
+                        0,
+                        "2026-01-01T00:00:00Z")));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(
+                                S3Object.builder().key("v1/file5000.txt").build(),
+                                S3Object.builder().key("v1/file5001.txt").build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isRight());
+        ArgumentCaptor<ListObjectsV2Request> listCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(s3Client).listObjectsV2(listCaptor.capture());
+        assertEquals("token-5", listCaptor.getValue().continuationToken());
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(deleteCaptor.capture());
+        // The folder object was deleted before the checkpoint
+        assertEquals(2, deleteCaptor.getValue().delete().objects().size());
+        verify(deletionCheckpointStore).delete(bucketName, "v1/", DeletionCheckpoint.Listing.OBJECTS);
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_rejectedCheckpointTokenStartsOver() throws Exception {
+        when(deletionCheckpointStore.isEnabled()).thenReturn(true);
+        when(deletionCheckpointStore.load(bucketName, "v1/", DeletionCheckpoint.Listing.OBJECTS))
+                .thenReturn(Optional.of(new DeletionCheckpoint(
+                        bucketName,
+                        "v1/",
+                        DeletionCheckpoint.Listing.OBJECTS,
+                        "expired-token",
+                        null,
+                        null,
+                        5000,
+                        0,
+                        0,
+                        "2026-01-01T00:00:00Z")));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenThrow(S3Exception.builder()
+                        .statusCode(400)
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .errorCode("InvalidArgument")
+                                .errorMessage("The continuation token provided is incorrect")
+                                .build())
+                        .build())
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file5000.txt").build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isRight());
+        ArgumentCaptor<ListObjectsV2Request> listCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(s3Client, times(2)).listObjectsV2(listCaptor.capture());
+        assertNull(listCaptor.getAllValues().get(1).continuationToken());
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(deleteCaptor.capture());
+        assertEquals(
+                List.of("v1/file5000.txt", "v1/"),
+                deleteCaptor.getValue().delete().objects().stream()
+                        .map(ObjectIdentifier::key)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_resumesFromCheckpoint() throws Exception {
+        when(deletionCheckpointStore.isEnabled()).thenReturn(true);
+        when(deletionCheckpointStore.load(bucketName, "v1/", DeletionCheckpoint.Listing.VERSIONS))
+                .thenReturn(Optional.of(new DeletionCheckpoint(
+                        bucketName,
+                        "v1/",
+                        DeletionCheckpoint.Listing.VERSIONS,
+                        null,
+                        "v1/file1.txt",
+                        "b",
+                        10,
+                        4,
+                        1000,
+                        "2026-01-01T00:00:00Z")));
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                        .versions(ObjectVersion.builder()
+                                .key("v1/file2.txt")
+                                .versionId("c")
+                                .size(25L)
+                                .build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, "v1");
+
+        assertEquals(new DeletionReport(7, 4, 1025), result.get());
+        ArgumentCaptor<ListObjectVersionsRequest> listCaptor = ArgumentCaptor.forClass(ListObjectVersionsRequest.class);
+        verify(s3Client).listObjectVersions(listCaptor.capture());
+        assertEquals("v1/file1.txt", listCaptor.getValue().keyMarker());
+        assertEquals("b", listCaptor.getValue().versionIdMarker());
+        verify(deletionCheckpointStore).delete(bucketName, "v1/", DeletionCheckpoint.Listing.VERSIONS);
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_failureKeepsCheckpoint() throws Exception {
+        when(deletionCheckpointStore.isEnabled()).thenReturn(true);
+        when(deletionCheckpointStore.load(bucketName, "v1/", DeletionCheckpoint.Listing.OBJECTS))
+                .thenReturn(Optional.of(new DeletionCheckpoint(
+                        bucketName,
+                        "v1/",
+                        DeletionCheckpoint.Listing.OBJECTS,
+                        "token-5",
+                        null,
+                        null,
+                        5000,
+                        0,
+                        0,
+                        "2026-01-01T00:00:00Z")));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file5000.txt").build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder()
+                        .errors(S3Error.builder()
+                                .key("v1/file5000.txt")
+                                .message("Access Denied")
+                                .build())
+                        .build());
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("5000 objects deleted, 1 objects could not be deleted"));
+        verify(deletionCheckpointStore, never()).delete(any(), any(), any());
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_success() {
+        String prefix = "v1";
+
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(
+                        ListObjectVersionsResponse.builder()
+                                .versions(
+                                        ObjectVersion.builder()
+                                                .key("v1/file1.txt")
+                                                .versionId("a")
+                                                .size(100L)
+                                                .build(),
+                                        ObjectVersion.builder()
+                                                .key("v1/file1.txt")
+                                                .versionId("b")
+                                                .size(50L)
+                                                .build())
+                                .isTruncated(true)
+                                .nextKeyMarker("v1/file1.txt")
+                                .nextVersionIdMarker("b")
+                                .build(),
+                        ListObjectVersionsResponse.builder()
+                                .versions(ObjectVersion.builder()
+                                        .key("v1/file2.txt")
+                                        .versionId("c")
+                                        .size(25L)
+                                        .build())
+                                .deleteMarkers(DeleteMarkerEntry.builder()
+                                        .key("v1/file2.txt")
+                                        .versionId("d")
+                                        .build())
+                                .isTruncated(false)
+                                .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, prefix);
+
+        assertTrue(result.isRight());
+        assertEquals(new DeletionReport(3, 1, 175), result.get());
+
+        ArgumentCaptor<ListObjectVersionsRequest> listCaptor = ArgumentCaptor.forClass(ListObjectVersionsRequest.class);
+        verify(s3Client, times(2)).listObjectVersions(listCaptor.capture());
+        assertEquals("v1/", listCaptor.getAllValues().get(0).prefix());
+        assertEquals("v1/file1.txt", listCaptor.getAllValues().get(1).keyMarker());
+        assertEquals("b", listCaptor.getAllValues().get(1).versionIdMarker());
+
+        ArgumentCaptor<DeleteObjectsRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(deleteCaptor.capture());
+        assertEquals(
+                List.of("a", "b", "c", "d"),
+                deleteCaptor.getValue().delete().objects().stream()
+                        .map(ObjectIdentifier::versionId)
+                        .collect(Collectors.toList()));
+        assertTrue(deleteCaptor.getValue().delete().quiet());
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_deletionErrors() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                        .versions(ObjectVersion.builder()
+                                .key("v1/file1.txt")
+                                .versionId("a")
+                                .size(100L)
+                                .build())
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder()
+                        .errors(S3Error.builder()
+                                .key("v1/file1.txt")
+                                .versionId("a")
+                                .message("Access Denied")
+                                .build())
+                        .build());
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("0 objects deleted, 1 objects could not be deleted"));
+        assertEquals(
+                "Error deleting version 'a' of object with key 'v1/file1.txt': Access Denied",
+                result.getLeft().problems().get(0).description());
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_listingFailure() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenThrow(S3Exception.builder()
+                        .awsErrorDetails(AwsErrorDetails.builder()
+                                .errorMessage("Access Denied")
+                                .build())
+                        .build());
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isLeft());
+        verify(s3Client, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
     @Test
     public void testDeleteObjectsInBatches_withErrors() {
 
@@ -496,6 +1276,344 @@ public class BucketManagerTest {
         verify(s3Client, times(1)).deleteObjects(any(DeleteObjectsRequest.class));
     }
 
+    @Test
+    public void testPlanPrefixDeletion_smallFolder() {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file1.txt").build())
+                        .isTruncated(false)
+                        .build());
+
+        Either<FailedOperation, PrefixDeletionPlan> result =
+                bucketManager.planPrefixDeletion(s3Client, bucketName, "v1", false);
+
+        assertFalse(result.get().expire());
+        assertEquals(1, result.get().objectPages().size());
+        verify(s3Client).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void testPlanPrefixDeletion_largeFolder() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                        .versions(ObjectVersion.builder()
+                                .key("v1/file1.txt")
+                                .versionId("a")
+                                .build())
+                        .isTruncated(true)
+                        .nextKeyMarker("v1/file1.txt")
+                        .nextVersionIdMarker("a")
+                        .build());
+
+        Either<FailedOperation, PrefixDeletionPlan> result =
+                bucketManager.planPrefixDeletion(s3Client, bucketName, "v1", true);
+
+        assertTrue(result.get().expire());
+        assertNull(result.get().versionPages());
+        // Only the pages configured by s3.delete.offload.sample-pages are read
+        verify(s3Client, times(100)).listObjectVersions(any(ListObjectVersionsRequest.class));
+    }
+
+    @Test
+    public void testDeleteObjectsWithPrefix_reusesPlannedPages() {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(
+                                S3Object.builder().key("v1/").build(),
+                                S3Object.builder().key("v1/file1.txt").build())
+                        .isTruncated(false)
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+        PrefixDeletionPlan plan = bucketManager
+                .planPrefixDeletion(s3Client, bucketName, "v1", false)
+                .get();
+
+        Either<FailedOperation, Void> result = bucketManager.deleteObjectsWithPrefix(s3Client, bucketName, "v1", plan);
+
+        assertTrue(result.isRight());
+        verify(s3Client, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+        ArgumentCaptor<DeleteObjectsRequest> captor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3Client).deleteObjects(captor.capture());
+        assertEquals(
+                List.of("v1/", "v1/file1.txt"),
+                captor.getValue().delete().objects().stream()
+                        .map(ObjectIdentifier::key)
+                        .toList());
+    }
+
+    @Test
+    public void testPurgeObjectVersionsWithPrefix_reusesPlannedPages() {
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder()
+                        .versions(ObjectVersion.builder()
+                                .key("v1/file1.txt")
+                                .versionId("a")
+                                .size(10L)
+                                .build())
+                        .deleteMarkers(DeleteMarkerEntry.builder()
+                                .key("v1/file2.txt")
+                                .versionId("b")
+                                .build())
+                        .isTruncated(false)
+                        .build());
+        when(s3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(DeleteObjectsResponse.builder().build());
+        PrefixDeletionPlan plan = bucketManager
+                .planPrefixDeletion(s3Client, bucketName, "v1", true)
+                .get();
+
+        Either<FailedOperation, DeletionReport> result =
+                bucketManager.purgeObjectVersionsWithPrefix(s3Client, bucketName, "v1", plan);
+
+        assertEquals(new DeletionReport(1, 1, 10), result.get());
+        verify(s3Client, times(1)).listObjectVersions(any(ListObjectVersionsRequest.class));
+    }
+
+    @Test
+    public void testExpireObjectsWithPrefix_keepsOtherRules() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(
+                                witboostLifecycleRule(),
+                                BucketConfigurations.prefixExpirationRules("v0/", 1)
+                                        .get(0))
+                        .build());
+
+        Either<FailedOperation, Void> result = bucketManager.expireObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isRight());
+        ArgumentCaptor<PutBucketLifecycleConfigurationRequest> captor =
+                ArgumentCaptor.forClass(PutBucketLifecycleConfigurationRequest.class);
+        verify(s3Client).putBucketLifecycleConfiguration(captor.capture());
+        List<LifecycleRule> rules = captor.getValue().lifecycleConfiguration().rules();
+        assertEquals(4, rules.size());
+        assertEquals(BucketConfigurations.LIFECYCLE_RULE_ID, rules.get(0).id());
+        assertEquals("v0/", rules.get(1).filter().prefix());
+        assertEquals("v1/", rules.get(2).filter().prefix());
+        assertEquals(1, rules.get(2).expiration().days());
+        assertTrue(rules.get(3).expiration().expiredObjectDeleteMarker());
+        assertTrue(bucketInventory.lookup(bucketName).get().prefixExpiration());
+    }
+
+    @Test
+    public void testExpireObjectsWithPrefix_failure() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenThrow(noSuchLifecycleConfiguration());
+        when(s3Client.putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class)))
+                .thenThrow(S3Exception.builder()
+                        .statusCode(400)
+                        .message("Too many rules")
+                        .build());
+
+        Either<FailedOperation, Void> result = bucketManager.expireObjectsWithPrefix(s3Client, bucketName, "v1");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("installing the lifecycle rules expiring prefix 'v1/'"));
+    }
+
+    @Test
+    public void testClearObjectExpiration_expiredRemovesRulesOfFolder() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata(null, null, null, true));
+        List<LifecycleRule> rules = new ArrayList<>();
+        rules.add(witboostLifecycleRule());
+        rules.addAll(BucketConfigurations.prefixExpirationRules("v1/", 1));
+        rules.addAll(BucketConfigurations.prefixExpirationRules("v2/", 1));
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(rules)
+                        .build());
+
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder().build());
+
+        Either<FailedOperation, Boolean> result =
+                bucketManager.clearObjectExpiration(s3Client, bucketName, "v1", false, new BucketReconciliation(false));
+
+        assertTrue(result.get());
+        assertTrue(bucketInventory.lookup(bucketName).get().prefixExpiration());
+        ArgumentCaptor<PutBucketLifecycleConfigurationRequest> captor =
+                ArgumentCaptor.forClass(PutBucketLifecycleConfigurationRequest.class);
+        verify(s3Client).putBucketLifecycleConfiguration(captor.capture());
+        List<LifecycleRule> expected = new ArrayList<>();
+        expected.add(witboostLifecycleRule());
+        expected.addAll(BucketConfigurations.prefixExpirationRules("v2/", 1));
+        assertEquals(expected, captor.getValue().lifecycleConfiguration().rules());
+    }
+
+    @Test
+    public void testClearObjectExpiration_noRules() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata(null, null, null, true));
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(witboostLifecycleRule())
+                        .build());
+
+        Either<FailedOperation, Boolean> result = bucketManager.clearObjectExpiration(
+                s3Client, bucketName, "v1/", false, new BucketReconciliation(false));
+
+        assertFalse(result.get());
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+        verify(s3Client, never()).deleteBucketLifecycle(any(DeleteBucketLifecycleRequest.class));
+    }
+
+    @Test
+    public void testClearObjectExpiration_usesRulesOfReconciliation() {
+        BucketReconciliation reconciliation = new BucketReconciliation(false);
+        reconciliation.recordLifecycleRules(BucketConfigurations.prefixExpirationRules("v1/", 1));
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder().build());
+
+        Either<FailedOperation, Boolean> result =
+                bucketManager.clearObjectExpiration(s3Client, bucketName, "v1", true, reconciliation);
+
+        assertTrue(result.get());
+        verify(s3Client, never()).getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class));
+        verify(s3Client).deleteBucketLifecycle(any(DeleteBucketLifecycleRequest.class));
+        assertFalse(bucketInventory.lookup(bucketName).get().prefixExpiration());
+    }
+
+    @Test
+    public void testClearObjectExpiration_stillExpiring() {
+        BucketReconciliation reconciliation = new BucketReconciliation(false);
+        reconciliation.recordLifecycleRules(BucketConfigurations.prefixExpirationRules("v1/", 1));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file1.txt").build())
+                        .build());
+
+        Either<FailedOperation, Boolean> result =
+                bucketManager.clearObjectExpiration(s3Client, bucketName, "v1", false, reconciliation);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("The folder 'v1/' is still being expired"));
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+        verify(s3Client, never()).deleteBucketLifecycle(any(DeleteBucketLifecycleRequest.class));
+    }
+
+    @Test
+    public void testClearObjectExpiration_lifecycleNotReadNorIndexed() {
+        Either<FailedOperation, Boolean> result =
+                bucketManager.clearObjectExpiration(s3Client, bucketName, "v1", false, new BucketReconciliation(false));
+
+        assertFalse(result.get());
+        verify(s3Client, never()).getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class));
+    }
+
+    @Test
+    public void testGetObjectExpirationStatus_noRules() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenThrow(noSuchLifecycleConfiguration());
+
+        Either<FailedOperation, ObjectExpirationStatus> result =
+                bucketManager.getObjectExpirationStatus(s3Client, bucketName, "v1", false);
+
+        assertEquals(ObjectExpirationStatus.NONE, result.get());
+        verify(s3Client, never()).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void testGetObjectExpirationStatus_inProgress() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(BucketConfigurations.prefixExpirationRules("v1/", 1))
+                        .build());
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder()
+                        .contents(S3Object.builder().key("v1/file1.txt").build())
+                        .build());
+
+        Either<FailedOperation, ObjectExpirationStatus> result =
+                bucketManager.getObjectExpirationStatus(s3Client, bucketName, "v1", false);
+
+        assertEquals(ObjectExpirationStatus.IN_PROGRESS, result.get());
+        ArgumentCaptor<ListObjectsV2Request> listCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(s3Client).listObjectsV2(listCaptor.capture());
+        assertEquals(1, listCaptor.getValue().maxKeys());
+        verify(s3Client, never()).putBucketLifecycleConfiguration(any(PutBucketLifecycleConfigurationRequest.class));
+    }
+
+    @Test
+    public void testGetObjectExpirationStatus_completedRemovesRules() {
+        List<LifecycleRule> rules = new ArrayList<>();
+        rules.add(witboostLifecycleRule());
+        rules.addAll(BucketConfigurations.prefixExpirationRules("v1/", 1));
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(rules)
+                        .build());
+        when(s3Client.listObjectVersions(any(ListObjectVersionsRequest.class)))
+                .thenReturn(ListObjectVersionsResponse.builder().build());
+
+        Either<FailedOperation, ObjectExpirationStatus> result =
+                bucketManager.getObjectExpirationStatus(s3Client, bucketName, "v1", true);
+
+        assertEquals(ObjectExpirationStatus.COMPLETED, result.get());
+        ArgumentCaptor<PutBucketLifecycleConfigurationRequest> captor =
+                ArgumentCaptor.forClass(PutBucketLifecycleConfigurationRequest.class);
+        verify(s3Client).putBucketLifecycleConfiguration(captor.capture());
+        assertEquals(
+                List.of(witboostLifecycleRule()),
+                captor.getValue().lifecycleConfiguration().rules());
+    }
+
+    @Test
+    public void testGetObjectExpirationStatus_completedDeletesConfiguration() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(BucketConfigurations.prefixExpirationRules("v1/", 1))
+                        .build());
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(ListObjectsV2Response.builder().build());
+
+        Either<FailedOperation, ObjectExpirationStatus> result =
+                bucketManager.getObjectExpirationStatus(s3Client, bucketName, "v1/", false);
+
+        assertEquals(ObjectExpirationStatus.COMPLETED, result.get());
+        verify(s3Client).deleteBucketLifecycle(any(DeleteBucketLifecycleRequest.class));
+    }
+
+    @Test
+    public void testApplyLifeCycleConfiguration_keepsPrefixExpirationRules() {
+        when(s3Client.getBucketLifecycleConfiguration(any(GetBucketLifecycleConfigurationRequest.class)))
+                .thenReturn(GetBucketLifecycleConfigurationResponse.builder()
+                        .rules(BucketConfigurations.prefixExpirationRules("v1/", 1))
+                        .build());
+
+        Either<FailedOperation, Void> result =
+                bucketManager.applyLifeCycleConfiguration(s3Client, bucketName, s3Specific.getLifeCycleConfiguration());
+
+        assertTrue(result.isRight());
+        ArgumentCaptor<PutBucketLifecycleConfigurationRequest> captor =
+                ArgumentCaptor.forClass(PutBucketLifecycleConfigurationRequest.class);
+        verify(s3Client).putBucketLifecycleConfiguration(captor.capture());
+        List<LifecycleRule> rules = captor.getValue().lifecycleConfiguration().rules();
+        assertEquals(3, rules.size());
+        assertEquals(BucketConfigurations.LIFECYCLE_RULE_ID, rules.get(0).id());
+        // The rules being expired do not make the configuration out of date
+        assertTrue(BucketConfigurations.lifecycleMatches(rules, s3Specific.getLifeCycleConfiguration()));
+    }
+
+    private LifecycleRule witboostLifecycleRule() {
+        return LifecycleRule.builder()
+                .id(BucketConfigurations.LIFECYCLE_RULE_ID)
+                .status(ExpirationStatus.ENABLED)
+                .noncurrentVersionExpiration(NoncurrentVersionExpiration.builder()
+                        .noncurrentDays(15)
+                        .newerNoncurrentVersions(8)
+                        .build())
+                .build();
+    }
+
+    private static S3Exception noSuchLifecycleConfiguration() {
+        return (S3Exception) S3Exception.builder()
+                .statusCode(404)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode("NoSuchLifecycleConfiguration")
+                        .build())
+                .build();
+    }
+
     @Test
     public void testDeleteObjectsWithPrefix_failure_emptyObjectIdentifiers() {
         String prefix = "my-prefix";
@@ -742,35 +1860,28 @@ public class BucketManagerTest {
     }
 
     @Test
-    void testApplyBucketPolicyForSecureTransport_success_UsingCustomPolicyPath() {
-        String customPolicyPath = "/custom/path/bucket-policy.json";
-
-        System.setProperty("bucket.policy.path", customPolicyPath);
+    void testApplyBucketPolicyForSecureTransport_renderedForBucket() {
         Either<FailedOperation, Void> result = bucketManager.applyBucketPolicyForSecureTransport(s3Client, bucketName);
+
         assertTrue(result.isRight());
-        assertEquals(customPolicyPath, System.getProperty("bucket.policy.path"));
-        System.clearProperty("bucket.policy.path");
+        ArgumentCaptor<PutBucketPolicyRequest> captor = ArgumentCaptor.forClass(PutBucketPolicyRequest.class);
+        verify(s3Client).putBucketPolicy(captor.capture());
+        assertTrue(captor.getValue().policy().contains("arn:aws:s3:::my-bucket/*"));
+        assertFalse(captor.getValue().policy().contains("{bucketName}"));
     }
 
     @Test
-    void testApplyBucketPolicyForSecureTransport_IOException() {
-        String bucketName = "test-bucket";
-        String customPolicyPath = "/custom/path/kms-policy.json";
+    void testApplyBucketPolicyForSecureTransport_failure() {
+        when(s3Client.putBucketPolicy(any(PutBucketPolicyRequest.class)))
+                .thenThrow(new RuntimeException("Policy error"));
 
-        System.setProperty("bucket.policy.path", customPolicyPath);
-
-        mockedFiles
-                .when(() -> Files.readAllBytes(Paths.get(customPolicyPath)))
-                .thenThrow(new IOException("IO Exception"));
         Either<FailedOperation, Void> result = bucketManager.applyBucketPolicyForSecureTransport(s3Client, bucketName);
 
         assertTrue(result.isLeft());
         assertTrue(result.getLeft()
                 .message()
                 .contains(
-                        "An unexpected error occurred while applying secure transport policy. Details: IO Exception"));
-
-        System.clearProperty("kms.policy.path");
+                        "An unexpected error occurred while applying secure transport policy. Details: Policy error"));
     }
 
     @Test
@@ -834,23 +1945,22 @@ public class BucketManagerTest {
     @Test
     void testDoesBucketExist_true() {
         String bucketName = "test-bucket";
-        ListBucketsResponse listBucketsResponse = mock(ListBucketsResponse.class);
-        when(s3Client.listBuckets()).thenReturn(listBucketsResponse);
-        when(listBucketsResponse.buckets())
-                .thenReturn(List.of(Bucket.builder().name(bucketName).build()));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("us-east-1").build());
 
         Either<FailedOperation, Boolean> result = bucketManager.doesBucketExist(s3Client, bucketName);
 
         assertTrue(result.isRight());
         assertTrue(result.get(), "Expected bucket to exist");
+        verify(s3Client, never()).listBuckets();
     }
 
     @Test
     void testDoesBucketExist_false() {
         String bucketName = "test-bucket";
-        ListBucketsResponse listBucketsResponse = mock(ListBucketsResponse.class);
-        when(s3Client.listBuckets()).thenReturn(listBucketsResponse);
-        when(listBucketsResponse.buckets()).thenReturn(List.of());
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         Either<FailedOperation, Boolean> result = bucketManager.doesBucketExist(s3Client, bucketName);
 
@@ -858,10 +1968,153 @@ public class BucketManagerTest {
         assertFalse(result.get(), "Expected bucket not to exist");
     }
 
+    @Test
+    void testProbeBucket_existsWithRegion() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("eu-west-1").build());
+
+        Either<FailedOperation, BucketProbe> result = bucketManager.probeBucket(s3Client, bucketName);
+
+        assertTrue(result.isRight());
+        assertEquals(BucketProbe.Status.EXISTS, result.get().status());
+        assertEquals("eu-west-1", result.get().region());
+    }
+
+    @Test
+    void testProbeBucket_servedFromInventory() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(
+                        HeadBucketResponse.builder().bucketRegion("eu-west-1").build());
+
+        bucketManager.probeBucket(s3Client, bucketName);
+        Either<FailedOperation, BucketProbe> result = bucketManager.probeBucket(s3Client, bucketName);
+
+        assertTrue(result.isRight());
+        assertEquals(BucketProbe.Status.EXISTS, result.get().status());
+        assertEquals("eu-west-1", result.get().region());
+        verify(s3Client, times(1)).headBucket(any(HeadBucketRequest.class));
+    }
+
+    @Test
+    void testCreateOrUpdateBucket_failure_invalidatesInventory() {
+        bucketInventory.record(s3Client, bucketName, new BucketMetadata("us-east-1", null, null));
+        when(s3Client.putBucketPolicy(any(PutBucketPolicyRequest.class)))
+                .thenThrow(new RuntimeException("runtime exception"));
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+    }
+
+    @Test
+    void testEnableKMS_KMSIndexedInInventory() {
+        bucketInventory.record(
+                s3Client, bucketName, new BucketMetadata("us-east-1", ServerSideEncryption.AWS_KMS, null));
+
+        Either<FailedOperation, Void> result =
+                bucketManager.enableKMS(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isRight());
+        verify(s3Client, never()).getBucketEncryption(any(GetBucketEncryptionRequest.class));
+        verify(kmsClient, never()).createKey(any(CreateKeyRequest.class));
+    }
+
+    @Test
+    void testProbeBucket_existsElsewhere() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        Either<FailedOperation, BucketProbe> result = bucketManager.probeBucket(s3Client, bucketName);
+
+        assertTrue(result.isRight());
+        assertEquals(BucketProbe.Status.EXISTS_ELSEWHERE, result.get().status());
+        assertNull(result.get().region());
+    }
+
+    @Test
+    void testProbeBucket_forbiddenInOwnAccount() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
+                .thenReturn(GetBucketLocationResponse.builder()
+                        .locationConstraint(BucketLocationConstraint.EU_WEST_1)
+                        .build());
+
+        Either<FailedOperation, BucketProbe> result = bucketManager.probeBucket(s3Client, bucketName);
+
+        assertTrue(result.isRight());
+        assertEquals(BucketProbe.Status.FORBIDDEN, result.get().status());
+        assertEquals("eu-west-1", result.get().region());
+        assertTrue(bucketInventory.lookup(bucketName).isEmpty());
+    }
+
+    @Test
+    void testDoesBucketExist_forbiddenInOwnAccount() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
+                .thenReturn(GetBucketLocationResponse.builder().build());
+
+        Either<FailedOperation, Boolean> result = bucketManager.doesBucketExist(s3Client, bucketName);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("s3:ListBucket"));
+    }
+
+    @Test
+    void testProbeBucket_unexpectedStatusCode() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder()
+                        .statusCode(500)
+                        .message("internal")
+                        .build());
+
+        Either<FailedOperation, BucketProbe> result = bucketManager.probeBucket(s3Client, bucketName);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("checking the bucket existence"));
+    }
+
+    @Test
+    void testCreateOrUpdateBucket_failure_bucketNameTakenByAnotherAccount() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("The bucket name is already taken"));
+        verify(s3Client, never()).createBucket(any(CreateBucketRequest.class));
+    }
+
+    @Test
+    void testCreateOrUpdateBucket_failure_bucketForbiddenInOwnAccount() {
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+        when(s3Client.getBucketLocation(any(GetBucketLocationRequest.class)))
+                .thenReturn(GetBucketLocationResponse.builder().build());
+
+        Either<FailedOperation, BucketReconciliation> result =
+                bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("not allowed to access it"));
+        assertFalse(result.getLeft().message().contains("already taken"));
+        verify(s3Client, never()).createBucket(any(CreateBucketRequest.class));
+    }
+
     @Test
     void testDoesBucketExist_exception() {
         String bucketName = "test-bucket";
-        when(s3Client.listBuckets()).thenThrow(new RuntimeException("S3 error"));
+        when(s3Client.headBucket(any(HeadBucketRequest.class))).thenThrow(new RuntimeException("S3 error"));
 
         Either<FailedOperation, Boolean> result = bucketManager.doesBucketExist(s3Client, bucketName);
 
@@ -871,7 +2124,8 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucket_failure_bucketPolicySecureTransport() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -890,7 +2144,7 @@ public class BucketManagerTest {
                 .when(s3Client)
                 .putBucketPolicy(any(PutBucketPolicyRequest.class));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -899,7 +2153,8 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucket_failure_enableKMS() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -924,7 +2179,7 @@ public class BucketManagerTest {
                 .when(s3Client)
                 .putBucketEncryption(any(PutBucketEncryptionRequest.class));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -933,7 +2188,8 @@ public class BucketManagerTest {
 
     @Test
     public void testCreateOrUpdateBucket_failure_enableAES256() {
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -952,7 +2208,7 @@ public class BucketManagerTest {
                 .when(s3Client)
                 .putBucketEncryption(any(PutBucketEncryptionRequest.class));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -962,7 +2218,8 @@ public class BucketManagerTest {
     @Test
     public void testCreateOrUpdateBucket_failure_multipleVersioning() {
 
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -981,7 +2238,7 @@ public class BucketManagerTest {
                 .when(s3Client)
                 .putBucketVersioning(any(PutBucketVersioningRequest.class));
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -992,7 +2249,8 @@ public class BucketManagerTest {
     public void testCreateOrUpdateBucket_failure_errorGeneratingKey() {
         s3Specific.setBucketTags(null);
         s3Specific.setServerSideEncryption(ServerSideEncryption.AWS_KMS);
-        when(s3Client.listBuckets()).thenReturn(mock(ListBucketsResponse.class));
+        when(s3Client.headBucket(any(HeadBucketRequest.class)))
+                .thenThrow(NoSuchBucketException.builder().build());
 
         when(s3Client.createBucket(any(CreateBucketRequest.class))).thenReturn(mock(CreateBucketResponse.class));
         S3Waiter s3Waiter = mock(S3Waiter.class);
@@ -1014,7 +2272,7 @@ public class BucketManagerTest {
         Optional<HeadBucketResponse> response = Optional.of(mock(HeadBucketResponse.class));
         when(responseOrException.response()).thenReturn(response);
 
-        Either<FailedOperation, Void> result =
+        Either<FailedOperation, BucketReconciliation> result =
                 bucketManager.createOrUpdateBucket(s3Client, kmsClient, bucketName, s3Specific, "accountId");
 
         assertTrue(result.isLeft());
@@ -0,0 +1,89 @@
+package com.witboost.provisioning.s3.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * In-memory stand-in of the objects of a single bucket, honouring the {@code If-None-Match} and {@code If-Match}
+ * conditions of {@code PutObject} and {@code DeleteObject} as Amazon S3 does.
+ */
+class ConditionalS3StandIn implements S3Client {
+
+    private final Map<String, StoredObject> objects = new HashMap<>();
+
+    record StoredObject(byte[] content, String eTag) {}
+
+    @Override
+    public synchronized PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        StoredObject current = objects.get(request.key());
+        if ("*".equals(request.ifNoneMatch()) && current != null) throw preconditionFailed();
+        if (request.ifMatch() != null) {
+            if (current == null)
+                throw NoSuchKeyException.builder().statusCode(404).build();
+            if (!current.eTag().equals(request.ifMatch())) throw preconditionFailed();
+        }
+        try (var content = body.contentStreamProvider().newStream()) {
+            StoredObject stored = new StoredObject(content.readAllBytes(), "\"" + UUID.randomUUID() + "\"");
+            objects.put(request.key(), stored);
+            return PutObjectResponse.builder().eTag(stored.eTag()).build();
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+        StoredObject current = objects.get(request.key());
+        if (current == null) throw NoSuchKeyException.builder().statusCode(404).build();
+        return ResponseBytes.fromByteArray(
+                GetObjectResponse.builder().eTag(current.eTag()).build(), current.content());
+    }
+
+    @Override
+    public synchronized DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        StoredObject current = objects.get(request.key());
+        if (current != null && request.ifMatch() != null && !current.eTag().equals(request.ifMatch()))
+            throw preconditionFailed();
+        objects.remove(request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    synchronized StoredObject get(String key) {
+        return objects.get(key);
+    }
+
+    synchronized void put(String key, String content) {
+        objects.put(key, new StoredObject(content.getBytes(), "\"" + UUID.randomUUID() + "\""));
+    }
+
+    @Override
+    public String serviceName() {
+        return "s3";
+    }
+
+    @Override
+    public void close() {}
+
+    private static S3Exception preconditionFailed() {
+        return (S3Exception) S3Exception.builder()
+                .statusCode(412)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode("PreconditionFailed")
+                        .errorMessage("At least one of the pre-conditions you specified did not hold")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+class DeletionCheckpointerTest {
+
+    private static final DeletionCheckpoint.Listing OBJECTS = DeletionCheckpoint.Listing.OBJECTS;
+
+    private ExecutorService executor;
+    private InMemoryStore store;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        store = new InMemoryStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testPageListed_savesOncePerInterval() throws Exception {
+        DeletionCheckpointer checkpointer = checkpointer();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 2, 2, batch -> List.of());
+
+        add(pipeline, 0, 1500);
+        checkpointer.pageListed(pipeline, "token-1", null, null);
+        assertTrue(store.checkpoints.isEmpty(), "No checkpoint before the interval elapses");
+
+        now += Duration.ofSeconds(30).toNanos();
+        add(pipeline, 1500, 2000);
+        checkpointer.pageListed(pipeline, "token-2", null, null);
+
+        DeletionCheckpoint checkpoint = store.checkpoints.get("my-bucket/v1/objects.json");
+        assertEquals("token-2", checkpoint.continuationToken());
+        // The pipeline is flushed first, so every object listed before the token is deleted
+        assertEquals(2000, checkpoint.deleted());
+        pipeline.finish();
+    }
+
+    @Test
+    void testPageListed_noCheckpointAfterFailures() throws Exception {
+        DeletionCheckpointer checkpointer = checkpointer();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 1, 1, batch -> batch.stream()
+                .filter(object -> object.key().equals("file0"))
+                .map(object -> S3Error.builder()
+                        .key(object.key())
+                        .message("Access Denied")
+                        .build())
+                .collect(Collectors.toList()));
+
+        add(pipeline, 0, 10);
+        now += Duration.ofSeconds(30).toNanos();
+        checkpointer.pageListed(pipeline, "token-1", null, null);
+
+        assertTrue(store.checkpoints.isEmpty(), "The objects not deleted must be listed again");
+        pipeline.finish();
+    }
+
+    @Test
+    void testResume_addsCountersOfPreviousDeletion() {
+        store.save(new DeletionCheckpoint(
+                "my-bucket", "v1/", OBJECTS, "token-7", null, null, 7000, 0, 0, "2026-01-01T00:00:00Z"));
+        DeletionCheckpointer checkpointer = checkpointer();
+
+        Optional<DeletionCheckpoint> checkpoint = checkpointer.resume();
+
+        assertEquals("token-7", checkpoint.get().continuationToken());
+        assertEquals(
+                7010,
+                checkpointer
+                        .total(new DeletionPipeline.Result(10, 0, 0, 0, List.of()))
+                        .deleted());
+        checkpointer.completed();
+        assertTrue(store.checkpoints.isEmpty());
+    }
+
+    @Test
+    void testResume_unreadableCheckpointStartsOver() {
+        store.failing = true;
+        DeletionCheckpointer checkpointer = checkpointer();
+
+        assertTrue(checkpointer.resume().isEmpty());
+    }
+
+    @Test
+    void testPageListed_storeErrorsAreIgnored() throws Exception {
+        store.failing = true;
+        DeletionCheckpointer checkpointer = checkpointer();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 1, 1, batch -> List.of());
+
+        add(pipeline, 0, 10);
+        now += Duration.ofSeconds(30).toNanos();
+        checkpointer.pageListed(pipeline, "token-1", null, null);
+
+        assertEquals(10, pipeline.finish().deleted());
+    }
+
+    @Test
+    void testDisabledStore() throws Exception {
+        DeletionCheckpointer checkpointer = new DeletionCheckpointer(
+                DeletionCheckpointStore.none(), "my-bucket", "v1/", OBJECTS, Duration.ZERO, () -> now);
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 1, 1, batch -> List.of());
+
+        assertTrue(checkpointer.resume().isEmpty());
+        add(pipeline, 0, 10);
+        checkpointer.pageListed(pipeline, "token-1", null, null);
+
+        assertEquals(0, pipeline.progress().deleted(), "The pipeline is not flushed without a store");
+        pipeline.finish();
+    }
+
+    private DeletionCheckpointer checkpointer() {
+        return new DeletionCheckpointer(store, "my-bucket", "v1/", OBJECTS, Duration.ofSeconds(30), () -> now);
+    }
+
+    private static void add(DeletionPipeline pipeline, int from, int to) throws Exception {
+        for (int i = from; i < to; i++)
+            pipeline.add(ObjectIdentifier.builder().key("file" + i).build());
+    }
+
+    private static final class InMemoryStore implements DeletionCheckpointStore {
+
+        private final Map<String, DeletionCheckpoint> checkpoints = new HashMap<>();
+        private boolean failing;
+
+        @Override
+        public Optional<DeletionCheckpoint> load(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+            if (failing) throw new IllegalStateException("Store unavailable");
+            return Optional.ofNullable(checkpoints.get(DeletionCheckpointStore.path(bucketName, prefix, listing)));
+        }
+
+        @Override
+        public void save(DeletionCheckpoint checkpoint) {
+            if (failing) throw new IllegalStateException("Store unavailable");
+            checkpoints.put(
+                    DeletionCheckpointStore.path(checkpoint.bucketName(), checkpoint.prefix(), checkpoint.listing()),
+                    checkpoint);
+        }
+
+        @Override
+        public void delete(String bucketName, String prefix, DeletionCheckpoint.Listing listing) {
+            checkpoints.remove(DeletionCheckpointStore.path(bucketName, prefix, listing));
+        }
+    }
+}
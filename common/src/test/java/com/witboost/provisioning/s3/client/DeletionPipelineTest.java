@@ -0,0 +1,195 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.witboost.provisioning.model.common.Problem;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+class DeletionPipelineTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testDeletesInBatches() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 4, 2, batch -> {
+            batchSizes.add(batch.size());
+            return List.of();
+        });
+
+        for (int i = 0; i < 2500; i++) pipeline.add(object("v1/file" + i));
+        DeletionPipeline.Result result = pipeline.finish();
+
+        assertEquals(2500, result.deleted());
+        assertEquals(0, result.failed());
+        assertEquals(List.of(500, 1000, 1000), batchSizes.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testDeletesConcurrently() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(3);
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 3, 1, batch -> {
+            inFlight.countDown();
+            try {
+                // Each request completes only once three of them are in flight at the same time
+                assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        });
+
+        for (int i = 0; i < 3 * DeletionPipeline.MAX_BATCH_SIZE; i++) pipeline.add(object("file" + i));
+
+        assertEquals(3000, pipeline.finish().deleted());
+    }
+
+    @Test
+    void testListingWaitsForDeletion() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger added = new AtomicInteger();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 1, 1, batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        });
+
+        CompletableFuture<DeletionPipeline.Result> lister = CompletableFuture.supplyAsync(() -> {
+            try {
+                for (int i = 0; i < 5 * DeletionPipeline.MAX_BATCH_SIZE; i++) {
+                    pipeline.add(object("file" + i));
+                    added.incrementAndGet();
+                }
+                return pipeline.finish();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+
+        // One batch being deleted, one in the queue and one waiting to be handed over
+        assertFalse(lister.isDone());
+        assertEquals(3 * DeletionPipeline.MAX_BATCH_SIZE - 1, added.get());
+        release.countDown();
+        assertEquals(5000, lister.get(5, TimeUnit.SECONDS).deleted());
+    }
+
+    @Test
+    void testFlushWaitsForObjectsAdded() throws Exception {
+        AtomicInteger deleted = new AtomicInteger();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 2, 1, batch -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deleted.addAndGet(batch.size());
+            return List.of();
+        });
+
+        for (int i = 0; i < 2500; i++) pipeline.add(object("file" + i));
+        pipeline.flush();
+
+        // The last batch is handed over even if not full
+        assertEquals(2500, deleted.get());
+        assertEquals(2500, pipeline.progress().deleted());
+
+        pipeline.add(object("file2500"));
+        assertEquals(2501, pipeline.finish().deleted());
+    }
+
+    @Test
+    void testReportsObjectsNotDeleted() throws Exception {
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 2, 2, batch -> batch.stream()
+                .filter(object -> object.key().endsWith("0"))
+                .map(object -> S3Error.builder()
+                        .key(object.key())
+                        .message("Access Denied")
+                        .build())
+                .collect(Collectors.toList()));
+
+        for (int i = 0; i < 2000; i++) pipeline.add(object("file" + i));
+        DeletionPipeline.Result result = pipeline.finish();
+
+        assertEquals(1800, result.deleted());
+        assertEquals(200, result.failed());
+        assertEquals(DeletionPipeline.MAX_REPORTED_PROBLEMS, result.problems().size());
+    }
+
+    @Test
+    void testCountsVersionsAndDeleteMarkers() throws Exception {
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 2, 2, batch -> batch.stream()
+                .filter(object -> object.versionId().equals("failing"))
+                .map(object -> S3Error.builder()
+                        .key(object.key())
+                        .versionId(object.versionId())
+                        .message("Access Denied")
+                        .build())
+                .collect(Collectors.toList()));
+
+        for (int i = 0; i < 1500; i++) pipeline.add(version("file" + i, "v" + i), 10, false);
+        for (int i = 0; i < 500; i++) pipeline.add(version("file" + i, "marker" + i), 0, true);
+        pipeline.add(version("file0", "failing"), 1000, false);
+        DeletionPipeline.Result result = pipeline.finish();
+
+        assertEquals(2000, result.deleted());
+        assertEquals(500, result.deletedMarkers());
+        assertEquals(15000, result.deletedBytes());
+        assertEquals(1, result.failed());
+        assertEquals(
+                List.of(new Problem("Error deleting version 'failing' of object with key 'file0': Access Denied")),
+                result.problems());
+    }
+
+    @Test
+    void testStopsOnException() {
+        AtomicInteger requests = new AtomicInteger();
+        DeletionPipeline pipeline = new DeletionPipeline(executor, 1, 1, batch -> {
+            requests.incrementAndGet();
+            throw new IllegalStateException("Access Denied");
+        });
+
+        Exception exception = assertThrows(Exception.class, () -> {
+            for (int i = 0; i < 10 * DeletionPipeline.MAX_BATCH_SIZE; i++) pipeline.add(object("file" + i));
+            pipeline.finish();
+        });
+        pipeline.abort();
+
+        assertEquals("Access Denied", exception.getMessage());
+        assertTrue(requests.get() < 10);
+    }
+
+    private static ObjectIdentifier object(String key) {
+        return ObjectIdentifier.builder().key(key).build();
+    }
+
+    private static ObjectIdentifier version(String key, String versionId) {
+        return ObjectIdentifier.builder().key(key).versionId(versionId).build();
+    }
+}
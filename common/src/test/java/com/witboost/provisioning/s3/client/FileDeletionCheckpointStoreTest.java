@@ -0,0 +1,61 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileDeletionCheckpointStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testSaveLoadDelete() throws IOException {
+        FileDeletionCheckpointStore store = new FileDeletionCheckpointStore(directory.resolve("checkpoints"));
+        DeletionCheckpoint checkpoint = new DeletionCheckpoint(
+                "my-bucket",
+                "v1/",
+                DeletionCheckpoint.Listing.VERSIONS,
+                null,
+                "v1/file.txt",
+                "abc",
+                10,
+                2,
+                4096,
+                "2026-01-01T00:00:00Z");
+
+        assertTrue(store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.VERSIONS)
+                .isEmpty());
+        store.save(checkpoint);
+        store.save(checkpoint);
+
+        assertEquals(
+                checkpoint,
+                store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.VERSIONS)
+                        .get());
+        assertTrue(store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.OBJECTS)
+                .isEmpty());
+
+        store.delete("my-bucket", "v1/", DeletionCheckpoint.Listing.VERSIONS);
+        store.delete("my-bucket", "v1/", DeletionCheckpoint.Listing.VERSIONS);
+        assertTrue(store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.VERSIONS)
+                .isEmpty());
+    }
+
+    @Test
+    void testPrefixStaysInDirectory() throws IOException {
+        FileDeletionCheckpointStore store = new FileDeletionCheckpointStore(directory);
+
+        store.save(new DeletionCheckpoint(
+                "my-bucket", "../../v1/", DeletionCheckpoint.Listing.OBJECTS, "token", null, null, 0, 0, 0, null));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -6,10 +6,8 @@ import static org.mockito.Mockito.*;
 
 import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.s3.model.BucketTag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.vavr.control.Either;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,12 +20,22 @@ class KmsManagerTest {
     @Mock
     private KmsClient kmsClient;
 
+    @Spy
+    private PolicyTemplateRegistry policyTemplateRegistry =
+            new PolicyTemplateRegistry(new SimpleMeterRegistry(), false);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private StepMetrics stepMetrics = new StepMetrics(meterRegistry);
+
     @InjectMocks
     private KmsManager kmsManager;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        policyTemplateRegistry.load();
     }
 
     @Test
@@ -49,6 +57,13 @@ class KmsManagerTest {
         assertTrue(result.isRight());
         assertEquals("testKeyId", result.get());
         verify(kmsClient).createKey(any(CreateKeyRequest.class));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(StepMetrics.EXECUTIONS)
+                        .tags("step", "kms-create-key", "outcome", "success")
+                        .counter()
+                        .count());
     }
 
     @Test
@@ -68,55 +83,19 @@ class KmsManagerTest {
     }
 
     @Test
-    void testCreateKey_UsingCustomPolicyPath() {
-        String keyDesc = "Test Key Description";
-        String customPolicyPath = "/custom/path/kms-policy.json";
-
-        System.setProperty("kms.policy.path", customPolicyPath);
-
-        try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
-            mockedFiles
-                    .when(() -> Files.readAllBytes(Paths.get(customPolicyPath)))
-                    .thenReturn("{accountID: testAccount}".getBytes());
-
-            CreateKeyResponse createKeyResponse = CreateKeyResponse.builder()
-                    .keyMetadata(KeyMetadata.builder().keyId("testKeyId").build())
-                    .build();
-
-            when(kmsClient.createKey(any(CreateKeyRequest.class))).thenReturn(createKeyResponse);
-
-            Either<FailedOperation, String> result = kmsManager.createKey(kmsClient, "accountId", keyDesc, List.of());
-            assertTrue(result.isRight());
-            assertEquals("testKeyId", result.get());
-            assertEquals(customPolicyPath, System.getProperty("kms.policy.path"));
-        }
-
-        System.clearProperty("kms.policy.path");
-    }
-
-    @Test
-    void testCreateKey_UsingCustomPolicyPath_IOException() {
-        String keyDesc = "Test Key Description";
-        String customPolicyPath = "/custom/path/kms-policy.json";
-
-        System.setProperty("kms.policy.path", customPolicyPath);
-
-        try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
-            mockedFiles
-                    .when(() -> Files.readAllBytes(Paths.get(customPolicyPath)))
-                    .thenThrow(new IOException("IO Exception"));
-
-            CreateKeyResponse createKeyResponse = CreateKeyResponse.builder()
-                    .keyMetadata(KeyMetadata.builder().keyId("testKeyId").build())
-                    .build();
-
-            when(kmsClient.createKey(any(CreateKeyRequest.class))).thenReturn(createKeyResponse);
+    void testCreateKey_PolicyRenderedWithAccountId() {
+        CreateKeyResponse createKeyResponse = CreateKeyResponse.builder()
+                .keyMetadata(KeyMetadata.builder().keyId("testKeyId").build())
+                .build();
+        when(kmsClient.createKey(any(CreateKeyRequest.class))).thenReturn(createKeyResponse);
 
-            Either<FailedOperation, String> result = kmsManager.createKey(kmsClient, "accountId", keyDesc, List.of());
-            assertTrue(result.isLeft());
-            assertTrue(result.getLeft().message().contains("IO Exception"));
-        }
+        Either<FailedOperation, String> result =
+                kmsManager.createKey(kmsClient, "123456789012", "Test Key Description", List.of());
 
-        System.clearProperty("kms.policy.path");
+        assertTrue(result.isRight());
+        ArgumentCaptor<CreateKeyRequest> captor = ArgumentCaptor.forClass(CreateKeyRequest.class);
+        verify(kmsClient).createKey(captor.capture());
+        assertTrue(captor.getValue().policy().contains("arn:aws:iam::123456789012:root"));
+        assertFalse(captor.getValue().policy().contains("{accountID}"));
     }
 }
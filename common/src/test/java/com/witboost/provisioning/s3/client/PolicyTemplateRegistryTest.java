@@ -0,0 +1,164 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PolicyTemplateRegistryTest {
+
+    private static final String BUCKET_POLICY =
+            "{\"Statement\": [{\"Resource\": \"arn:aws:s3:::{bucketName}/*\", \"Effect\": \"Deny\"}]}";
+
+    @TempDir
+    private Path configDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PolicyTemplateRegistry policyTemplateRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        policyTemplateRegistry = new PolicyTemplateRegistry(meterRegistry, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        policyTemplateRegistry.stopWatcher();
+        System.clearProperty("bucket.policy.path");
+        System.clearProperty("kms.policy.path");
+    }
+
+    @Test
+    void testLoad_defaultTemplates() {
+        policyTemplateRegistry.load();
+
+        String bucketPolicy = policyTemplateRegistry.renderBucketPolicy("my-bucket");
+        String kmsPolicy = policyTemplateRegistry.renderKmsPolicy("123456789012");
+
+        assertTrue(bucketPolicy.contains("arn:aws:s3:::my-bucket/*"));
+        assertTrue(kmsPolicy.contains("arn:aws:iam::123456789012:root"));
+    }
+
+    @Test
+    void testLoad_customTemplate() throws IOException {
+        Path bucketPolicyPath = write("bucketPolicy.json", BUCKET_POLICY);
+        System.setProperty("bucket.policy.path", bucketPolicyPath.toString());
+
+        policyTemplateRegistry.load();
+
+        assertEquals(
+                "{\"Statement\": [{\"Resource\": \"arn:aws:s3:::my-bucket/*\", \"Effect\": \"Deny\"}]}",
+                policyTemplateRegistry.renderBucketPolicy("my-bucket"));
+    }
+
+    @Test
+    void testLoad_customTemplateNotReadable() {
+        System.setProperty(
+                "bucket.policy.path", configDirectory.resolve("missing.json").toString());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, policyTemplateRegistry::load);
+
+        assertTrue(exception.getMessage().startsWith("Unable to load the bucket policy template."));
+    }
+
+    @Test
+    void testLoad_invalidJson() throws IOException {
+        System.setProperty(
+                "kms.policy.path",
+                write("kmsPolicy.json", "{\"Principal\": \"{accountID}\"").toString());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, policyTemplateRegistry::load);
+
+        assertTrue(exception.getMessage().contains("The KMS policy template is not a valid JSON document"));
+    }
+
+    @Test
+    void testLoad_missingPlaceholder() throws IOException {
+        System.setProperty(
+                "bucket.policy.path",
+                write("bucketPolicy.json", "{\"Statement\": []}").toString());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, policyTemplateRegistry::load);
+
+        assertTrue(
+                exception.getMessage().contains("The bucket policy template is missing the placeholders [bucketName]"));
+    }
+
+    @Test
+    void testLoad_unknownPlaceholder() throws IOException {
+        System.setProperty(
+                "bucket.policy.path",
+                write("bucketPolicy.json", "{\"Resource\": \"arn:aws:s3:::{bucketName}/{prefix}\"}")
+                        .toString());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, policyTemplateRegistry::load);
+
+        assertTrue(exception.getMessage().contains("unknown placeholders [prefix]"));
+    }
+
+    @Test
+    void testReload_changedTemplate() throws IOException {
+        Path bucketPolicyPath = write("bucketPolicy.json", BUCKET_POLICY);
+        System.setProperty("bucket.policy.path", bucketPolicyPath.toString());
+        policyTemplateRegistry.load();
+
+        write("bucketPolicy.json", BUCKET_POLICY.replace("Deny", "Allow"));
+        policyTemplateRegistry.reload();
+
+        assertTrue(policyTemplateRegistry.renderBucketPolicy("my-bucket").contains("Allow"));
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.policy.template.reloads", "template", "bucket", "result", "success")
+                        .count());
+    }
+
+    @Test
+    void testReload_invalidTemplateKeepsPrevious() throws IOException {
+        Path bucketPolicyPath = write("bucketPolicy.json", BUCKET_POLICY);
+        System.setProperty("bucket.policy.path", bucketPolicyPath.toString());
+        policyTemplateRegistry.load();
+
+        write("bucketPolicy.json", "not a policy");
+        policyTemplateRegistry.reload();
+
+        assertTrue(policyTemplateRegistry.renderBucketPolicy("my-bucket").contains("Deny"));
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("s3.policy.template.reloads", "template", "bucket", "result", "failure")
+                        .count());
+    }
+
+    @Test
+    void testWatcher_reloadsOnFileChange() throws IOException, InterruptedException {
+        Path bucketPolicyPath = write("bucketPolicy.json", BUCKET_POLICY);
+        System.setProperty("bucket.policy.path", bucketPolicyPath.toString());
+        policyTemplateRegistry = new PolicyTemplateRegistry(meterRegistry, true);
+        policyTemplateRegistry.load();
+
+        write("bucketPolicy.json", BUCKET_POLICY.replace("Deny", "Allow"));
+
+        for (int i = 0;
+                i < 200
+                        && !policyTemplateRegistry
+                                .renderBucketPolicy("my-bucket")
+                                .contains("Allow");
+                i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(policyTemplateRegistry.renderBucketPolicy("my-bucket").contains("Allow"));
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        return Files.writeString(configDirectory.resolve(fileName), content);
+    }
+}
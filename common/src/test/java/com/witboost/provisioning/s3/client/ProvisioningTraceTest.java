@@ -0,0 +1,69 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.witboost.provisioning.s3.client.ProvisioningTrace.Phase;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class ProvisioningTraceTest {
+
+    @Test
+    void testRecord_boundTrace() throws InterruptedException {
+        try (ProvisioningTrace trace = ProvisioningTrace.open()) {
+            long start = ProvisioningTrace.start();
+            Thread.sleep(5);
+            ProvisioningTrace.record(Phase.CONFIGURATION, start);
+            ProvisioningTrace.callIssued();
+            ProvisioningTrace.callIssued();
+            ProvisioningTrace.callsSkipped(3);
+
+            assertTrue(trace.phaseMillis(Phase.CONFIGURATION) >= 5);
+            assertEquals(0, trace.phaseMillis(Phase.VALIDATION));
+            assertEquals(2, trace.awsCalls());
+            assertEquals(3, trace.skippedAwsCalls());
+        }
+    }
+
+    @Test
+    void testRecord_noTraceIsIgnored() {
+        ProvisioningTrace.callIssued();
+        ProvisioningTrace.record(Phase.VALIDATION, ProvisioningTrace.start());
+
+        try (ProvisioningTrace trace = ProvisioningTrace.open()) {
+            assertEquals(0, trace.awsCalls());
+        }
+    }
+
+    @Test
+    void testClose_unbindsTrace() {
+        ProvisioningTrace trace = ProvisioningTrace.open();
+        trace.close();
+
+        ProvisioningTrace.callIssued();
+
+        assertEquals(0, trace.awsCalls());
+    }
+
+    @Test
+    void testPropagate_otherThreadReportsToSameTrace() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ProvisioningTrace trace = ProvisioningTrace.open()) {
+            CompletableFuture.supplyAsync(
+                            ProvisioningTrace.propagate(() -> {
+                                ProvisioningTrace.callIssued();
+                                return null;
+                            }),
+                            executor)
+                    .join();
+            // The worker thread is left without a trace
+            CompletableFuture.runAsync(ProvisioningTrace::callIssued, executor).join();
+
+            assertEquals(1, trace.awsCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
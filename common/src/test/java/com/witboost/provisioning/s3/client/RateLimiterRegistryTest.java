@@ -0,0 +1,67 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.witboost.provisioning.s3.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new RateLimiterRegistry(new RateLimitProperties(), meterRegistry);
+    }
+
+    @Test
+    void testRetain_sharesLimiterOfPrefix() {
+        AdaptiveRateLimiter first = registry.retain("my-bucket", "v1/");
+        AdaptiveRateLimiter second = registry.retain("my-bucket", "v1/");
+        AdaptiveRateLimiter otherPrefix = registry.retain("my-bucket", "v2/");
+
+        assertSame(first, second);
+        assertNotSame(first, otherPrefix);
+    }
+
+    @Test
+    void testRateGauge() {
+        AdaptiveRateLimiter limiter = registry.retain("my-bucket", "v1/");
+        limiter.onSlowDown();
+
+        assertEquals(
+                1750,
+                meterRegistry
+                        .get("s3.rate-limit.rate")
+                        .tag("bucket", "my-bucket")
+                        .tag("prefix", "v1/")
+                        .gauge()
+                        .value());
+    }
+
+    @Test
+    void testRelease_discardsLimiterOfLastUser() {
+        AdaptiveRateLimiter limiter = registry.retain("my-bucket", "v1/");
+        registry.retain("my-bucket", "v1/");
+
+        registry.release("my-bucket", "v1/");
+        assertSame(limiter, registry.retain("my-bucket", "v1/"));
+
+        registry.release("my-bucket", "v1/");
+        registry.release("my-bucket", "v1/");
+        assertNull(meterRegistry.find("s3.rate-limit.rate").gauge());
+        assertNotSame(limiter, registry.retain("my-bucket", "v1/"));
+    }
+
+    @Test
+    void testConstructor_invalidConfiguration() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxRate(10);
+
+        assertThrows(IllegalStateException.class, () -> new RateLimiterRegistry(properties, meterRegistry));
+    }
+}
@@ -0,0 +1,61 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+
+class S3DeletionCheckpointStoreTest {
+
+    private final ConditionalS3StandIn checkpointBucket = new ConditionalS3StandIn();
+
+    @Test
+    void testSaveLoadDelete() throws IOException {
+        S3DeletionCheckpointStore store =
+                new S3DeletionCheckpointStore(checkpointBucket, "control-bucket", "deletion-checkpoints/");
+        DeletionCheckpoint checkpoint = new DeletionCheckpoint(
+                "my-bucket",
+                "v1/",
+                DeletionCheckpoint.Listing.OBJECTS,
+                "token",
+                null,
+                null,
+                1000,
+                0,
+                0,
+                "2026-01-01T00:00:00Z");
+
+        assertTrue(store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.OBJECTS)
+                .isEmpty());
+        store.save(checkpoint);
+
+        assertNotNull(checkpointBucket.get("deletion-checkpoints/my-bucket/v1/objects.json"));
+        assertEquals(
+                checkpoint,
+                store.load("my-bucket", "v1/", DeletionCheckpoint.Listing.OBJECTS)
+                        .get());
+
+        store.delete("my-bucket", "v1/", DeletionCheckpoint.Listing.OBJECTS);
+        assertNull(checkpointBucket.get("deletion-checkpoints/my-bucket/v1/objects.json"));
+    }
+
+    @Test
+    void testConstructor_noBucket() {
+        assertThrows(
+                IllegalStateException.class,
+                () -> new S3DeletionCheckpointStore(checkpointBucket, " ", "deletion-checkpoints/"));
+    }
+
+    @Test
+    void testClose_closesClient() {
+        S3Client s3Client = mock(S3Client.class);
+        S3DeletionCheckpointStore store =
+                new S3DeletionCheckpointStore(s3Client, "control-bucket", "deletion-checkpoints/");
+
+        store.close();
+
+        verify(s3Client).close();
+    }
+}
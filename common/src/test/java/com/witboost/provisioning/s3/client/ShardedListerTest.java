@@ -0,0 +1,117 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedListerTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testForEachPage_mergesAllShards() throws Exception {
+        List<String> shards =
+                IntStream.range(0, 20).mapToObj(i -> "v1/shard" + i + "/").toList();
+        Set<String> keys = new HashSet<>();
+        Set<String> consumerThreads = new HashSet<>();
+
+        new ShardedLister(executor, 4, 2)
+                .<List<String>>forEachPage(
+                        shards,
+                        (shard, pages) -> {
+                            for (int page = 0; page < 3; page++)
+                                pages.accept(List.of(shard + "file" + page + "a", shard + "file" + page + "b"));
+                        },
+                        page -> {
+                            keys.addAll(page);
+                            consumerThreads.add(Thread.currentThread().getName());
+                        });
+
+        assertEquals(20 * 3 * 2, keys.size());
+        assertEquals(Set.of(Thread.currentThread().getName()), consumerThreads, "Pages are consumed by the caller");
+    }
+
+    @Test
+    void testForEachPage_boundsParallelism() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> shards = IntStream.range(0, 12).mapToObj(i -> "shard" + i).toList();
+
+        new ShardedLister(executor, 3, 4)
+                .<String>forEachPage(
+                        shards,
+                        (shard, pages) -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            Thread.sleep(20);
+                            running.decrementAndGet();
+                            pages.accept(shard);
+                        },
+                        page -> {});
+
+        assertTrue(maxRunning.get() <= 3, "At most 3 shards are listed at once, was " + maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "Shards are listed in parallel");
+    }
+
+    @Test
+    void testForEachPage_shardFailureIsRethrown() {
+        List<String> listed = new ArrayList<>();
+
+        IllegalStateException exception =
+                assertThrows(IllegalStateException.class, () -> new ShardedLister(executor, 2, 2)
+                        .<String>forEachPage(
+                                List.of("ok", "broken"),
+                                (shard, pages) -> {
+                                    if (shard.equals("broken")) throw new IllegalStateException("Access Denied");
+                                    pages.accept(shard);
+                                },
+                                listed::add));
+
+        assertEquals("Access Denied", exception.getMessage());
+    }
+
+    @Test
+    void testForEachPage_consumerFailureStopsWorkers() throws Exception {
+        assertThrows(IllegalStateException.class, () -> new ShardedLister(executor, 2, 1)
+                .<Integer>forEachPage(
+                        List.of("a", "b"),
+                        (shard, pages) -> {
+                            // Far more pages than the queue holds, the workers must give up
+                            for (int page = 0; page < 1000; page++) pages.accept(page);
+                        },
+                        page -> {
+                            throw new IllegalStateException("The pipeline stopped");
+                        }));
+
+        // A worker started after the failure lists nothing, one blocked on the full queue gives up
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "Workers blocked on a full queue must stop");
+    }
+
+    @Test
+    void testForEachPage_noShards() throws Exception {
+        new ShardedLister(executor, 2, 2)
+                .<String>forEachPage(
+                        List.of(), (shard, pages) -> fail("No shard to list"), page -> fail("No page to consume"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.witboost.provisioning.s3.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.s3.client.StepMetrics.Step;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
+
+class StepMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StepMetrics stepMetrics;
+    private S3Client s3Client;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stepMetrics = new StepMetrics(meterRegistry);
+        s3Client = mock(S3Client.class);
+        when(s3Client.serviceClientConfiguration())
+                .thenReturn(S3ServiceClientConfiguration.builder()
+                        .region(Region.EU_WEST_1)
+                        .build());
+    }
+
+    @Test
+    void testRecord_success() {
+        Either<FailedOperation, String> result =
+                stepMetrics.record(Step.TAGS, s3Client, "my-bucket", () -> Either.right("ok"));
+
+        assertEquals("ok", result.get());
+        assertEquals(1, executions("tags", "eu-west-1", "success"));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get(StepMetrics.DURATION)
+                        .tags("step", "tags", "region", "eu-west-1", "outcome", "success")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    void testRecord_failedOperation() {
+        Either<FailedOperation, Void> result = stepMetrics.record(
+                Step.POLICY, s3Client, "my-bucket", () -> Either.left(new FailedOperation("Access Denied", List.of())));
+
+        assertTrue(result.isLeft());
+        assertEquals(1, executions("policy", "eu-west-1", "failure"));
+    }
+
+    @Test
+    void testRecord_exception() {
+        assertThrows(
+                IllegalStateException.class,
+                () -> stepMetrics.record(Step.CREATE_BUCKET, s3Client, "my-bucket", () -> {
+                    throw new IllegalStateException("Throttled");
+                }));
+
+        assertEquals(1, executions("create-bucket", "eu-west-1", "failure"));
+    }
+
+    @Test
+    void testRecord_emitsFlightRecorderEvent(@TempDir Path directory) throws IOException {
+        Path dump = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.witboost.s3.BucketOperation");
+            recording.start();
+            stepMetrics.record(
+                    Step.VERSIONING,
+                    s3Client,
+                    "my-bucket",
+                    () -> Either.left(new FailedOperation("Denied", List.of())));
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("my-bucket", event.getString("bucket"));
+        assertEquals("eu-west-1", event.getString("region"));
+        assertEquals("versioning", event.getString("step"));
+        assertEquals("failure", event.getString("outcome"));
+    }
+
+    @Test
+    void testRegionOf_unknown() {
+        assertEquals("unknown", StepMetrics.regionOf(mock(S3Client.class)));
+        assertEquals("unknown", StepMetrics.regionOf(null));
+    }
+
+    private double executions(String step, String region, String outcome) {
+        return meterRegistry
+                .get(StepMetrics.EXECUTIONS)
+                .tags("step", step, "region", region, "outcome", outcome)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,49 @@
+package com.witboost.provisioning.s3.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+class AwsClientFactoryTest {
+
+    @Test
+    void testHttpClient_apacheByDefault() {
+        try (SdkHttpClient httpClient = AwsClientFactory.httpClient(new AwsClientProperties())) {
+            assertEquals("Apache", httpClient.clientName());
+        }
+    }
+
+    @Test
+    void testHttpClient_urlConnection() {
+        AwsClientProperties properties = new AwsClientProperties();
+        properties.setHttpClient(AwsClientProperties.HttpClientType.URL_CONNECTION);
+
+        try (SdkHttpClient httpClient = AwsClientFactory.httpClient(properties)) {
+            assertEquals("UrlConnection", httpClient.clientName());
+        }
+    }
+
+    @Test
+    void testOverrideConfiguration_timeouts() {
+        AwsClientProperties properties = new AwsClientProperties();
+        properties.setApiCallAttemptTimeout(Duration.ofSeconds(5));
+        properties.setApiCallTimeout(Duration.ofSeconds(20));
+
+        ClientOverrideConfiguration configuration = AwsClientFactory.overrideConfiguration(properties);
+
+        assertEquals(
+                Duration.ofSeconds(5), configuration.apiCallAttemptTimeout().orElseThrow());
+        assertEquals(Duration.ofSeconds(20), configuration.apiCallTimeout().orElseThrow());
+    }
+
+    @Test
+    void testOverrideConfiguration_noTimeoutsByDefault() {
+        ClientOverrideConfiguration configuration = AwsClientFactory.overrideConfiguration(new AwsClientProperties());
+
+        assertTrue(configuration.apiCallAttemptTimeout().isEmpty());
+        assertTrue(configuration.apiCallTimeout().isEmpty());
+    }
+}
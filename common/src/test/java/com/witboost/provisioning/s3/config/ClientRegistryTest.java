@@ -0,0 +1,183 @@
+package com.witboost.provisioning.s3.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+class ClientRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final List<SdkAutoCloseable> created = new ArrayList<>();
+
+    private final List<MetricPublisher> publishers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testGet_cached() {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ofHours(1), Duration.ZERO);
+
+        SdkAutoCloseable client1 = registry.get("us-east-1");
+        SdkAutoCloseable client2 = registry.get("us-east-1");
+
+        assertSame(client1, client2);
+        assertEquals(1, created.size());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .get("aws.client.registry.clients")
+                        .tags("service", "s3", "region", "us-east-1")
+                        .gauge()
+                        .value());
+    }
+
+    @Test
+    void testKeyOf() throws InterruptedException {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(1, Duration.ofHours(1), Duration.ZERO);
+
+        SdkAutoCloseable usEast = registry.get("us-east-1");
+        assertEquals(Optional.of("us-east-1"), registry.keyOf(usEast));
+
+        Thread.sleep(5);
+        registry.get("eu-west-1");
+        assertTrue(registry.keyOf(usEast).isEmpty());
+    }
+
+    @Test
+    void testGet_evictsLeastRecentlyUsed() throws InterruptedException {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ofHours(1), Duration.ZERO);
+
+        SdkAutoCloseable usEast = registry.get("us-east-1");
+        Thread.sleep(5);
+        SdkAutoCloseable euWest = registry.get("eu-west-1");
+        Thread.sleep(5);
+        registry.get("us-east-1");
+        Thread.sleep(5);
+        registry.get("ap-south-1");
+
+        assertEquals(2, registry.size());
+        // Evicted clients are closed only after their grace period, by the next eviction run
+        verify(euWest, never()).close();
+        registry.evictIdle();
+        verify(euWest).close();
+        verify(usEast, never()).close();
+        assertEquals(
+                0.0,
+                meterRegistry
+                        .get("aws.client.registry.clients")
+                        .tags("service", "s3", "region", "eu-west-1")
+                        .gauge()
+                        .value());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .counter("aws.client.registry.evictions", "service", "s3", "cause", "size")
+                        .count());
+    }
+
+    @Test
+    void testEvictIdle() {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ZERO, Duration.ZERO);
+
+        SdkAutoCloseable client = registry.get("us-east-1");
+        registry.evictIdle();
+
+        assertEquals(0, registry.size());
+        verify(client).close();
+        assertNotSame(client, registry.get("us-east-1"));
+        assertEquals(
+                1,
+                meterRegistry
+                        .find("aws.client.connections.open")
+                        .tags("region", "us-east-1")
+                        .gauges()
+                        .size());
+    }
+
+    @Test
+    void testEvictIdle_keepsEvictedClientsOpenDuringGracePeriod() {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ZERO, Duration.ofHours(1));
+
+        SdkAutoCloseable client = registry.get("us-east-1");
+        registry.evictIdle();
+
+        assertEquals(0, registry.size());
+        verify(client, never()).close();
+
+        registry.close();
+        verify(client).close();
+    }
+
+    @Test
+    void testClose() {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ofHours(1), Duration.ofHours(1));
+
+        SdkAutoCloseable client1 = registry.get("us-east-1");
+        SdkAutoCloseable client2 = registry.get("eu-west-1");
+        registry.close();
+
+        verify(client1).close();
+        verify(client2).close();
+        assertThrows(IllegalStateException.class, () -> registry.get("us-east-1"));
+    }
+
+    @Test
+    void testConnectionMetrics() {
+        ClientRegistry<String, SdkAutoCloseable> registry = registry(2, Duration.ofHours(1), Duration.ZERO);
+        registry.get("us-east-1");
+
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        MetricCollector httpClient = apiCall.createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, 3);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 2);
+        publishers.get(0).publish(apiCall.collect());
+
+        assertEquals(
+                3.0,
+                meterRegistry
+                        .get("aws.client.connections.leased")
+                        .tags("service", "s3", "region", "us-east-1")
+                        .gauge()
+                        .value());
+        assertEquals(
+                5.0,
+                meterRegistry
+                        .get("aws.client.connections.open")
+                        .tags("service", "s3", "region", "us-east-1")
+                        .gauge()
+                        .value());
+    }
+
+    private ClientRegistry<String, SdkAutoCloseable> registry(
+            int maxSize, Duration idleTimeout, Duration closeGracePeriod) {
+        return new ClientRegistry<>(
+                "s3",
+                maxSize,
+                idleTimeout,
+                closeGracePeriod,
+                region -> region,
+                region -> "default",
+                (region, publisher) -> {
+                    SdkAutoCloseable client = mock(SdkAutoCloseable.class);
+                    created.add(client);
+                    publishers.add(publisher);
+                    return client;
+                },
+                meterRegistry);
+    }
+}
@@ -0,0 +1,163 @@
+package com.witboost.provisioning.s3.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.witboost.provisioning.model.common.FailedOperation;
+import com.witboost.provisioning.s3.client.AccountIdProvider;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.ListAliasesRequest;
+import software.amazon.awssdk.services.kms.model.ListAliasesResponse;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
+import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class ClientWarmUpTest {
+
+    @Mock
+    private ConfigurationBean configurationBean;
+
+    @Mock
+    private AwsCredentialsProvider credentialsProvider;
+
+    @Mock
+    private AccountIdProvider accountIdProvider;
+
+    @Mock
+    private AccountRouter accountRouter;
+
+    @Mock
+    private AwsCredentialsProvider targetCredentialsProvider;
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private KmsClient kmsClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(configurationBean.getS3Client(any(Region.class))).thenReturn(s3Client);
+        when(configurationBean.getKmsClient(any(Region.class))).thenReturn(kmsClient);
+        when(credentialsProvider.resolveCredentials()).thenReturn(AwsBasicCredentials.create("accessKey", "secret"));
+        when(accountIdProvider.getAccountId()).thenReturn(Either.right("123456789012"));
+        when(s3Client.listBuckets(any(ListBucketsRequest.class)))
+                .thenReturn(ListBucketsResponse.builder().build());
+        when(kmsClient.listAliases(any(ListAliasesRequest.class)))
+                .thenReturn(ListAliasesResponse.builder().build());
+    }
+
+    @Test
+    void testWarmUp_noRegions() {
+        ClientWarmUp clientWarmUp = warmUp(List.of(""));
+
+        assertTrue(clientWarmUp.warmUp());
+
+        verifyNoInteractions(configurationBean, credentialsProvider, accountIdProvider);
+    }
+
+    @Test
+    void testWarmUp_success() {
+        ClientWarmUp clientWarmUp = warmUp(List.of("eu-west-1", " us-east-1", "eu-west-1"));
+
+        assertTrue(clientWarmUp.warmUp());
+
+        verify(configurationBean).getS3Client(Region.EU_WEST_1);
+        verify(configurationBean).getS3Client(Region.US_EAST_1);
+        verify(configurationBean).getKmsClient(Region.EU_WEST_1);
+        verify(configurationBean).getKmsClient(Region.US_EAST_1);
+        verify(s3Client, times(4)).listBuckets(any(ListBucketsRequest.class));
+        verify(kmsClient, times(4)).listAliases(any(ListAliasesRequest.class));
+        verify(accountIdProvider).getAccountId();
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("s3.warm-up.duration")
+                        .tag("result", "success")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    void testWarmUp_targetAccounts() {
+        AccountTarget target =
+                new AccountTarget("analytics", "arn:aws:iam::210987654321:role/provisioner", null, "210987654321");
+        when(accountRouter.targets()).thenReturn(List.of(target));
+        when(accountRouter.credentialsProvider(target)).thenReturn(targetCredentialsProvider);
+        when(targetCredentialsProvider.resolveCredentials()).thenThrow(SdkClientException.create("Access denied"));
+
+        assertFalse(warmUp(List.of("eu-west-1")).warmUp());
+
+        verify(targetCredentialsProvider).resolveCredentials();
+        verify(s3Client, times(2)).listBuckets(any(ListBucketsRequest.class));
+    }
+
+    @Test
+    void testWarmUp_serviceErrorCountsAsWarm() {
+        when(s3Client.listBuckets(any(ListBucketsRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        assertTrue(warmUp(List.of("eu-west-1")).warmUp());
+    }
+
+    @Test
+    void testWarmUp_failuresDoNotThrow() {
+        when(kmsClient.listAliases(any(ListAliasesRequest.class)))
+                .thenThrow(SdkClientException.create("Unable to connect"));
+        when(accountIdProvider.getAccountId()).thenReturn(Either.left(new FailedOperation("STS error", List.of())));
+
+        ClientWarmUp clientWarmUp = warmUp(List.of("eu-west-1"));
+
+        assertDoesNotThrow(() -> clientWarmUp.run(null));
+        assertFalse(clientWarmUp.warmUp());
+        assertEquals(
+                2,
+                meterRegistry
+                        .get("s3.warm-up.duration")
+                        .tag("result", "failed")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    void testWarmUp_credentialsUnavailable() {
+        when(credentialsProvider.resolveCredentials()).thenThrow(SdkClientException.create("No credentials"));
+
+        assertFalse(warmUp(List.of("eu-west-1")).warmUp());
+
+        verify(accountIdProvider, never()).getAccountId();
+        verify(s3Client, times(2)).listBuckets(any(ListBucketsRequest.class));
+    }
+
+    private ClientWarmUp warmUp(List<String> regions) {
+        return new ClientWarmUp(
+                configurationBean,
+                credentialsProvider,
+                accountIdProvider,
+                accountRouter,
+                meterRegistry,
+                regions,
+                2,
+                30);
+    }
+}
@@ -1,21 +1,33 @@
 package com.witboost.provisioning.s3.config;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 import com.witboost.provisioning.framework.service.ProvisionConfiguration;
 import com.witboost.provisioning.framework.service.validation.ValidationConfiguration;
+import com.witboost.provisioning.s3.client.AccountIdProvider;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import com.witboost.provisioning.s3.client.BucketInventory;
+import com.witboost.provisioning.s3.client.BucketLeaseManager;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.service.BucketSingleFlight;
 import com.witboost.provisioning.s3.service.provision.StorageAreaProvisionService;
 import com.witboost.provisioning.s3.service.validation.StorageAreaValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.sts.StsClient;
 
 class ConfigurationBeanTest {
 
@@ -26,22 +38,44 @@ class ConfigurationBeanTest {
     private BucketManager bucketManager;
 
     @Mock
-    private StsClient stsClient;
+    private AccountIdProvider accountIdProvider;
+
+    @Mock
+    private BucketInventory bucketInventory;
+
+    @Spy
+    private AwsClientProperties s3ClientProperties = new AwsClientProperties();
+
+    @Spy
+    private AwsClientProperties kmsClientProperties = new AwsClientProperties();
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        configurationBean.accountRouter = AccountRouter.singleAccount(accountIdProvider);
+        configurationBean.bucketSingleFlight = BucketSingleFlight.withDefaults();
+        configurationBean.bucketLeaseManager = BucketLeaseManager.disabled();
+        configurationBean.meterRegistry = new SimpleMeterRegistry();
+        configurationBean.sdkMetricsPublisher = new SdkMetricsPublisher(configurationBean.meterRegistry);
+        configurationBean.clientRegistryMaxSize = 32;
+        configurationBean.clientIdleTimeoutSeconds = 1800;
+        configurationBean.startClientRegistries();
+    }
+
+    @AfterEach
+    void tearDown() {
+        configurationBean.closeClientRegistries();
     }
 
     @Test
     void testStorageAreaProvisionServiceBean() {
-        StorageAreaProvisionService service = configurationBean.storageAreaProvisionService(stsClient);
+        StorageAreaProvisionService service = configurationBean.storageAreaProvisionService();
         assertNotNull(service, "StorageAreaProvisionService bean should not be null");
     }
 
     @Test
     void testProvisionConfigurationBean() {
-        StorageAreaProvisionService service = configurationBean.storageAreaProvisionService(stsClient);
+        StorageAreaProvisionService service = configurationBean.storageAreaProvisionService();
 
         ProvisionConfiguration configuration = configurationBean.provisionConfiguration(service);
 
@@ -87,4 +121,33 @@ class ConfigurationBeanTest {
         assertNotNull(kmsClient1, "KmsClient should not be null");
         assertSame(kmsClient1, kmsClient2, "KmsClient should be cached and return the same instance");
     }
+
+    @Test
+    void testCloseClientRegistries() {
+        S3Client s3Client = configurationBean.getS3Client(Region.US_WEST_2);
+        assertNotNull(s3Client);
+
+        configurationBean.closeClientRegistries();
+
+        assertThrows(IllegalStateException.class, () -> configurationBean.getS3Client(Region.US_WEST_2));
+        assertThrows(IllegalStateException.class, () -> configurationBean.getKmsClient(Region.US_WEST_2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBucketInventoryUsesClientRegistry() {
+        ArgumentCaptor<Function<S3Client, Optional<BucketInventory.ClientLocation>>> locator =
+                ArgumentCaptor.forClass(Function.class);
+        ArgumentCaptor<Function<BucketInventory.ClientLocation, S3Client>> clients =
+                ArgumentCaptor.forClass(Function.class);
+        verify(bucketInventory).useClientRegistry(locator.capture(), clients.capture());
+        Region region = Region.EU_WEST_1;
+        S3Client s3Client = configurationBean.getS3Client(region);
+
+        var location = new BucketInventory.ClientLocation(AccountTarget.DEFAULT, region);
+
+        assertEquals(Optional.of(location), locator.getValue().apply(s3Client));
+        assertSame(s3Client, clients.getValue().apply(location));
+        assertTrue(locator.getValue().apply(mock(S3Client.class)).isEmpty());
+    }
 }
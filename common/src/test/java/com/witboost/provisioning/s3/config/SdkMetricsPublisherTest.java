@@ -0,0 +1,107 @@
+package com.witboost.provisioning.s3.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+class SdkMetricsPublisherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SdkMetricsPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new SdkMetricsPublisher(meterRegistry);
+    }
+
+    @Test
+    void testPublish_throttledCallWithRetry() {
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        apiCall.reportMetric(CoreMetric.SERVICE_ID, "S3");
+        apiCall.reportMetric(CoreMetric.OPERATION_NAME, "PutBucketTagging");
+        apiCall.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, true);
+        apiCall.reportMetric(CoreMetric.API_CALL_DURATION, Duration.ofMillis(300));
+        apiCall.reportMetric(CoreMetric.RETRY_COUNT, 1);
+
+        MetricCollector throttled = apiCall.createChild("ApiCallAttempt");
+        throttled.reportMetric(CoreMetric.ERROR_TYPE, "Throttling");
+        httpClient(throttled, 50, 3);
+        MetricCollector succeeded = apiCall.createChild("ApiCallAttempt");
+        succeeded.reportMetric(CoreMetric.TIME_TO_FIRST_BYTE, Duration.ofMillis(80));
+        httpClient(succeeded, 50, 0);
+
+        publisher.publish(apiCall.collect());
+
+        assertEquals(
+                300,
+                meterRegistry
+                        .get("aws.sdk.api.call.duration")
+                        .tags("service", "S3", "operation", "PutBucketTagging", "outcome", "success")
+                        .timer()
+                        .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("aws.sdk.api.call.retries")
+                        .tags("service", "S3", "operation", "PutBucketTagging")
+                        .counter()
+                        .count());
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("aws.sdk.api.call.attempt.errors")
+                        .tags("error.type", "Throttling")
+                        .counter()
+                        .count());
+        assertEquals(
+                1,
+                meterRegistry.get("aws.sdk.api.call.time.to.first.byte").timer().count());
+        assertEquals(
+                2,
+                meterRegistry
+                        .get("aws.sdk.http.connections.leased")
+                        .tags("service", "S3", "http.client", "Apache")
+                        .summary()
+                        .count());
+        assertEquals(
+                3,
+                meterRegistry.get("aws.sdk.http.connections.pending").summary().max());
+    }
+
+    @Test
+    void testPublish_failedCallWithoutRetries() {
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        apiCall.reportMetric(CoreMetric.SERVICE_ID, "KMS");
+        apiCall.reportMetric(CoreMetric.OPERATION_NAME, "CreateKey");
+        apiCall.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, false);
+        apiCall.reportMetric(CoreMetric.API_CALL_DURATION, Duration.ofMillis(20));
+        apiCall.reportMetric(CoreMetric.RETRY_COUNT, 0);
+
+        publisher.publish(apiCall.collect());
+
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("aws.sdk.api.call.duration")
+                        .tags("service", "KMS", "operation", "CreateKey", "outcome", "failure")
+                        .timer()
+                        .count());
+        assertNull(meterRegistry.find("aws.sdk.api.call.retries").counter());
+    }
+
+    private static void httpClient(MetricCollector attempt, int leased, int pending) {
+        MetricCollector httpClient = attempt.createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.HTTP_CLIENT_NAME, "Apache");
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, leased);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+        httpClient.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, Duration.ofMillis(2));
+    }
+}
@@ -0,0 +1,136 @@
+package com.witboost.provisioning.s3.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BucketSingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BucketSingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new BucketSingleFlight(meterRegistry, true, 16);
+    }
+
+    @Test
+    void testExecute_identicalRequestsShareResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> leader =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "result";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key", () -> {
+                    executions.incrementAndGet();
+                    return "other";
+                }));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_differentRequestsAreSerialized() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        CompletableFuture<String> first =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key-1", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    started.countDown();
+                    await(release);
+                    running.decrementAndGet();
+                    return "first";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key-2", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    running.decrementAndGet();
+                    return "second";
+                }));
+        Thread.sleep(50);
+        assertFalse(second.isDone());
+        release.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void testExecute_failureSharedWithFollowers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key", () -> {
+                    started.countDown();
+                    await(release);
+                    throw new IllegalStateException("AWS error");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower =
+                CompletableFuture.supplyAsync(() -> singleFlight.execute("my-bucket", "key", () -> "other"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+        assertInstanceOf(IllegalStateException.class, followerError.getCause());
+
+        // The failed operation is not cached
+        assertEquals("retry", singleFlight.execute("my-bucket", "key", () -> "retry"));
+    }
+
+    @Test
+    void testDisabled() {
+        singleFlight = new BucketSingleFlight(meterRegistry, false, 16);
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("my-bucket", "key", executions::incrementAndGet);
+        singleFlight.coalesce("my-bucket", "key", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry
+                                .counter("s3.bucket.single-flight.requests", "outcome", "coalesced")
+                                .count()
+                        < expected
+                && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
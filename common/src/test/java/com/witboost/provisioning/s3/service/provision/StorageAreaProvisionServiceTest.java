@@ -11,12 +11,28 @@ import com.witboost.provisioning.model.StorageArea;
 import com.witboost.provisioning.model.common.FailedOperation;
 import com.witboost.provisioning.model.request.ProvisionOperationRequest;
 import com.witboost.provisioning.model.status.ProvisionInfo;
+import com.witboost.provisioning.s3.client.AccountIdProvider;
+import com.witboost.provisioning.s3.client.AccountRouter;
+import com.witboost.provisioning.s3.client.AccountTarget;
+import com.witboost.provisioning.s3.client.BucketLeaseManager;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.client.DeletionReport;
+import com.witboost.provisioning.s3.client.ObjectExpirationStatus;
+import com.witboost.provisioning.s3.client.PrefixDeletionPlan;
+import com.witboost.provisioning.s3.client.ProvisioningTrace;
+import com.witboost.provisioning.s3.config.AccountRoutingProperties;
 import com.witboost.provisioning.s3.model.S3Specific;
+import com.witboost.provisioning.s3.service.BucketSingleFlight;
 import io.vavr.control.Either;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,8 +40,6 @@ import org.mockito.*;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.sts.StsClient;
-import software.amazon.awssdk.services.sts.model.GetCallerIdentityResponse;
 
 class StorageAreaProvisionServiceTest {
 
@@ -45,7 +59,7 @@ class StorageAreaProvisionServiceTest {
     private KmsClient kmsClient;
 
     @Mock
-    private StsClient stsClient;
+    private AccountIdProvider accountIdProvider;
 
     @Mock
     private ProvisionOperationRequest<?, ? extends Specific> request;
@@ -62,14 +76,15 @@ class StorageAreaProvisionServiceTest {
         when(kmsClientProvider.apply(any(Region.class))).thenReturn(kmsClient);
 
         storageAreaProvisionService =
-                new StorageAreaProvisionService(s3ClientProvider, kmsClientProvider, stsClient, bucketManager);
+                new StorageAreaProvisionService(s3ClientProvider, kmsClientProvider, accountIdProvider, bucketManager);
 
-        GetCallerIdentityResponse callerIdentityResponse = mock(GetCallerIdentityResponse.class);
-        when(stsClient.getCallerIdentity()).thenReturn(callerIdentityResponse);
-        when(callerIdentityResponse.account()).thenReturn("accountId");
+        when(accountIdProvider.getAccountId()).thenReturn(Either.right("accountId"));
 
         when(request.getComponent()).thenReturn(Optional.of(createStorageArea()));
         when(request.getDataProduct()).thenReturn(createDataProduct());
+        when(request.isRemoveData()).thenReturn(true);
+        when(bucketManager.clearObjectExpiration(any(), anyString(), anyString(), anyBoolean(), any()))
+                .thenReturn(Either.right(false));
     }
 
     @Test
@@ -88,6 +103,80 @@ class StorageAreaProvisionServiceTest {
         verify(bucketManager).createFolder(eq(s3Client), eq(bucketName), anyString());
     }
 
+    @Test
+    void testProvision_folderExpired() {
+        when(bucketManager.createOrUpdateBucket(
+                        eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), anyString()))
+                .thenReturn(Either.right(null));
+        when(bucketManager.clearObjectExpiration(eq(s3Client), eq(bucketName), anyString(), anyBoolean(), any()))
+                .thenReturn(Either.right(true));
+        when(bucketManager.createFolder(eq(s3Client), eq(bucketName), anyString()))
+                .thenReturn(Either.right(null));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.provision(request);
+
+        assertTrue(result.isRight(), "Provision should succeed");
+        InOrder inOrder = inOrder(bucketManager);
+        inOrder.verify(bucketManager).clearObjectExpiration(s3Client, bucketName, "v0", false, null);
+        inOrder.verify(bucketManager).createFolder(s3Client, bucketName, "v0");
+    }
+
+    @Test
+    void testProvision_folderStillExpiring() {
+        when(bucketManager.createOrUpdateBucket(
+                        eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), anyString()))
+                .thenReturn(Either.right(null));
+        when(bucketManager.clearObjectExpiration(eq(s3Client), eq(bucketName), anyString(), anyBoolean(), any()))
+                .thenReturn(Either.left(new FailedOperation("Folder still being expired", Collections.emptyList())));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.provision(request);
+
+        assertTrue(result.isLeft(), "Provision should fail while the folder is still being expired");
+        assertEquals("Folder still being expired", result.getLeft().message());
+        verify(bucketManager, never()).createFolder(any(), any(), any());
+    }
+
+    @Test
+    void testProvision_reportsProvisioningTrace() {
+        var service = new StorageAreaProvisionService(
+                (account, region) -> s3Client,
+                (account, region) -> kmsClient,
+                AccountRouter.singleAccount(accountIdProvider),
+                bucketManager,
+                BucketSingleFlight.withDefaults(),
+                BucketLeaseManager.disabled(),
+                true);
+        when(bucketManager.createOrUpdateBucket(
+                        eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), anyString()))
+                .thenAnswer(invocation -> {
+                    ProvisioningTrace.callIssued();
+                    ProvisioningTrace.callsSkipped(4);
+                    return Either.right(null);
+                });
+        when(bucketManager.createFolder(eq(s3Client), eq(bucketName), anyString()))
+                .thenAnswer(invocation -> {
+                    ProvisioningTrace.callIssued();
+                    return Either.right(null);
+                });
+
+        Either<FailedOperation, ProvisionInfo> result = service.provision(request);
+
+        assertTrue(result.isRight());
+        var privateInfo =
+                new ObjectMapper().convertValue(result.get().getPrivateInfo().get(), Map.class);
+        var publicInfo =
+                new ObjectMapper().convertValue(result.get().getPublicInfo().get(), Map.class);
+        assertEquals("2", ((Map<?, ?>) privateInfo.get("awsCalls")).get("value"));
+        assertEquals("4", ((Map<?, ?>) privateInfo.get("skippedAwsCalls")).get("value"));
+        for (String phase : List.of(
+                "validationMillis",
+                "existenceCheckMillis",
+                "createAndWaitMillis",
+                "configurationMillis",
+                "folderCreationMillis")) assertTrue(privateInfo.containsKey(phase), phase);
+        assertFalse(publicInfo.containsKey("awsCalls"));
+    }
+
     @Test
     void testProvision_success1() {
 
@@ -190,16 +279,159 @@ class StorageAreaProvisionServiceTest {
         verify(bucketManager).createFolder(any(), any(), any());
     }
 
+    @Test
+    void testProvision_accountIdFailure() {
+        when(accountIdProvider.getAccountId())
+                .thenReturn(Either.left(new FailedOperation("Account resolution failed", Collections.emptyList())));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.provision(request);
+
+        assertTrue(result.isLeft(), "Provision should fail if the account cannot be resolved");
+        assertEquals("Account resolution failed", result.getLeft().message());
+        verify(bucketManager, never()).createOrUpdateBucket(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testProvision_concurrentIdenticalRequestsShareBucketReconciliation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bucketManager.createOrUpdateBucket(
+                        eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), anyString()))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Either.right(null);
+                });
+        when(bucketManager.createFolder(eq(s3Client), eq(bucketName), anyString()))
+                .thenReturn(Either.right(null));
+
+        CompletableFuture<Either<FailedOperation, ProvisionInfo>> first =
+                CompletableFuture.supplyAsync(() -> storageAreaProvisionService.provision(request));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Either<FailedOperation, ProvisionInfo>> second =
+                CompletableFuture.supplyAsync(() -> storageAreaProvisionService.provision(request));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isRight());
+        assertTrue(second.get(5, TimeUnit.SECONDS).isRight());
+        verify(bucketManager, times(1))
+                .createOrUpdateBucket(eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), anyString());
+        verify(bucketManager, times(2)).createFolder(eq(s3Client), eq(bucketName), anyString());
+    }
+
     @Test
     void testUnprovision_success() {
         when(s3ClientProvider.apply(any(Region.class))).thenReturn(s3Client);
         when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.right(true));
-        when(bucketManager.deleteObjectsWithPrefix(eq(s3Client), eq(bucketName), anyString()))
+        mockApiDeletion();
+        when(bucketManager.deleteObjectsWithPrefix(eq(s3Client), eq(bucketName), anyString(), any()))
                 .thenReturn(Either.right(null));
 
         Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
 
         assertTrue(result.isRight(), "Unprovision should succeed");
+        verify(bucketManager).deleteObjectsWithPrefix(s3Client, bucketName, "v0", PrefixDeletionPlan.api());
+    }
+
+    @Test
+    void testUnprovision_keepsDataWithoutRemoveData() {
+        when(request.isRemoveData()).thenReturn(false);
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isRight(), "Unprovision should succeed");
+        assertTrue(result.get().getPublicInfo().toString().contains("the data of its folder was kept"));
+        verifyNoInteractions(bucketManager);
+    }
+
+    @Test
+    void testUnprovision_versionedBucketPurgesVersions() {
+        StorageArea storageArea = createStorageArea();
+        ((S3Specific) storageArea.getSpecific()).setMultipleVersion(true);
+        when(request.getComponent()).thenReturn(Optional.of(storageArea));
+        when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.right(true));
+        mockApiDeletion();
+        when(bucketManager.purgeObjectVersionsWithPrefix(eq(s3Client), eq(bucketName), anyString(), any()))
+                .thenReturn(Either.right(new DeletionReport(12, 3, 2048)));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isRight(), "Unprovision should succeed");
+        verify(bucketManager).purgeObjectVersionsWithPrefix(s3Client, bucketName, "v0", PrefixDeletionPlan.api());
+        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any(), any());
+
+        var privateInfo =
+                new ObjectMapper().convertValue(result.get().getPrivateInfo().get(), Map.class);
+        var publicInfo =
+                new ObjectMapper().convertValue(result.get().getPublicInfo().get(), Map.class);
+        assertEquals("12", ((Map<?, ?>) privateInfo.get("deletedVersions")).get("value"));
+        assertEquals("3", ((Map<?, ?>) privateInfo.get("deletedDeleteMarkers")).get("value"));
+        assertEquals("2048", ((Map<?, ?>) privateInfo.get("reclaimedBytes")).get("value"));
+        assertEquals(Set.of("result"), publicInfo.keySet());
+    }
+
+    @Test
+    void testUnprovision_folderDeletionFailure() {
+        FailedOperation failedOperation = new FailedOperation(
+                "[Bucket 'domain-dataproduct-componentname-devfb80c'] Error(s) during object deletion.",
+                Collections.emptyList());
+        when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.right(true));
+        mockApiDeletion();
+        when(bucketManager.deleteObjectsWithPrefix(eq(s3Client), eq(bucketName), anyString(), any()))
+                .thenReturn(Either.left(failedOperation));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isLeft(), "Unprovision should fail if the folder cannot be deleted");
+        assertEquals(failedOperation, result.getLeft());
+    }
+
+    @Test
+    void testUnprovision_largeFolderExpiredByLifecycle() {
+        when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.right(true));
+        when(bucketManager.getObjectExpirationStatus(eq(s3Client), eq(bucketName), anyString(), anyBoolean()))
+                .thenReturn(Either.right(ObjectExpirationStatus.NONE));
+        when(bucketManager.planPrefixDeletion(eq(s3Client), eq(bucketName), anyString(), anyBoolean()))
+                .thenReturn(Either.right(PrefixDeletionPlan.lifecycle()));
+        when(bucketManager.expireObjectsWithPrefix(eq(s3Client), eq(bucketName), anyString()))
+                .thenReturn(Either.right(null));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isRight(), "Unprovision should succeed once the folder is being expired");
+        verify(bucketManager).expireObjectsWithPrefix(s3Client, bucketName, "v0");
+        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any(), any());
+        var privateInfo =
+                new ObjectMapper().convertValue(result.get().getPrivateInfo().get(), Map.class);
+        assertEquals("IN_PROGRESS", ((Map<?, ?>) privateInfo.get("objectExpiration")).get("value"));
+    }
+
+    @Test
+    void testUnprovision_expirationStatusReported() {
+        when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.right(true));
+        when(bucketManager.getObjectExpirationStatus(eq(s3Client), eq(bucketName), anyString(), anyBoolean()))
+                .thenReturn(Either.right(ObjectExpirationStatus.COMPLETED));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isRight());
+        verify(bucketManager, never()).planPrefixDeletion(any(), any(), any(), anyBoolean());
+        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any(), any());
+        var privateInfo =
+                new ObjectMapper().convertValue(result.get().getPrivateInfo().get(), Map.class);
+        assertEquals("COMPLETED", ((Map<?, ?>) privateInfo.get("objectExpiration")).get("value"));
+    }
+
+    @Test
+    void testUnprovision_bucketCheckFailure() {
+        FailedOperation failedOperation = new FailedOperation("error", Collections.emptyList());
+        when(bucketManager.doesBucketExist(eq(s3Client), eq(bucketName))).thenReturn(Either.left(failedOperation));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
+
+        assertTrue(result.isLeft());
+        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any(), any());
     }
 
     @Test
@@ -221,7 +453,14 @@ class StorageAreaProvisionServiceTest {
         Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.unprovision(request);
 
         assertTrue(result.isRight(), "Unprovision should succeed if bucket does not exist");
-        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any());
+        verify(bucketManager, never()).deleteObjectsWithPrefix(any(), any(), any(), any());
+    }
+
+    private void mockApiDeletion() {
+        when(bucketManager.getObjectExpirationStatus(eq(s3Client), eq(bucketName), anyString(), anyBoolean()))
+                .thenReturn(Either.right(ObjectExpirationStatus.NONE));
+        when(bucketManager.planPrefixDeletion(eq(s3Client), eq(bucketName), anyString(), anyBoolean()))
+                .thenReturn(Either.right(PrefixDeletionPlan.api()));
     }
 
     private S3Specific createS3Specific() {
@@ -231,6 +470,54 @@ class StorageAreaProvisionServiceTest {
         return s3Specific;
     }
 
+    @Test
+    void testProvision_targetAccount() {
+        AccountRoutingProperties properties = new AccountRoutingProperties();
+        AccountRoutingProperties.Target analytics = new AccountRoutingProperties.Target();
+        analytics.setRoleArn("arn:aws:iam::210987654321:role/provisioner");
+        properties.setTargets(Map.of("analytics", analytics));
+        properties.setRouting(Map.of("domain", "analytics"));
+        AccountRouter accountRouter = new AccountRouter(accountIdProvider, null, null, properties);
+
+        List<AccountTarget> accounts = new ArrayList<>();
+        var service = new StorageAreaProvisionService(
+                (account, region) -> {
+                    accounts.add(account);
+                    return s3Client;
+                },
+                (account, region) -> kmsClient,
+                accountRouter,
+                bucketManager,
+                BucketSingleFlight.withDefaults(),
+                BucketLeaseManager.disabled());
+        when(bucketManager.createOrUpdateBucket(
+                        eq(s3Client), eq(kmsClient), eq(bucketName), any(S3Specific.class), eq("210987654321")))
+                .thenReturn(Either.right(null));
+        when(bucketManager.createFolder(eq(s3Client), eq(bucketName), anyString()))
+                .thenReturn(Either.right(null));
+
+        Either<FailedOperation, ProvisionInfo> result = service.provision(request);
+
+        assertTrue(result.isRight());
+        assertEquals("analytics", accounts.get(0).name());
+        verify(accountIdProvider, never()).getAccountId();
+    }
+
+    @Test
+    void testProvision_unknownTargetAccount() {
+        StorageArea storageArea = createStorageArea();
+        ((S3Specific) storageArea.getSpecific()).setAccount("unknown");
+        when(request.getComponent()).thenReturn(Optional.of(storageArea));
+
+        Either<FailedOperation, ProvisionInfo> result = storageAreaProvisionService.provision(request);
+
+        assertTrue(result.isLeft());
+        assertEquals(
+                "Error: The target account 'unknown' is not configured. Available targets: [].",
+                result.getLeft().message());
+        verifyNoInteractions(bucketManager);
+    }
+
     private StorageArea createStorageArea() {
         StorageArea storage = new StorageArea<>();
         storage.setName("fake-storage");
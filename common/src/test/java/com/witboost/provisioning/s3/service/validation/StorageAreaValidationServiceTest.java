@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.witboost.provisioning.model.DataProduct;
@@ -15,6 +17,7 @@ import com.witboost.provisioning.model.common.Problem;
 import com.witboost.provisioning.model.request.OperationRequest;
 import com.witboost.provisioning.model.request.ProvisionOperationRequest;
 import com.witboost.provisioning.s3.client.BucketManager;
+import com.witboost.provisioning.s3.client.BucketProbe;
 import com.witboost.provisioning.s3.model.S3Specific;
 import io.vavr.control.Either;
 import java.util.List;
@@ -23,7 +26,6 @@ import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import software.amazon.awssdk.regions.Region;
@@ -43,13 +45,13 @@ class StorageAreaValidationServiceTest {
     @Mock
     private ProvisionOperationRequest<?, ? extends Specific> request;
 
-    @InjectMocks
     private StorageAreaValidationService validationService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         when(s3ClientProvider.apply(any(Region.class))).thenReturn(s3Client);
+        validationService = new StorageAreaValidationService(s3ClientProvider, bucketManager);
     }
 
     @Test
@@ -64,8 +66,10 @@ class StorageAreaValidationServiceTest {
         DataProduct dp = getDataProductForTest();
         when(request.getDataProduct()).thenReturn(dp);
 
-        when(bucketManager.doesBucketExist(any(S3Client.class), anyString())).thenReturn(Either.right(true));
-        when(bucketManager.getBucketRegion(any(S3Client.class), anyString())).thenReturn(Either.right("eu-west-1"));
+        BucketProbe bucketProbe = new BucketProbe(BucketProbe.Status.EXISTS, "eu-west-1");
+        when(bucketManager.probeBucket(any(S3Client.class), anyString())).thenReturn(Either.right(bucketProbe));
+        when(bucketManager.resolveBucketRegion(any(S3Client.class), anyString(), eq(bucketProbe)))
+                .thenReturn(Either.right("eu-west-1"));
 
         Either<FailedOperation, Void> result = validationService.validate(request, OperationType.PROVISION);
 
@@ -92,7 +96,8 @@ class StorageAreaValidationServiceTest {
         DataProduct dp = getDataProductForTest();
         when(request.getDataProduct()).thenReturn(dp);
 
-        when(bucketManager.doesBucketExist(any(S3Client.class), anyString())).thenReturn(Either.right(false));
+        when(bucketManager.probeBucket(any(S3Client.class), anyString()))
+                .thenReturn(Either.right(new BucketProbe(BucketProbe.Status.MISSING, null)));
 
         Either<FailedOperation, Void> result = validationService.validate(request, OperationType.PROVISION);
 
@@ -114,8 +119,10 @@ class StorageAreaValidationServiceTest {
         when(request.getDataProduct()).thenReturn(dp);
         when(component.getId()).thenReturn("urn:dmb:cmp:finance:reporting:0:raw-storage-area");
 
-        when(bucketManager.doesBucketExist(any(S3Client.class), anyString())).thenReturn(Either.right(true));
-        when(bucketManager.getBucketRegion(any(S3Client.class), anyString())).thenReturn(Either.right("eu-central-1"));
+        BucketProbe bucketProbe = new BucketProbe(BucketProbe.Status.EXISTS, "eu-central-1");
+        when(bucketManager.probeBucket(any(S3Client.class), anyString())).thenReturn(Either.right(bucketProbe));
+        when(bucketManager.resolveBucketRegion(any(S3Client.class), anyString(), eq(bucketProbe)))
+                .thenReturn(Either.right("eu-central-1"));
 
         Either<FailedOperation, Void> result = validationService.validate(request, OperationType.PROVISION);
 
@@ -127,6 +134,50 @@ class StorageAreaValidationServiceTest {
         assertEquals(expectedError, result.getLeft());
     }
 
+    @Test
+    void validate_bucketNameTakenByAnotherAccount() {
+        OperationRequest<?, S3Specific> request = mock(OperationRequest.class);
+        S3Specific validSpecific = getS3SpecificForTest();
+
+        var component = mock(com.witboost.provisioning.model.Component.class);
+        when(component.getSpecific()).thenReturn(validSpecific);
+        when(request.getComponent()).thenReturn(Optional.of(component));
+        when(component.getId()).thenReturn("urn:dmb:cmp:finance:reporting:0:raw-storage-area");
+        DataProduct dp = getDataProductForTest();
+        when(request.getDataProduct()).thenReturn(dp);
+
+        when(bucketManager.probeBucket(any(S3Client.class), anyString()))
+                .thenReturn(Either.right(new BucketProbe(BucketProbe.Status.EXISTS_ELSEWHERE, "eu-west-1")));
+
+        Either<FailedOperation, Void> result = validationService.validate(request, OperationType.PROVISION);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("The bucket name is already taken"));
+        verify(bucketManager, never()).resolveBucketRegion(any(), any(), any());
+    }
+
+    @Test
+    void validate_bucketForbiddenInOwnAccount() {
+        OperationRequest<?, S3Specific> request = mock(OperationRequest.class);
+        S3Specific validSpecific = getS3SpecificForTest();
+
+        var component = mock(com.witboost.provisioning.model.Component.class);
+        when(component.getSpecific()).thenReturn(validSpecific);
+        when(request.getComponent()).thenReturn(Optional.of(component));
+        when(component.getId()).thenReturn("urn:dmb:cmp:finance:reporting:0:raw-storage-area");
+        DataProduct dp = getDataProductForTest();
+        when(request.getDataProduct()).thenReturn(dp);
+
+        when(bucketManager.probeBucket(any(S3Client.class), anyString()))
+                .thenReturn(Either.right(new BucketProbe(BucketProbe.Status.FORBIDDEN, "eu-west-1")));
+
+        Either<FailedOperation, Void> result = validationService.validate(request, OperationType.PROVISION);
+
+        assertTrue(result.isLeft());
+        assertTrue(result.getLeft().message().contains("not allowed to access it"));
+        verify(bucketManager, never()).resolveBucketRegion(any(), any(), any());
+    }
+
     private static @NotNull S3Specific getS3SpecificForTest() {
         S3Specific validSpecific = new S3Specific();
         validSpecific.setMultipleVersion(false);
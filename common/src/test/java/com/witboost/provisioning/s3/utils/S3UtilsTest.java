@@ -5,8 +5,13 @@ import static org.mockito.Mockito.*;
 
 import com.witboost.provisioning.model.Component;
 import com.witboost.provisioning.model.DataProduct;
+import com.witboost.provisioning.s3.model.BucketTag;
+import com.witboost.provisioning.s3.model.S3Specific;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
 
 class S3UtilsTest {
 
@@ -67,4 +72,43 @@ class S3UtilsTest {
                 "02a0ae196d8e0a79363418df5bd581a6f5f7e43e4a8030dcd644e6ce07c5d1a2",
                 S3Utils.sha256("sales-products-production"));
     }
+
+    private S3Specific s3Specific(String... tags) {
+        S3Specific s3Specific = new S3Specific();
+        s3Specific.setRegion("eu-west-1");
+        s3Specific.setMultipleVersion(false);
+        List<BucketTag> bucketTags = new ArrayList<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            BucketTag tag = new BucketTag();
+            tag.setKey(tags[i]);
+            tag.setValue(tags[i + 1]);
+            bucketTags.add(tag);
+        }
+        s3Specific.setBucketTags(bucketTags);
+        return s3Specific;
+    }
+
+    @Test
+    void testComputeConfigurationFingerprint_normalized() {
+        S3Specific first = s3Specific("a", "1", "b", "2");
+        S3Specific second = s3Specific("b", "2", "a", "1");
+        second.setServerSideEncryption(ServerSideEncryption.AES256);
+        second.setForceReconcile(true);
+
+        assertEquals(
+                S3Utils.computeConfigurationFingerprint(first, "policy"),
+                S3Utils.computeConfigurationFingerprint(second, "policy"));
+    }
+
+    @Test
+    void testComputeConfigurationFingerprint_changes() {
+        S3Specific s3Specific = s3Specific("a", "1");
+        String fingerprint = S3Utils.computeConfigurationFingerprint(s3Specific, "policy");
+
+        assertNotEquals(fingerprint, S3Utils.computeConfigurationFingerprint(s3Specific, "another policy"));
+        assertNotEquals(fingerprint, S3Utils.computeConfigurationFingerprint(s3Specific("a", "2"), "policy"));
+
+        s3Specific.setMultipleVersion(true);
+        assertNotEquals(fingerprint, S3Utils.computeConfigurationFingerprint(s3Specific, "policy"));
+    }
 }
@@ -1,3 +1,10 @@
 #!/bin/bash
 
-exec java -javaagent:opentelemetry-javaagent.jar -jar s3-tech-adapter.jar "$@"
+# Continuous Flight Recorder recording, see docs/docker.md
+JFR_OPTS=()
+if [ "${JFR_ENABLED:-false}" = "true" ]; then
+  mkdir -p "${JFR_DIRECTORY:-/tmp/jfr}"
+  JFR_OPTS=("-XX:StartFlightRecording=name=continuous,settings=default,settings=s3-tech-adapter.jfc,disk=true,maxage=${JFR_MAX_AGE:-6h},maxsize=${JFR_MAX_SIZE:-256m},dumponexit=true,filename=${JFR_DIRECTORY:-/tmp/jfr}/s3-tech-adapter.jfr")
+fi
+
+exec java "${JFR_OPTS[@]}" -javaagent:opentelemetry-javaagent.jar -jar s3-tech-adapter.jar "$@"